@@ -0,0 +1,291 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.tools4j.matmax.indexed.Obj2D;
+import org.tools4j.matmax.matrix.Layout;
+import org.tools4j.matmax.matrix.Matrix;
+import org.tools4j.matmax.matrix.ObjMatrix;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+import org.tools4j.matmax.vector.Vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Data frame with typed columns, each column stored as a double, long, int, bool or string vector.  Cell values are
+ * returned boxed by {@link #value(int, int)};  typed access is available through the column accessors such as
+ * {@link #doubleColumn(int)}.
+ * <p>
+ * Frames can be {@link #write(Path) written} to a binary columnar file and {@link #read(Path) read} back from a
+ * memory-mapped file without parsing the column values.
+ */
+public final class ColumnFrame implements DataFrame<Object, Obj2D<Object>>, ObjMatrix<Object> {
+
+    private final Header header;
+    private final Vector<?, ?>[] columns;
+    private final ColumnType[] types;
+
+    private ColumnFrame(final Header header, final Vector<?, ?>[] columns, final ColumnType[] types) {
+        this.header = header;
+        this.columns = columns;
+        this.types = types;
+    }
+
+    /**
+     * Creates a frame from header and typed column vectors.
+     *
+     * @param header  the frame header defining row and column labels
+     * @param columns the column vectors, one per header column, each a double, long, int, bool or string vector
+     * @return a new frame
+     * @throws IllegalArgumentException if the number or length of the columns does not match the header, if a
+     *                                  column is not of a supported vector type, or if an object vector contains a
+     *                                  value that is neither a string nor null
+     */
+    public static ColumnFrame create(final Header header, final Vector<?, ?>... columns) {
+        Objects.requireNonNull(header);
+        if (columns.length != header.nColumns()) {
+            throw new IllegalArgumentException("columns length must be " + header.nColumns() + " but was " +
+                    columns.length);
+        }
+        final ColumnType[] types = new ColumnType[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c].nElements() != header.nRows()) {
+                throw new IllegalArgumentException("column " + c + " length must be " + header.nRows() + " but was " +
+                        columns[c].nElements());
+            }
+            types[c] = ColumnType.of(columns[c]);
+            if (types[c] == ColumnType.STRING) {
+                checkStrings(c, (ObjVector<?>)columns[c]);
+            }
+        }
+        return new ColumnFrame(header, columns.clone(), types);
+    }
+
+    private static void checkStrings(final int column, final ObjVector<?> values) {
+        final int n = values.nElements();
+        for (int row = 0; row < n; row++) {
+            final Object value = values.value(row);
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException("column " + column + " must contain strings but row " + row +
+                        " is " + value.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Memory-maps a frame file written by {@link #write(Path)}.  Double, long, int and bool columns of the returned
+     * frame read their values directly from the mapped file;  header labels are read back as strings.  The mapping is
+     * released when the frame is garbage collected.
+     *
+     * @param file the frame file
+     * @return the mapped frame
+     * @throws IOException if the file cannot be read or is not a valid frame file
+     */
+    public static ColumnFrame read(final Path file) throws IOException {
+        return ColumnarFormat.read(file);
+    }
+
+    /**
+     * Writes this frame to a binary columnar file, replacing the file if it exists.  Header labels are written as
+     * strings via {@link String#valueOf(Object)}, null labels are preserved.
+     *
+     * @param file the frame file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path file) throws IOException {
+        ColumnarFormat.write(this, file);
+    }
+
+    @Override
+    public Header header() {
+        return header;
+    }
+
+    @Override
+    public int nRows() {
+        return header.nRows();
+    }
+
+    @Override
+    public int nColumns() {
+        return header.nColumns();
+    }
+
+    /**
+     * Returns {@link Layout#COLUMN_MAJOR} as values are stored column by column.
+     */
+    @Override
+    public Layout layout() {
+        return Layout.COLUMN_MAJOR;
+    }
+
+    public ColumnType columnType(final int col) {
+        return types[col];
+    }
+
+    public Vector<?, ?> typedColumn(final int col) {
+        return columns[col];
+    }
+
+    public DoubleVector doubleColumn(final int col) {
+        return (DoubleVector)typedColumn(col, ColumnType.DOUBLE);
+    }
+
+    public LongVector longColumn(final int col) {
+        return (LongVector)typedColumn(col, ColumnType.LONG);
+    }
+
+    public IntVector intColumn(final int col) {
+        return (IntVector)typedColumn(col, ColumnType.INT);
+    }
+
+    public BoolVector boolColumn(final int col) {
+        return (BoolVector)typedColumn(col, ColumnType.BOOL);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ObjVector<String> stringColumn(final int col) {
+        return (ObjVector<String>)typedColumn(col, ColumnType.STRING);
+    }
+
+    private Vector<?, ?> typedColumn(final int col, final ColumnType type) {
+        if (types[col] != type) {
+            throw new IllegalArgumentException("column " + col + " is of type " + types[col] + " and not " + type);
+        }
+        return columns[col];
+    }
+
+    @Override
+    public Object value(final int row, final int column) {
+        return column >= 0 & column < columns.length ? columns[column].value(row) : null;
+    }
+
+    /**
+     * Returns a frame with the given header, columns and rows are matched by the labels in the first header row and
+     * header column, respectively.  Cells without matching row or column get the default value of the column type,
+     * and columns without match become string columns with null values.
+     *
+     * @param header the header of the reshaped frame
+     * @return a frame with the given header and values of this frame
+     */
+    @Override
+    public ColumnFrame reshapeTo(final Header header) {
+        final int[] rowIndices = labelIndices(this.header.column(0), header.column(0));
+        final int[] colIndices = labelIndices(this.header.row(0), header.row(0));
+        final int rows = rowIndices.length;
+        final Vector<?, ?>[] reshaped = new Vector<?, ?>[colIndices.length];
+        for (int c = 0; c < reshaped.length; c++) {
+            final int source = colIndices[c];
+            if (source < 0) {
+                reshaped[c] = ObjVector.create(rows, row -> (String)null);
+                continue;
+            }
+            switch (types[source]) {
+                case DOUBLE:
+                    final DoubleVector doubles = (DoubleVector)columns[source];
+                    reshaped[c] = DoubleVector.create(rows, row -> doubles.valueAsDouble(rowIndices[row]));
+                    break;
+                case LONG:
+                    final LongVector longs = (LongVector)columns[source];
+                    reshaped[c] = LongVector.create(rows, row -> longs.valueAsLong(rowIndices[row]));
+                    break;
+                case INT:
+                    final IntVector ints = (IntVector)columns[source];
+                    reshaped[c] = IntVector.create(rows, row -> ints.valueAsInt(rowIndices[row]));
+                    break;
+                case BOOL:
+                    final BoolVector bools = (BoolVector)columns[source];
+                    reshaped[c] = BoolVector.create(rows, row -> bools.valueAsBoolean(rowIndices[row]));
+                    break;
+                default:
+                    final ObjVector<String> strings = stringColumn(source);
+                    reshaped[c] = ObjVector.create(rows, row -> strings.value(rowIndices[row]));
+                    break;
+            }
+        }
+        return create(header, reshaped);
+    }
+
+    private static int[] labelIndices(final ObjVector<?> sourceLabels, final ObjVector<?> targetLabels) {
+        final Map<Object, Integer> indexByLabel = new HashMap<>();
+        for (int i = sourceLabels.nElements() - 1; i >= 0; i--) {
+            indexByLabel.put(sourceLabels.value(i), i);
+        }
+        final int[] indices = new int[targetLabels.nElements()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexByLabel.getOrDefault(targetLabels.value(i), -1);
+        }
+        return indices;
+    }
+
+    /**
+     * Returns a frame with all columns materialized, for instance to load the columns of a mapped frame into memory.
+     */
+    @Override
+    public ColumnFrame materialize() {
+        final Vector<?, ?>[] materialized = new Vector<?, ?>[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            materialized[c] = (Vector<?, ?>)columns[c].materialize();
+        }
+        return new ColumnFrame(header, materialized, types);
+    }
+
+    @Override
+    public ColumnFrame materializeParallel(final ForkJoinPool pool) {
+        final Vector<?, ?>[] materialized = new Vector<?, ?>[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            materialized[c] = (Vector<?, ?>)columns[c].materializeParallel(pool);
+        }
+        return new ColumnFrame(header, materialized, types);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * header.hashCode() + Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj instanceof ColumnFrame) {
+            final ColumnFrame other = (ColumnFrame)obj;
+            return Header.equals(header, other.header) && Matrix.equals(this, other, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnFrame:" + nRows() + "x" + nColumns();
+    }
+}
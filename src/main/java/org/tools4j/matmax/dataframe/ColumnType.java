@@ -0,0 +1,56 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+import org.tools4j.matmax.vector.Vector;
+
+/**
+ * Value type of a {@link ColumnFrame} column.
+ */
+public enum ColumnType {
+    /** Column stored as {@link DoubleVector} */
+    DOUBLE,
+    /** Column stored as {@link LongVector} */
+    LONG,
+    /** Column stored as {@link IntVector} */
+    INT,
+    /** Column stored as {@link BoolVector} */
+    BOOL,
+    /** Column stored as {@link ObjVector} of strings */
+    STRING;
+
+    public static ColumnType of(final Vector<?, ?> column) {
+        if (column instanceof DoubleVector) return DOUBLE;
+        if (column instanceof LongVector) return LONG;
+        if (column instanceof IntVector) return INT;
+        if (column instanceof BoolVector) return BOOL;
+        if (column instanceof ObjVector) return STRING;
+        throw new IllegalArgumentException("Unsupported column vector type: " + column.getClass().getName());
+    }
+}
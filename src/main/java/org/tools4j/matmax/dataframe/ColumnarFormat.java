@@ -0,0 +1,447 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.tools4j.matmax.indexed.Obj2D;
+import org.tools4j.matmax.matrix.ObjMatrix;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+import org.tools4j.matmax.vector.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Binary columnar file format of {@link ColumnFrame}.  All numbers are little-endian and all blocks start at a
+ * multiple of 8 bytes.  The file layout is
+ * <pre>
+ * file header     magic 0x46584d4d ("MMXF"), version (short), reserved (short), rows, columns, header rows and
+ *                 header columns (int each)
+ * directory       per column:  type (int, the column type ordinal), reserved (int), block offset (long) and
+ *                 block length (long)
+ * labels          string tables with row-column labels, column labels and row labels, each in row-major order
+ * column blocks   DOUBLE, LONG:  raw values
+ *                 INT:  raw values
+ *                 BOOL:  values bit-packed into longs, bit i%64 of long i/64 for row i
+ *                 STRING:  dictionary string table followed by an int dictionary code per row, -1 for null
+ * </pre>
+ * A string table consists of the entry count, count + 1 int offsets relative to the end of the offsets, and the
+ * entries;  each entry is a flag byte (0 for null, 1 otherwise) followed by the UTF-8 bytes of the string.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x46584d4d;
+    static final short VERSION = 1;
+
+    private static final int FILE_HEADER_BYTES = 24;
+    private static final int DIRECTORY_ENTRY_BYTES = 24;
+
+    private ColumnarFormat() {
+        throw new RuntimeException("No ColumnarFormat for you!");
+    }
+
+    static void write(final ColumnFrame frame, final Path file) throws IOException {
+        final Header header = frame.header();
+        final int rows = header.nRows();
+        final int cols = header.nColumns();
+        final int headerRows = header.nHeaderRows();
+        final int headerCols = header.nHeaderColumns();
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             final Output out = new Output(channel)) {
+            out.putInt(MAGIC).putShort(VERSION).putShort((short)0)
+                    .putInt(rows).putInt(cols).putInt(headerRows).putInt(headerCols);
+            final long directory = out.position();
+            for (int i = 0; i < cols * DIRECTORY_ENTRY_BYTES; i++) {
+                out.put((byte)0);
+            }
+            writeStringTable(out, headerRows * headerCols,
+                    i -> header.rowColumnLabel(i / headerCols, i % headerCols));
+            writeStringTable(out, headerRows * cols, i -> header.columnLabel(i / cols, i % cols));
+            writeStringTable(out, rows * headerCols, i -> header.rowLabel(i / headerCols, i % headerCols));
+            final long[] offsets = new long[cols];
+            for (int c = 0; c < cols; c++) {
+                out.align();
+                offsets[c] = out.position();
+                writeColumn(out, frame.columnType(c), frame.typedColumn(c));
+            }
+            out.align();
+            out.flush();
+            final ByteBuffer entries = ByteBuffer.allocate(cols * DIRECTORY_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int c = 0; c < cols; c++) {
+                final long end = c + 1 < cols ? offsets[c + 1] : out.position();
+                entries.putInt(frame.columnType(c).ordinal()).putInt(0).putLong(offsets[c]).putLong(end - offsets[c]);
+            }
+            entries.flip();
+            while (entries.hasRemaining()) {
+                channel.write(entries, directory + entries.position());
+            }
+        }
+    }
+
+    private static void writeColumn(final Output out, final ColumnType type, final Vector<?, ?> column)
+            throws IOException {
+        final int n = column.nElements();
+        switch (type) {
+            case DOUBLE:
+                final DoubleVector doubles = (DoubleVector)column;
+                for (int i = 0; i < n; i++) {
+                    out.putDouble(doubles.valueAsDouble(i));
+                }
+                break;
+            case LONG:
+                final LongVector longs = (LongVector)column;
+                for (int i = 0; i < n; i++) {
+                    out.putLong(longs.valueAsLong(i));
+                }
+                break;
+            case INT:
+                final IntVector ints = (IntVector)column;
+                for (int i = 0; i < n; i++) {
+                    out.putInt(ints.valueAsInt(i));
+                }
+                break;
+            case BOOL:
+                final BoolVector bools = (BoolVector)column;
+                for (int word = 0; word < n; word += 64) {
+                    long bits = 0;
+                    final int end = Math.min(n, word + 64);
+                    for (int i = word; i < end; i++) {
+                        if (bools.valueAsBoolean(i)) {
+                            bits |= 1L << (i - word);
+                        }
+                    }
+                    out.putLong(bits);
+                }
+                break;
+            default:
+                final ObjVector<?> strings = (ObjVector<?>)column;
+                final Map<String, Integer> codes = new HashMap<>();
+                final List<String> dictionary = new ArrayList<>();
+                final int[] rowCodes = new int[n];
+                for (int i = 0; i < n; i++) {
+                    final Object value = strings.value(i);
+                    if (value == null) {
+                        rowCodes[i] = -1;
+                    } else {
+                        rowCodes[i] = codes.computeIfAbsent(value.toString(), s -> {
+                            dictionary.add(s);
+                            return dictionary.size() - 1;
+                        });
+                    }
+                }
+                writeStringTable(out, dictionary.size(), dictionary::get);
+                out.align();
+                for (final int code : rowCodes) {
+                    out.putInt(code);
+                }
+                break;
+        }
+    }
+
+    private static void writeStringTable(final Output out, final int count,
+                                         final IntFunction<?> values) throws IOException {
+        final byte[][] bytes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            final Object value = values.apply(i);
+            bytes[i] = value == null ? null : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        }
+        out.putInt(count);
+        int offset = 0;
+        out.putInt(offset);
+        for (int i = 0; i < count; i++) {
+            offset += 1 + (bytes[i] == null ? 0 : bytes[i].length);
+            out.putInt(offset);
+        }
+        for (int i = 0; i < count; i++) {
+            if (bytes[i] == null) {
+                out.put((byte)0);
+            } else {
+                out.put((byte)1);
+                out.put(bytes[i]);
+            }
+        }
+    }
+
+    static ColumnFrame read(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < FILE_HEADER_BYTES) {
+                throw new IOException("Frame file header is truncated: " + file);
+            }
+            final ByteBuffer fileHeader = map(channel, 0, FILE_HEADER_BYTES);
+            if (fileHeader.getInt(0) != MAGIC) {
+                throw new IOException("Not a frame file: " + file);
+            }
+            if (fileHeader.getShort(4) != VERSION) {
+                throw new IOException("Unsupported frame file version " + fileHeader.getShort(4) + ": " + file);
+            }
+            final int rows = fileHeader.getInt(8);
+            final int cols = fileHeader.getInt(12);
+            final int headerRows = fileHeader.getInt(16);
+            final int headerCols = fileHeader.getInt(20);
+            if (rows < 0 | cols < 0 | headerRows < 0 | headerCols < 0) {
+                throw new IOException("Invalid frame dimensions " + rows + "x" + cols + " with header " +
+                        headerRows + "x" + headerCols + ": " + file);
+            }
+            final long directoryEnd = FILE_HEADER_BYTES + (long)cols * DIRECTORY_ENTRY_BYTES;
+            final ByteBuffer directory = cols == 0 ? null : checkedDirectory(channel, file, cols, size);
+            final long labelsEnd = cols == 0 ? size : directory.getLong(8);
+            if (labelsEnd < directoryEnd || labelsEnd > size) {
+                throw new IOException("Invalid frame file directory: " + file);
+            }
+            final ByteBuffer labels = map(channel, directoryEnd, labelsEnd - directoryEnd);
+            final StringTable rowColumnLabels = new StringTable(labels, 0);
+            final StringTable columnLabels = new StringTable(labels, rowColumnLabels.end());
+            final StringTable rowLabels = new StringTable(labels, columnLabels.end());
+            if (rowColumnLabels.count != headerRows * headerCols || columnLabels.count != headerRows * cols ||
+                    rowLabels.count != rows * headerCols) {
+                throw new IOException("Invalid frame file labels: " + file);
+            }
+            final Header header = new DefaultHeader(
+                    (Obj2D<String>)(r, c) -> r >= 0 & r < headerRows & c >= 0 & c < headerCols ?
+                            rowColumnLabels.value(r * headerCols + c) : null,
+                    ObjMatrix.create(headerRows, cols, (r, c) -> columnLabels.value(r * cols + c)),
+                    ObjMatrix.create(rows, headerCols, (r, c) -> rowLabels.value(r * headerCols + c)));
+            final Vector<?, ?>[] columns = new Vector<?, ?>[cols];
+            for (int c = 0; c < cols; c++) {
+                final int entry = c * DIRECTORY_ENTRY_BYTES;
+                final int type = directory.getInt(entry);
+                if (type < 0 || type >= ColumnType.values().length) {
+                    throw new IOException("Invalid type " + type + " of column " + c + ": " + file);
+                }
+                columns[c] = readColumn(ColumnType.values()[type], rows,
+                        map(channel, directory.getLong(entry + 8), directory.getLong(entry + 16)), file, c);
+            }
+            return ColumnFrame.create(header, columns);
+        }
+    }
+
+    private static ByteBuffer checkedDirectory(final FileChannel channel, final Path file, final int cols,
+                                               final long size) throws IOException {
+        final long directoryEnd = FILE_HEADER_BYTES + (long)cols * DIRECTORY_ENTRY_BYTES;
+        if (size < directoryEnd) {
+            throw new IOException("Frame file directory is truncated: " + file);
+        }
+        final ByteBuffer directory = map(channel, FILE_HEADER_BYTES, directoryEnd - FILE_HEADER_BYTES);
+        for (int c = 0; c < cols; c++) {
+            final long offset = directory.getLong(c * DIRECTORY_ENTRY_BYTES + 8);
+            final long length = directory.getLong(c * DIRECTORY_ENTRY_BYTES + 16);
+            if (offset < directoryEnd | length < 0 | offset + length > size) {
+                throw new IOException("Invalid block of column " + c + ": " + file);
+            }
+        }
+        return directory;
+    }
+
+    private static Vector<?, ?> readColumn(final ColumnType type, final int rows, final ByteBuffer block,
+                                           final Path file, final int col) throws IOException {
+        final long required;
+        switch (type) {
+            case DOUBLE:
+            case LONG:
+                required = rows * 8L;
+                break;
+            case INT:
+                required = rows * 4L;
+                break;
+            case BOOL:
+                required = ((rows + 63L) >>> 6) * 8;
+                break;
+            default:
+                required = 0;
+                break;
+        }
+        if (block.capacity() < required) {
+            throw new IOException("Block of column " + col + " is truncated: " + file);
+        }
+        switch (type) {
+            case DOUBLE:
+                return DoubleVector.create(rows, i -> block.getDouble(i << 3));
+            case LONG:
+                return LongVector.create(rows, i -> block.getLong(i << 3));
+            case INT:
+                return IntVector.create(rows, i -> block.getInt(i << 2));
+            case BOOL:
+                return BoolVector.create(rows, i -> ((block.getLong((i >>> 6) << 3) >>> i) & 1) != 0);
+            default:
+                final StringTable table = new StringTable(block, 0);
+                final String[] dictionary = new String[table.count];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = table.value(i);
+                }
+                final int codes = (table.end() + 7) & ~7;
+                if (block.capacity() < codes + rows * 4L) {
+                    throw new IOException("Block of column " + col + " is truncated: " + file);
+                }
+                return ObjVector.create(rows, i -> {
+                    final int code = block.getInt(codes + (i << 2));
+                    return code >= 0 ? dictionary[code] : null;
+                });
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long offset, final long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Frame file block exceeds 2GB: " + length + " bytes");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * String table view decoding entries on access.
+     */
+    private static final class StringTable {
+        final ByteBuffer buffer;
+        final int start;
+        final int count;
+        final int data;
+
+        StringTable(final ByteBuffer buffer, final int start) throws IOException {
+            if (buffer.capacity() < start + 8) {
+                throw new IOException("String table is truncated");
+            }
+            this.buffer = buffer;
+            this.start = start;
+            this.count = buffer.getInt(start);
+            this.data = start + 4 + 4 * (count + 1);
+            if (count < 0 || data > buffer.capacity() || end() > buffer.capacity()) {
+                throw new IOException("Invalid string table");
+            }
+        }
+
+        int end() {
+            return data + buffer.getInt(start + 4 + 4 * count);
+        }
+
+        String value(final int index) {
+            if (index < 0 | index >= count) {
+                return null;
+            }
+            final int from = data + buffer.getInt(start + 4 + 4 * index);
+            if (buffer.get(from) == 0) {
+                return null;
+            }
+            final int to = data + buffer.getInt(start + 8 + 4 * index);
+            final byte[] bytes = new byte[to - from - 1];
+            final ByteBuffer entry = buffer.duplicate();
+            entry.position(from + 1);
+            entry.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Buffered little-endian channel output tracking the file position.
+     */
+    private static final class Output implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        long flushed;
+
+        Output(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        private Output ensure(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return this;
+        }
+
+        Output put(final byte value) throws IOException {
+            ensure(1).buffer.put(value);
+            return this;
+        }
+
+        Output put(final byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(1);
+                final int n = Math.min(buffer.remaining(), values.length - offset);
+                buffer.put(values, offset, n);
+                offset += n;
+            }
+            return this;
+        }
+
+        Output putShort(final short value) throws IOException {
+            ensure(2).buffer.putShort(value);
+            return this;
+        }
+
+        Output putInt(final int value) throws IOException {
+            ensure(4).buffer.putInt(value);
+            return this;
+        }
+
+        Output putLong(final long value) throws IOException {
+            ensure(8).buffer.putLong(value);
+            return this;
+        }
+
+        Output putDouble(final double value) throws IOException {
+            ensure(8).buffer.putDouble(value);
+            return this;
+        }
+
+        void align() throws IOException {
+            while ((position() & 7) != 0) {
+                put((byte)0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses lines of CSV bytes into primitive column arrays.  Fields are tokenized in place and numbers are parsed
+ * directly from the bytes;  only string values and the rare numbers outside of the fast path are decoded to strings.
+ * A parser is not thread safe, parallel readers use one parser per chunk.
+ */
+final class CsvParser {
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final byte delimiter;
+    private final ColumnType[] types;
+    private final boolean[] widenable;
+
+    //current field, set by nextField
+    private ByteBuffer buffer;
+    private int fieldStart;
+    private int fieldEnd;
+    private boolean quoted;
+    private boolean escaped;
+    private boolean endOfLine;
+
+    //last parsed number
+    private long longValue;
+    private double doubleValue;
+
+    private byte[] scratch = new byte[64];
+
+    CsvParser(final byte delimiter, final ColumnType[] types, final boolean[] widenable) {
+        this.delimiter = delimiter;
+        this.types = types;
+        this.widenable = widenable;
+    }
+
+    /**
+     * Skips empty lines starting at the given position and returns the start of the next non-empty line or to.
+     */
+    private static int skipEmptyLines(final ByteBuffer buffer, int position, final int to) {
+        while (position < to) {
+            final byte b = buffer.get(position);
+            if (b == '\n') {
+                position++;
+            } else if (b == '\r' && position + 1 < to && buffer.get(position + 1) == '\n') {
+                position += 2;
+            } else {
+                break;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Tokenizes the field starting at the given position, and returns the position after the delimiter or line end.
+     */
+    private int nextField(final ByteBuffer buffer, final int position, final int to, final long offset) {
+        this.buffer = buffer;
+        int p = position;
+        escaped = false;
+        if (p < to && buffer.get(p) == '"') {
+            quoted = true;
+            fieldStart = ++p;
+            while (true) {
+                if (p >= to) {
+                    throw error("Unterminated quoted field", offset + position);
+                }
+                if (buffer.get(p) == '"') {
+                    if (p + 1 < to && buffer.get(p + 1) == '"') {
+                        escaped = true;
+                        p += 2;
+                        continue;
+                    }
+                    break;
+                }
+                p++;
+            }
+            fieldEnd = p++;
+            if (p < to && buffer.get(p) != delimiter && buffer.get(p) != '\n' && buffer.get(p) != '\r') {
+                throw error("Unexpected character after quoted field", offset + p);
+            }
+        } else {
+            quoted = false;
+            fieldStart = p;
+            while (p < to) {
+                final byte b = buffer.get(p);
+                if (b == delimiter || b == '\n' || (b == '\r' && (p + 1 == to || buffer.get(p + 1) == '\n'))) {
+                    break;
+                }
+                p++;
+            }
+            fieldEnd = p;
+        }
+        if (p < to && buffer.get(p) == delimiter) {
+            endOfLine = false;
+            return p + 1;
+        }
+        endOfLine = true;
+        if (p < to && buffer.get(p) == '\r') {
+            p++;
+        }
+        return p < to ? p + 1 : p;
+    }
+
+    /** Returns true for an empty unquoted field, a missing value of any column type */
+    private boolean isMissing() {
+        return !quoted & fieldStart == fieldEnd;
+    }
+
+    /** Returns true for an empty quoted or unquoted field, a missing value of non-string columns */
+    private boolean isEmpty() {
+        return fieldStart == fieldEnd;
+    }
+
+    /**
+     * Parses the header line at the given position into strings, and returns the position after the line.
+     */
+    int header(final ByteBuffer buffer, final int from, final int to, final List<String> labels) {
+        int p = skipEmptyLines(buffer, from, to);
+        if (p >= to) {
+            return p;
+        }
+        do {
+            p = nextField(buffer, p, to, 0);
+            labels.add(isMissing() ? null : string());
+        } while (!endOfLine);
+        return p;
+    }
+
+    /**
+     * Infers column types from the lines in the given range, considering at most maxRows lines.
+     */
+    static ColumnType[] infer(final byte delimiter, final int fields, final ByteBuffer buffer, final int from,
+                              final int to, final int maxRows) {
+        final CsvParser parser = new CsvParser(delimiter, new ColumnType[0], new boolean[0]);
+        final boolean[] allLong = new boolean[fields];
+        final boolean[] allDouble = new boolean[fields];
+        final boolean[] anyMissing = new boolean[fields];
+        final boolean[] anyValue = new boolean[fields];
+        Arrays.fill(allLong, true);
+        Arrays.fill(allDouble, true);
+        int p = skipEmptyLines(buffer, from, to);
+        for (int row = 0; row < maxRows && p < to; row++) {
+            int field = 0;
+            do {
+                p = parser.nextField(buffer, p, to, 0);
+                if (field < fields) {
+                    if (parser.isEmpty()) {
+                        anyMissing[field] = true;
+                    } else {
+                        anyValue[field] = true;
+                        if (allLong[field] && !parser.parseLong()) {
+                            allLong[field] = false;
+                        }
+                        if (!allLong[field] && allDouble[field] && !parser.parseDouble()) {
+                            allDouble[field] = false;
+                        }
+                    }
+                }
+                field++;
+            } while (!parser.endOfLine);
+            for (; field < fields; field++) {
+                anyMissing[field] = true;
+            }
+            p = skipEmptyLines(buffer, p, to);
+        }
+        final ColumnType[] types = new ColumnType[fields];
+        for (int f = 0; f < fields; f++) {
+            types[f] = !anyValue[f] ? ColumnType.STRING :
+                    allLong[f] && !anyMissing[f] ? ColumnType.LONG :
+                    allDouble[f] ? ColumnType.DOUBLE : ColumnType.STRING;
+        }
+        return types;
+    }
+
+    /**
+     * Parses all lines in the given range, which must start at a line start and end after a line end or at the end
+     * of the input.
+     *
+     * @param buffer the input bytes
+     * @param from   the first byte index, inclusive
+     * @param to     the last byte index, exclusive
+     * @param offset the offset of the buffer in the input, used in error messages
+     * @return the parsed chunk
+     */
+    Chunk parse(final ByteBuffer buffer, final int from, final int to, final long offset) {
+        final Chunk chunk = new Chunk(types);
+        int p = skipEmptyLines(buffer, from, to);
+        while (p < to) {
+            chunk.ensureCapacity();
+            final int row = chunk.rows;
+            final int lineStart = p;
+            int field = 0;
+            do {
+                p = nextField(buffer, p, to, offset);
+                if (field >= types.length) {
+                    throw error("Line has more than " + types.length + " fields", offset + lineStart);
+                }
+                store(chunk, field, row, offset);
+                field++;
+            } while (!endOfLine);
+            for (; field < types.length; field++) {
+                fieldStart = fieldEnd = p;
+                quoted = false;
+                store(chunk, field, row, offset);
+            }
+            chunk.rows++;
+            p = skipEmptyLines(buffer, p, to);
+        }
+        return chunk;
+    }
+
+    private void store(final Chunk chunk, final int field, final int row, final long offset) {
+        final boolean missing = isEmpty();
+        switch (chunk.types[field]) {
+            case DOUBLE:
+                if (missing) {
+                    ((double[])chunk.columns[field])[row] = Double.NaN;
+                } else if (parseDouble()) {
+                    ((double[])chunk.columns[field])[row] = doubleValue;
+                } else {
+                    throw parseError(field, offset);
+                }
+                break;
+            case LONG:
+                if (missing && widenable[field]) {
+                    //widen at the first missing value, long columns of a chunk have no missing values otherwise
+                    chunk.widen(field);
+                    ((double[])chunk.columns[field])[row] = Double.NaN;
+                } else if (missing) {
+                    ((long[])chunk.columns[field])[row] = 0;
+                } else if (parseLong()) {
+                    ((long[])chunk.columns[field])[row] = longValue;
+                } else if (widenable[field] && parseDouble()) {
+                    chunk.widen(field);
+                    ((double[])chunk.columns[field])[row] = doubleValue;
+                } else {
+                    throw parseError(field, offset);
+                }
+                break;
+            case INT:
+                if (missing) {
+                    ((int[])chunk.columns[field])[row] = 0;
+                } else if (parseLong() && longValue == (int)longValue) {
+                    ((int[])chunk.columns[field])[row] = (int)longValue;
+                } else {
+                    throw parseError(field, offset);
+                }
+                break;
+            case BOOL:
+                ((boolean[])chunk.columns[field])[row] = !missing && parseBoolean(field, offset);
+                break;
+            default:
+                ((String[])chunk.columns[field])[row] = isMissing() ? null : string();
+                break;
+        }
+    }
+
+    private boolean parseBoolean(final int field, final long offset) {
+        final int length = fieldEnd - fieldStart;
+        if (length == 1) {
+            final byte b = buffer.get(fieldStart);
+            if (b == '1') return true;
+            if (b == '0') return false;
+        }
+        final String value = string();
+        if ("true".equalsIgnoreCase(value)) return true;
+        if ("false".equalsIgnoreCase(value)) return false;
+        throw parseError(field, offset);
+    }
+
+    private boolean parseLong() {
+        int p = fieldStart;
+        final int end = fieldEnd;
+        if (p == end) {
+            return false;
+        }
+        final boolean negative = buffer.get(p) == '-';
+        if (negative || buffer.get(p) == '+') {
+            p++;
+        }
+        if (p == end) {
+            return false;
+        }
+        //accumulate negative to cover Long.MIN_VALUE
+        long value = 0;
+        for (; p < end; p++) {
+            final int digit = buffer.get(p) - '0';
+            if (digit < 0 | digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                return false;
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            return false;
+        }
+        longValue = negative ? value : -value;
+        return true;
+    }
+
+    private boolean parseDouble() {
+        int p = fieldStart;
+        final int end = fieldEnd;
+        if (p == end) {
+            return false;
+        }
+        final boolean negative = buffer.get(p) == '-';
+        if (negative || buffer.get(p) == '+') {
+            p++;
+        }
+        if (p < end && (buffer.get(p) == 'N' || buffer.get(p) == 'I')) {
+            return parseDoubleSlow();
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; p < end && isDigit(buffer.get(p)); p++) {
+            anyDigit = true;
+            if (digits < MAX_FAST_DIGITS + 1) {
+                mantissa = mantissa * 10 + (buffer.get(p) - '0');
+                if (mantissa != 0) digits++;
+            } else {
+                digits++;
+            }
+        }
+        if (digits > MAX_FAST_DIGITS) {
+            return parseDoubleSlow();
+        }
+        if (p < end && buffer.get(p) == '.') {
+            for (p++; p < end && isDigit(buffer.get(p)); p++) {
+                anyDigit = true;
+                mantissa = mantissa * 10 + (buffer.get(p) - '0');
+                if (mantissa != 0) digits++;
+                exponent--;
+                if (digits > MAX_FAST_DIGITS) {
+                    return parseDoubleSlow();
+                }
+            }
+        }
+        if (!anyDigit) {
+            return false;
+        }
+        if (p < end && (buffer.get(p) == 'e' || buffer.get(p) == 'E')) {
+            p++;
+            final boolean negativeExponent = p < end && buffer.get(p) == '-';
+            if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+                p++;
+            }
+            if (p == end) {
+                return false;
+            }
+            int exp = 0;
+            for (; p < end && isDigit(buffer.get(p)); p++) {
+                exp = Math.min(exp * 10 + (buffer.get(p) - '0'), 100_000);
+            }
+            exponent += negativeExponent ? -exp : exp;
+        }
+        if (p != end) {
+            return false;
+        }
+        final double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (exponent >= 0 && exponent < POW10.length) {
+            value = mantissa * POW10[exponent];
+        } else if (exponent < 0 && -exponent < POW10.length) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            return parseDoubleSlow();
+        }
+        doubleValue = negative ? -value : value;
+        return true;
+    }
+
+    private boolean parseDoubleSlow() {
+        final String text = string();
+        final int length = text.length();
+        //Double.parseDouble accepts type suffixes and hex floats which are not valid CSV numbers
+        if (length == 0 || "dDfF".indexOf(text.charAt(length - 1)) >= 0 || text.indexOf('x') >= 0 ||
+                text.indexOf('X') >= 0 || Character.isWhitespace(text.charAt(0)) ||
+                Character.isWhitespace(text.charAt(length - 1))) {
+            return false;
+        }
+        try {
+            doubleValue = Double.parseDouble(text);
+            return true;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDigit(final byte b) {
+        return b >= '0' & b <= '9';
+    }
+
+    private String string() {
+        final int length = fieldEnd - fieldStart;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        int n = 0;
+        for (int p = fieldStart; p < fieldEnd; p++) {
+            final byte b = buffer.get(p);
+            scratch[n++] = b;
+            if (escaped && b == '"') {
+                //skip second quote of escaped quote
+                p++;
+            }
+        }
+        return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private UncheckedIOException parseError(final int field, final long offset) {
+        return error("Cannot parse '" + string() + "' as " + types[field] + " in field " + field, offset + fieldStart);
+    }
+
+    private static UncheckedIOException error(final String message, final long position) {
+        return new UncheckedIOException(new IOException(message + " at byte offset " + position));
+    }
+
+    /**
+     * Parsed rows of a chunk of lines with one primitive or string array per field.
+     */
+    static final class Chunk {
+        final ColumnType[] types;
+        final Object[] columns;
+        int rows;
+        int capacity = INITIAL_CAPACITY;
+
+        Chunk(final ColumnType[] types) {
+            this.types = types.clone();
+            this.columns = new Object[types.length];
+            for (int f = 0; f < types.length; f++) {
+                columns[f] = newArray(types[f], INITIAL_CAPACITY);
+            }
+        }
+
+        void ensureCapacity() {
+            if (rows == capacity) {
+                capacity *= 2;
+                for (int f = 0; f < columns.length; f++) {
+                    final Object grown = newArray(types[f], capacity);
+                    System.arraycopy(columns[f], 0, grown, 0, rows);
+                    columns[f] = grown;
+                }
+            }
+        }
+
+        void widen(final int field) {
+            if (types[field] == ColumnType.LONG) {
+                final long[] longs = (long[])columns[field];
+                final double[] doubles = new double[capacity];
+                for (int i = 0; i < rows; i++) {
+                    doubles[i] = longs[i];
+                }
+                columns[field] = doubles;
+                types[field] = ColumnType.DOUBLE;
+            }
+        }
+
+        static Object newArray(final ColumnType type, final int length) {
+            switch (type) {
+                case DOUBLE:
+                    return new double[length];
+                case LONG:
+                    return new long[length];
+                case INT:
+                    return new int[length];
+                case BOOL:
+                    return new boolean[length];
+                default:
+                    return new String[length];
+            }
+        }
+    }
+
+    /**
+     * Concatenates the given chunks into one array per field, widening long fields to double if any chunk was
+     * widened.
+     */
+    static List<Object> concat(final ColumnType[] types, final List<Chunk> chunks, final ColumnType[] resultTypes) {
+        int rows = 0;
+        for (final Chunk chunk : chunks) {
+            rows += chunk.rows;
+        }
+        System.arraycopy(types, 0, resultTypes, 0, types.length);
+        for (final Chunk chunk : chunks) {
+            for (int f = 0; f < types.length; f++) {
+                if (chunk.types[f] == ColumnType.DOUBLE) {
+                    resultTypes[f] = ColumnType.DOUBLE;
+                }
+            }
+        }
+        final List<Object> columns = new ArrayList<>(types.length);
+        for (int f = 0; f < types.length; f++) {
+            final Object column = Chunk.newArray(resultTypes[f], rows);
+            int offset = 0;
+            for (final Chunk chunk : chunks) {
+                if (chunk.types[f] != resultTypes[f]) {
+                    chunk.widen(f);
+                }
+                System.arraycopy(chunk.columns[f], 0, column, offset, chunk.rows);
+                offset += chunk.rows;
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+}
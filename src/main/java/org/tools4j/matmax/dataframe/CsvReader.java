@@ -0,0 +1,436 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.tools4j.matmax.indexed.Obj2D;
+import org.tools4j.matmax.matrix.ObjMatrix;
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+import org.tools4j.matmax.vector.Vector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads CSV input into a {@link ColumnFrame} with typed columns.  Input is parsed directly from bytes, files are
+ * memory-mapped in chunks that end at line boundaries and can be parsed in parallel.
+ * <p>
+ * Fields may be quoted with double quotes, where two double quotes denote a literal double quote.  Lines end with
+ * {@code \n} or {@code \r\n};  empty lines are skipped and missing trailing fields are treated as empty.  Empty
+ * fields are missing values, read as NaN for double, 0 for long and int and false for bool columns;  in string
+ * columns, empty unquoted fields are read as null and empty quoted fields as empty strings.  Column types are
+ * inferred from the first {@link #SAMPLE_ROWS} rows unless specified explicitly:  a column is LONG if all sampled
+ * values are integers and none is missing, DOUBLE if all sampled values are numbers, and STRING otherwise.  An
+ * inferred LONG column is widened to DOUBLE if later rows contain decimal or missing values.
+ * <p>
+ * Instances are immutable;  the configuration methods return a new reader.
+ */
+public final class CsvReader {
+
+    public static final int SAMPLE_ROWS = 1000;
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 23;
+
+    private final byte delimiter;
+    private final boolean header;
+    private final int rowLabelField;
+    private final ColumnType[] types;
+    private final int chunkBytes;
+
+    private CsvReader(final byte delimiter, final boolean header, final int rowLabelField,
+                      final ColumnType[] types, final int chunkBytes) {
+        this.delimiter = delimiter;
+        this.header = header;
+        this.rowLabelField = rowLabelField;
+        this.types = types;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Returns a reader for comma separated input with a header line, no row label field and inferred column types.
+     */
+    public static CsvReader create() {
+        return new CsvReader((byte)',', true, -1, null, DEFAULT_CHUNK_BYTES);
+    }
+
+    public CsvReader delimiter(final char delimiter) {
+        if (delimiter == '"' | delimiter == '\n' | delimiter == '\r' | delimiter > 127) {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        return new CsvReader((byte)delimiter, header, rowLabelField, types, chunkBytes);
+    }
+
+    /**
+     * Returns a reader with or without header line;  without header line, columns are labeled with their index.
+     */
+    public CsvReader header(final boolean header) {
+        return new CsvReader(delimiter, header, rowLabelField, types, chunkBytes);
+    }
+
+    /**
+     * Returns a reader using the given field as row labels instead of a column;  without row label field, rows are
+     * labeled with their index.
+     *
+     * @param field the zero based index of the row label field, or -1 for none
+     * @return a reader with the given row label field
+     */
+    public CsvReader rowLabelField(final int field) {
+        if (field < -1) throw new IllegalArgumentException("field must not be less than -1: " + field);
+        return new CsvReader(delimiter, header, field, types, chunkBytes);
+    }
+
+    /**
+     * Returns a reader with explicit column types instead of inferring them, one type per column excluding the row
+     * label field.
+     *
+     * @param types the column types, or no types to infer them
+     * @return a reader with the given column types
+     */
+    public CsvReader columnTypes(final ColumnType... types) {
+        return new CsvReader(delimiter, header, rowLabelField, types.length == 0 ? null : types.clone(), chunkBytes);
+    }
+
+    /**
+     * Returns a reader splitting input into chunks of approximately the given size, the unit of parallel parsing.
+     */
+    public CsvReader chunkBytes(final int chunkBytes) {
+        if (chunkBytes <= 0) throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+        return new CsvReader(delimiter, header, rowLabelField, types, chunkBytes);
+    }
+
+    public ColumnFrame read(final Path file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Reads a CSV file, parsing chunks of lines in parallel.  Chunks are split at line ends outside of quoted fields,
+     * found by a sequential scan of the file.
+     *
+     * @param file the CSV file
+     * @param pool the pool used to parse chunks in parallel, or null to parse serially
+     * @return a frame with the parsed header and columns
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public ColumnFrame read(final Path file, final ForkJoinPool pool) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final int start = bom(channel);
+            final ByteBuffer first = map(channel, 0, lineEnd(channel, start, Math.min(size, chunkBytes), size));
+            final List<String> labels = new ArrayList<>();
+            final int dataStart = header ? new CsvParser(delimiter, new ColumnType[0], new boolean[0])
+                    .header(first, start, first.limit(), labels) : start;
+            final Fields fields = fields(labels, first, dataStart, first.limit());
+            final List<long[]> ranges = new ArrayList<>();
+            long from = dataStart;
+            while (from < size) {
+                final long to = lineEnd(channel, from, Math.min(size, from + chunkBytes), size);
+                ranges.add(new long[] {from, to});
+                from = to;
+            }
+            final CsvParser.Chunk[] chunks = new CsvParser.Chunk[ranges.size()];
+            final Parallel.ChunkAction action = (chunk, fromChunk, toChunk) -> {
+                for (int c = fromChunk; c < toChunk; c++) {
+                    final long[] range = ranges.get(c);
+                    try {
+                        final ByteBuffer buffer = map(channel, range[0], range[1] - range[0]);
+                        chunks[c] = fields.parser(delimiter).parse(buffer, 0, buffer.limit(), range[0]);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+            if (pool == null) {
+                action.apply(0, 0, chunks.length);
+            } else {
+                Parallel.forEachChunk(pool, chunks.length, 1, action);
+            }
+            return fields.frame(Arrays.asList(chunks));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads CSV input from a channel, parsing chunks of complete lines as they arrive.
+     *
+     * @param channel the input channel, not closed by this method
+     * @return a frame with the parsed header and columns
+     * @throws IOException if the input cannot be read or parsed
+     */
+    public ColumnFrame read(final ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunkBytes);
+        boolean eof = false;
+        boolean first = true;
+        long offset = 0;
+        Fields fields = null;
+        final List<CsvParser.Chunk> chunks = new ArrayList<>();
+        try {
+            while (!eof || buffer.position() > 0) {
+                while (!eof && buffer.hasRemaining()) {
+                    eof = channel.read(buffer) < 0;
+                }
+                buffer.flip();
+                int end = buffer.limit();
+                if (!eof) {
+                    end = lastLineEnd(buffer, first ? bom(buffer) : 0, end);
+                    if (end == 0) {
+                        //line longer than buffer
+                        buffer = ByteBuffer.allocate(2 * buffer.capacity()).put(buffer);
+                        continue;
+                    }
+                }
+                int start = 0;
+                if (first) {
+                    first = false;
+                    start = bom(buffer);
+                    final List<String> labels = new ArrayList<>();
+                    if (header) {
+                        start = new CsvParser(delimiter, new ColumnType[0], new boolean[0])
+                                .header(buffer, start, end, labels);
+                    }
+                    fields = fields(labels, buffer, start, end);
+                }
+                chunks.add(fields.parser(delimiter).parse(buffer, start, end, offset));
+                offset += end;
+                buffer.position(end);
+                buffer.compact();
+            }
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return fields == null ? fields(new ArrayList<>(), buffer, 0, 0).frame(chunks) : fields.frame(chunks);
+    }
+
+    private Fields fields(final List<String> labels, final ByteBuffer buffer, final int from, final int to) {
+        final int count;
+        if (header) {
+            count = labels.size();
+        } else {
+            final List<String> firstLine = new ArrayList<>();
+            new CsvParser(delimiter, new ColumnType[0], new boolean[0]).header(buffer, from, to, firstLine);
+            count = firstLine.size();
+            for (int i = 0; i < count; i++) {
+                labels.add(null);
+            }
+        }
+        if (rowLabelField >= count && count > 0) {
+            throw new IllegalArgumentException("rowLabelField " + rowLabelField + " exceeds number of fields " +
+                    count);
+        }
+        final ColumnType[] fieldTypes;
+        final boolean[] widenable = new boolean[count];
+        if (types == null) {
+            fieldTypes = CsvParser.infer(delimiter, count, buffer, from, to, SAMPLE_ROWS);
+            Arrays.fill(widenable, true);
+        } else {
+            final int columns = rowLabelField >= 0 ? count - 1 : count;
+            if (types.length != columns) {
+                throw new IllegalArgumentException("columnTypes length must be " + columns + " but was " +
+                        types.length);
+            }
+            fieldTypes = new ColumnType[count];
+            for (int f = 0, c = 0; f < count; f++) {
+                fieldTypes[f] = f == rowLabelField ? ColumnType.STRING : types[c++];
+            }
+        }
+        if (rowLabelField >= 0 && rowLabelField < count) {
+            fieldTypes[rowLabelField] = ColumnType.STRING;
+            widenable[rowLabelField] = false;
+        }
+        return new Fields(labels, fieldTypes, widenable);
+    }
+
+    /**
+     * Labels and types of the input fields.
+     */
+    private final class Fields {
+        final List<String> labels;
+        final ColumnType[] types;
+        final boolean[] widenable;
+
+        Fields(final List<String> labels, final ColumnType[] types, final boolean[] widenable) {
+            this.labels = labels;
+            this.types = types;
+            this.widenable = widenable;
+        }
+
+        CsvParser parser(final byte delimiter) {
+            return new CsvParser(delimiter, types, widenable);
+        }
+
+        ColumnFrame frame(final List<CsvParser.Chunk> chunks) {
+            final ColumnType[] resultTypes = new ColumnType[types.length];
+            final List<Object> arrays = CsvParser.concat(types, chunks, resultTypes);
+            int rows = 0;
+            for (final CsvParser.Chunk chunk : chunks) {
+                rows += chunk.rows;
+            }
+            final int count = types.length;
+            final boolean rowLabels = rowLabelField >= 0 && rowLabelField < count;
+            final Vector<?, ?>[] columns = new Vector<?, ?>[rowLabels ? count - 1 : count];
+            final Object[] columnLabels = new Object[columns.length];
+            for (int f = 0, c = 0; f < count; f++) {
+                if (f == rowLabelField) {
+                    continue;
+                }
+                columnLabels[c] = header ? labels.get(f) : Integer.valueOf(c);
+                columns[c++] = column(resultTypes[f], arrays.get(f));
+            }
+            final ObjVector<?> rowLabelVector = rowLabels ? ObjVector.create((String[])arrays.get(rowLabelField)) :
+                    ObjVector.create(rows, Integer::valueOf);
+            final Header frameHeader = new DefaultHeader(
+                    rowLabels && header ? (Obj2D<String>)(r, c) -> r == 0 & c == 0 ? labels.get(rowLabelField) : null :
+                            Obj2D.NULL,
+                    ObjMatrix.create(1, columns.length, (r, c) -> r == 0 ? columnLabels[c] : null),
+                    rowLabelVector.toColumn());
+            return ColumnFrame.create(frameHeader, columns);
+        }
+    }
+
+    private static Vector<?, ?> column(final ColumnType type, final Object values) {
+        switch (type) {
+            case DOUBLE:
+                return DoubleVector.create((double[])values);
+            case LONG:
+                return LongVector.create((long[])values);
+            case INT:
+                return IntVector.create((int[])values);
+            case BOOL:
+                return BoolVector.create((boolean[])values);
+            default:
+                return ObjVector.create((String[])values);
+        }
+    }
+
+    private static int bom(final ByteBuffer buffer) {
+        return buffer.limit() >= 3 && buffer.get(0) == (byte)0xef && buffer.get(1) == (byte)0xbb &&
+                buffer.get(2) == (byte)0xbf ? 3 : 0;
+    }
+
+    private static int bom(final FileChannel channel) throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate(3);
+        while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) > 0) {
+            //read until full or end of file
+        }
+        bytes.flip();
+        return bom(bytes);
+    }
+
+    /**
+     * Returns the position after the first line end at or after position, or size if there is none.  Scanning
+     * starts at from, which must be the start of a line, to tell line ends from line breaks in quoted fields.
+     */
+    private long lineEnd(final FileChannel channel, final long from, final long position, final long size)
+            throws IOException {
+        final LineScanner scanner = new LineScanner(delimiter);
+        final ByteBuffer window = ByteBuffer.allocate(1 << 16);
+        long p = from;
+        while (p < size) {
+            window.clear();
+            final int n = channel.read(window, p);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (scanner.lineEnd(window.get(i)) && p + i >= position) {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the position after the last line end in the buffer scanning from the start of a line, or 0 if there
+     * is none.
+     */
+    private int lastLineEnd(final ByteBuffer buffer, final int from, final int to) {
+        final LineScanner scanner = new LineScanner(delimiter);
+        int end = 0;
+        for (int p = from; p < to; p++) {
+            if (scanner.lineEnd(buffer.get(p))) {
+                end = p + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Follows the quoting of fields byte by byte to find line ends that are not inside a quoted field.
+     */
+    private static final class LineScanner {
+        final byte delimiter;
+        boolean fieldStart = true;
+        boolean quoted;
+        boolean closed;
+
+        LineScanner(final byte delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Consumes the next byte and returns true if it ends a line.
+         */
+        boolean lineEnd(final byte b) {
+            if (quoted) {
+                if (b == '"') {
+                    quoted = false;
+                    closed = true;
+                }
+                return false;
+            }
+            if (b == '"' && (fieldStart | closed)) {
+                //opening quote, or escaped quote directly after a closing quote
+                quoted = true;
+                closed = false;
+                fieldStart = false;
+                return false;
+            }
+            closed = false;
+            fieldStart = b == delimiter || b == '\n';
+            return b == '\n';
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long position, final long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("CSV line at byte offset " + position + " exceeds 2GB");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+}
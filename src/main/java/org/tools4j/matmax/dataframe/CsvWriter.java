@@ -0,0 +1,413 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.tools4j.matmax.indexed.Bool2D;
+import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.indexed.Int2D;
+import org.tools4j.matmax.indexed.Long2D;
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Writes data frames as CSV or, with a tab delimiter, as TSV.  Cells are formatted directly into reusable byte
+ * buffers without creating strings for numbers, and buffers are written to the channel in large chunks.  Rows of
+ * the frame can be formatted in parallel partitions which are written in order.
+ * <p>
+ * Header column labels are written as caption lines and header row labels as leading caption fields of each line.
+ * Doubles are written with the fewest fraction digits that read back to the same value, for instance {@code 0.1} or
+ * {@code 12.0};  values with a magnitude outside of [1e-7, 1e15) or more than 15 significant digits are formatted
+ * via {@link Double#toString(double)}.  NaN and null values are written as empty fields.  Fields are quoted if they
+ * contain the delimiter, double quotes or line breaks.
+ * <p>
+ * Instances are immutable;  the configuration methods return a new writer.
+ */
+public final class CsvWriter {
+
+    public static final int DEFAULT_PARTITION_ROWS = 1 << 14;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+    };
+    private static final double MAX_EXACT = 9007199254740992d;//2^53
+    private static final byte[] NEGATIVE_ZERO = "-0.0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZERO = "0.0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] POINT_ZERO = ".0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final byte delimiter;
+    private final boolean header;
+    private final int partitionRows;
+
+    private CsvWriter(final byte delimiter, final boolean header, final int partitionRows) {
+        this.delimiter = delimiter;
+        this.header = header;
+        this.partitionRows = partitionRows;
+    }
+
+    /**
+     * Returns a writer for comma separated output with header captions.
+     */
+    public static CsvWriter create() {
+        return new CsvWriter((byte)',', true, DEFAULT_PARTITION_ROWS);
+    }
+
+    public CsvWriter delimiter(final char delimiter) {
+        if (delimiter == '"' | delimiter == '\n' | delimiter == '\r' | delimiter > 127) {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        return new CsvWriter((byte)delimiter, header, partitionRows);
+    }
+
+    /**
+     * Returns a writer with or without header captions;  without captions only the frame values are written.
+     */
+    public CsvWriter header(final boolean header) {
+        return new CsvWriter(delimiter, header, partitionRows);
+    }
+
+    /**
+     * Returns a writer formatting the given number of rows per partition, the unit of parallel formatting.
+     */
+    public CsvWriter partitionRows(final int partitionRows) {
+        if (partitionRows <= 0) throw new IllegalArgumentException("partitionRows must be positive: " + partitionRows);
+        return new CsvWriter(delimiter, header, partitionRows);
+    }
+
+    public void write(final DataFrame<?, ?> frame, final Path file) throws IOException {
+        write(frame, file, null);
+    }
+
+    public void write(final DataFrame<?, ?> frame, final Path file, final ForkJoinPool pool) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(frame, channel, pool);
+        }
+    }
+
+    public void write(final DataFrame<?, ?> frame, final WritableByteChannel channel) throws IOException {
+        write(frame, channel, null);
+    }
+
+    /**
+     * Writes the frame to the channel.  With a pool, partitions of rows are formatted in parallel into separate
+     * buffers, a limited number of partitions at a time, and written to the channel in order.
+     *
+     * @param frame   the frame to write
+     * @param channel the output channel, not closed by this method
+     * @param pool    the pool used to format partitions in parallel, or null to format serially
+     * @throws IOException if writing to the channel fails
+     */
+    public void write(final DataFrame<?, ?> frame, final WritableByteChannel channel, final ForkJoinPool pool)
+            throws IOException {
+        final Header frameHeader = frame.header();
+        final int rows = frame.nRows();
+        final CellFormatter[] formatters = formatters(frame);
+        final Output out = new Output(BUFFER_BYTES);
+        if (header) {
+            writeCaptions(frameHeader, out);
+        }
+        if (pool == null || rows <= partitionRows) {
+            for (int row = 0; row < rows; row++) {
+                writeRow(frameHeader, formatters, row, out);
+                if (out.size >= BUFFER_BYTES) {
+                    out.writeTo(channel);
+                }
+            }
+            out.writeTo(channel);
+            return;
+        }
+        out.writeTo(channel);
+        final int partitions = Parallel.chunkCount(rows, partitionRows);
+        final int wave = Math.max(1, 2 * pool.getParallelism());
+        final Output[] outputs = new Output[Math.min(wave, partitions)];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = new Output(BUFFER_BYTES);
+        }
+        for (int first = 0; first < partitions; first += wave) {
+            final int firstPartition = first;
+            final int count = Math.min(wave, partitions - first);
+            Parallel.forEachChunk(pool, count, 1, (chunk, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    final Output output = outputs[i];
+                    final int fromRow = (firstPartition + i) * partitionRows;
+                    final int toRow = (int)Math.min(rows, (long)fromRow + partitionRows);
+                    for (int row = fromRow; row < toRow; row++) {
+                        writeRow(frameHeader, formatters, row, output);
+                    }
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                outputs[i].writeTo(channel);
+            }
+        }
+    }
+
+    private void writeCaptions(final Header frameHeader, final Output out) {
+        final int headerRows = frameHeader.nHeaderRows();
+        final int headerCols = frameHeader.nHeaderColumns();
+        final int cols = frameHeader.nColumns();
+        for (int headerRow = 0; headerRow < headerRows; headerRow++) {
+            for (int headerCol = 0; headerCol < headerCols; headerCol++) {
+                if (headerCol > 0) out.put(delimiter);
+                out.putObject(frameHeader.rowColumnLabel(headerRow, headerCol), delimiter);
+            }
+            for (int col = 0; col < cols; col++) {
+                if (headerCols > 0 || col > 0) out.put(delimiter);
+                out.putObject(frameHeader.columnLabel(headerRow, col), delimiter);
+            }
+            out.put((byte)'\n');
+        }
+    }
+
+    private void writeRow(final Header frameHeader, final CellFormatter[] formatters, final int row,
+                          final Output out) {
+        final int headerCols = header ? frameHeader.nHeaderColumns() : 0;
+        for (int headerCol = 0; headerCol < headerCols; headerCol++) {
+            if (headerCol > 0) out.put(delimiter);
+            out.putObject(frameHeader.rowLabel(row, headerCol), delimiter);
+        }
+        for (int col = 0; col < formatters.length; col++) {
+            if (headerCols > 0 || col > 0) out.put(delimiter);
+            formatters[col].format(row, out);
+        }
+        out.put((byte)'\n');
+    }
+
+    @FunctionalInterface
+    private interface CellFormatter {
+        void format(int row, Output out);
+    }
+
+    private CellFormatter[] formatters(final DataFrame<?, ?> frame) {
+        final CellFormatter[] formatters = new CellFormatter[frame.nColumns()];
+        //primitive data frames implement one of the primitive 2D interfaces
+        final Object source = frame;
+        for (int col = 0; col < formatters.length; col++) {
+            final int column = col;
+            if (frame instanceof ColumnFrame) {
+                final ColumnFrame columnFrame = (ColumnFrame)frame;
+                switch (columnFrame.columnType(col)) {
+                    case DOUBLE:
+                        final DoubleVector doubles = columnFrame.doubleColumn(col);
+                        formatters[col] = (row, out) -> out.putDouble(doubles.valueAsDouble(row));
+                        break;
+                    case LONG:
+                        final LongVector longs = columnFrame.longColumn(col);
+                        formatters[col] = (row, out) -> out.putLong(longs.valueAsLong(row));
+                        break;
+                    case INT:
+                        final IntVector ints = columnFrame.intColumn(col);
+                        formatters[col] = (row, out) -> out.putLong(ints.valueAsInt(row));
+                        break;
+                    case BOOL:
+                        final BoolVector bools = columnFrame.boolColumn(col);
+                        formatters[col] = (row, out) -> out.putBoolean(bools.valueAsBoolean(row));
+                        break;
+                    default:
+                        final ObjVector<String> strings = columnFrame.stringColumn(col);
+                        formatters[col] = (row, out) -> out.putObject(strings.value(row), delimiter);
+                        break;
+                }
+            } else if (source instanceof Double2D) {
+                final Double2D values = (Double2D)source;
+                formatters[col] = (row, out) -> out.putDouble(values.valueAsDouble(row, column));
+            } else if (source instanceof Long2D) {
+                final Long2D values = (Long2D)source;
+                formatters[col] = (row, out) -> out.putLong(values.valueAsLong(row, column));
+            } else if (source instanceof Int2D) {
+                final Int2D values = (Int2D)source;
+                formatters[col] = (row, out) -> out.putLong(values.valueAsInt(row, column));
+            } else if (source instanceof Bool2D) {
+                final Bool2D values = (Bool2D)source;
+                formatters[col] = (row, out) -> out.putBoolean(values.valueAsBoolean(row, column));
+            } else {
+                formatters[col] = (row, out) -> out.putObject(frame.value(row, column), delimiter);
+            }
+        }
+        return formatters;
+    }
+
+    /**
+     * Growable byte buffer formatting values in place.
+     */
+    private static final class Output {
+        byte[] bytes;
+        int size;
+        final byte[] digits = new byte[20];
+
+        Output(final int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensure(final int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + length, 2 * bytes.length));
+            }
+        }
+
+        void put(final byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void put(final byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        void putBoolean(final boolean value) {
+            put(value ? TRUE : FALSE);
+        }
+
+        void putLong(final long value) {
+            if (value == Long.MIN_VALUE) {
+                put(MIN_LONG);
+                return;
+            }
+            if (value < 0) {
+                put((byte)'-');
+            }
+            putDigits(Math.abs(value), 0);
+        }
+
+        /**
+         * Writes the decimal digits of a non-negative value, with a decimal point before the last fractionDigits
+         * digits if positive.
+         */
+        private void putDigits(long value, final int fractionDigits) {
+            int n = 0;
+            do {
+                digits[n++] = (byte)('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            while (n <= fractionDigits) {
+                digits[n++] = '0';
+            }
+            ensure(n + 1);
+            for (int i = n - 1; i >= 0; i--) {
+                bytes[size++] = digits[i];
+                if (i == fractionDigits && i > 0) {
+                    bytes[size++] = '.';
+                }
+            }
+        }
+
+        void putDouble(final double value) {
+            if (value != value) {
+                return;
+            }
+            if (value == 0) {
+                put(1 / value < 0 ? NEGATIVE_ZERO : ZERO);
+                return;
+            }
+            final double abs = Math.abs(value);
+            if (abs >= 1e-7 && abs < 1e15) {
+                for (int k = 0; k < POW10.length; k++) {
+                    final double scaled = abs * POW10[k];
+                    if (scaled >= MAX_EXACT) {
+                        break;
+                    }
+                    final long mantissa = (long)Math.rint(scaled);
+                    if (mantissa / POW10[k] == abs) {
+                        if (value < 0) {
+                            put((byte)'-');
+                        }
+                        putDigits(mantissa, k);
+                        if (k == 0) {
+                            put(POINT_ZERO);
+                        }
+                        return;
+                    }
+                }
+            }
+            putAscii(Double.toString(value));
+        }
+
+        private void putAscii(final String value) {
+            final int length = value.length();
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                bytes[size++] = (byte)value.charAt(i);
+            }
+        }
+
+        void putObject(final Object value, final byte delimiter) {
+            if (value == null) {
+                return;
+            }
+            final String string = value.toString();
+            final int length = string.length();
+            boolean quote = false;
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                final char ch = string.charAt(i);
+                quote |= ch == delimiter | ch == '"' | ch == '\n' | ch == '\r';
+                ascii &= ch < 128;
+            }
+            if (quote) put((byte)'"');
+            if (ascii) {
+                ensure(quote ? 2 * length : length);
+                for (int i = 0; i < length; i++) {
+                    final char ch = string.charAt(i);
+                    if (ch == '"') {
+                        bytes[size++] = '"';
+                    }
+                    bytes[size++] = (byte)ch;
+                }
+            } else {
+                final String escaped = quote ? string.replace("\"", "\"\"") : string;
+                put(escaped.getBytes(StandardCharsets.UTF_8));
+            }
+            if (quote) put((byte)'"');
+        }
+
+        void writeTo(final WritableByteChannel channel) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            size = 0;
+        }
+    }
+}
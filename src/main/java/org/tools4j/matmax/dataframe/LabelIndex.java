@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import java.util.Objects;
+
+/**
+ * Hash index from labels to their position, built in linear time with constant time lookups.  Uses open addressing
+ * with linear probing over primitive arrays;  each slot stores the label position and the precomputed label hash, so
+ * that labels are only compared with equals if their hashes match.  If a label occurs more than once, the index of
+ * its first occurrence is returned.
+ */
+final class LabelIndex {
+
+    private final Object[] labels;
+    private final int[] slotIndices;//label index + 1, or 0 for an empty slot
+    private final int[] slotHashes;
+    private final int mask;
+
+    LabelIndex(final Object[] labels) {
+        this.labels = labels;
+        int capacity = 2;
+        while (capacity < 2L * labels.length) {
+            capacity *= 2;
+        }
+        this.slotIndices = new int[capacity];
+        this.slotHashes = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < labels.length; i++) {
+            final int hash = hash(labels[i]);
+            int slot = hash & mask;
+            while (slotIndices[slot] != 0) {
+                if (slotHashes[slot] == hash && Objects.equals(labels[slotIndices[slot] - 1], labels[i])) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (slotIndices[slot] == 0) {
+                slotIndices[slot] = i + 1;
+                slotHashes[slot] = hash;
+            }
+        }
+    }
+
+    int size() {
+        return labels.length;
+    }
+
+    Object label(final int index) {
+        return labels[index];
+    }
+
+    int indexOf(final Object label) {
+        final int hash = hash(label);
+        for (int slot = hash & mask; slotIndices[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotHashes[slot] == hash) {
+                final int index = slotIndices[slot] - 1;
+                if (Objects.equals(labels[index], label)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(final Object label) {
+        final int hash = Objects.hashCode(label) * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+}
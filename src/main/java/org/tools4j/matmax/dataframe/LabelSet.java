@@ -24,7 +24,6 @@
 package org.tools4j.matmax.dataframe;
 
 import java.util.Arrays;
-import java.util.Comparator;
 
 public interface LabelSet {
     int size();
@@ -44,35 +43,28 @@ public interface LabelSet {
             return indexOf(label == null ? null : label.toString());
         }
 
+        /**
+         * Creates a label set with hash based lookup of the original label index.
+         *
+         * @param labels the labels, null and duplicate labels are permitted
+         * @return a label set for the given labels
+         */
         static StringLabelSet create(final String... labels) {
-            final int n = labels.length;
-            final Object[][] labelsAndIndices = new Object[n][2];
-            for (int i = 0; i < n; i++) {
-                labelsAndIndices[i][0] = labels[i];
-                labelsAndIndices[i][1] = i;
-            }
-            Arrays.sort(labelsAndIndices, Comparator.comparing(li -> li[0].toString()));
-            final String[] sortedLabels = new String[n];
-            final int[] indices = new int[n];
-            for (int i = 0; i < n; i++) {
-                sortedLabels[i] = labelsAndIndices[i][0].toString();
-                indices[i] = (int)labelsAndIndices[i][1];
-            }
+            final LabelIndex index = new LabelIndex(Arrays.copyOf(labels, labels.length, Object[].class));
             return new StringLabelSet() {
                 @Override
                 public int size() {
-                    return labels.length;
+                    return index.size();
                 }
 
                 @Override
-                public String label(final int index) {
-                    return labels[index];
+                public String label(final int i) {
+                    return (String)index.label(i);
                 }
 
                 @Override
                 public int indexOf(final String label) {
-                    final int index = Arrays.binarySearch(sortedLabels, label);
-                    return index >= 0 ? index : -1;
+                    return index.indexOf(label);
                 }
             };
         }
@@ -88,6 +80,54 @@ public interface LabelSet {
             final V label = labelAsObj(index);
             return label == null ? null : label.toString();
         }
+
+        /**
+         * Creates a label set with hash based lookup of the original label index, where labels are compared with
+         * {@link Object#equals(Object)}.  Lookups by string use a second index of the label strings, built on first
+         * use.
+         *
+         * @param labels the labels, null and duplicate labels are permitted
+         * @param <V> the label type
+         * @return a label set for the given labels
+         */
+        //labels are only copied into an Object[] and never escape as V[]
+        @SafeVarargs
+        @SuppressWarnings("varargs")
+        static <V> ObjLabelSet<V> create(final V... labels) {
+            final LabelIndex index = new LabelIndex(Arrays.copyOf(labels, labels.length, Object[].class));
+            return new ObjLabelSet<V>() {
+                private volatile LabelIndex stringIndex;
+
+                @Override
+                public int size() {
+                    return index.size();
+                }
+
+                @Override
+                public int indexOf(final String label) {
+                    LabelIndex strings = stringIndex;
+                    if (strings == null) {
+                        final String[] stringLabels = new String[index.size()];
+                        for (int i = 0; i < stringLabels.length; i++) {
+                            stringLabels[i] = label(i);
+                        }
+                        stringIndex = strings = new LabelIndex(stringLabels);
+                    }
+                    return strings.indexOf(label);
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                public V labelAsObj(final int i) {
+                    return (V)index.label(i);
+                }
+
+                @Override
+                public int indexOfObj(final Object label) {
+                    return index.indexOf(label);
+                }
+            };
+        }
     }
 
     @FunctionalInterface
@@ -0,0 +1,497 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+/**
+ * Element-wise double expression recorded as a tree of operation nodes instead of nested closures.  Expressions are
+ * built from {@link #of(Double2D) sources} via {@link #applyToEach(DoubleUnaryOperator)},
+ * {@link #with(Double2D) with(..)} and the arithmetic methods of this class, and every operation returns a new
+ * expression node.
+ * <p>
+ * An expression can be read cell by cell like any other {@link Double2D}, but the intended use is
+ * {@link #evaluate(int, int) evaluation} of a whole shape:  all operations are then fused into a single
+ * {@link DoubleProgram program} evaluated by a {@link DoubleKernel kernel} class generated at runtime, with one loop
+ * iteration per cell.  Kernels are cached by the shape of the expression.  Operations given as one of the
+ * constants in {@link DoubleFunctions} or via the arithmetic methods of this class are evaluated with dedicated loops;
+ * other functions are invoked once per cell.
+ */
+public abstract class DoubleExpression implements Double2D {
+
+    public static final BiFunction<Double2D, Double2D, Double2D> ADD = (a, b) -> of(a).add(b);
+    public static final BiFunction<Double2D, Double2D, Double2D> SUBTRACT = (a, b) -> of(a).subtract(b);
+    public static final BiFunction<Double2D, Double2D, Double2D> MULTIPLY = (a, b) -> of(a).multiply(b);
+    public static final BiFunction<Double2D, Double2D, Double2D> DIVIDE = (a, b) -> of(a).divide(b);
+    public static final BiFunction<Double2D, Double2D, Double2D> MIN = (a, b) -> of(a).min(b);
+    public static final BiFunction<Double2D, Double2D, Double2D> MAX = (a, b) -> of(a).max(b);
+
+    private static final DoubleExpression[] NO_OPERANDS = {};
+
+    DoubleExpression() {
+        //package-private to restrict subclasses to the nodes below
+    }
+
+    /**
+     * Returns the given values as expression, or the values themselves if they are already an expression.  Values
+     * are read cell by cell;  dense matrices should be passed as {@code matrix.expression()} to let the evaluation
+     * copy whole blocks from the backing array.
+     */
+    public static DoubleExpression of(final Double2D values) {
+        Objects.requireNonNull(values);
+        return values instanceof DoubleExpression ? (DoubleExpression)values : new Source(values);
+    }
+
+    /**
+     * Returns an expression reading from a flat array with the values of a {@code rows x cols} matrix in row-major
+     * order.  Evaluation of a shape with the same number of columns copies whole blocks from the array.
+     */
+    public static DoubleExpression of(final int rows, final int cols, final double[] values) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(values);
+        if (values.length != (long)rows * cols) {
+            throw new IllegalArgumentException("values length must be " + rows + "x" + cols + " but was " + values.length);
+        }
+        return new ArraySource(rows, cols, values);
+    }
+
+    public static DoubleExpression constant(final double value) {
+        return new Constant(value);
+    }
+
+    /** Appends the instructions evaluating this node to the builder, after the instructions of its operands */
+    abstract void emitNode(DoubleProgram.Builder builder);
+
+    /** Returns the operands of this node */
+    DoubleExpression[] operands() {
+        return NO_OPERANDS;
+    }
+
+    /** Returns true if this node should be evaluated once if it occurs more than once in an expression */
+    boolean isShareable() {
+        return true;
+    }
+
+    private void emit(final DoubleProgram.Builder builder) {
+        if (builder.loadShared(this)) {
+            return;
+        }
+        for (final DoubleExpression operand : operands()) {
+            operand.emit(builder);
+        }
+        emitNode(builder);
+        builder.storeIfShared(this);
+    }
+
+    /** Counts the occurrences of shareable sub-expressions, where equal sub-expressions count as the same */
+    private void count(final Map<DoubleExpression, Integer> occurrences) {
+        if (isShareable() && occurrences.merge(this, 1, Integer::sum) > 1) {
+            return;
+        }
+        for (final DoubleExpression operand : operands()) {
+            operand.count(occurrences);
+        }
+    }
+
+    /**
+     * Returns the fused program evaluating this expression.  Sub-expressions occurring more than once are evaluated
+     * only once per cell.
+     */
+    DoubleProgram program() {
+        final Map<DoubleExpression, Integer> occurrences = new HashMap<>();
+        count(occurrences);
+        final DoubleProgram.Builder builder = new DoubleProgram.Builder(occurrences);
+        emit(builder);
+        return builder.build();
+    }
+
+    @Override
+    public DoubleExpression apply(final Function<? super Double2D, ? extends Double2D> operator) {
+        return of(operator.apply(this));
+    }
+
+    @Override
+    public DoubleExpression applyToEach(final DoubleUnaryOperator operator) {
+        Objects.requireNonNull(operator);
+        if (operator == DoubleFunctions.NEGATE) return unary(DoubleProgram.NEGATE, 0);
+        if (operator == DoubleFunctions.ABS) return unary(DoubleProgram.ABS, 0);
+        if (operator == DoubleFunctions.SQRT) return unary(DoubleProgram.SQRT, 0);
+        if (operator == DoubleFunctions.SIGNUM) return unary(DoubleProgram.SIGNUM, 0);
+        if (operator == DoubleFunctions.INVERT) return unary(DoubleProgram.INVERT, 0);
+        if (operator instanceof DoubleFunctions.ConstantOperator) {
+            final DoubleFunctions.ConstantOperator constantOperator = (DoubleFunctions.ConstantOperator)operator;
+            return unary(constantOperator.code, constantOperator.constant);
+        }
+        return new Unary(this, DoubleProgram.UNARY, 0, operator);
+    }
+
+    @Override
+    public BinaryOperable<Double2D, ? extends DoubleExpression> with(final Double2D secondOperand) {
+        return operator -> of(operator.apply(this, secondOperand));
+    }
+
+    public DoubleExpression negate() {
+        return unary(DoubleProgram.NEGATE, 0);
+    }
+
+    public DoubleExpression add(final double summand) {
+        return unary(DoubleProgram.ADD_CONSTANT, summand);
+    }
+
+    public DoubleExpression subtract(final double subtrahend) {
+        return unary(DoubleProgram.SUBTRACT_CONSTANT, subtrahend);
+    }
+
+    public DoubleExpression multiply(final double factor) {
+        return unary(DoubleProgram.MULTIPLY_CONSTANT, factor);
+    }
+
+    public DoubleExpression divide(final double divisor) {
+        return unary(DoubleProgram.DIVIDE_CONSTANT, divisor);
+    }
+
+    public DoubleExpression pow(final double exponent) {
+        return unary(DoubleProgram.POW_CONSTANT, exponent);
+    }
+
+    public DoubleExpression add(final Double2D other) {
+        return binary(other, DoubleProgram.ADD, null);
+    }
+
+    public DoubleExpression subtract(final Double2D other) {
+        return binary(other, DoubleProgram.SUBTRACT, null);
+    }
+
+    public DoubleExpression multiply(final Double2D other) {
+        return binary(other, DoubleProgram.MULTIPLY, null);
+    }
+
+    public DoubleExpression divide(final Double2D other) {
+        return binary(other, DoubleProgram.DIVIDE, null);
+    }
+
+    public DoubleExpression min(final Double2D other) {
+        return binary(other, DoubleProgram.MIN, null);
+    }
+
+    public DoubleExpression max(final Double2D other) {
+        return binary(other, DoubleProgram.MAX, null);
+    }
+
+    /**
+     * Returns an expression combining every cell of this and the other operand with the given operator.
+     */
+    public DoubleExpression combine(final Double2D other, final DoubleBinaryOperator operator) {
+        return binary(other, DoubleProgram.BINARY, Objects.requireNonNull(operator));
+    }
+
+    private DoubleExpression unary(final int code, final double constant) {
+        return new Unary(this, code, constant, null);
+    }
+
+    private DoubleExpression binary(final Double2D other, final int code, final DoubleBinaryOperator operator) {
+        return new Binary(this, of(other), code, operator);
+    }
+
+    /**
+     * Evaluates all cells of a {@code rows x cols} shape with the fused program of this expression.
+     *
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @return the cell values in row-major order
+     */
+    public double[] evaluate(final int rows, final int cols) {
+        final double[] target = new double[Math.multiplyExact(checkRows(rows), checkCols(cols))];
+        if (target.length > 0) {
+            program().evaluation(rows, cols, target).apply(0, 0, target.length);
+        }
+        return target;
+    }
+
+    /**
+     * Evaluates all cells of a {@code rows x cols} shape with the fused program of this expression in parallel.
+     *
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @param pool  the pool used to parallelize the evaluation
+     * @return the cell values in row-major order
+     */
+    public double[] evaluate(final int rows, final int cols, final ForkJoinPool pool) {
+        final double[] target = new double[Math.multiplyExact(checkRows(rows), checkCols(cols))];
+        if (target.length > 0) {
+            final int chunkSize = Parallel.chunkSize(pool, target.length, Double.BYTES);
+            Parallel.forEachChunk(pool, target.length, chunkSize, program().evaluation(rows, cols, target));
+        }
+        return target;
+    }
+
+    private static int checkRows(final int rows) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        return rows;
+    }
+
+    private static int checkCols(final int cols) {
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        return cols;
+    }
+
+    /*
+     * Nodes are equal if they have the same structure, operators and sources, hence equal sub-expressions that were
+     * built independently are also evaluated only once.  Sources and operators are compared by identity.
+     */
+
+    private static final class Source extends DoubleExpression {
+        private final Double2D values;
+
+        Source(final Double2D values) {
+            this.values = values;
+        }
+
+        @Override
+        void emitNode(final DoubleProgram.Builder builder) {
+            builder.add(DoubleProgram.LOAD, 0, values);
+        }
+
+        @Override
+        public double valueAsDouble(final int row, final int column) {
+            return values.valueAsDouble(row, column);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(values);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Source && ((Source)obj).values == values;
+        }
+    }
+
+    static final class ArraySource extends DoubleExpression {
+        private final int rows;
+        private final int cols;
+        private final double[] values;
+
+        ArraySource(final int rows, final int cols, final double[] values) {
+            this.rows = rows;
+            this.cols = cols;
+            this.values = values;
+        }
+
+        @Override
+        void emitNode(final DoubleProgram.Builder builder) {
+            builder.add(DoubleProgram.LOAD_ARRAY, 0, this);
+        }
+
+        @Override
+        boolean isShareable() {
+            return false;
+        }
+
+        @Override
+        public double valueAsDouble(final int row, final int column) {
+            return row >= 0 & row < rows & column >= 0 & column < cols ? values[row * cols + column] : Double.NaN;
+        }
+
+        /** Returns true if this source can be indexed by the cell index of a {@code rows x cols} shape */
+        boolean covers(final int shapeRows, final int shapeCols) {
+            return cols == shapeCols & rows >= shapeRows;
+        }
+
+        double[] values() {
+            return values;
+        }
+
+        /**
+         * Loads {@code length} cells starting at cell index {@code start} of a shape with {@code shapeCols} columns.
+         */
+        void load(final double[] target, final int start, final int length, final int shapeCols) {
+            if (shapeCols == cols && start + length <= values.length) {
+                System.arraycopy(values, start, target, 0, length);
+                return;
+            }
+            int row = start / shapeCols;
+            int col = start - row * shapeCols;
+            for (int i = 0; i < length; i++) {
+                target[i] = valueAsDouble(row, col);
+                if (++col == shapeCols) {
+                    col = 0;
+                    row++;
+                }
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(values);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof ArraySource)) return false;
+            final ArraySource other = (ArraySource)obj;
+            return other.values == values & other.cols == cols;
+        }
+    }
+
+    private static final class Constant extends DoubleExpression {
+        private final double value;
+
+        Constant(final double value) {
+            this.value = value;
+        }
+
+        @Override
+        void emitNode(final DoubleProgram.Builder builder) {
+            builder.add(DoubleProgram.CONSTANT, value, null);
+        }
+
+        @Override
+        boolean isShareable() {
+            return false;
+        }
+
+        @Override
+        public double valueAsDouble(final int row, final int column) {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Constant && Double.compare(((Constant)obj).value, value) == 0;
+        }
+    }
+
+    private static final class Unary extends DoubleExpression {
+        private final DoubleExpression operand;
+        private final int code;
+        private final double constant;
+        private final DoubleUnaryOperator operator;
+        private final int hash;
+
+        Unary(final DoubleExpression operand, final int code, final double constant,
+              final DoubleUnaryOperator operator) {
+            this.operand = operand;
+            this.code = code;
+            this.constant = constant;
+            this.operator = operator;
+            this.hash = 31 * (31 * (31 * operand.hashCode() + code) + Double.hashCode(constant)) +
+                    System.identityHashCode(operator);
+        }
+
+        @Override
+        DoubleExpression[] operands() {
+            return new DoubleExpression[] {operand};
+        }
+
+        @Override
+        void emitNode(final DoubleProgram.Builder builder) {
+            builder.add(code, constant, operator);
+        }
+
+        @Override
+        public double valueAsDouble(final int row, final int column) {
+            return DoubleProgram.unary(code, constant, operator, operand.valueAsDouble(row, column));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Unary)) return false;
+            final Unary other = (Unary)obj;
+            return hash == other.hash && code == other.code && operator == other.operator &&
+                    Double.compare(constant, other.constant) == 0 && operand.equals(other.operand);
+        }
+    }
+
+    private static final class Binary extends DoubleExpression {
+        private final DoubleExpression left;
+        private final DoubleExpression right;
+        private final int code;
+        private final DoubleBinaryOperator operator;
+        private final int hash;
+
+        Binary(final DoubleExpression left, final DoubleExpression right, final int code,
+               final DoubleBinaryOperator operator) {
+            this.left = left;
+            this.right = right;
+            this.code = code;
+            this.operator = operator;
+            this.hash = 31 * (31 * (31 * left.hashCode() + right.hashCode()) + code) +
+                    System.identityHashCode(operator);
+        }
+
+        @Override
+        DoubleExpression[] operands() {
+            return new DoubleExpression[] {left, right};
+        }
+
+        @Override
+        void emitNode(final DoubleProgram.Builder builder) {
+            builder.add(code, 0, operator);
+        }
+
+        @Override
+        public double valueAsDouble(final int row, final int column) {
+            return DoubleProgram.binary(code, operator, left.valueAsDouble(row, column),
+                    right.valueAsDouble(row, column));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Binary)) return false;
+            final Binary other = (Binary)obj;
+            return hash == other.hash && code == other.code && operator == other.operator &&
+                    left.equals(other.left) && right.equals(other.right);
+        }
+    }
+}
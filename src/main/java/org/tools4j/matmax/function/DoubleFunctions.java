@@ -36,33 +36,75 @@ public final class DoubleFunctions {
     public static final DoubleUnaryOperator ABS = Math::abs;
     public static final DoubleUnaryOperator SQRT = Math::sqrt;
 
-    public static Function<Double2D, Double2D> TRANSPOSE = input -> (r, c) -> input.valueAsDouble(c, r);
+    /**
+     * @deprecated use {@link org.tools4j.matmax.matrix.DoubleMatrix#transpose()} which materializes cache friendly
+     */
+    @Deprecated
+    public static final Function<Double2D, Double2D> TRANSPOSE = input -> (r, c) -> input.valueAsDouble(c, r);
 
 
     public static DoubleUnaryOperator add(final double summand) {
-        return d -> d + summand;
+        return new ConstantOperator(DoubleProgram.ADD_CONSTANT, summand) {
+            @Override
+            public double applyAsDouble(final double d) {
+                return d + summand;
+            }
+        };
     }
 
     public static DoubleUnaryOperator subtract(final double subtrahend) {
-        return d -> d - subtrahend;
+        return new ConstantOperator(DoubleProgram.SUBTRACT_CONSTANT, subtrahend) {
+            @Override
+            public double applyAsDouble(final double d) {
+                return d - subtrahend;
+            }
+        };
     }
 
     public static DoubleUnaryOperator multiply(final double factor) {
-        return d -> d * factor;
+        return new ConstantOperator(DoubleProgram.MULTIPLY_CONSTANT, factor) {
+            @Override
+            public double applyAsDouble(final double d) {
+                return d * factor;
+            }
+        };
     }
 
     public static DoubleUnaryOperator divide(final double divisor) {
-        return d -> d / divisor;
+        return new ConstantOperator(DoubleProgram.DIVIDE_CONSTANT, divisor) {
+            @Override
+            public double applyAsDouble(final double d) {
+                return d / divisor;
+            }
+        };
     }
 
     public static DoubleUnaryOperator pow(final double exponent) {
-        return d -> Math.pow(d, exponent);
+        return new ConstantOperator(DoubleProgram.POW_CONSTANT, exponent) {
+            @Override
+            public double applyAsDouble(final double d) {
+                return Math.pow(d, exponent);
+            }
+        };
     }
 
     public static Function<Double2D, Double2D> lag(final int rows, final int cols) {
         return input -> (r, c) -> input.valueAsDouble(r - rows, c - cols);
     }
 
+    /**
+     * Operator with a constant operand, recognized by {@link DoubleExpression} and lowered to the program instruction
+     * with the given code.
+     */
+    abstract static class ConstantOperator implements DoubleUnaryOperator {
+        final int code;
+        final double constant;
+
+        ConstantOperator(final int code, final double constant) {
+            this.code = code;
+            this.constant = constant;
+        }
+    }
 
     private DoubleFunctions() {
         throw new RuntimeException("No DoubleFunctions for you!");
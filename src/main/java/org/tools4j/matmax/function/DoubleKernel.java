@@ -0,0 +1,47 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+/**
+ * Fused element-wise kernel generated at runtime for the shape of a {@link DoubleExpression}.  Every kernel class
+ * evaluates the whole expression for one cell per loop iteration, with a dedicated call site for every source and
+ * operator of the expression.
+ * <p>
+ * This interface is public only because generated classes live in their own class loader;  it is not meant to be
+ * implemented or invoked by application code.
+ */
+public interface DoubleKernel {
+    /**
+     * Evaluates the cells {@code [from, to)} of a matrix with {@code cols} columns in row-major order and stores the
+     * results at the cell index of the target array.
+     *
+     * @param operands  the sources and operators of the expression in instruction order, null for other instructions
+     * @param constants the constants of the expression in instruction order
+     * @param cols      the number of matrix columns, positive
+     * @param target    the target array
+     * @param from      the first cell index, inclusive
+     * @param to        the last cell index, exclusive
+     */
+    void evaluate(Object[] operands, double[] constants, int cols, double[] target, int from, int to);
+}
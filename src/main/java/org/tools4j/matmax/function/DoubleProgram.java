@@ -0,0 +1,389 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Fused kernel of a {@link DoubleExpression} as a flat list of stack machine instructions.  The program is evaluated
+ * block by block:  every instruction processes a whole block of {@link #BLOCK} consecutive cells with a tight loop,
+ * and intermediate results live in a few block buffers on the operand stack.  Hence all operations of an expression
+ * are applied in a single pass over the cells without allocating intermediate matrices, and the per-cell cost is a
+ * loop iteration per operation instead of a chain of nested virtual calls.
+ */
+final class DoubleProgram {
+
+    /** Number of cells processed per instruction, chosen so that the operand stack stays in the L1 cache */
+    static final int BLOCK = 512;
+
+    static final int LOAD = 0;
+    static final int LOAD_ARRAY = 1;
+    static final int CONSTANT = 2;
+    static final int LOAD_SHARED = 3;
+    static final int STORE_SHARED = 4;
+    static final int NEGATE = 5;
+    static final int ABS = 6;
+    static final int SQRT = 7;
+    static final int SIGNUM = 8;
+    static final int INVERT = 9;
+    static final int ADD_CONSTANT = 10;
+    static final int SUBTRACT_CONSTANT = 11;
+    static final int MULTIPLY_CONSTANT = 12;
+    static final int DIVIDE_CONSTANT = 13;
+    static final int POW_CONSTANT = 14;
+    static final int UNARY = 15;
+    static final int ADD = 16;
+    static final int SUBTRACT = 17;
+    static final int MULTIPLY = 18;
+    static final int DIVIDE = 19;
+    static final int MIN = 20;
+    static final int MAX = 21;
+    static final int BINARY = 22;
+
+    final int[] codes;
+    final int[] registers;
+    final double[] constants;
+    final Object[] operands;
+    final int depth;
+    final int registerCount;
+
+    private DoubleProgram(final int[] codes, final int[] registers, final double[] constants, final Object[] operands,
+                          final int depth, final int registerCount) {
+        this.codes = codes;
+        this.registers = registers;
+        this.constants = constants;
+        this.operands = operands;
+        this.depth = depth;
+        this.registerCount = registerCount;
+    }
+
+    /** Returns true for instructions pushing a value onto the operand stack */
+    static boolean isLoad(final int code) {
+        return code <= LOAD_SHARED;
+    }
+
+    static boolean isBinary(final int code) {
+        return code >= ADD;
+    }
+
+    /**
+     * Returns an action evaluating chunks of cells of a {@code rows x cols} matrix into the target array.  The action
+     * uses a {@link KernelCompiler compiled kernel} if possible and interprets the program otherwise.
+     */
+    Parallel.ChunkAction evaluation(final int rows, final int cols, final double[] target) {
+        if (!KernelCompiler.ENABLED || codes.length > KernelCompiler.MAX_INSTRUCTIONS) {
+            return (chunk, from, to) -> evaluate(cols, target, from, to);
+        }
+        final int[] kernelCodes = codes.clone();
+        final Object[] kernelOperands = operands.clone();
+        for (int pc = 0; pc < codes.length; pc++) {
+            if (codes[pc] == LOAD_ARRAY) {
+                final DoubleExpression.ArraySource source = (DoubleExpression.ArraySource)operands[pc];
+                if (source.covers(rows, cols)) {
+                    kernelOperands[pc] = source.values();
+                } else {
+                    kernelCodes[pc] = LOAD;
+                }
+            }
+        }
+        final DoubleKernel kernel = KernelCompiler.kernel(kernelCodes, registers, kernelOperands);
+        if (kernel == null) {
+            return (chunk, from, to) -> evaluate(cols, target, from, to);
+        }
+        return (chunk, from, to) -> kernel.evaluate(kernelOperands, constants, cols, target, from, to);
+    }
+
+    /**
+     * Evaluates the cells {@code [from, to)} of a matrix with the given number of columns in row-major order and
+     * stores the result in the target array at the cell index.
+     */
+    void evaluate(final int cols, final double[] target, final int from, final int to) {
+        final double[][] stack = new double[depth][BLOCK];
+        final double[][] shared = new double[registerCount][BLOCK];
+        for (int start = from; start < to; start += BLOCK) {
+            final int length = Math.min(BLOCK, to - start);
+            int top = -1;
+            for (int pc = 0; pc < codes.length; pc++) {
+                final int code = codes[pc];
+                if (code == LOAD_SHARED) {
+                    top++;
+                    System.arraycopy(shared[registers[pc]], 0, stack[top], 0, length);
+                } else if (code == STORE_SHARED) {
+                    System.arraycopy(stack[top], 0, shared[registers[pc]], 0, length);
+                } else if (code <= CONSTANT) {
+                    top++;
+                    load(code, pc, stack[top], start, length, cols);
+                } else if (isBinary(code)) {
+                    top--;
+                    binary(code, (DoubleBinaryOperator)operands[pc], stack[top], stack[top + 1], length);
+                } else {
+                    unary(code, constants[pc], (DoubleUnaryOperator)operands[pc], stack[top], length);
+                }
+            }
+            System.arraycopy(stack[0], 0, target, start, length);
+        }
+    }
+
+    private void load(final int code, final int pc, final double[] x, final int start, final int length,
+                      final int cols) {
+        switch (code) {
+            case LOAD: {
+                final Double2D source = (Double2D)operands[pc];
+                int row = start / cols;
+                int col = start - row * cols;
+                for (int i = 0; i < length; i++) {
+                    x[i] = source.valueAsDouble(row, col);
+                    if (++col == cols) {
+                        col = 0;
+                        row++;
+                    }
+                }
+                break;
+            }
+            case LOAD_ARRAY:
+                ((DoubleExpression.ArraySource)operands[pc]).load(x, start, length, cols);
+                break;
+            default:
+                Arrays.fill(x, 0, length, constants[pc]);
+                break;
+        }
+    }
+
+    private static void unary(final int code, final double c, final DoubleUnaryOperator operator, final double[] x,
+                              final int length) {
+        switch (code) {
+            case NEGATE:
+                for (int i = 0; i < length; i++) {
+                    x[i] = -x[i];
+                }
+                break;
+            case ABS:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.abs(x[i]);
+                }
+                break;
+            case SQRT:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.sqrt(x[i]);
+                }
+                break;
+            case SIGNUM:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.signum(x[i]);
+                }
+                break;
+            case INVERT:
+                for (int i = 0; i < length; i++) {
+                    x[i] = 1 / x[i];
+                }
+                break;
+            case ADD_CONSTANT:
+                for (int i = 0; i < length; i++) {
+                    x[i] += c;
+                }
+                break;
+            case SUBTRACT_CONSTANT:
+                for (int i = 0; i < length; i++) {
+                    x[i] -= c;
+                }
+                break;
+            case MULTIPLY_CONSTANT:
+                for (int i = 0; i < length; i++) {
+                    x[i] *= c;
+                }
+                break;
+            case DIVIDE_CONSTANT:
+                for (int i = 0; i < length; i++) {
+                    x[i] /= c;
+                }
+                break;
+            case POW_CONSTANT:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.pow(x[i], c);
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    x[i] = operator.applyAsDouble(x[i]);
+                }
+                break;
+        }
+    }
+
+    private static void binary(final int code, final DoubleBinaryOperator operator, final double[] x,
+                               final double[] y, final int length) {
+        switch (code) {
+            case ADD:
+                for (int i = 0; i < length; i++) {
+                    x[i] += y[i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < length; i++) {
+                    x[i] -= y[i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < length; i++) {
+                    x[i] *= y[i];
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < length; i++) {
+                    x[i] /= y[i];
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.min(x[i], y[i]);
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < length; i++) {
+                    x[i] = Math.max(x[i], y[i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    x[i] = operator.applyAsDouble(x[i], y[i]);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Applies a unary instruction to a single value, used for cell-by-cell evaluation.
+     */
+    static double unary(final int code, final double c, final DoubleUnaryOperator operator, final double x) {
+        switch (code) {
+            case NEGATE: return -x;
+            case ABS: return Math.abs(x);
+            case SQRT: return Math.sqrt(x);
+            case SIGNUM: return Math.signum(x);
+            case INVERT: return 1 / x;
+            case ADD_CONSTANT: return x + c;
+            case SUBTRACT_CONSTANT: return x - c;
+            case MULTIPLY_CONSTANT: return x * c;
+            case DIVIDE_CONSTANT: return x / c;
+            case POW_CONSTANT: return Math.pow(x, c);
+            default: return operator.applyAsDouble(x);
+        }
+    }
+
+    /**
+     * Applies a binary instruction to a single pair of values, used for cell-by-cell evaluation.
+     */
+    static double binary(final int code, final DoubleBinaryOperator operator, final double x, final double y) {
+        switch (code) {
+            case ADD: return x + y;
+            case SUBTRACT: return x - y;
+            case MULTIPLY: return x * y;
+            case DIVIDE: return x / y;
+            case MIN: return Math.min(x, y);
+            case MAX: return Math.max(x, y);
+            default: return operator.applyAsDouble(x, y);
+        }
+    }
+
+    /**
+     * Collects instructions in post-order of the expression tree and tracks the required operand stack depth.
+     * Expressions occurring more than once are evaluated once per cell:  the first occurrence stores its result in a
+     * shared register and all other occurrences load it from there.
+     */
+    static final class Builder {
+        private final Map<DoubleExpression, Integer> occurrences;
+        private final Map<DoubleExpression, Integer> sharedRegisters = new HashMap<>();
+        private int[] codes = new int[16];
+        private int[] registers = new int[16];
+        private double[] constants = new double[16];
+        private Object[] operands = new Object[16];
+        private int count;
+        private int top;
+        private int depth;
+
+        Builder(final Map<DoubleExpression, Integer> occurrences) {
+            this.occurrences = occurrences;
+        }
+
+        /**
+         * Adds a load instruction for the given expression if its result is already stored in a shared register.
+         *
+         * @return true if a load instruction was added, and false if the expression needs to be evaluated
+         */
+        boolean loadShared(final DoubleExpression expression) {
+            final Integer register = sharedRegisters.get(expression);
+            if (register == null) {
+                return false;
+            }
+            add(LOAD_SHARED, register, 0, null);
+            return true;
+        }
+
+        /**
+         * Adds a store instruction for the expression just evaluated if it occurs more than once.
+         */
+        void storeIfShared(final DoubleExpression expression) {
+            if (occurrences.getOrDefault(expression, 0) > 1) {
+                final int register = sharedRegisters.size();
+                sharedRegisters.put(expression, register);
+                add(STORE_SHARED, register, 0, null);
+            }
+        }
+
+        void add(final int code, final double constant, final Object operand) {
+            add(code, 0, constant, operand);
+        }
+
+        private void add(final int code, final int register, final double constant, final Object operand) {
+            if (count == codes.length) {
+                codes = Arrays.copyOf(codes, 2 * count);
+                registers = Arrays.copyOf(registers, 2 * count);
+                constants = Arrays.copyOf(constants, 2 * count);
+                operands = Arrays.copyOf(operands, 2 * count);
+            }
+            codes[count] = code;
+            registers[count] = register;
+            constants[count] = constant;
+            operands[count] = operand;
+            count++;
+            if (isLoad(code)) {
+                depth = Math.max(depth, ++top);
+            } else if (isBinary(code)) {
+                top--;
+            }
+        }
+
+        DoubleProgram build() {
+            return new DoubleProgram(Arrays.copyOf(codes, count), Arrays.copyOf(registers, count),
+                    Arrays.copyOf(constants, count), Arrays.copyOf(operands, count), depth, sharedRegisters.size());
+        }
+    }
+}
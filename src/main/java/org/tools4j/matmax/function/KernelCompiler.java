@@ -0,0 +1,570 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles {@link DoubleProgram} instructions into a {@link DoubleKernel} class with a single loop evaluating the
+ * whole expression per cell on the JVM operand stack.  Operators and sources are invoked through call sites that
+ * exist in one kernel class only, and kernels are cached by the instruction codes and the classes of all sources and
+ * operators.  Every call site of a kernel hence only ever sees a single receiver class and the JIT can inline it.
+ * <p>
+ * Class files are written with version 49 which does not require stack map frames.  Every kernel class is defined
+ * by its own class loader.
+ */
+final class KernelCompiler {
+
+    private static final String KERNEL = DoubleKernel.class.getName().replace('.', '/');
+    private static final String DOUBLE_2D = "org/tools4j/matmax/indexed/Double2D";
+    private static final String UNARY_OPERATOR = "java/util/function/DoubleUnaryOperator";
+    private static final String BINARY_OPERATOR = "java/util/function/DoubleBinaryOperator";
+    private static final String EVALUATE_DESCRIPTOR = "([Ljava/lang/Object;[DI[DII)V";
+
+    //local variable slots of the evaluate method
+    private static final int OPERANDS = 1;
+    private static final int CONSTANTS = 2;
+    private static final int COLS = 3;
+    private static final int TARGET = 4;
+    private static final int FROM = 5;
+    private static final int TO = 6;
+    private static final int INDEX = 7;
+    private static final int ROW = 8;
+    private static final int COL = 9;
+    private static final int TMP1 = 10;
+    private static final int TMP2 = 12;
+    private static final int FIRST_FREE = 14;
+
+    /** Programs with more instructions are interpreted */
+    static final int MAX_INSTRUCTIONS = 1024;
+
+    /** Kernel compilation can be disabled with system property {@code matmax.kernels.interpreted=true} */
+    static final boolean ENABLED = !Boolean.getBoolean("matmax.kernels.interpreted");
+
+    /**
+     * Maximum number of cached kernels, configurable with system property {@code matmax.kernels.max};  programs of
+     * new shapes are interpreted once the cache is full
+     */
+    static final int MAX_KERNELS = Integer.getInteger("matmax.kernels.max", 256);
+
+    private static final Map<Shape, DoubleKernel> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicInteger KERNEL_COUNT = new AtomicInteger();
+
+    /**
+     * Returns the kernel for the given instructions, compiling and caching it on first use.  The cache holds at most
+     * approximately {@link #MAX_KERNELS} kernels, as it strongly references the kernel classes and the classes of all
+     * operators and sources.
+     *
+     * @param codes     the instruction codes, with {@link DoubleProgram#LOAD_ARRAY} reading from a {@code double[]}
+     * @param registers the shared register of every instruction
+     * @param operands  the operand of every instruction
+     * @return the cached or newly compiled kernel, or null if the cache is full and the program must be interpreted
+     */
+    static DoubleKernel kernel(final int[] codes, final int[] registers, final Object[] operands) {
+        final Shape shape = new Shape(codes, registers, operands);
+        final DoubleKernel kernel = CACHE.get(shape);
+        if (kernel != null || CACHE.size() >= MAX_KERNELS) {
+            return kernel;
+        }
+        return CACHE.computeIfAbsent(shape, KernelCompiler::compile);
+    }
+
+    /** Returns the number of compiled kernels */
+    static int kernelCount() {
+        return KERNEL_COUNT.get();
+    }
+
+    private static DoubleKernel compile(final Shape shape) {
+        final String name = "org/tools4j/matmax/function/generated/DoubleKernel" + KERNEL_COUNT.incrementAndGet();
+        final byte[] bytes = new ClassFile(name).write(shape.codes, shape.registers);
+        try {
+            final Class<?> kernelClass = new KernelLoader().define(name.replace('/', '.'), bytes);
+            return (DoubleKernel)kernelClass.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate generated kernel " + name, e);
+        }
+    }
+
+    /**
+     * Instruction codes, shared registers and operand classes of a program.
+     */
+    private static final class Shape {
+        final int[] codes;
+        final int[] registers;
+        final Class<?>[] classes;
+        final int hash;
+
+        Shape(final int[] codes, final int[] registers, final Object[] operands) {
+            this.codes = codes;
+            this.registers = registers;
+            this.classes = new Class<?>[operands.length];
+            for (int i = 0; i < operands.length; i++) {
+                classes[i] = operands[i] == null ? null : operands[i].getClass();
+            }
+            this.hash = 31 * (31 * Arrays.hashCode(codes) + Arrays.hashCode(registers)) + Arrays.hashCode(classes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Shape)) return false;
+            final Shape other = (Shape)obj;
+            return Arrays.equals(codes, other.codes) && Arrays.equals(registers, other.registers) &&
+                    Arrays.equals(classes, other.classes);
+        }
+    }
+
+    private static final class KernelLoader extends ClassLoader {
+        KernelLoader() {
+            super(DoubleKernel.class.getClassLoader());
+        }
+
+        Class<?> define(final String name, final byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Minimal class file writer for a kernel class with a default constructor and the evaluate method.
+     */
+    private static final class ClassFile {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+
+        private final String name;
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(pool);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int poolCount = 1;
+
+        ClassFile(final String name) {
+            this.name = name;
+        }
+
+        byte[] write(final int[] codes, final int[] registers) {
+            try {
+                final int thisClass = classEntry(name);
+                final int superClass = classEntry("java/lang/Object");
+                final int kernelInterface = classEntry(KERNEL);
+                final int code = utf8("Code");
+                final byte[] init = constructor();
+                final Method evaluate = evaluate(codes, registers);
+                final int initName = utf8("<init>");
+                final int initType = utf8("()V");
+                final int evaluateName = utf8("evaluate");
+                final int evaluateType = utf8(EVALUATE_DESCRIPTOR);
+
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                final DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(49);
+                out.writeShort(poolCount);
+                poolOut.flush();
+                pool.writeTo(out);
+                out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(kernelInterface);
+                out.writeShort(0);//fields
+                out.writeShort(2);//methods
+                writeMethod(out, initName, initType, code, 1, 1, init);
+                writeMethod(out, evaluateName, evaluateType, code, evaluate.maxStack, evaluate.maxLocals,
+                        evaluate.code);
+                out.writeShort(0);//attributes
+                out.flush();
+                return bytes.toByteArray();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static void writeMethod(final DataOutputStream out, final int name, final int type, final int code,
+                                        final int maxStack, final int maxLocals, final byte[] bytecode)
+                throws IOException {
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(name);
+            out.writeShort(type);
+            out.writeShort(1);
+            out.writeShort(code);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);//exception table
+            out.writeShort(0);//attributes
+        }
+
+        private byte[] constructor() throws IOException {
+            final Code code = new Code();
+            code.op(Code.ALOAD_0);
+            code.op(Code.INVOKESPECIAL).u2(methodEntry("java/lang/Object", "<init>", "()V", false));
+            code.op(Code.RETURN);
+            return code.toByteArray();
+        }
+
+        private static final class Method {
+            final byte[] code;
+            final int maxStack;
+            final int maxLocals;
+
+            Method(final byte[] code, final int maxStack, final int maxLocals) {
+                this.code = code;
+                this.maxStack = maxStack;
+                this.maxLocals = maxLocals;
+            }
+        }
+
+        private Method evaluate(final int[] codes, final int[] registers) throws IOException {
+            final Code code = new Code();
+            //load operands and constants into local variables, and allocate local variables for shared registers
+            final int[] slots = new int[codes.length];
+            final int[] registerSlots = new int[codes.length];
+            int nextSlot = FIRST_FREE;
+            for (int pc = 0; pc < codes.length; pc++) {
+                final String type = operandType(codes[pc]);
+                if (codes[pc] == DoubleProgram.STORE_SHARED) {
+                    registerSlots[registers[pc]] = nextSlot;
+                    nextSlot += 2;
+                }
+                if (type != null) {
+                    code.var(Code.ALOAD, OPERANDS).constant(pc).op(Code.AALOAD);
+                    code.op(Code.CHECKCAST).u2(classEntry(type));
+                    code.var(Code.ASTORE, nextSlot);
+                    slots[pc] = nextSlot++;
+                } else if (usesConstant(codes[pc])) {
+                    code.var(Code.ALOAD, CONSTANTS).constant(pc).op(Code.DALOAD);
+                    code.var(Code.DSTORE, nextSlot);
+                    slots[pc] = nextSlot;
+                    nextSlot += 2;
+                }
+            }
+            //index = from;  row = from / cols;  col = from - row * cols
+            code.var(Code.ILOAD, FROM).var(Code.ISTORE, INDEX);
+            code.var(Code.ILOAD, FROM).var(Code.ILOAD, COLS).op(Code.IDIV).var(Code.ISTORE, ROW);
+            code.var(Code.ILOAD, FROM).var(Code.ILOAD, ROW).var(Code.ILOAD, COLS).op(Code.IMUL).op(Code.ISUB)
+                    .var(Code.ISTORE, COL);
+            final int gotoCondition = code.jump(Code.GOTO);
+            final int loop = code.position();
+            //target[index] = <expression>
+            code.var(Code.ALOAD, TARGET).var(Code.ILOAD, INDEX);
+            int depth = 0;
+            int maxDepth = 0;
+            for (int pc = 0; pc < codes.length; pc++) {
+                final int slot = codes[pc] == DoubleProgram.LOAD_SHARED || codes[pc] == DoubleProgram.STORE_SHARED ?
+                        registerSlots[registers[pc]] : slots[pc];
+                expression(code, codes[pc], slot);
+                if (DoubleProgram.isLoad(codes[pc])) {
+                    maxDepth = Math.max(maxDepth, ++depth);
+                } else if (DoubleProgram.isBinary(codes[pc])) {
+                    depth--;
+                }
+            }
+            code.op(Code.DASTORE);
+            //if (++col == cols) {col = 0; row++;}
+            code.iinc(COL, 1);
+            code.var(Code.ILOAD, COL).var(Code.ILOAD, COLS);
+            final int skip = code.jump(Code.IF_ICMPNE);
+            code.op(Code.ICONST_0).var(Code.ISTORE, COL);
+            code.iinc(ROW, 1);
+            code.target(skip);
+            code.iinc(INDEX, 1);
+            //while (index < to)
+            code.target(gotoCondition);
+            code.var(Code.ILOAD, INDEX).var(Code.ILOAD, TO);
+            code.jumpTo(Code.IF_ICMPLT, loop);
+            code.op(Code.RETURN);
+            return new Method(code.toByteArray(), 2 + 2 * maxDepth + 5, nextSlot);
+        }
+
+        private static String operandType(final int code) {
+            switch (code) {
+                case DoubleProgram.LOAD: return DOUBLE_2D;
+                case DoubleProgram.LOAD_ARRAY: return "[D";
+                case DoubleProgram.UNARY: return UNARY_OPERATOR;
+                case DoubleProgram.BINARY: return BINARY_OPERATOR;
+                default: return null;
+            }
+        }
+
+        private static boolean usesConstant(final int code) {
+            return code == DoubleProgram.CONSTANT ||
+                    (code >= DoubleProgram.ADD_CONSTANT & code <= DoubleProgram.POW_CONSTANT);
+        }
+
+        /** Emits the instruction operating on the doubles on top of the JVM operand stack */
+        private void expression(final Code code, final int instruction, final int slot) throws IOException {
+            switch (instruction) {
+                case DoubleProgram.LOAD:
+                    code.var(Code.ALOAD, slot).var(Code.ILOAD, ROW).var(Code.ILOAD, COL);
+                    code.invokeInterface(methodEntry(DOUBLE_2D, "valueAsDouble", "(II)D", true), 3);
+                    break;
+                case DoubleProgram.LOAD_ARRAY:
+                    code.var(Code.ALOAD, slot).var(Code.ILOAD, INDEX).op(Code.DALOAD);
+                    break;
+                case DoubleProgram.CONSTANT:
+                case DoubleProgram.LOAD_SHARED:
+                    code.var(Code.DLOAD, slot);
+                    break;
+                case DoubleProgram.STORE_SHARED:
+                    code.op(Code.DUP2).var(Code.DSTORE, slot);
+                    break;
+                case DoubleProgram.NEGATE:
+                    code.op(Code.DNEG);
+                    break;
+                case DoubleProgram.ABS:
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "abs", "(D)D", false));
+                    break;
+                case DoubleProgram.SQRT:
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "sqrt", "(D)D", false));
+                    break;
+                case DoubleProgram.SIGNUM:
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "signum", "(D)D", false));
+                    break;
+                case DoubleProgram.INVERT:
+                    code.var(Code.DSTORE, TMP1).op(Code.DCONST_1).var(Code.DLOAD, TMP1).op(Code.DDIV);
+                    break;
+                case DoubleProgram.ADD_CONSTANT:
+                    code.var(Code.DLOAD, slot).op(Code.DADD);
+                    break;
+                case DoubleProgram.SUBTRACT_CONSTANT:
+                    code.var(Code.DLOAD, slot).op(Code.DSUB);
+                    break;
+                case DoubleProgram.MULTIPLY_CONSTANT:
+                    code.var(Code.DLOAD, slot).op(Code.DMUL);
+                    break;
+                case DoubleProgram.DIVIDE_CONSTANT:
+                    code.var(Code.DLOAD, slot).op(Code.DDIV);
+                    break;
+                case DoubleProgram.POW_CONSTANT:
+                    code.var(Code.DLOAD, slot);
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "pow", "(DD)D", false));
+                    break;
+                case DoubleProgram.UNARY:
+                    code.var(Code.DSTORE, TMP1).var(Code.ALOAD, slot).var(Code.DLOAD, TMP1);
+                    code.invokeInterface(methodEntry(UNARY_OPERATOR, "applyAsDouble", "(D)D", true), 3);
+                    break;
+                case DoubleProgram.ADD:
+                    code.op(Code.DADD);
+                    break;
+                case DoubleProgram.SUBTRACT:
+                    code.op(Code.DSUB);
+                    break;
+                case DoubleProgram.MULTIPLY:
+                    code.op(Code.DMUL);
+                    break;
+                case DoubleProgram.DIVIDE:
+                    code.op(Code.DDIV);
+                    break;
+                case DoubleProgram.MIN:
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "min", "(DD)D", false));
+                    break;
+                case DoubleProgram.MAX:
+                    code.op(Code.INVOKESTATIC).u2(methodEntry("java/lang/Math", "max", "(DD)D", false));
+                    break;
+                case DoubleProgram.BINARY:
+                    code.var(Code.DSTORE, TMP2).var(Code.DSTORE, TMP1);
+                    code.var(Code.ALOAD, slot).var(Code.DLOAD, TMP1).var(Code.DLOAD, TMP2);
+                    code.invokeInterface(methodEntry(BINARY_OPERATOR, "applyAsDouble", "(DD)D", true), 5);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid instruction: " + instruction);
+            }
+        }
+
+        private int utf8(final String value) throws IOException {
+            final Integer index = entries.get("U" + value);
+            if (index != null) {
+                return index;
+            }
+            poolOut.writeByte(1);
+            poolOut.writeUTF(value);
+            entries.put("U" + value, poolCount);
+            return poolCount++;
+        }
+
+        private int classEntry(final String className) throws IOException {
+            final Integer index = entries.get("C" + className);
+            if (index != null) {
+                return index;
+            }
+            final int nameIndex = utf8(className);
+            poolOut.writeByte(7);
+            poolOut.writeShort(nameIndex);
+            entries.put("C" + className, poolCount);
+            return poolCount++;
+        }
+
+        private int methodEntry(final String owner, final String method, final String descriptor,
+                                final boolean isInterface) throws IOException {
+            final String key = "M" + owner + "." + method + descriptor;
+            final Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            final int ownerIndex = classEntry(owner);
+            final int nameIndex = utf8(method);
+            final int typeIndex = utf8(descriptor);
+            poolOut.writeByte(12);
+            poolOut.writeShort(nameIndex);
+            poolOut.writeShort(typeIndex);
+            final int nameAndType = poolCount++;
+            poolOut.writeByte(isInterface ? 11 : 10);
+            poolOut.writeShort(ownerIndex);
+            poolOut.writeShort(nameAndType);
+            entries.put(key, poolCount);
+            return poolCount++;
+        }
+    }
+
+    /**
+     * Bytecode buffer with helpers for the few instructions used by kernels.
+     */
+    private static final class Code {
+        static final int ICONST_0 = 0x03;
+        static final int DCONST_1 = 0x0f;
+        static final int DUP2 = 0x5c;
+        static final int BIPUSH = 0x10;
+        static final int SIPUSH = 0x11;
+        static final int ILOAD = 0x15;
+        static final int DLOAD = 0x18;
+        static final int ALOAD = 0x19;
+        static final int ALOAD_0 = 0x2a;
+        static final int DALOAD = 0x31;
+        static final int AALOAD = 0x32;
+        static final int ISTORE = 0x36;
+        static final int DSTORE = 0x39;
+        static final int ASTORE = 0x3a;
+        static final int DASTORE = 0x52;
+        static final int DADD = 0x63;
+        static final int DSUB = 0x67;
+        static final int IMUL = 0x68;
+        static final int DMUL = 0x6b;
+        static final int ISUB = 0x64;
+        static final int IDIV = 0x6c;
+        static final int DDIV = 0x6f;
+        static final int DNEG = 0x77;
+        static final int IINC = 0x84;
+        static final int IF_ICMPNE = 0xa0;
+        static final int IF_ICMPLT = 0xa1;
+        static final int GOTO = 0xa7;
+        static final int RETURN = 0xb1;
+        static final int INVOKESPECIAL = 0xb7;
+        static final int INVOKESTATIC = 0xb8;
+        static final int INVOKEINTERFACE = 0xb9;
+        static final int CHECKCAST = 0xc0;
+        static final int WIDE = 0xc4;
+
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        int position() {
+            return length;
+        }
+
+        Code op(final int opcode) {
+            return u1(opcode);
+        }
+
+        Code u1(final int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * length);
+            }
+            bytes[length++] = (byte)value;
+            return this;
+        }
+
+        Code u2(final int value) {
+            return u1(value >>> 8).u1(value);
+        }
+
+        /** Emits a load or store instruction for the given local variable slot */
+        Code var(final int opcode, final int slot) {
+            if (slot > 0xff) {
+                return op(WIDE).op(opcode).u2(slot);
+            }
+            return op(opcode).u1(slot);
+        }
+
+        Code iinc(final int slot, final int increment) {
+            if (slot > 0xff) {
+                return op(WIDE).op(IINC).u2(slot).u2(increment);
+            }
+            return op(IINC).u1(slot).u1(increment);
+        }
+
+        /** Pushes an int constant */
+        Code constant(final int value) {
+            return value <= Byte.MAX_VALUE ? op(BIPUSH).u1(value) : op(SIPUSH).u2(value);
+        }
+
+        Code invokeInterface(final int method, final int argumentSlots) {
+            return op(INVOKEINTERFACE).u2(method).u1(argumentSlots).u1(0);
+        }
+
+        /** Emits a forward jump and returns its position for {@link #target(int)} */
+        int jump(final int opcode) {
+            final int position = length;
+            op(opcode).u2(0);
+            return position;
+        }
+
+        /** Sets the target of the forward jump at the given position to the current position */
+        void target(final int jump) {
+            final int offset = length - jump;
+            bytes[jump + 1] = (byte)(offset >>> 8);
+            bytes[jump + 2] = (byte)offset;
+        }
+
+        /** Emits a backward jump to the given position */
+        void jumpTo(final int opcode, final int position) {
+            final int offset = position - length;
+            op(opcode).u2(offset & 0xffff);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private KernelCompiler() {
+        throw new RuntimeException("No KernelCompiler for you!");
+    }
+}
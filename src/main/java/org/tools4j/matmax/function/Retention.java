@@ -0,0 +1,66 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Defines how long cached values are retained.
+ */
+public enum Retention {
+    /** Cached values are retained as long as the cache itself is reachable */
+    STRONG {
+        @Override
+        public <T> Supplier<T> reference(final T value) {
+            Objects.requireNonNull(value);
+            return () -> value;
+        }
+    },
+    /** Cached values are retained until the garbage collector needs the memory */
+    SOFT {
+        @Override
+        public <T> Supplier<T> reference(final T value) {
+            return new SoftReference<>(Objects.requireNonNull(value))::get;
+        }
+    },
+    /** Cached values are retained until the next garbage collection when they are not referenced elsewhere */
+    WEAK {
+        @Override
+        public <T> Supplier<T> reference(final T value) {
+            return new WeakReference<>(Objects.requireNonNull(value))::get;
+        }
+    };
+
+    /**
+     * Returns a reference to the given value;  the reference returns null once the value has been reclaimed.
+     *
+     * @param value the value to reference
+     * @param <T>   the value type
+     * @return a reference to value
+     */
+    public abstract <T> Supplier<T> reference(T value);
+}
@@ -101,6 +101,18 @@ public interface Double2D extends Primitive2D<Double, Double2D>, Operand.DoubleO
         return (row, column) -> String.valueOf(valueAsDouble(row, column));
     }
 
+    /**
+     * Returns a function remembering up to {@code maxEntries} recently accessed cells of this function, useful if
+     * cells are expensive to compute and read repeatedly but only a small subset of all cells is ever accessed.
+     *
+     * @param maxEntries the maximum number of remembered cells, positive
+     * @return a memoizing function with the values of this function
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    default MemoizedDouble2D memoized(final int maxEntries) {
+        return new MemoizedDouble2D(this, maxEntries);
+    }
+
     static Double2D constant(final double value) {
         if (value == 0d) return ZERO;
         if (value == 1d) return ONE;
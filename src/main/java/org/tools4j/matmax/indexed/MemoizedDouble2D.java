@@ -0,0 +1,254 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.indexed;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Double 2D function remembering the values of recently accessed cells.  Values are kept in a bounded cache with
+ * primitive keys and open addressing, evicting entries with the CLOCK (second chance) algorithm once the cache is
+ * full.  The cache is split into independently locked segments;  the wrapped function is invoked outside of any lock,
+ * hence it may occasionally be invoked more than once for the same cell if accessed concurrently.
+ */
+public final class MemoizedDouble2D implements Double2D {
+
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_ENTRIES = 16;
+
+    private final Double2D function;
+    private final int maxEntries;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    MemoizedDouble2D(final Double2D function, final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.function = Objects.requireNonNull(function);
+        this.maxEntries = maxEntries;
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_ENTRIES <= maxEntries) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public double valueAsDouble(final int row, final int column) {
+        final long key = ((long)row << 32) | (column & 0xffffffffL);
+        final int hash = hash(key);
+        final Segment segment = segments[hash & segmentMask];
+        final int slotHash = hash >>> 6;
+        synchronized (segment) {
+            final int entry = segment.find(key, slotHash);
+            if (entry >= 0) {
+                hits.increment();
+                segment.referenced[entry] = true;
+                return segment.values[entry];
+            }
+        }
+        misses.increment();
+        final double value = function.valueAsDouble(row, column);
+        synchronized (segment) {
+            if (segment.put(key, slotHash, value)) {
+                evictions.increment();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the maximum number of cells remembered by this function.
+     */
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the number of cells currently remembered by this function.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of accesses answered from the cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of accesses invoking the wrapped function.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cells removed from the cache to make space for others.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all remembered cells;  hit, miss and eviction counters are not reset.
+     */
+    public void clear() {
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizedDouble2D:size=" + size() + ",maxEntries=" + maxEntries +
+                ",hits=" + hitCount() + ",misses=" + missCount();
+    }
+
+    private static int hash(final long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        h *= 0xff51afd7ed558ccdL;
+        return (int)(h ^ (h >>> 29));
+    }
+
+    /**
+     * Entries live at a fixed position in the entry arrays which is visited by the clock hand;  the open addressing
+     * table maps keys to entry positions and uses linear probing with backward shift deletion.
+     */
+    private static final class Segment {
+        final long[] keys;
+        final double[] values;
+        final boolean[] referenced;
+        final int[] table;
+        final int tableMask;
+        int size;
+        int hand;
+
+        Segment(final int capacity) {
+            this.keys = new long[capacity];
+            this.values = new double[capacity];
+            this.referenced = new boolean[capacity];
+            int tableSize = 4;
+            while (tableSize < 2 * capacity) {
+                tableSize *= 2;
+            }
+            this.table = new int[tableSize];
+            this.tableMask = tableSize - 1;
+        }
+
+        int find(final long key, final int hash) {
+            for (int slot = hash & tableMask; table[slot] != 0; slot = (slot + 1) & tableMask) {
+                final int entry = table[slot] - 1;
+                if (keys[entry] == key) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        /** Returns true if an entry was evicted */
+        boolean put(final long key, final int hash, final double value) {
+            int slot = hash & tableMask;
+            for (; table[slot] != 0; slot = (slot + 1) & tableMask) {
+                final int entry = table[slot] - 1;
+                if (keys[entry] == key) {
+                    values[entry] = value;
+                    return false;
+                }
+            }
+            final int entry;
+            final boolean evicted = size == keys.length;
+            if (evicted) {
+                entry = victim();
+                remove(keys[entry]);
+                slot = hash & tableMask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & tableMask;
+                }
+            } else {
+                entry = size++;
+            }
+            keys[entry] = key;
+            values[entry] = value;
+            referenced[entry] = false;
+            table[slot] = entry + 1;
+            return evicted;
+        }
+
+        private int victim() {
+            while (referenced[hand]) {
+                referenced[hand] = false;
+                hand = hand + 1 == keys.length ? 0 : hand + 1;
+            }
+            final int victim = hand;
+            hand = hand + 1 == keys.length ? 0 : hand + 1;
+            return victim;
+        }
+
+        private void remove(final long key) {
+            int slot = (hash(key) >>> 6) & tableMask;
+            while (keys[table[slot] - 1] != key) {
+                slot = (slot + 1) & tableMask;
+            }
+            int next = (slot + 1) & tableMask;
+            while (table[next] != 0) {
+                final int home = (hash(keys[table[next] - 1]) >>> 6) & tableMask;
+                //move next into the gap unless its home slot lies cyclically within (slot, next]
+                if (((next - home) & tableMask) >= ((next - slot) & tableMask)) {
+                    table[slot] = table[next];
+                    slot = next;
+                }
+                next = (next + 1) & tableMask;
+            }
+            table[slot] = 0;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0);
+            Arrays.fill(referenced, false);
+            size = 0;
+            hand = 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+/**
+ * Axis along which matrix values are reduced.
+ */
+public enum Axis {
+    /** Every row is reduced to a single value, the result has one value per row */
+    ROWS,
+    /** Every column is reduced to a single value, the result has one value per column */
+    COLUMNS;
+
+    /**
+     * Returns the length of the reduction result, the number of rows for {@link #ROWS} and the number of columns
+     * for {@link #COLUMNS}.
+     */
+    public int resultLength(final int rows, final int cols) {
+        return this == ROWS ? rows : cols;
+    }
+
+    /**
+     * Returns the number of values reduced into a single result value.
+     */
+    public int reducedLength(final int rows, final int cols) {
+        return this == ROWS ? cols : rows;
+    }
+}
@@ -23,12 +23,16 @@
  */
 package org.tools4j.matmax.matrix;
 
+import org.tools4j.matmax.function.EntryConsumer;
 import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Bool2D;
+import org.tools4j.matmax.parallel.Parallel;
 import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.IntVector;
 import org.tools4j.matmax.vector.ObjVector;
 
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 public interface BoolMatrix extends Matrix<Boolean, Bool2D>, Bool2D {
@@ -42,7 +46,7 @@ public interface BoolMatrix extends Matrix<Boolean, Bool2D>, Bool2D {
     }
 
     default BoolVector column(final int col) {
-        final int rows = nColumns();
+        final int rows = nRows();
         return BoolVector.create(rows, row -> valueAsBoolean(row, col));
     }
 
@@ -117,6 +121,194 @@ public interface BoolMatrix extends Matrix<Boolean, Bool2D>, Bool2D {
         return ObjMatrix.create(nRows(), nColumns(), Bool2D.super.toStr2D());
     }
 
+    /**
+     * Performs the given action for every entry whose value is true.  Sparse matrices only visit their stored
+     * entries, all other matrices visit their entries in row-major order.
+     *
+     * @param action the action invoked with row and column of every true entry
+     */
+    default void forEachTrue(final EntryConsumer action) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (valueAsBoolean(r, c)) {
+                    action.accept(r, c);
+                }
+            }
+        }
+    }
+
+    default boolean[] toArray() {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final boolean[] array = new boolean[Math.multiplyExact(rows, cols)];
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[index++] = valueAsBoolean(r, c);
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns the number of true values in this matrix.
+     */
+    default int cardinality() {
+        final int[] count = {0};
+        forEachTrue((row, column) -> count[0]++);
+        return count[0];
+    }
+
+    @Override
+    default BoolMatrix materialize() {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final long[] words = new long[PackedBoolMatrix.wordCount(rows, cols)];
+        long bit = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (valueAsBoolean(r, c)) {
+                    words[(int)(bit >>> 6)] |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return new PackedBoolMatrix(rows, cols, words);
+    }
+
+    default boolean[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default boolean[] toArrayParallel(final ForkJoinPool pool) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final boolean[] array = new boolean[Math.multiplyExact(rows, cols)];
+        Parallel.forEachChunk(pool, rows, Parallel.rowChunkSize(pool, rows, cols, 1), (chunk, from, to) -> {
+            int index = from * cols;
+            for (int r = from; r < to; r++) {
+                for (int c = 0; c < cols; c++) {
+                    array[index++] = valueAsBoolean(r, c);
+                }
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default BoolMatrix materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default BoolMatrix materializeParallel(final ForkJoinPool pool) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final long[] words = new long[PackedBoolMatrix.wordCount(rows, cols)];
+        final long bits = (long)rows * cols;
+        final int minWords = Parallel.MIN_CHUNK_SIZE / Long.SIZE;
+        final int chunkSize = Parallel.chunkSize(pool, words.length, Long.BYTES, minWords);
+        Parallel.forEachChunk(pool, words.length, chunkSize, (chunk, from, to) -> {
+            for (int w = from; w < to; w++) {
+                final long start = (long)w << 6;
+                final long end = Math.min(bits, start + Long.SIZE);
+                int r = (int)(start / cols);
+                int c = (int)(start % cols);
+                long word = 0;
+                for (long bit = start; bit < end; bit++) {
+                    if (valueAsBoolean(r, c)) {
+                        word |= 1L << bit;
+                    }
+                    if (++c == cols) {
+                        c = 0;
+                        r++;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+        return new PackedBoolMatrix(rows, cols, words);
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, in their original order. */
+    default BoolMatrix selectRows(final Bool1D mask) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices();
+        return BoolMatrix.create(rows.length, nColumns(), (r, c) -> valueAsBoolean(rows[r], c)).materialize();
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, selected in parallel. */
+    default BoolMatrix selectRows(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices(pool);
+        final BoolMatrix selected = BoolMatrix.create(rows.length, nColumns(), (r, c) -> valueAsBoolean(rows[r], c));
+        return selected.materializeParallel(pool);
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, in their original order. */
+    default BoolMatrix selectColumns(final Bool1D mask) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices();
+        return BoolMatrix.create(nRows(), cols.length, (r, c) -> valueAsBoolean(r, cols[c])).materialize();
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, selected in parallel. */
+    default BoolMatrix selectColumns(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices(pool);
+        final BoolMatrix selected = BoolMatrix.create(nRows(), cols.length, (r, c) -> valueAsBoolean(r, cols[c]));
+        return selected.materializeParallel(pool);
+    }
+
+    /**
+     * Returns a view of this matrix with the given rows, that is, row {@code i} of the view is row
+     * {@code rows.valueAsInt(i)} of this matrix;  rows can be reordered, repeated or omitted.  Values are read through
+     * from this matrix, or copied eagerly if the view is {@link BoolMatrix#materialize() materialized}:  dense
+     * matrices are copied with one array copy per row and sparse matrices remain sparse.
+     *
+     * @param rows the row index for every row of the view
+     * @return a view of this matrix with the given rows
+     * @throws IllegalArgumentException if a row index is out of range
+     */
+    default BoolMatrix gatherRows(final IntVector rows) {
+        return Gather.view(this, Gather.indices(rows, nRows(), "row"), null);
+    }
+
+    /**
+     * Returns a view of this matrix with the given columns, that is, column {@code i} of the view is column
+     * {@code columns.valueAsInt(i)} of this matrix.  Materializing the view copies the values eagerly as for
+     * {@link #gatherRows(IntVector)}.
+     *
+     * @param columns the column index for every column of the view
+     * @return a view of this matrix with the given columns
+     * @throws IllegalArgumentException if a column index is out of range
+     */
+    default BoolMatrix gatherColumns(final IntVector columns) {
+        return Gather.view(this, null, Gather.indices(columns, nColumns(), "column"));
+    }
+
+    /**
+     * Returns a view of a matrix with {@code targetRows} rows, where row {@code rows.valueAsInt(i)} is row {@code i}
+     * of this matrix and all other rows are false.  If several rows are scattered to the same target row, the last
+     * one wins.  For a permutation, this is the inverse of {@link #gatherRows(IntVector)}.
+     *
+     * @param rows the target row index for every row of this matrix
+     * @param targetRows the number of rows of the view
+     * @return a view with the rows of this matrix at the given target rows
+     * @throws IllegalArgumentException if the number of row indices is not equal to the number of rows of this
+     *                                  matrix, or if a row index is out of range
+     */
+    default BoolMatrix scatterRows(final IntVector rows, final int targetRows) {
+        return Gather.view(this, Gather.inverse(rows, nRows(), targetRows, "row"), null);
+    }
+
+    /**
+     * Returns the transpose of this matrix as a view with rows and columns swapped, which is free to create and
+     * suitable for a few reads.  Materializing the view transposes all values eagerly into new dense storage
+     * traversing this matrix in cache friendly blocks.
+     */
+    default BoolMatrix transpose() {
+        return Transpose.view(this);
+    }
+
     static BoolMatrix create(final boolean[][] values) {
         final int rows = values.length;
         final int cols = rows == 0 ? 0 : values[0].length;
@@ -124,6 +316,10 @@ public interface BoolMatrix extends Matrix<Boolean, Bool2D>, Bool2D {
                 && c < values[r].length && values[r][c]);
     }
 
+    static BoolMatrix create(final int rows, final int cols, final boolean... values) {
+        return new DenseBoolMatrix(rows, cols, values);
+    }
+
     static BoolMatrix createFromRows(final BoolVector... rowData) {
         return createFromRows(rowData.length == 0 ? 0 : rowData[0].nElements(), rowData);
     }
@@ -0,0 +1,137 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.DoubleEntryConsumer;
+import org.tools4j.matmax.function.DoubleExpression;
+import org.tools4j.matmax.function.Retention;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Double matrix materializing its source on first access and reading all values from the materialized matrix
+ * thereafter.  The materialized matrix is referenced according to the retention;  if it has been reclaimed, the
+ * source is materialized again on the next access.
+ */
+final class CachedDoubleMatrix implements DoubleMatrix {
+
+    private final DoubleMatrix source;
+    private final Retention retention;
+    private volatile Supplier<DoubleMatrix> reference;
+
+    CachedDoubleMatrix(final DoubleMatrix source, final Retention retention) {
+        this.source = Objects.requireNonNull(source);
+        this.retention = Objects.requireNonNull(retention);
+    }
+
+    Retention retention() {
+        return retention;
+    }
+
+    private DoubleMatrix values() {
+        final Supplier<DoubleMatrix> current = reference;
+        final DoubleMatrix values = current == null ? null : current.get();
+        return values != null ? values : materializeSource();
+    }
+
+    private synchronized DoubleMatrix materializeSource() {
+        final Supplier<DoubleMatrix> current = reference;
+        DoubleMatrix values = current == null ? null : current.get();
+        if (values == null) {
+            values = source.materialize();
+            reference = retention.reference(values);
+        }
+        return values;
+    }
+
+    @Override
+    public int nRows() {
+        return source.nRows();
+    }
+
+    @Override
+    public int nColumns() {
+        return source.nColumns();
+    }
+
+    @Override
+    public double valueAsDouble(final int row, final int column) {
+        return values().valueAsDouble(row, column);
+    }
+
+    @Override
+    public DoubleExpression expression() {
+        return values().expression();
+    }
+
+    @Override
+    public void forEachNonZero(final DoubleEntryConsumer action) {
+        values().forEachNonZero(action);
+    }
+
+    @Override
+    public double[] toArray() {
+        return values().toArray();
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return values().toArrayParallel(pool);
+    }
+
+    /**
+     * Returns the materialized matrix, which is strongly referenced by the caller from then on.
+     */
+    @Override
+    public DoubleMatrix materialize() {
+        return values();
+    }
+
+    @Override
+    public DoubleMatrix materializeParallel(final ForkJoinPool pool) {
+        return values();
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof DoubleMatrix) {
+            return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleMatrix:" + nRows() + "x" + nColumns();
+    }
+}
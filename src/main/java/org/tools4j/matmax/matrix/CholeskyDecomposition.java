@@ -0,0 +1,179 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cholesky decomposition of a symmetric positive definite matrix, {@code A = L L'} with a lower triangular matrix
+ * {@code L}.  Only the lower triangle of the matrix is read.  After every column of {@code L}, the trailing matrix is
+ * updated in parallel chunks of rows if a pool is given.  Instances are created via {@link DoubleMatrix#cholesky()}.
+ */
+public final class CholeskyDecomposition implements Decomposition {
+
+    private final int n;
+    private final double[] l;
+    private final ForkJoinPool pool;
+
+    /**
+     * @throws IllegalArgumentException if the matrix is not square or not positive definite
+     */
+    CholeskyDecomposition(final DoubleMatrix matrix, final ForkJoinPool pool) {
+        Factorization.checkSquare(matrix);
+        this.n = matrix.nRows();
+        this.l = Factorization.toArray(matrix, pool);
+        this.pool = pool;
+        factorize(n, l, pool);
+    }
+
+    private static void factorize(final int n, final double[] a, final ForkJoinPool pool) {
+        for (int k = 0; k < n; k++) {
+            final int start = k + 1;
+            final int rowK = k * n;
+            final double diagonal = a[rowK + k];
+            if (!(diagonal > 0d)) {
+                throw new IllegalArgumentException("matrix must be positive definite but pivot " + k + " is " +
+                        diagonal);
+            }
+            final double lkk = Math.sqrt(diagonal);
+            a[rowK + k] = lkk;
+            final double[] column = new double[n - start];
+            for (int i = start; i < n; i++) {
+                a[i * n + k] /= lkk;
+                column[i - start] = a[i * n + k];
+            }
+            Factorization.forEachChunk(pool, n - start, n - start, (chunk, from, to) -> {
+                for (int i = start + from; i < start + to; i++) {
+                    final double lik = column[i - start];
+                    if (lik != 0d) {
+                        final int row = i * n;
+                        for (int j = start; j <= i; j++) {
+                            a[row + j] -= lik * column[j - start];
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the lower triangular factor {@code L} as a view of the factorized values.
+     */
+    public DoubleMatrix lower() {
+        return DoubleMatrix.create(n, n, (row, column) -> row >= 0 & row < n & column >= 0 & column < n ?
+                column <= row ? l[row * n + column] : 0d : Double.NaN);
+    }
+
+    @Override
+    public DoubleVector solve(final Double1D b) {
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            final int row = i * n;
+            double sum = b.valueAsDouble(i);
+            for (int k = 0; k < i; k++) {
+                sum -= l[row + k] * x[k];
+            }
+            x[i] = sum / l[row + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            final int row = i * n;
+            x[i] /= l[row + i];
+            final double xi = x[i];
+            for (int k = 0; k < i; k++) {
+                x[k] -= l[row + k] * xi;
+            }
+        }
+        return DoubleVector.create(x);
+    }
+
+    /**
+     * Solves {@code A X = B}, substituting chunks of columns of {@code B} in parallel if the decomposition was
+     * created with a pool.
+     */
+    @Override
+    public DoubleMatrix solve(final DoubleMatrix b) {
+        Factorization.checkRows(b, n);
+        final int m = b.nColumns();
+        final double[] x = Factorization.toArray(b, pool);
+        Factorization.forEachChunk(pool, m, (long)n * n, (chunk, from, to) -> {
+            for (int i = 0; i < n; i++) {
+                final int row = i * n;
+                final int rowX = i * m;
+                for (int k = 0; k < i; k++) {
+                    final double lik = l[row + k];
+                    if (lik != 0d) {
+                        final int rowK = k * m;
+                        for (int c = from; c < to; c++) {
+                            x[rowX + c] -= lik * x[rowK + c];
+                        }
+                    }
+                }
+                final double diagonal = l[row + i];
+                for (int c = from; c < to; c++) {
+                    x[rowX + c] /= diagonal;
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                final int row = i * n;
+                final int rowX = i * m;
+                final double diagonal = l[row + i];
+                for (int c = from; c < to; c++) {
+                    x[rowX + c] /= diagonal;
+                }
+                for (int k = 0; k < i; k++) {
+                    final double lik = l[row + k];
+                    if (lik != 0d) {
+                        final int rowK = k * m;
+                        for (int c = from; c < to; c++) {
+                            x[rowK + c] -= lik * x[rowX + c];
+                        }
+                    }
+                }
+            }
+        });
+        return DoubleMatrix.create(n, m, x);
+    }
+
+    @Override
+    public double determinant() {
+        double det = 1d;
+        for (int i = 0; i < n; i++) {
+            det *= l[i * n + i];
+        }
+        return det * det;
+    }
+
+    @Override
+    public DoubleMatrix inverse() {
+        return solve(DoubleMatrix.identity(n));
+    }
+
+    @Override
+    public String toString() {
+        return "CholeskyDecomposition:" + n + "x" + n;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.vector.DoubleVector;
+
+/**
+ * Factorization of a double matrix {@code A}, computed once and used to solve linear systems {@code A x = b} for any
+ * number of right-hand sides.
+ */
+public interface Decomposition {
+    /**
+     * Solves {@code A x = b} for the vector {@code x}.
+     *
+     * @param b the right-hand side with one value per row of {@code A}
+     * @return the solution vector with one value per column of {@code A}
+     * @throws ArithmeticException if the system has no unique solution
+     */
+    DoubleVector solve(Double1D b);
+
+    /**
+     * Solves {@code A X = B} for the matrix {@code X}, one column per column of {@code B}.
+     *
+     * @param b the right-hand sides with the same number of rows as {@code A}
+     * @return the solution matrix with one row per column of {@code A}
+     * @throws IllegalArgumentException if b does not have as many rows as {@code A}
+     * @throws ArithmeticException if the system has no unique solution
+     */
+    DoubleMatrix solve(DoubleMatrix b);
+
+    /**
+     * Returns the determinant of the square matrix {@code A}.
+     */
+    double determinant();
+
+    /**
+     * Returns the inverse of the square matrix {@code A} as a new dense matrix.
+     *
+     * @throws ArithmeticException if the matrix is singular
+     */
+    DoubleMatrix inverse();
+}
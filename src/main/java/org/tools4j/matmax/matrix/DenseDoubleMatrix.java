@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.DoubleEntryConsumer;
+import org.tools4j.matmax.function.DoubleExpression;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dense double matrix with values stored in a single flat array in row-major order.  Instances are created via
+ * {@link DoubleMatrix#create(int, int, double...)} or by {@link DoubleMatrix#materialize() materializing} any double
+ * matrix.
+ */
+public final class DenseDoubleMatrix implements DoubleMatrix {
+
+    private final int rows;
+    private final int cols;
+    final double[] values;
+
+    DenseDoubleMatrix(final int rows, final int cols, final double[] values) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(values);
+        if (values.length != (long)rows * cols) {
+            throw new IllegalArgumentException("values length must be " + rows + "x" + cols + " but was " + values.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.values = values;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public double valueAsDouble(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ? values[row * cols + column] : Double.NaN;
+    }
+
+    @Override
+    public DoubleExpression expression() {
+        return DoubleExpression.of(rows, cols, values);
+    }
+
+    @Override
+    public DoubleVector row(final int row) {
+        final int offset = row * cols;
+        return DoubleVector.create(cols, col -> row >= 0 & row < rows ? values[offset + col] : Double.NaN);
+    }
+
+    @Override
+    public DoubleVector column(final int col) {
+        return DoubleVector.create(rows, row -> col >= 0 & col < cols ? values[row * cols + col] : Double.NaN);
+    }
+
+    @Override
+    public void forEachNonZero(final DoubleEntryConsumer action) {
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (values[index] != 0d) {
+                    action.accept(r, c, values[index]);
+                }
+                index++;
+            }
+        }
+    }
+
+    @Override
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public DenseDoubleMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public DenseDoubleMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof DoubleMatrix) {
+            return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleMatrix:" + nRows() + "x" + nColumns();
+    }
+}
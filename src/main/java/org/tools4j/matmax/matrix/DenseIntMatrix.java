@@ -0,0 +1,133 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.IntEntryConsumer;
+import org.tools4j.matmax.vector.IntVector;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dense int matrix with values stored in a single flat array in row-major order.  Instances are created via
+ * {@link IntMatrix#create(int, int, int...)} or by {@link IntMatrix#materialize() materializing} any int
+ * matrix.
+ */
+public final class DenseIntMatrix implements IntMatrix {
+
+    private final int rows;
+    private final int cols;
+    final int[] values;
+
+    DenseIntMatrix(final int rows, final int cols, final int[] values) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(values);
+        if (values.length != (long)rows * cols) {
+            throw new IllegalArgumentException("values length must be " + rows + "x" + cols + " but was " + values.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.values = values;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public int valueAsInt(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ? values[row * cols + column] : 0;
+    }
+
+    @Override
+    public IntVector row(final int row) {
+        final int offset = row * cols;
+        return IntVector.create(cols, col -> row >= 0 & row < rows ? values[offset + col] : 0);
+    }
+
+    @Override
+    public IntVector column(final int col) {
+        return IntVector.create(rows, row -> col >= 0 & col < cols ? values[row * cols + col] : 0);
+    }
+
+    @Override
+    public void forEachNonZero(final IntEntryConsumer action) {
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (values[index] != 0) {
+                    action.accept(r, c, values[index]);
+                }
+                index++;
+            }
+        }
+    }
+
+    @Override
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public DenseIntMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public int[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public DenseIntMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof IntMatrix) {
+            return Matrix.equals(this, (IntMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "IntMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.vector.LongVector;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dense long matrix with values stored in a single flat array in row-major order.  Instances are created via
+ * {@link LongMatrix#create(int, int, long...)} or by {@link LongMatrix#materialize() materializing} any long
+ * matrix.
+ */
+public final class DenseLongMatrix implements LongMatrix {
+
+    private final int rows;
+    private final int cols;
+    final long[] values;
+
+    DenseLongMatrix(final int rows, final int cols, final long[] values) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(values);
+        if (values.length != (long)rows * cols) {
+            throw new IllegalArgumentException("values length must be " + rows + "x" + cols + " but was " + values.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.values = values;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public long valueAsLong(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ? values[row * cols + column] : 0L;
+    }
+
+    @Override
+    public LongVector row(final int row) {
+        final int offset = row * cols;
+        return LongVector.create(cols, col -> row >= 0 & row < rows ? values[offset + col] : 0L);
+    }
+
+    @Override
+    public LongVector column(final int col) {
+        return LongVector.create(rows, row -> col >= 0 & col < cols ? values[row * cols + col] : 0L);
+    }
+
+    @Override
+    public long[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public DenseLongMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public long[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public DenseLongMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof LongMatrix) {
+            return Matrix.equals(this, (LongMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "LongMatrix:" + nRows() + "x" + nColumns();
+    }
+}
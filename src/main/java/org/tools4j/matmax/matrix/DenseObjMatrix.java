@@ -0,0 +1,126 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dense object matrix with values stored in a single flat array in row-major order.  Instances are created via
+ * {@link ObjMatrix#create(int, int, Object...)} or by {@link ObjMatrix#materialize() materializing} any object
+ * matrix.
+ *
+ * @param <V> the value type
+ */
+public final class DenseObjMatrix<V> implements ObjMatrix<V> {
+
+    private final int rows;
+    private final int cols;
+    final Object[] values;
+
+    DenseObjMatrix(final int rows, final int cols, final Object[] values) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(values);
+        if (values.length != (long)rows * cols) {
+            throw new IllegalArgumentException("values length must be " + rows + "x" + cols + " but was " + values.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.values = values;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public V value(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ? valueAt(row * cols + column) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(final int index) {
+        return (V)values[index];
+    }
+
+    @Override
+    public ObjVector<V> row(final int row) {
+        final int offset = row * cols;
+        return ObjVector.create(cols, col -> row >= 0 & row < rows ? valueAt(offset + col) : null);
+    }
+
+    @Override
+    public ObjVector<V> column(final int col) {
+        return ObjVector.create(rows, row -> col >= 0 & col < cols ? valueAt(row * cols + col) : null);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public DenseObjMatrix<V> materialize() {
+        return this;
+    }
+
+    @Override
+    public Object[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public DenseObjMatrix<V> materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof ObjMatrix) {
+            return Matrix.equals(this, (ObjMatrix<?>)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ObjMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -23,12 +23,22 @@
  */
 package org.tools4j.matmax.matrix;
 
+import org.tools4j.matmax.function.DoubleEntryConsumer;
+import org.tools4j.matmax.function.DoubleExpression;
+import org.tools4j.matmax.function.Retention;
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Double1D;
 import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
 import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
 import org.tools4j.matmax.vector.ObjVector;
+import org.tools4j.matmax.vector.SummationMode;
+import org.tools4j.matmax.vector.Vector;
 
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 
 public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
@@ -43,7 +53,7 @@ public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
     }
 
     default DoubleVector column(final int col) {
-        final int rows = nColumns();
+        final int rows = nRows();
         return DoubleVector.create(rows, row -> valueAsDouble(row, col));
     }
 
@@ -72,6 +82,36 @@ public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
         return operator -> operator.apply(this, secondOperand);
     }
 
+    /**
+     * Returns a matrix sharing one materialized copy of this matrix, strongly referenced.  Use this for intermediate
+     * results that are referenced many times, for instance within larger expressions.
+     */
+    default DoubleMatrix cached() {
+        return cached(Retention.STRONG);
+    }
+
+    /**
+     * Returns a matrix materializing this matrix on first access and reading all values from the materialized copy.
+     * With soft or weak retention, the copy can be reclaimed by the garbage collector and is recomputed on demand.
+     *
+     * @param retention defines how long the materialized copy is retained
+     * @return a caching matrix with the values of this matrix
+     */
+    default DoubleMatrix cached(final Retention retention) {
+        if (this instanceof CachedDoubleMatrix && ((CachedDoubleMatrix)this).retention() == retention) {
+            return this;
+        }
+        return new CachedDoubleMatrix(this, retention);
+    }
+
+    /**
+     * Returns this matrix as source of an expression whose operations are fused into a single pass on
+     * {@link #evaluate(int, int, DoubleExpression) evaluation}.
+     */
+    default DoubleExpression expression() {
+        return DoubleExpression.of(this);
+    }
+
     @Override
     default BoolMatrix toBool2D(final DoublePredicate function) {
         return BoolMatrix.create(nRows(), nColumns(), Double2D.super.toBool2D(function));
@@ -102,6 +142,445 @@ public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
         return ObjMatrix.create(nRows(), nColumns(), Double2D.super.toStr2D());
     }
 
+    /**
+     * Performs the given action for every entry whose value is not zero.  Sparse matrices only visit their stored
+     * entries, all other matrices visit their entries in row-major order.
+     *
+     * @param action the action invoked with row, column and value of every non-zero entry
+     */
+    default void forEachNonZero(final DoubleEntryConsumer action) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                final double value = valueAsDouble(r, c);
+                if (value != 0d) {
+                    action.accept(r, c, value);
+                }
+            }
+        }
+    }
+
+    default double[] toArray() {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final double[] array = new double[Math.multiplyExact(rows, cols)];
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[index++] = valueAsDouble(r, c);
+            }
+        }
+        return array;
+    }
+
+    @Override
+    default DoubleMatrix materialize() {
+        return new DenseDoubleMatrix(nRows(), nColumns(), toArray());
+    }
+
+    default double[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default double[] toArrayParallel(final ForkJoinPool pool) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final double[] array = new double[Math.multiplyExact(rows, cols)];
+        Parallel.forEachChunk(pool, rows, Parallel.rowChunkSize(pool, rows, cols, Double.BYTES), (chunk, from, to) -> {
+            int index = from * cols;
+            for (int r = from; r < to; r++) {
+                for (int c = 0; c < cols; c++) {
+                    array[index++] = valueAsDouble(r, c);
+                }
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default DoubleMatrix materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default DoubleMatrix materializeParallel(final ForkJoinPool pool) {
+        return new DenseDoubleMatrix(nRows(), nColumns(), toArrayParallel(pool));
+    }
+
+    default DoubleMatrix multiply(final DoubleMatrix other) {
+        return multiply(other, ForkJoinPool.commonPool());
+    }
+
+    default DoubleMatrix multiply(final DoubleMatrix other, final ForkJoinPool pool) {
+        return multiply(other, new double[Math.multiplyExact(nRows(), other.nColumns())], pool);
+    }
+
+    default DoubleMatrix multiply(final DoubleMatrix other, final double[] target) {
+        return multiply(other, target, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the matrix product {@code this * other} and stores the result in row-major order in the given target
+     * array.  The returned matrix is backed by the target array.  If one of the operands is a
+     * {@link SparseDoubleMatrix}, the product is computed in time proportional to its number of stored values times
+     * the other dimension of the dense operand.
+     *
+     * @param other     the right hand side operand with as many rows as this matrix has columns
+     * @param target    the target array for the result, must not be backing one of the operands
+     * @param pool      the pool used to parallelize the computation
+     * @return a dense matrix backed by the target array
+     * @throws IllegalArgumentException if the operand dimensions or the target length do not match
+     */
+    default DoubleMatrix multiply(final DoubleMatrix other, final double[] target, final ForkJoinPool pool) {
+        Objects.requireNonNull(other);
+        Objects.requireNonNull(target);
+        Objects.requireNonNull(pool);
+        if (nColumns() != other.nRows()) {
+            throw new IllegalArgumentException("Cannot multiply " + nRows() + "x" + nColumns() + " with " +
+                    other.nRows() + "x" + other.nColumns() + " matrix");
+        }
+        if (target.length != (long)nRows() * other.nColumns()) {
+            throw new IllegalArgumentException("target length must be " + nRows() + "x" + other.nColumns() +
+                    " but was " + target.length);
+        }
+        if ((this instanceof DenseDoubleMatrix && ((DenseDoubleMatrix)this).values == target) ||
+                (other instanceof DenseDoubleMatrix && ((DenseDoubleMatrix)other).values == target)) {
+            throw new IllegalArgumentException("target must not be backing an operand");
+        }
+        if (this instanceof SparseDoubleMatrix) {
+            final double[] b = other instanceof DenseDoubleMatrix ? ((DenseDoubleMatrix)other).values : other.toArrayParallel(pool);
+            final SparseDoubleMatrix csr = ((SparseDoubleMatrix)this).toLayout(Layout.ROW_MAJOR);
+            SparseMultiply.csrTimesDense(csr, other.nColumns(), b, target, pool);
+            return new DenseDoubleMatrix(nRows(), other.nColumns(), target);
+        }
+        final double[] a = this instanceof DenseDoubleMatrix ? ((DenseDoubleMatrix)this).values : toArrayParallel(pool);
+        if (other instanceof SparseDoubleMatrix) {
+            final SparseDoubleMatrix csc = ((SparseDoubleMatrix)other).toLayout(Layout.COLUMN_MAJOR);
+            SparseMultiply.denseTimesCsc(nRows(), nColumns(), a, csc, target, pool);
+            return new DenseDoubleMatrix(nRows(), other.nColumns(), target);
+        }
+        final double[] b = other instanceof DenseDoubleMatrix ? ((DenseDoubleMatrix)other).values : other.toArrayParallel(pool);
+        Gemm.multiply(nRows(), nColumns(), other.nColumns(), a, b, target, pool);
+        return new DenseDoubleMatrix(nRows(), other.nColumns(), target);
+    }
+
+    default DoubleVector multiply(final Double1D vector) {
+        return multiply(vector, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the matrix-vector product {@code this * vector}.  Sparse matrices compute the product in time
+     * proportional to the number of stored values.
+     *
+     * @param vector    the vector operand, its first {@link #nColumns()} values are used
+     * @param pool      the pool used to parallelize the computation
+     * @return a dense vector with one value per row of this matrix
+     * @throws IllegalArgumentException if vector is a {@link Vector} whose length does not match
+     */
+    default DoubleVector multiply(final Double1D vector, final ForkJoinPool pool) {
+        Objects.requireNonNull(vector);
+        Objects.requireNonNull(pool);
+        final int rows = nRows();
+        final int cols = nColumns();
+        if (vector instanceof Vector && ((Vector<?,?>)vector).nElements() != cols) {
+            throw new IllegalArgumentException("Cannot multiply " + rows + "x" + cols +
+                    " matrix with vector of length " + ((Vector<?,?>)vector).nElements());
+        }
+        final double[] x;
+        if (vector instanceof DoubleVector) {
+            x = ((DoubleVector)vector).toArray();
+        } else {
+            x = new double[cols];
+            for (int i = 0; i < cols; i++) {
+                x[i] = vector.valueAsDouble(i);
+            }
+        }
+        final double[] y = new double[rows];
+        if (this instanceof SparseDoubleMatrix) {
+            final SparseDoubleMatrix sparse = (SparseDoubleMatrix)this;
+            if (sparse.layout() == Layout.ROW_MAJOR) {
+                SparseMultiply.csrTimesVector(sparse, x, y, pool);
+            } else {
+                SparseMultiply.cscTimesVector(sparse, x, y);
+            }
+        } else {
+            final double[] a = this instanceof DenseDoubleMatrix ? ((DenseDoubleMatrix)this).values : toArrayParallel(pool);
+            Gemm.multiplyVector(rows, cols, a, x, y, pool);
+        }
+        return DoubleVector.create(y);
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, in their original order. */
+    default DoubleMatrix selectRows(final Bool1D mask) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices();
+        return DoubleMatrix.create(rows.length, nColumns(), (r, c) -> valueAsDouble(rows[r], c)).materialize();
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, selected in parallel. */
+    default DoubleMatrix selectRows(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices(pool);
+        final DoubleMatrix selected = DoubleMatrix.create(rows.length, nColumns(), (r, c) -> valueAsDouble(rows[r], c));
+        return selected.materializeParallel(pool);
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, in their original order. */
+    default DoubleMatrix selectColumns(final Bool1D mask) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices();
+        return DoubleMatrix.create(nRows(), cols.length, (r, c) -> valueAsDouble(r, cols[c])).materialize();
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, selected in parallel. */
+    default DoubleMatrix selectColumns(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices(pool);
+        final DoubleMatrix selected = DoubleMatrix.create(nRows(), cols.length, (r, c) -> valueAsDouble(r, cols[c]));
+        return selected.materializeParallel(pool);
+    }
+
+    /**
+     * Returns a view of this matrix with the given rows, that is, row {@code i} of the view is row
+     * {@code rows.valueAsInt(i)} of this matrix;  rows can be reordered, repeated or omitted.  Values are read through
+     * from this matrix, or copied eagerly if the view is {@link DoubleMatrix#materialize() materialized}:  dense
+     * matrices are copied with one array copy per row and sparse matrices remain sparse.
+     *
+     * @param rows the row index for every row of the view
+     * @return a view of this matrix with the given rows
+     * @throws IllegalArgumentException if a row index is out of range
+     */
+    default DoubleMatrix gatherRows(final IntVector rows) {
+        return Gather.view(this, Gather.indices(rows, nRows(), "row"), null);
+    }
+
+    /**
+     * Returns a view of this matrix with the given columns, that is, column {@code i} of the view is column
+     * {@code columns.valueAsInt(i)} of this matrix.  Materializing the view copies the values eagerly as for
+     * {@link #gatherRows(IntVector)}.
+     *
+     * @param columns the column index for every column of the view
+     * @return a view of this matrix with the given columns
+     * @throws IllegalArgumentException if a column index is out of range
+     */
+    default DoubleMatrix gatherColumns(final IntVector columns) {
+        return Gather.view(this, null, Gather.indices(columns, nColumns(), "column"));
+    }
+
+    /**
+     * Returns a view of a matrix with {@code targetRows} rows, where row {@code rows.valueAsInt(i)} is row {@code i}
+     * of this matrix and all other rows are zero.  If several rows are scattered to the same target row, the last
+     * one wins.  For a permutation, this is the inverse of {@link #gatherRows(IntVector)}.
+     *
+     * @param rows the target row index for every row of this matrix
+     * @param targetRows the number of rows of the view
+     * @return a view with the rows of this matrix at the given target rows
+     * @throws IllegalArgumentException if the number of row indices is not equal to the number of rows of this
+     *                                  matrix, or if a row index is out of range
+     */
+    default DoubleMatrix scatterRows(final IntVector rows, final int targetRows) {
+        return Gather.view(this, Gather.inverse(rows, nRows(), targetRows, "row"), null);
+    }
+
+    /**
+     * Returns the transpose of this matrix as a view with rows and columns swapped, which is free to create and
+     * suitable for a few reads.  Materializing the view transposes all values eagerly into new dense storage
+     * traversing this matrix in cache friendly blocks.
+     */
+    default DoubleMatrix transpose() {
+        return Transpose.view(this);
+    }
+
+    /**
+     * Returns the LU decomposition with partial pivoting of this square matrix, used to solve linear systems and to
+     * compute determinant and inverse.
+     *
+     * @throws IllegalArgumentException if this matrix is not square
+     */
+    default LuDecomposition lu() {
+        return new LuDecomposition(this, null);
+    }
+
+    /**
+     * Returns the LU decomposition of this square matrix, updating the trailing matrix in parallel.  Solving with
+     * the decomposition also uses the pool to process right-hand side columns in parallel.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the decomposition of this matrix
+     * @throws IllegalArgumentException if this matrix is not square
+     */
+    default LuDecomposition lu(final ForkJoinPool pool) {
+        return new LuDecomposition(this, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * Returns the Householder QR decomposition of this matrix, used to solve least squares problems.
+     *
+     * @throws IllegalArgumentException if this matrix has fewer rows than columns
+     */
+    default QrDecomposition qr() {
+        return new QrDecomposition(this, null);
+    }
+
+    /**
+     * Returns the Householder QR decomposition of this matrix, applying every reflection to the trailing columns in
+     * parallel.  Solving with the decomposition also uses the pool to process right-hand side columns in parallel.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the decomposition of this matrix
+     * @throws IllegalArgumentException if this matrix has fewer rows than columns
+     */
+    default QrDecomposition qr(final ForkJoinPool pool) {
+        return new QrDecomposition(this, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * Returns the Cholesky decomposition of this symmetric positive definite matrix.
+     *
+     * @throws IllegalArgumentException if this matrix is not square or not positive definite
+     */
+    default CholeskyDecomposition cholesky() {
+        return new CholeskyDecomposition(this, null);
+    }
+
+    /**
+     * Returns the Cholesky decomposition of this symmetric positive definite matrix, updating the trailing matrix in
+     * parallel.  Solving with the decomposition also uses the pool to process right-hand side columns in parallel.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the decomposition of this matrix
+     * @throws IllegalArgumentException if this matrix is not square or not positive definite
+     */
+    default CholeskyDecomposition cholesky(final ForkJoinPool pool) {
+        return new CholeskyDecomposition(this, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * Reduces every row or every column of this matrix to a single value by successively applying the operator,
+     * starting with the identity value.
+     *
+     * @param operator  the reduction operator
+     * @param identity  the identity value of the operator, the result of the reduction of an empty row or column
+     * @param axis      {@link Axis#ROWS} to reduce rows and {@link Axis#COLUMNS} to reduce columns
+     * @return a dense vector with the result of every row or column reduction
+     */
+    default DoubleVector reduce(final DoubleBinaryOperator operator, final double identity, final Axis axis) {
+        Objects.requireNonNull(operator);
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.CUSTOM, operator, identity, null));
+    }
+
+    /**
+     * Reduces every row or every column of this matrix to a single value in parallel.  Column reductions combine
+     * partial results of row chunks, hence the operator must be associative.
+     *
+     * @param operator  the associative reduction operator
+     * @param identity  the identity value of the operator, the result of the reduction of an empty row or column
+     * @param axis      {@link Axis#ROWS} to reduce rows and {@link Axis#COLUMNS} to reduce columns
+     * @param pool      the pool used to parallelize the computation
+     * @return a dense vector with the result of every row or column reduction
+     */
+    default DoubleVector reduce(final DoubleBinaryOperator operator, final double identity, final Axis axis,
+                                final ForkJoinPool pool) {
+        Objects.requireNonNull(operator);
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.CUSTOM, operator, identity,
+                Objects.requireNonNull(pool)));
+    }
+
+    default DoubleVector sum(final Axis axis) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.SUM, null, 0d, null));
+    }
+
+    default DoubleVector sum(final Axis axis, final ForkJoinPool pool) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.SUM, null, 0d, Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Sums up every row or every column of this matrix with the given summation algorithm.
+     *
+     * @param axis  {@link Axis#ROWS} to sum up rows and {@link Axis#COLUMNS} to sum up columns
+     * @param mode  the summation algorithm
+     * @return a dense vector with the sum of every row or column
+     */
+    default DoubleVector sum(final Axis axis, final SummationMode mode) {
+        return DoubleVector.create(Reduce.sum(this, axis, mode, null));
+    }
+
+    /**
+     * Sums up every row or every column of this matrix in parallel with the given summation algorithm.  Compensation
+     * terms of partial column sums are carried through when combining the partial sums of different chunks.
+     *
+     * @param axis  {@link Axis#ROWS} to sum up rows and {@link Axis#COLUMNS} to sum up columns
+     * @param mode  the summation algorithm
+     * @param pool  the pool used to parallelize the computation
+     * @return a dense vector with the sum of every row or column
+     */
+    default DoubleVector sum(final Axis axis, final SummationMode mode, final ForkJoinPool pool) {
+        return DoubleVector.create(Reduce.sum(this, axis, mode, Objects.requireNonNull(pool)));
+    }
+
+    default DoubleVector mean(final Axis axis) {
+        return Reduce.mean(sum(axis), axis.reducedLength(nRows(), nColumns()));
+    }
+
+    default DoubleVector mean(final Axis axis, final ForkJoinPool pool) {
+        return Reduce.mean(sum(axis, pool), axis.reducedLength(nRows(), nColumns()));
+    }
+
+    default DoubleVector min(final Axis axis) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.MIN, null, Double.POSITIVE_INFINITY, null));
+    }
+
+    default DoubleVector min(final Axis axis, final ForkJoinPool pool) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.MIN, null, Double.POSITIVE_INFINITY,
+                Objects.requireNonNull(pool)));
+    }
+
+    default DoubleVector max(final Axis axis) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.MAX, null, Double.NEGATIVE_INFINITY, null));
+    }
+
+    default DoubleVector max(final Axis axis, final ForkJoinPool pool) {
+        return DoubleVector.create(Reduce.reduce(this, axis, Reduce.MAX, null, Double.NEGATIVE_INFINITY,
+                Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the index of the minimum value of every row or column, or -1 for empty rows or columns.  The first
+     * index is returned if the minimum occurs more than once and the first NaN value is returned if there is any.
+     */
+    default IntVector argMin(final Axis axis) {
+        return IntVector.create(Reduce.arg(this, axis, false, null));
+    }
+
+    default IntVector argMin(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.arg(this, axis, false, Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the index of the maximum value of every row or column, or -1 for empty rows or columns.  The first
+     * index is returned if the maximum occurs more than once and the first NaN value is returned if there is any.
+     */
+    default IntVector argMax(final Axis axis) {
+        return IntVector.create(Reduce.arg(this, axis, true, null));
+    }
+
+    default IntVector argMax(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.arg(this, axis, true, Objects.requireNonNull(pool)));
+    }
+
+    default DoubleVector rowSums() {
+        return sum(Axis.ROWS);
+    }
+
+    default DoubleVector columnSums() {
+        return sum(Axis.COLUMNS);
+    }
+
+    default DoubleVector rowMeans() {
+        return mean(Axis.ROWS);
+    }
+
+    default DoubleVector columnMeans() {
+        return mean(Axis.COLUMNS);
+    }
+
     static DoubleMatrix create(final double[][] values) {
         final int rows = values.length;
         final int cols = rows == 0 ? 0 : values[0].length;
@@ -109,6 +588,10 @@ public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
                 values[r][c] : Double.NaN);
     }
 
+    static DoubleMatrix create(final int rows, final int cols, final double... values) {
+        return new DenseDoubleMatrix(rows, cols, values);
+    }
+
     static DoubleMatrix createFromRows(final DoubleVector... rowData) {
         return createFromRows(rowData.length == 0 ? 0 : rowData[0].nElements(), rowData);
     }
@@ -173,6 +656,21 @@ public interface DoubleMatrix extends Matrix<Double, Double2D>, Double2D {
         };
     }
 
+    /**
+     * Evaluates the given expression with a fused program and returns the result as a dense matrix.
+     */
+    static DoubleMatrix evaluate(final int rows, final int cols, final DoubleExpression expression) {
+        return new DenseDoubleMatrix(rows, cols, expression.evaluate(rows, cols));
+    }
+
+    /**
+     * Evaluates the given expression in parallel with a fused program and returns the result as a dense matrix.
+     */
+    static DoubleMatrix evaluate(final int rows, final int cols, final DoubleExpression expression,
+                                 final ForkJoinPool pool) {
+        return new DenseDoubleMatrix(rows, cols, expression.evaluate(rows, cols, pool));
+    }
+
     static DoubleMatrix identity(final int n) {
         return diagonal(n, 1d);
     }
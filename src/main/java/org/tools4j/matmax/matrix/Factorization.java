@@ -0,0 +1,73 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helper for decompositions.  All factors are stored in row-major arrays.  Methods taking a nullable pool run
+ * serially if no pool is provided.
+ */
+final class Factorization {
+
+    static void checkSquare(final DoubleMatrix matrix) {
+        if (matrix.nRows() != matrix.nColumns()) {
+            throw new IllegalArgumentException("matrix must be square but was " + matrix.nRows() + "x" +
+                    matrix.nColumns());
+        }
+    }
+
+    static void checkRows(final DoubleMatrix b, final int rows) {
+        if (b.nRows() != rows) {
+            throw new IllegalArgumentException("b rows must be " + rows + " but was " + b.nRows());
+        }
+    }
+
+    static double[] toArray(final DoubleMatrix matrix, final ForkJoinPool pool) {
+        return pool == null ? matrix.toArray() : matrix.toArrayParallel(pool);
+    }
+
+    /**
+     * Invokes the action for chunks of the range {@code [0, length)}, sized for the given work per element, using
+     * the given pool, or for a single chunk covering the whole range if pool is null.
+     */
+    static void forEachChunk(final ForkJoinPool pool, final int length, final long work,
+                             final Parallel.ChunkAction action) {
+        if (pool == null) {
+            if (length > 0) {
+                action.apply(0, 0, length);
+            }
+            return;
+        }
+        final int chunkSize = Parallel.rowChunkSize(pool, length, (int)Math.min(Integer.MAX_VALUE, work),
+                Double.BYTES);
+        Parallel.forEachChunk(pool, length, chunkSize, action);
+    }
+
+    private Factorization() {
+        throw new RuntimeException("No Factorization for you!");
+    }
+}
@@ -0,0 +1,564 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.vector.IntVector;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helper for gather and scatter views.  Index arrays map every row or column of a view to a row or column of the
+ * source matrix;  a null index array maps all rows or columns to themselves, and a negative index denotes a row of
+ * zero values not taken from the source.
+ */
+final class Gather {
+
+    /**
+     * Returns the indices as array, checking that all indices are in {@code [0, bound)}.
+     */
+    static int[] indices(final IntVector indices, final int bound, final String name) {
+        final int[] array = indices.toArray();
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] < 0 | array[i] >= bound) {
+                throw new IllegalArgumentException(name + " index " + array[i] + " at position " + i +
+                        " is not in [0, " + bound + ")");
+            }
+        }
+        return array;
+    }
+
+    /**
+     * Returns the gather indices for the given scatter indices, that is, the source index for every target index, or
+     * -1 for targets without source.  The last source wins if multiple sources are scattered to the same target.
+     */
+    static int[] inverse(final IntVector indices, final int sourceLength, final int targetLength, final String name) {
+        if (targetLength < 0) throw new IllegalArgumentException(name + "s must not be negative: " + targetLength);
+        if (indices.nElements() != sourceLength) {
+            throw new IllegalArgumentException(name + " indices length must be " + sourceLength + " but was " +
+                    indices.nElements());
+        }
+        final int[] targets = indices(indices, targetLength, name);
+        final int[] inverse = new int[targetLength];
+        Arrays.fill(inverse, -1);
+        for (int i = 0; i < targets.length; i++) {
+            inverse[targets[i]] = i;
+        }
+        return inverse;
+    }
+
+    /**
+     * Copies whole rows of a row-major source into the target with one array copy per row;  rows with negative index
+     * are left unchanged.
+     */
+    static <A> A rows(final A source, final A target, final int cols, final int[] rows) {
+        for (int r = 0; r < rows.length; r++) {
+            if (rows[r] >= 0) {
+                System.arraycopy(source, rows[r] * cols, target, r * cols, cols);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns the gathered pointers of compressed sparse storage with the entry count of every gathered major row or
+     * column;  majors with negative index are empty.
+     */
+    static int[] pointers(final int[] pointers, final int[] majors) {
+        final int[] gathered = new int[majors.length + 1];
+        for (int i = 0; i < majors.length; i++) {
+            final int major = majors[i];
+            gathered[i + 1] = Math.addExact(gathered[i], major >= 0 ? pointers[major + 1] - pointers[major] : 0);
+        }
+        return gathered;
+    }
+
+    /**
+     * Copies the entries of every gathered major row or column of compressed sparse storage into the target.
+     */
+    static <A> A entries(final A source, final A target, final int[] pointers, final int[] majors,
+                         final int[] gatheredPointers) {
+        for (int i = 0; i < majors.length; i++) {
+            if (majors[i] >= 0) {
+                System.arraycopy(source, pointers[majors[i]], target, gatheredPointers[i],
+                        gatheredPointers[i + 1] - gatheredPointers[i]);
+            }
+        }
+        return target;
+    }
+
+    private static int index(final int[] indices, final int index) {
+        return indices == null ? index : indices[index];
+    }
+
+    private static int length(final int[] indices, final int length) {
+        return indices == null ? length : indices.length;
+    }
+
+    private static double[] columns(final double[] source, final int rows, final int cols, final int[] columns) {
+        final int n = columns.length;
+        final double[] target = new double[Math.multiplyExact(rows, n)];
+        for (int r = 0; r < rows; r++) {
+            final int from = r * cols;
+            final int to = r * n;
+            for (int c = 0; c < n; c++) {
+                target[to + c] = source[from + columns[c]];
+            }
+        }
+        return target;
+    }
+
+    private static long[] columns(final long[] source, final int rows, final int cols, final int[] columns) {
+        final int n = columns.length;
+        final long[] target = new long[Math.multiplyExact(rows, n)];
+        for (int r = 0; r < rows; r++) {
+            final int from = r * cols;
+            final int to = r * n;
+            for (int c = 0; c < n; c++) {
+                target[to + c] = source[from + columns[c]];
+            }
+        }
+        return target;
+    }
+
+    private static int[] columns(final int[] source, final int rows, final int cols, final int[] columns) {
+        final int n = columns.length;
+        final int[] target = new int[Math.multiplyExact(rows, n)];
+        for (int r = 0; r < rows; r++) {
+            final int from = r * cols;
+            final int to = r * n;
+            for (int c = 0; c < n; c++) {
+                target[to + c] = source[from + columns[c]];
+            }
+        }
+        return target;
+    }
+
+    private static boolean[] columns(final boolean[] source, final int rows, final int cols, final int[] columns) {
+        final int n = columns.length;
+        final boolean[] target = new boolean[Math.multiplyExact(rows, n)];
+        for (int r = 0; r < rows; r++) {
+            final int from = r * cols;
+            final int to = r * n;
+            for (int c = 0; c < n; c++) {
+                target[to + c] = source[from + columns[c]];
+            }
+        }
+        return target;
+    }
+
+    private static Object[] columns(final Object[] source, final int rows, final int cols, final int[] columns) {
+        final int n = columns.length;
+        final Object[] target = new Object[Math.multiplyExact(rows, n)];
+        for (int r = 0; r < rows; r++) {
+            final int from = r * cols;
+            final int to = r * n;
+            for (int c = 0; c < n; c++) {
+                target[to + c] = source[from + columns[c]];
+            }
+        }
+        return target;
+    }
+
+    static DoubleMatrix view(final DoubleMatrix source, final int[] rows, final int[] cols) {
+        final int nRows = length(rows, source.nRows());
+        final int nCols = length(cols, source.nColumns());
+        return new DoubleMatrix() {
+            @Override
+            public int nRows() {
+                return nRows;
+            }
+
+            @Override
+            public int nColumns() {
+                return nCols;
+            }
+
+            @Override
+            public double valueAsDouble(final int row, final int column) {
+                if (row < 0 | row >= nRows | column < 0 | column >= nCols) {
+                    return Double.NaN;
+                }
+                final int sourceRow = index(rows, row);
+                return sourceRow >= 0 ? source.valueAsDouble(sourceRow, index(cols, column)) : 0d;
+            }
+
+            @Override
+            public DoubleMatrix materialize() {
+                final DoubleMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : DoubleMatrix.super.materialize();
+            }
+
+            @Override
+            public DoubleMatrix materializeParallel(final ForkJoinPool pool) {
+                final DoubleMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : DoubleMatrix.super.materializeParallel(pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof DoubleMatrix) {
+                    return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "DoubleMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns an eager copy for dense and sparse sources, or null for other sources.
+     */
+    private static DoubleMatrix copy(final DoubleMatrix source, final int[] rows, final int[] cols) {
+        if (source instanceof DenseDoubleMatrix) {
+            final double[] values = ((DenseDoubleMatrix)source).values;
+            final int nRows = source.nRows();
+            final int nCols = source.nColumns();
+            return rows != null ?
+                    new DenseDoubleMatrix(rows.length, nCols,
+                            rows(values, new double[Math.multiplyExact(rows.length, nCols)], nCols, rows)) :
+                    new DenseDoubleMatrix(nRows, cols.length, columns(values, nRows, nCols, cols));
+        }
+        if (source instanceof SparseDoubleMatrix) {
+            final SparseDoubleMatrix sparse = (SparseDoubleMatrix)source;
+            return rows != null ? sparse.gatherRows(rows) : sparse.gatherColumns(cols);
+        }
+        return null;
+    }
+
+    static LongMatrix view(final LongMatrix source, final int[] rows, final int[] cols) {
+        final int nRows = length(rows, source.nRows());
+        final int nCols = length(cols, source.nColumns());
+        return new LongMatrix() {
+            @Override
+            public int nRows() {
+                return nRows;
+            }
+
+            @Override
+            public int nColumns() {
+                return nCols;
+            }
+
+            @Override
+            public long valueAsLong(final int row, final int column) {
+                if (row < 0 | row >= nRows | column < 0 | column >= nCols) {
+                    return 0L;
+                }
+                final int sourceRow = index(rows, row);
+                return sourceRow >= 0 ? source.valueAsLong(sourceRow, index(cols, column)) : 0L;
+            }
+
+            @Override
+            public LongMatrix materialize() {
+                final LongMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : LongMatrix.super.materialize();
+            }
+
+            @Override
+            public LongMatrix materializeParallel(final ForkJoinPool pool) {
+                final LongMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : LongMatrix.super.materializeParallel(pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof LongMatrix) {
+                    return Matrix.equals(this, (LongMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "LongMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns an eager copy for dense and sparse sources, or null for other sources.
+     */
+    private static LongMatrix copy(final LongMatrix source, final int[] rows, final int[] cols) {
+        if (source instanceof DenseLongMatrix) {
+            final long[] values = ((DenseLongMatrix)source).values;
+            final int nRows = source.nRows();
+            final int nCols = source.nColumns();
+            return rows != null ?
+                    new DenseLongMatrix(rows.length, nCols,
+                            rows(values, new long[Math.multiplyExact(rows.length, nCols)], nCols, rows)) :
+                    new DenseLongMatrix(nRows, cols.length, columns(values, nRows, nCols, cols));
+        }
+        return null;
+    }
+
+    static IntMatrix view(final IntMatrix source, final int[] rows, final int[] cols) {
+        final int nRows = length(rows, source.nRows());
+        final int nCols = length(cols, source.nColumns());
+        return new IntMatrix() {
+            @Override
+            public int nRows() {
+                return nRows;
+            }
+
+            @Override
+            public int nColumns() {
+                return nCols;
+            }
+
+            @Override
+            public int valueAsInt(final int row, final int column) {
+                if (row < 0 | row >= nRows | column < 0 | column >= nCols) {
+                    return 0;
+                }
+                final int sourceRow = index(rows, row);
+                return sourceRow >= 0 ? source.valueAsInt(sourceRow, index(cols, column)) : 0;
+            }
+
+            @Override
+            public IntMatrix materialize() {
+                final IntMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : IntMatrix.super.materialize();
+            }
+
+            @Override
+            public IntMatrix materializeParallel(final ForkJoinPool pool) {
+                final IntMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : IntMatrix.super.materializeParallel(pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof IntMatrix) {
+                    return Matrix.equals(this, (IntMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "IntMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns an eager copy for dense and sparse sources, or null for other sources.
+     */
+    private static IntMatrix copy(final IntMatrix source, final int[] rows, final int[] cols) {
+        if (source instanceof DenseIntMatrix) {
+            final int[] values = ((DenseIntMatrix)source).values;
+            final int nRows = source.nRows();
+            final int nCols = source.nColumns();
+            return rows != null ?
+                    new DenseIntMatrix(rows.length, nCols,
+                            rows(values, new int[Math.multiplyExact(rows.length, nCols)], nCols, rows)) :
+                    new DenseIntMatrix(nRows, cols.length, columns(values, nRows, nCols, cols));
+        }
+        if (source instanceof SparseIntMatrix) {
+            final SparseIntMatrix sparse = (SparseIntMatrix)source;
+            return rows != null ? sparse.gatherRows(rows) : sparse.gatherColumns(cols);
+        }
+        return null;
+    }
+
+    static BoolMatrix view(final BoolMatrix source, final int[] rows, final int[] cols) {
+        final int nRows = length(rows, source.nRows());
+        final int nCols = length(cols, source.nColumns());
+        return new BoolMatrix() {
+            @Override
+            public int nRows() {
+                return nRows;
+            }
+
+            @Override
+            public int nColumns() {
+                return nCols;
+            }
+
+            @Override
+            public boolean valueAsBoolean(final int row, final int column) {
+                if (row < 0 | row >= nRows | column < 0 | column >= nCols) {
+                    return false;
+                }
+                final int sourceRow = index(rows, row);
+                return sourceRow >= 0 ? source.valueAsBoolean(sourceRow, index(cols, column)) : false;
+            }
+
+            @Override
+            public BoolMatrix materialize() {
+                final BoolMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : BoolMatrix.super.materialize();
+            }
+
+            @Override
+            public BoolMatrix materializeParallel(final ForkJoinPool pool) {
+                final BoolMatrix copy = copy(source, rows, cols);
+                return copy != null ? copy : BoolMatrix.super.materializeParallel(pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof BoolMatrix) {
+                    return Matrix.equals(this, (BoolMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "BoolMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns an eager copy for dense and sparse sources, or null for other sources.
+     */
+    private static BoolMatrix copy(final BoolMatrix source, final int[] rows, final int[] cols) {
+        if (source instanceof DenseBoolMatrix) {
+            final boolean[] values = ((DenseBoolMatrix)source).values;
+            final int nRows = source.nRows();
+            final int nCols = source.nColumns();
+            return rows != null ?
+                    new DenseBoolMatrix(rows.length, nCols,
+                            rows(values, new boolean[Math.multiplyExact(rows.length, nCols)], nCols, rows)) :
+                    new DenseBoolMatrix(nRows, cols.length, columns(values, nRows, nCols, cols));
+        }
+        if (source instanceof SparseBoolMatrix) {
+            final SparseBoolMatrix sparse = (SparseBoolMatrix)source;
+            return rows != null ? sparse.gatherRows(rows) : sparse.gatherColumns(cols);
+        }
+        return null;
+    }
+
+    static <V> ObjMatrix<V> view(final ObjMatrix<V> source, final int[] rows, final int[] cols) {
+        final int nRows = length(rows, source.nRows());
+        final int nCols = length(cols, source.nColumns());
+        return new ObjMatrix<V>() {
+            @Override
+            public int nRows() {
+                return nRows;
+            }
+
+            @Override
+            public int nColumns() {
+                return nCols;
+            }
+
+            @Override
+            public V value(final int row, final int column) {
+                if (row < 0 | row >= nRows | column < 0 | column >= nCols) {
+                    return null;
+                }
+                final int sourceRow = index(rows, row);
+                return sourceRow >= 0 ? source.value(sourceRow, index(cols, column)) : null;
+            }
+
+            @Override
+            public ObjMatrix<V> materialize() {
+                final ObjMatrix<V> copy = copy(source, rows, cols);
+                return copy != null ? copy : ObjMatrix.super.materialize();
+            }
+
+            @Override
+            public ObjMatrix<V> materializeParallel(final ForkJoinPool pool) {
+                final ObjMatrix<V> copy = copy(source, rows, cols);
+                return copy != null ? copy : ObjMatrix.super.materializeParallel(pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof ObjMatrix) {
+                    return Matrix.equals(this, (ObjMatrix<?>)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "ObjMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns an eager copy for dense and sparse sources, or null for other sources.
+     */
+    private static <V> ObjMatrix<V> copy(final ObjMatrix<V> source, final int[] rows, final int[] cols) {
+        if (source instanceof DenseObjMatrix) {
+            final Object[] values = ((DenseObjMatrix<?>)source).values;
+            final int nRows = source.nRows();
+            final int nCols = source.nColumns();
+            return rows != null ?
+                    new DenseObjMatrix<>(rows.length, nCols,
+                            rows(values, new Object[Math.multiplyExact(rows.length, nCols)], nCols, rows)) :
+                    new DenseObjMatrix<>(nRows, cols.length, columns(values, nRows, nCols, cols));
+        }
+        return null;
+    }
+
+    private Gather() {
+        throw new RuntimeException("No Gather for you!");
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * General dense matrix multiplication {@code C = A * B} with cache blocking and a register-blocked micro-kernel.
+ * <p>
+ * The loop structure follows the well-known GotoBLAS layout:  a {@code KC x NC} block of {@code B} is packed into
+ * column panels of width {@link #NR} that stay in the L3 cache, and each task packs an {@code MC x KC} block of
+ * {@code A} into row panels of height {@link #MR} that stay in the L2 cache.  The micro-kernel then computes an
+ * {@code MR x NR} block of {@code C} in local variables while streaming through both panels sequentially.  Row blocks
+ * of {@code C} are distributed across the fork/join pool.
+ */
+final class Gemm {
+
+    static final int MR = 4;
+    static final int NR = 4;
+    static final int KC = 256;
+    static final int MC = 128;
+    static final int NC = 2048;
+
+    /** Products with fewer multiply-adds than this are computed with a simple loop */
+    private static final long SMALL = 48L * 48 * 48;
+
+    /**
+     * Computes {@code c = a * b} for row-major arrays with {@code a} being {@code m x k} and {@code b} being
+     * {@code k x n}.
+     */
+    static void multiply(final int m, final int k, final int n, final double[] a, final double[] b, final double[] c,
+                         final ForkJoinPool pool) {
+        Arrays.fill(c, 0, m * n, 0d);
+        if (m == 0 | n == 0 | k == 0) {
+            return;
+        }
+        if ((long)m * n * k <= SMALL) {
+            multiplySmall(m, k, n, a, b, c);
+            return;
+        }
+        final double[] bPacked = new double[KC * roundUp(Math.min(NC, n), NR)];
+        final int rowBlocks = (m + MC - 1) / MC;
+        for (int jc = 0; jc < n; jc += NC) {
+            final int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                final int kc = Math.min(KC, k - pc);
+                packB(b, n, pc, kc, jc, nc, bPacked);
+                final int jcBlock = jc;
+                final int pcBlock = pc;
+                Parallel.forEachChunk(pool, rowBlocks, 1, (chunk, from, to) -> {
+                    final double[] aPacked = new double[roundUp(MC, MR) * kc];
+                    for (int block = from; block < to; block++) {
+                        final int ic = block * MC;
+                        final int mc = Math.min(MC, m - ic);
+                        packA(a, k, ic, mc, pcBlock, kc, aPacked);
+                        multiplyBlock(aPacked, bPacked, c, n, ic, mc, jcBlock, nc, kc);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Computes {@code y = a * x} for a row-major {@code m x k} array {@code a};  rows are computed in parallel.
+     */
+    static void multiplyVector(final int m, final int k, final double[] a, final double[] x, final double[] y,
+                               final ForkJoinPool pool) {
+        Parallel.forEachChunk(pool, m, Parallel.rowChunkSize(pool, m, k, Double.BYTES), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int aRow = i * k;
+                double sum = 0;
+                for (int p = 0; p < k; p++) {
+                    sum += a[aRow + p] * x[p];
+                }
+                y[i] = sum;
+            }
+        });
+    }
+
+    private static int roundUp(final int value, final int multiple) {
+        return ((value + multiple - 1) / multiple) * multiple;
+    }
+
+    private static void multiplySmall(final int m, final int k, final int n,
+                                      final double[] a, final double[] b, final double[] c) {
+        for (int i = 0; i < m; i++) {
+            final int cRow = i * n;
+            final int aRow = i * k;
+            for (int p = 0; p < k; p++) {
+                final double aip = a[aRow + p];
+                final int bRow = p * n;
+                for (int j = 0; j < n; j++) {
+                    c[cRow + j] += aip * b[bRow + j];
+                }
+            }
+        }
+    }
+
+    private static void packA(final double[] a, final int k, final int ic, final int mc, final int pc, final int kc,
+                              final double[] aPacked) {
+        int index = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            for (int p = 0; p < kc; p++) {
+                for (int i = 0; i < MR; i++) {
+                    aPacked[index++] = ir + i < mc ? a[(ic + ir + i) * k + pc + p] : 0d;
+                }
+            }
+        }
+    }
+
+    private static void packB(final double[] b, final int n, final int pc, final int kc, final int jc, final int nc,
+                              final double[] bPacked) {
+        int index = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            for (int p = 0; p < kc; p++) {
+                final int bRow = (pc + p) * n + jc + jr;
+                for (int j = 0; j < NR; j++) {
+                    bPacked[index++] = jr + j < nc ? b[bRow + j] : 0d;
+                }
+            }
+        }
+    }
+
+    private static void multiplyBlock(final double[] aPacked, final double[] bPacked, final double[] c, final int n,
+                                      final int ic, final int mc, final int jc, final int nc, final int kc) {
+        for (int jr = 0; jr < nc; jr += NR) {
+            final int bOffset = jr * kc;
+            final int nr = Math.min(NR, nc - jr);
+            for (int ir = 0; ir < mc; ir += MR) {
+                final int aOffset = ir * kc;
+                final int mr = Math.min(MR, mc - ir);
+                kernel(kc, aPacked, aOffset, bPacked, bOffset, c, (ic + ir) * n + jc + jr, n, mr, nr);
+            }
+        }
+    }
+
+    private static void kernel(final int kc, final double[] a, final int aOffset, final double[] b, final int bOffset,
+                               final double[] c, final int cOffset, final int n, final int mr, final int nr) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        int ai = aOffset;
+        int bi = bOffset;
+        for (int p = 0; p < kc; p++) {
+            final double a0 = a[ai];
+            final double a1 = a[ai + 1];
+            final double a2 = a[ai + 2];
+            final double a3 = a[ai + 3];
+            final double b0 = b[bi];
+            final double b1 = b[bi + 1];
+            final double b2 = b[bi + 2];
+            final double b3 = b[bi + 3];
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+            ai += MR;
+            bi += NR;
+        }
+        if (mr == MR & nr == NR) {
+            int ci = cOffset;
+            c[ci] += c00; c[ci + 1] += c01; c[ci + 2] += c02; c[ci + 3] += c03;
+            ci += n;
+            c[ci] += c10; c[ci + 1] += c11; c[ci + 2] += c12; c[ci + 3] += c13;
+            ci += n;
+            c[ci] += c20; c[ci + 1] += c21; c[ci + 2] += c22; c[ci + 3] += c23;
+            ci += n;
+            c[ci] += c30; c[ci + 1] += c31; c[ci + 2] += c32; c[ci + 3] += c33;
+            return;
+        }
+        final double[] block = {
+                c00, c01, c02, c03,
+                c10, c11, c12, c13,
+                c20, c21, c22, c23,
+                c30, c31, c32, c33
+        };
+        for (int i = 0; i < mr; i++) {
+            for (int j = 0; j < nr; j++) {
+                c[cOffset + i * n + j] += block[i * NR + j];
+            }
+        }
+    }
+
+    private Gemm() {
+        throw new RuntimeException("No Gemm for you!");
+    }
+}
@@ -23,16 +23,25 @@
  */
 package org.tools4j.matmax.matrix;
 
+import org.tools4j.matmax.function.IntEntryConsumer;
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Int1D;
 import org.tools4j.matmax.indexed.Int2D;
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
 import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
 import org.tools4j.matmax.vector.ObjVector;
 
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
 import java.util.function.IntFunction;
 import java.util.function.IntPredicate;
 import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
 
 public interface IntMatrix extends Matrix<Integer, Int2D>, Int2D {
 
@@ -47,7 +56,7 @@ public interface IntMatrix extends Matrix<Integer, Int2D>, Int2D {
 
     @Override
     default IntVector column(final int col) {
-        final int rows = nColumns();
+        final int rows = nRows();
         return IntVector.create(rows, row -> valueAsInt(row, col));
     }
 
@@ -61,6 +70,11 @@ public interface IntMatrix extends Matrix<Integer, Int2D>, Int2D {
         return ObjVector.create(nColumns(), this::column);
     }
 
+    @Override
+    default IntMatrix applyToEach(final IntUnaryOperator operator) {
+        return IntMatrix.create(nRows(), nColumns(), Int2D.super.applyToEach(operator));
+    }
+
     @Override
     default BoolMatrix toBool2D(final IntPredicate function) {
         return BoolMatrix.create(nRows(), nColumns(), Int2D.super.toBool2D(function));
@@ -101,6 +115,255 @@ public interface IntMatrix extends Matrix<Integer, Int2D>, Int2D {
         return ObjMatrix.create(nRows(), nColumns(), Int2D.super.toStr2D());
     }
 
+    /**
+     * Performs the given action for every entry whose value is not zero.  Sparse matrices only visit their stored
+     * entries, all other matrices visit their entries in row-major order.
+     *
+     * @param action the action invoked with row, column and value of every non-zero entry
+     */
+    default void forEachNonZero(final IntEntryConsumer action) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                final int value = valueAsInt(r, c);
+                if (value != 0) {
+                    action.accept(r, c, value);
+                }
+            }
+        }
+    }
+
+    default int[] toArray() {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final int[] array = new int[Math.multiplyExact(rows, cols)];
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[index++] = valueAsInt(r, c);
+            }
+        }
+        return array;
+    }
+
+    @Override
+    default IntMatrix materialize() {
+        return new DenseIntMatrix(nRows(), nColumns(), toArray());
+    }
+
+    default int[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default int[] toArrayParallel(final ForkJoinPool pool) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final int[] array = new int[Math.multiplyExact(rows, cols)];
+        Parallel.forEachChunk(pool, rows, Parallel.rowChunkSize(pool, rows, cols, Integer.BYTES), (chunk, from, to) -> {
+            int index = from * cols;
+            for (int r = from; r < to; r++) {
+                for (int c = 0; c < cols; c++) {
+                    array[index++] = valueAsInt(r, c);
+                }
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default IntMatrix materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default IntMatrix materializeParallel(final ForkJoinPool pool) {
+        return new DenseIntMatrix(nRows(), nColumns(), toArrayParallel(pool));
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, in their original order. */
+    default IntMatrix selectRows(final Bool1D mask) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices();
+        return IntMatrix.create(rows.length, nColumns(), (r, c) -> valueAsInt(rows[r], c)).materialize();
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, selected in parallel. */
+    default IntMatrix selectRows(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices(pool);
+        final IntMatrix selected = IntMatrix.create(rows.length, nColumns(), (r, c) -> valueAsInt(rows[r], c));
+        return selected.materializeParallel(pool);
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, in their original order. */
+    default IntMatrix selectColumns(final Bool1D mask) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices();
+        return IntMatrix.create(nRows(), cols.length, (r, c) -> valueAsInt(r, cols[c])).materialize();
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, selected in parallel. */
+    default IntMatrix selectColumns(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices(pool);
+        final IntMatrix selected = IntMatrix.create(nRows(), cols.length, (r, c) -> valueAsInt(r, cols[c]));
+        return selected.materializeParallel(pool);
+    }
+
+    /**
+     * Returns a view of this matrix with the given rows, that is, row {@code i} of the view is row
+     * {@code rows.valueAsInt(i)} of this matrix;  rows can be reordered, repeated or omitted.  Values are read through
+     * from this matrix, or copied eagerly if the view is {@link IntMatrix#materialize() materialized}:  dense
+     * matrices are copied with one array copy per row and sparse matrices remain sparse.
+     *
+     * @param rows the row index for every row of the view
+     * @return a view of this matrix with the given rows
+     * @throws IllegalArgumentException if a row index is out of range
+     */
+    default IntMatrix gatherRows(final IntVector rows) {
+        return Gather.view(this, Gather.indices(rows, nRows(), "row"), null);
+    }
+
+    /**
+     * Returns a view of this matrix with the given columns, that is, column {@code i} of the view is column
+     * {@code columns.valueAsInt(i)} of this matrix.  Materializing the view copies the values eagerly as for
+     * {@link #gatherRows(IntVector)}.
+     *
+     * @param columns the column index for every column of the view
+     * @return a view of this matrix with the given columns
+     * @throws IllegalArgumentException if a column index is out of range
+     */
+    default IntMatrix gatherColumns(final IntVector columns) {
+        return Gather.view(this, null, Gather.indices(columns, nColumns(), "column"));
+    }
+
+    /**
+     * Returns a view of a matrix with {@code targetRows} rows, where row {@code rows.valueAsInt(i)} is row {@code i}
+     * of this matrix and all other rows are zero.  If several rows are scattered to the same target row, the last
+     * one wins.  For a permutation, this is the inverse of {@link #gatherRows(IntVector)}.
+     *
+     * @param rows the target row index for every row of this matrix
+     * @param targetRows the number of rows of the view
+     * @return a view with the rows of this matrix at the given target rows
+     * @throws IllegalArgumentException if the number of row indices is not equal to the number of rows of this
+     *                                  matrix, or if a row index is out of range
+     */
+    default IntMatrix scatterRows(final IntVector rows, final int targetRows) {
+        return Gather.view(this, Gather.inverse(rows, nRows(), targetRows, "row"), null);
+    }
+
+    /**
+     * Returns the transpose of this matrix as a view with rows and columns swapped, which is free to create and
+     * suitable for a few reads.  Materializing the view transposes all values eagerly into new dense storage
+     * traversing this matrix in cache friendly blocks.
+     */
+    default IntMatrix transpose() {
+        return Transpose.view(this);
+    }
+
+    /**
+     * Reduces every row or every column of this matrix to a single value by successively applying the operator,
+     * starting with the identity value.
+     *
+     * @param operator  the reduction operator
+     * @param identity  the identity value of the operator, the result of the reduction of an empty row or column
+     * @param axis      {@link Axis#ROWS} to reduce rows and {@link Axis#COLUMNS} to reduce columns
+     * @return a dense vector with the result of every row or column reduction
+     */
+    default IntVector reduce(final IntBinaryOperator operator, final int identity, final Axis axis) {
+        Objects.requireNonNull(operator);
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.CUSTOM,
+                (a, b) -> operator.applyAsInt((int)a, (int)b), identity, null)));
+    }
+
+    /**
+     * Reduces every row or every column of this matrix to a single value in parallel.  Column reductions combine
+     * partial results of row chunks, hence the operator must be associative.
+     *
+     * @param operator  the associative reduction operator
+     * @param identity  the identity value of the operator, the result of the reduction of an empty row or column
+     * @param axis      {@link Axis#ROWS} to reduce rows and {@link Axis#COLUMNS} to reduce columns
+     * @param pool      the pool used to parallelize the computation
+     * @return a dense vector with the result of every row or column reduction
+     */
+    default IntVector reduce(final IntBinaryOperator operator, final int identity, final Axis axis,
+                             final ForkJoinPool pool) {
+        Objects.requireNonNull(operator);
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.CUSTOM,
+                (a, b) -> operator.applyAsInt((int)a, (int)b), identity, Objects.requireNonNull(pool))));
+    }
+
+    default LongVector sum(final Axis axis) {
+        return LongVector.create(Reduce.reduce(this, axis, Reduce.SUM, null, 0, null));
+    }
+
+    default LongVector sum(final Axis axis, final ForkJoinPool pool) {
+        return LongVector.create(Reduce.reduce(this, axis, Reduce.SUM, null, 0, Objects.requireNonNull(pool)));
+    }
+
+    default DoubleVector mean(final Axis axis) {
+        return Reduce.mean(sum(axis), axis.reducedLength(nRows(), nColumns()));
+    }
+
+    default DoubleVector mean(final Axis axis, final ForkJoinPool pool) {
+        return Reduce.mean(sum(axis, pool), axis.reducedLength(nRows(), nColumns()));
+    }
+
+    default IntVector min(final Axis axis) {
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.MIN, null, Integer.MAX_VALUE, null)));
+    }
+
+    default IntVector min(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.MIN, null, Integer.MAX_VALUE,
+                Objects.requireNonNull(pool))));
+    }
+
+    default IntVector max(final Axis axis) {
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.MAX, null, Integer.MIN_VALUE, null)));
+    }
+
+    default IntVector max(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.toInt(Reduce.reduce(this, axis, Reduce.MAX, null, Integer.MIN_VALUE,
+                Objects.requireNonNull(pool))));
+    }
+
+    /**
+     * Returns the index of the minimum value of every row or column, or -1 for empty rows or columns.  The first
+     * index is returned if the minimum occurs more than once.
+     */
+    default IntVector argMin(final Axis axis) {
+        return IntVector.create(Reduce.arg(this, axis, false, null));
+    }
+
+    default IntVector argMin(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.arg(this, axis, false, Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the index of the maximum value of every row or column, or -1 for empty rows or columns.  The first
+     * index is returned if the maximum occurs more than once.
+     */
+    default IntVector argMax(final Axis axis) {
+        return IntVector.create(Reduce.arg(this, axis, true, null));
+    }
+
+    default IntVector argMax(final Axis axis, final ForkJoinPool pool) {
+        return IntVector.create(Reduce.arg(this, axis, true, Objects.requireNonNull(pool)));
+    }
+
+    default LongVector rowSums() {
+        return sum(Axis.ROWS);
+    }
+
+    default LongVector columnSums() {
+        return sum(Axis.COLUMNS);
+    }
+
+    default DoubleVector rowMeans() {
+        return mean(Axis.ROWS);
+    }
+
+    default DoubleVector columnMeans() {
+        return mean(Axis.COLUMNS);
+    }
+
     static IntMatrix create(final int[][] values) {
         final int rows = values.length;
         final int cols = rows == 0 ? 0 : values[0].length;
@@ -108,6 +371,10 @@ public interface IntMatrix extends Matrix<Integer, Int2D>, Int2D {
                 values[r][c] : 0);
     }
 
+    static IntMatrix create(final int rows, final int cols, final int... values) {
+        return new DenseIntMatrix(rows, cols, values);
+    }
+
     static IntMatrix createFromRows(final int cols, final Int1D... rowData) {
         final int rows = rowData.length;
         return create(rows, cols, (r,c) -> r >= 0 & r < rows & c >= 0 & c < cols ?
@@ -0,0 +1,50 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+/**
+ * Storage order of matrix values.  For sparse matrices {@link #ROW_MAJOR} stands for compressed sparse row (CSR) and
+ * {@link #COLUMN_MAJOR} for compressed sparse column (CSC) storage.
+ */
+public enum Layout {
+    /** Values of a row are stored next to each other */
+    ROW_MAJOR,
+    /** Values of a column are stored next to each other */
+    COLUMN_MAJOR;
+
+    public int nMajor(final int rows, final int cols) {
+        return this == ROW_MAJOR ? rows : cols;
+    }
+
+    public int nMinor(final int rows, final int cols) {
+        return this == ROW_MAJOR ? cols : rows;
+    }
+
+    /**
+     * Returns the layout of the transposed matrix, that is, the other layout.
+     */
+    public Layout transpose() {
+        return this == ROW_MAJOR ? COLUMN_MAJOR : ROW_MAJOR;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * LU decomposition with partial pivoting of a square matrix, {@code P A = L U} with a row permutation {@code P}, a
+ * unit lower triangular matrix {@code L} and an upper triangular matrix {@code U}.  The factorization is blocked:
+ * a panel of columns is factorized with row pivoting, and the trailing matrix is then updated with the whole panel,
+ * in parallel chunks of rows if a pool is given.  Instances are created via {@link DoubleMatrix#lu()}.
+ */
+public final class LuDecomposition implements Decomposition {
+
+    /** Number of columns of a panel */
+    private static final int BLOCK_SIZE = 64;
+
+    private final int n;
+    private final double[] lu;
+    private final int[] pivots;
+    private final int pivotSign;
+    private final ForkJoinPool pool;
+
+    LuDecomposition(final DoubleMatrix matrix, final ForkJoinPool pool) {
+        Factorization.checkSquare(matrix);
+        this.n = matrix.nRows();
+        this.lu = Factorization.toArray(matrix, pool);
+        this.pivots = new int[n];
+        for (int i = 0; i < n; i++) {
+            pivots[i] = i;
+        }
+        this.pivotSign = factorize(n, lu, pivots, pool);
+        this.pool = pool;
+    }
+
+    /**
+     * Factorizes a in place and returns the sign of the row permutation.
+     */
+    private static int factorize(final int n, final double[] a, final int[] pivots, final ForkJoinPool pool) {
+        int sign = 1;
+        for (int k0 = 0; k0 < n; k0 += BLOCK_SIZE) {
+            final int from = k0;
+            final int to = Math.min(n, k0 + BLOCK_SIZE);
+            //panel: unblocked factorization of columns [from, to) with row pivoting
+            for (int j = from; j < to; j++) {
+                int p = j;
+                double max = Math.abs(a[j * n + j]);
+                for (int i = j + 1; i < n; i++) {
+                    final double abs = Math.abs(a[i * n + j]);
+                    if (abs > max) {
+                        max = abs;
+                        p = i;
+                    }
+                }
+                if (p != j) {
+                    swapRows(a, n, p, j);
+                    final int pivot = pivots[p];
+                    pivots[p] = pivots[j];
+                    pivots[j] = pivot;
+                    sign = -sign;
+                }
+                final int rowJ = j * n;
+                final double pivot = a[rowJ + j];
+                if (pivot != 0d) {
+                    for (int i = j + 1; i < n; i++) {
+                        final int row = i * n;
+                        a[row + j] /= pivot;
+                        final double l = a[row + j];
+                        if (l != 0d) {
+                            for (int c = j + 1; c < to; c++) {
+                                a[row + c] -= l * a[rowJ + c];
+                            }
+                        }
+                    }
+                }
+            }
+            if (to == n) {
+                break;
+            }
+            //rows of U right of the panel: forward substitution with the unit lower triangle of the panel
+            for (int j = from; j < to; j++) {
+                final int rowJ = j * n;
+                for (int i = j + 1; i < to; i++) {
+                    final int row = i * n;
+                    final double l = a[row + j];
+                    if (l != 0d) {
+                        for (int c = to; c < n; c++) {
+                            a[row + c] -= l * a[rowJ + c];
+                        }
+                    }
+                }
+            }
+            //trailing matrix update with the panel
+            final int trailing = n - to;
+            Factorization.forEachChunk(pool, trailing, (long)trailing * (to - from), (chunk, first, last) -> {
+                for (int i = to + first; i < to + last; i++) {
+                    final int row = i * n;
+                    for (int k = from; k < to; k++) {
+                        final double l = a[row + k];
+                        if (l != 0d) {
+                            final int rowK = k * n;
+                            for (int c = to; c < n; c++) {
+                                a[row + c] -= l * a[rowK + c];
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return sign;
+    }
+
+    private static void swapRows(final double[] a, final int n, final int row1, final int row2) {
+        final int offset1 = row1 * n;
+        final int offset2 = row2 * n;
+        for (int c = 0; c < n; c++) {
+            final double value = a[offset1 + c];
+            a[offset1 + c] = a[offset2 + c];
+            a[offset2 + c] = value;
+        }
+    }
+
+    /**
+     * Returns true if the matrix is singular, that is, if {@code U} has a zero on the diagonal.
+     */
+    public boolean isSingular() {
+        for (int i = 0; i < n; i++) {
+            if (lu[i * n + i] == 0d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkNonSingular() {
+        if (isSingular()) {
+            throw new ArithmeticException("matrix is singular");
+        }
+    }
+
+    @Override
+    public DoubleVector solve(final Double1D b) {
+        checkNonSingular();
+        final double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            final int row = i * n;
+            double sum = b.valueAsDouble(pivots[i]);
+            for (int k = 0; k < i; k++) {
+                sum -= lu[row + k] * x[k];
+            }
+            x[i] = sum;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            final int row = i * n;
+            double sum = x[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= lu[row + k] * x[k];
+            }
+            x[i] = sum / lu[row + i];
+        }
+        return DoubleVector.create(x);
+    }
+
+    /**
+     * Solves {@code A X = B}, substituting chunks of columns of {@code B} in parallel if the decomposition was
+     * created with a pool.
+     */
+    @Override
+    public DoubleMatrix solve(final DoubleMatrix b) {
+        Factorization.checkRows(b, n);
+        checkNonSingular();
+        final int m = b.nColumns();
+        final double[] values = Factorization.toArray(b, pool);
+        final double[] x = new double[values.length];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(values, pivots[i] * m, x, i * m, m);
+        }
+        Factorization.forEachChunk(pool, m, (long)n * n, (chunk, from, to) -> {
+            for (int i = 0; i < n; i++) {
+                final int row = i * n;
+                final int rowX = i * m;
+                for (int k = 0; k < i; k++) {
+                    final double l = lu[row + k];
+                    if (l != 0d) {
+                        final int rowK = k * m;
+                        for (int c = from; c < to; c++) {
+                            x[rowX + c] -= l * x[rowK + c];
+                        }
+                    }
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                final int row = i * n;
+                final int rowX = i * m;
+                for (int k = i + 1; k < n; k++) {
+                    final double u = lu[row + k];
+                    if (u != 0d) {
+                        final int rowK = k * m;
+                        for (int c = from; c < to; c++) {
+                            x[rowX + c] -= u * x[rowK + c];
+                        }
+                    }
+                }
+                final double diagonal = lu[row + i];
+                for (int c = from; c < to; c++) {
+                    x[rowX + c] /= diagonal;
+                }
+            }
+        });
+        return DoubleMatrix.create(n, m, x);
+    }
+
+    @Override
+    public double determinant() {
+        double det = pivotSign;
+        for (int i = 0; i < n; i++) {
+            det *= lu[i * n + i];
+        }
+        return det;
+    }
+
+    @Override
+    public DoubleMatrix inverse() {
+        return solve(DoubleMatrix.identity(n));
+    }
+
+    @Override
+    public String toString() {
+        return "LuDecomposition:" + n + "x" + n;
+    }
+}
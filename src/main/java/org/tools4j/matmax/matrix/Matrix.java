@@ -27,6 +27,8 @@ import org.tools4j.matmax.indexed.Indexed2D;
 import org.tools4j.matmax.vector.ObjVector;
 import org.tools4j.matmax.vector.Vector;
 
+import java.util.concurrent.ForkJoinPool;
+
 public interface Matrix<V, T extends Indexed2D<V, T>> extends Indexed2D<V, T> {
     int nRows();
     int nColumns();
@@ -43,6 +45,22 @@ public interface Matrix<V, T extends Indexed2D<V, T>> extends Indexed2D<V, T> {
 
     ObjMatrix<String> toStr2D();
 
+    /**
+     * Returns the order in which the values of this matrix are stored, used to traverse the matrix efficiently.
+     * Matrices computing their values on demand report {@link Layout#ROW_MAJOR}.
+     */
+    default Layout layout() {
+        return Layout.ROW_MAJOR;
+    }
+
+    T materialize();
+
+    default T materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    T materializeParallel(ForkJoinPool pool);
+
     interface HashFunction<M extends Matrix<?,?>> {
         int hashCode(M matrix, int row, int col);
     }
@@ -23,11 +23,16 @@
  */
 package org.tools4j.matmax.matrix;
 
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Obj1D;
 import org.tools4j.matmax.indexed.Obj2D;
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.IntVector;
 import org.tools4j.matmax.vector.ObjVector;
 
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
@@ -90,6 +95,139 @@ public interface ObjMatrix<V> extends Matrix<V, Obj2D<V>>, Obj2D<V> {
         return ObjMatrix.create(nRows(), nColumns(), Obj2D.super.toStr2D(nullDefault));
     }
 
+    default Object[] toArray() {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final Object[] array = new Object[Math.multiplyExact(rows, cols)];
+        int index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                array[index++] = value(r, c);
+            }
+        }
+        return array;
+    }
+
+    @Override
+    default ObjMatrix<V> materialize() {
+        return new DenseObjMatrix<>(nRows(), nColumns(), toArray());
+    }
+
+    default Object[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default Object[] toArrayParallel(final ForkJoinPool pool) {
+        final int rows = nRows();
+        final int cols = nColumns();
+        final Object[] array = new Object[Math.multiplyExact(rows, cols)];
+        Parallel.forEachChunk(pool, rows, Parallel.rowChunkSize(pool, rows, cols, Integer.BYTES), (chunk, from, to) -> {
+            int index = from * cols;
+            for (int r = from; r < to; r++) {
+                for (int c = 0; c < cols; c++) {
+                    array[index++] = value(r, c);
+                }
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default ObjMatrix<V> materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default ObjMatrix<V> materializeParallel(final ForkJoinPool pool) {
+        return new DenseObjMatrix<>(nRows(), nColumns(), toArrayParallel(pool));
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, in their original order. */
+    default ObjMatrix<V> selectRows(final Bool1D mask) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices();
+        return ObjMatrix.<V>create(rows.length, nColumns(), (r, c) -> value(rows[r], c)).materialize();
+    }
+
+    /** Returns a dense matrix with the rows whose mask value is true, selected in parallel. */
+    default ObjMatrix<V> selectRows(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] rows = BoolVector.mask(nRows(), mask).trueIndices(pool);
+        final ObjMatrix<V> selected = ObjMatrix.<V>create(rows.length, nColumns(), (r, c) -> value(rows[r], c));
+        return selected.materializeParallel(pool);
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, in their original order. */
+    default ObjMatrix<V> selectColumns(final Bool1D mask) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices();
+        return ObjMatrix.<V>create(nRows(), cols.length, (r, c) -> value(r, cols[c])).materialize();
+    }
+
+    /** Returns a dense matrix with the columns whose mask value is true, selected in parallel. */
+    default ObjMatrix<V> selectColumns(final Bool1D mask, final ForkJoinPool pool) {
+        final int[] cols = BoolVector.mask(nColumns(), mask).trueIndices(pool);
+        final ObjMatrix<V> selected = ObjMatrix.<V>create(nRows(), cols.length, (r, c) -> value(r, cols[c]));
+        return selected.materializeParallel(pool);
+    }
+
+    /**
+     * Returns a view of this matrix with the given rows, that is, row {@code i} of the view is row
+     * {@code rows.valueAsInt(i)} of this matrix;  rows can be reordered, repeated or omitted.  Values are read through
+     * from this matrix, or copied eagerly if the view is {@link ObjMatrix#materialize() materialized}:  dense
+     * matrices are copied with one array copy per row and sparse matrices remain sparse.
+     *
+     * @param rows the row index for every row of the view
+     * @return a view of this matrix with the given rows
+     * @throws IllegalArgumentException if a row index is out of range
+     */
+    default ObjMatrix<V> gatherRows(final IntVector rows) {
+        return Gather.view(this, Gather.indices(rows, nRows(), "row"), null);
+    }
+
+    /**
+     * Returns a view of this matrix with the given columns, that is, column {@code i} of the view is column
+     * {@code columns.valueAsInt(i)} of this matrix.  Materializing the view copies the values eagerly as for
+     * {@link #gatherRows(IntVector)}.
+     *
+     * @param columns the column index for every column of the view
+     * @return a view of this matrix with the given columns
+     * @throws IllegalArgumentException if a column index is out of range
+     */
+    default ObjMatrix<V> gatherColumns(final IntVector columns) {
+        return Gather.view(this, null, Gather.indices(columns, nColumns(), "column"));
+    }
+
+    /**
+     * Returns a view of a matrix with {@code targetRows} rows, where row {@code rows.valueAsInt(i)} is row {@code i}
+     * of this matrix and all other rows are null.  If several rows are scattered to the same target row, the last
+     * one wins.  For a permutation, this is the inverse of {@link #gatherRows(IntVector)}.
+     *
+     * @param rows the target row index for every row of this matrix
+     * @param targetRows the number of rows of the view
+     * @return a view with the rows of this matrix at the given target rows
+     * @throws IllegalArgumentException if the number of row indices is not equal to the number of rows of this
+     *                                  matrix, or if a row index is out of range
+     */
+    default ObjMatrix<V> scatterRows(final IntVector rows, final int targetRows) {
+        return Gather.view(this, Gather.inverse(rows, nRows(), targetRows, "row"), null);
+    }
+
+    /**
+     * Returns the transpose of this matrix as a view with rows and columns swapped, which is free to create and
+     * suitable for a few reads.  Materializing the view transposes all values eagerly into new dense storage
+     * traversing this matrix in cache friendly blocks.
+     */
+    default ObjMatrix<V> transpose() {
+        return Transpose.view(this);
+    }
+
+    @SafeVarargs
+    static <V> ObjMatrix<V> create(final int rows, final int cols, final V... values) {
+        final Object[] copy = new Object[values.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = values[i];
+        }
+        return new DenseObjMatrix<>(rows, cols, copy);
+    }
+
     static <V> ObjMatrix<V> create(final Matrix<?,?> meta, Obj2D<V> data) {
         return create(meta.nRows(), meta.nColumns(), data);
     }
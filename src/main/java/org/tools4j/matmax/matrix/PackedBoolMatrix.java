@@ -0,0 +1,210 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.EntryConsumer;
+import org.tools4j.matmax.indexed.Bool2D;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Boolean matrix with values packed into the bits of a {@code long[]} array in row-major order, 64 values per word.
+ * Rows are not padded, that is, bit {@code row * cols + column} holds the value at the given row and column.
+ * Logical operations with another packed matrix of the same shape are performed a word at a time.  Instances are
+ * created by {@link BoolMatrix#materialize() materializing} any boolean matrix.
+ */
+public final class PackedBoolMatrix implements BoolMatrix {
+
+    private static final int OR = 0;
+    private static final int AND = 1;
+    private static final int XOR = 2;
+    private static final int AND_NOT = 3;
+
+    private final int rows;
+    private final int cols;
+    final long[] words;
+
+    PackedBoolMatrix(final int rows, final int cols, final long[] words) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(words);
+        if (words.length != wordCount(rows, cols)) {
+            throw new IllegalArgumentException("words length must be " + wordCount(rows, cols) + " but was " +
+                    words.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.words = words;
+    }
+
+    static int wordCount(final int rows, final int cols) {
+        return Math.toIntExact(((long)rows * cols + Long.SIZE - 1) >>> 6);
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public boolean valueAsBoolean(final int row, final int column) {
+        if (row < 0 | row >= rows | column < 0 | column >= cols) {
+            return false;
+        }
+        final long bit = (long)row * cols + column;
+        return (words[(int)(bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+        int count = 0;
+        for (final long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Performs the given action for every true value in row-major order, skipping 64 false values at a time.
+     */
+    @Override
+    public void forEachTrue(final EntryConsumer action) {
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                final long bit = ((long)w << 6) + Long.numberOfTrailingZeros(word);
+                action.accept((int)(bit / cols), (int)(bit % cols));
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    public BoolMatrix negate() {
+        final long[] result = new long[words.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ~words[i];
+        }
+        if (result.length > 0) {
+            result[result.length - 1] &= -1L >>> -((long)rows * cols);
+        }
+        return new PackedBoolMatrix(rows, cols, result);
+    }
+
+    @Override
+    public BoolMatrix or(final Bool2D other) {
+        return isPackedWithSameShape(other) ? combine((PackedBoolMatrix)other, OR) : BoolMatrix.super.or(other);
+    }
+
+    @Override
+    public BoolMatrix and(final Bool2D other) {
+        return isPackedWithSameShape(other) ? combine((PackedBoolMatrix)other, AND) : BoolMatrix.super.and(other);
+    }
+
+    @Override
+    public BoolMatrix xor(final Bool2D other) {
+        return isPackedWithSameShape(other) ? combine((PackedBoolMatrix)other, XOR) : BoolMatrix.super.xor(other);
+    }
+
+    @Override
+    public BoolMatrix andNot(final Bool2D other) {
+        return isPackedWithSameShape(other) ? combine((PackedBoolMatrix)other, AND_NOT) :
+                BoolMatrix.super.andNot(other);
+    }
+
+    private boolean isPackedWithSameShape(final Bool2D other) {
+        return other instanceof PackedBoolMatrix && ((PackedBoolMatrix)other).rows == rows &&
+                ((PackedBoolMatrix)other).cols == cols;
+    }
+
+    /**
+     * Combines the words of two matrices of the same shape.  Every operation has its own loop so that the JIT can
+     * unroll and vectorize it.
+     */
+    private PackedBoolMatrix combine(final PackedBoolMatrix other, final int operation) {
+        final long[] result = new long[words.length];
+        final long[] otherWords = other.words;
+        switch (operation) {
+            case OR:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = words[i] | otherWords[i];
+                }
+                break;
+            case AND:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = words[i] & otherWords[i];
+                }
+                break;
+            case XOR:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = words[i] ^ otherWords[i];
+                }
+                break;
+            case AND_NOT:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = words[i] & ~otherWords[i];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid operation: " + operation);
+        }
+        return new PackedBoolMatrix(rows, cols, result);
+    }
+
+    @Override
+    public PackedBoolMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public PackedBoolMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof BoolMatrix) {
+            return Matrix.equals(this, (BoolMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "BoolMatrix:" + nRows() + "x" + nColumns();
+    }
+}
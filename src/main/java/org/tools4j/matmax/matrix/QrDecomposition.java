@@ -0,0 +1,272 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * QR decomposition of a matrix with at least as many rows as columns, {@code A = Q R} with an orthogonal matrix
+ * {@code Q} given as a product of Householder reflections and an upper triangular matrix {@code R}.  Solving returns
+ * the least squares solution minimizing {@code ||A x - b||}.  Reflections are applied to the trailing columns in
+ * parallel chunks of columns if a pool is given.  Instances are created via {@link DoubleMatrix#qr()}.
+ */
+public final class QrDecomposition implements Decomposition {
+
+    private final int rows;
+    private final int cols;
+    private final double[] qr;
+    private final double[] rDiagonal;
+    private final int reflections;
+    private final ForkJoinPool pool;
+
+    QrDecomposition(final DoubleMatrix matrix, final ForkJoinPool pool) {
+        this.rows = matrix.nRows();
+        this.cols = matrix.nColumns();
+        if (rows < cols) {
+            throw new IllegalArgumentException("rows must not be less than columns but matrix was " + rows + "x" +
+                    cols);
+        }
+        this.qr = Factorization.toArray(matrix, pool);
+        this.rDiagonal = new double[cols];
+        this.reflections = factorize(rows, cols, qr, rDiagonal, pool);
+        this.pool = pool;
+    }
+
+    /**
+     * Factorizes a in place, storing the Householder vectors in the lower part and R above the diagonal, and returns
+     * the number of applied reflections.
+     */
+    private static int factorize(final int m, final int n, final double[] a, final double[] rDiagonal,
+                                 final ForkJoinPool pool) {
+        int reflections = 0;
+        for (int k = 0; k < n; k++) {
+            final int column = k;
+            final int rowK = k * n;
+            double norm = norm(a, m, n, k);
+            if (norm != 0d) {
+                if (a[rowK + k] < 0) {
+                    norm = -norm;
+                }
+                for (int i = k; i < m; i++) {
+                    a[i * n + k] /= norm;
+                }
+                a[rowK + k] += 1d;
+                reflections++;
+                final double scale = -1d / a[rowK + k];
+                Factorization.forEachChunk(pool, n - k - 1, m - k, (chunk, from, to) -> {
+                    final int first = column + 1 + from;
+                    final int last = column + 1 + to;
+                    final double[] dots = new double[last - first];
+                    for (int i = column; i < m; i++) {
+                        final int row = i * n;
+                        final double v = a[row + column];
+                        if (v != 0d) {
+                            for (int j = first; j < last; j++) {
+                                dots[j - first] += v * a[row + j];
+                            }
+                        }
+                    }
+                    for (int i = column; i < m; i++) {
+                        final int row = i * n;
+                        final double v = a[row + column] * scale;
+                        if (v != 0d) {
+                            for (int j = first; j < last; j++) {
+                                a[row + j] += dots[j - first] * v;
+                            }
+                        }
+                    }
+                });
+            }
+            rDiagonal[k] = -norm;
+        }
+        return reflections;
+    }
+
+    /**
+     * Returns the euclidean norm of column k from row k downwards, scaled to avoid overflow and underflow.
+     */
+    private static double norm(final double[] a, final int m, final int n, final int k) {
+        double max = 0;
+        for (int i = k; i < m; i++) {
+            max = Math.max(max, Math.abs(a[i * n + k]));
+        }
+        if (max == 0d || Double.isNaN(max) || Double.isInfinite(max)) {
+            return max;
+        }
+        double sum = 0;
+        for (int i = k; i < m; i++) {
+            final double scaled = a[i * n + k] / max;
+            sum += scaled * scaled;
+        }
+        return max * Math.sqrt(sum);
+    }
+
+    /**
+     * Returns true if no diagonal element of {@code R} is negligible relative to the largest one, that is, if the
+     * columns of the matrix are linearly independent up to rounding errors.
+     */
+    public boolean isFullRank() {
+        double max = 0;
+        for (int k = 0; k < cols; k++) {
+            max = Math.max(max, Math.abs(rDiagonal[k]));
+        }
+        final double tolerance = max * rows * Math.ulp(1d);
+        for (int k = 0; k < cols; k++) {
+            if (Math.abs(rDiagonal[k]) <= tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkFullRank() {
+        if (!isFullRank()) {
+            throw new ArithmeticException("matrix is rank deficient");
+        }
+    }
+
+    private void checkSquare() {
+        if (rows != cols) {
+            throw new IllegalStateException("matrix must be square but was " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Returns the least squares solution of {@code A x = b}.
+     *
+     * @param b the right-hand side with one value per row of {@code A}
+     * @return the solution vector with one value per column of {@code A}
+     * @throws ArithmeticException if the matrix is rank deficient
+     */
+    @Override
+    public DoubleVector solve(final Double1D b) {
+        checkFullRank();
+        final double[] y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            y[i] = b.valueAsDouble(i);
+        }
+        for (int k = 0; k < cols; k++) {
+            double dot = 0;
+            for (int i = k; i < rows; i++) {
+                dot += qr[i * cols + k] * y[i];
+            }
+            final double s = -dot / qr[k * cols + k];
+            for (int i = k; i < rows; i++) {
+                y[i] += s * qr[i * cols + k];
+            }
+        }
+        for (int k = cols - 1; k >= 0; k--) {
+            y[k] /= rDiagonal[k];
+            final double yk = y[k];
+            for (int i = 0; i < k; i++) {
+                y[i] -= yk * qr[i * cols + k];
+            }
+        }
+        return DoubleVector.create(Arrays.copyOf(y, cols));
+    }
+
+    /**
+     * Returns the least squares solution of {@code A X = B}, processing chunks of columns of {@code B} in parallel if
+     * the decomposition was created with a pool.
+     */
+    @Override
+    public DoubleMatrix solve(final DoubleMatrix b) {
+        Factorization.checkRows(b, rows);
+        checkFullRank();
+        final int m = b.nColumns();
+        final double[] y = Factorization.toArray(b, pool);
+        Factorization.forEachChunk(pool, m, (long)rows * cols, (chunk, from, to) -> {
+            final double[] dots = new double[to - from];
+            for (int k = 0; k < cols; k++) {
+                Arrays.fill(dots, 0d);
+                for (int i = k; i < rows; i++) {
+                    final double v = qr[i * cols + k];
+                    final int rowY = i * m;
+                    for (int c = from; c < to; c++) {
+                        dots[c - from] += v * y[rowY + c];
+                    }
+                }
+                final double scale = -1d / qr[k * cols + k];
+                for (int i = k; i < rows; i++) {
+                    final double v = qr[i * cols + k] * scale;
+                    final int rowY = i * m;
+                    for (int c = from; c < to; c++) {
+                        y[rowY + c] += dots[c - from] * v;
+                    }
+                }
+            }
+            for (int k = cols - 1; k >= 0; k--) {
+                final int rowK = k * m;
+                final double diagonal = rDiagonal[k];
+                for (int c = from; c < to; c++) {
+                    y[rowK + c] /= diagonal;
+                }
+                for (int i = 0; i < k; i++) {
+                    final double r = qr[i * cols + k];
+                    if (r != 0d) {
+                        final int rowY = i * m;
+                        for (int c = from; c < to; c++) {
+                            y[rowY + c] -= r * y[rowK + c];
+                        }
+                    }
+                }
+            }
+        });
+        return DoubleMatrix.create(cols, m, Arrays.copyOf(y, cols * m));
+    }
+
+    /**
+     * Returns the determinant of the square matrix, the product of the diagonal of {@code R} with the sign of the
+     * reflections.
+     *
+     * @throws IllegalStateException if the matrix is not square
+     */
+    @Override
+    public double determinant() {
+        checkSquare();
+        double det = (reflections & 1) == 0 ? 1d : -1d;
+        for (int k = 0; k < cols; k++) {
+            det *= rDiagonal[k];
+        }
+        return det;
+    }
+
+    /**
+     * @throws IllegalStateException if the matrix is not square
+     */
+    @Override
+    public DoubleMatrix inverse() {
+        checkSquare();
+        return solve(DoubleMatrix.identity(cols));
+    }
+
+    @Override
+    public String toString() {
+        return "QrDecomposition:" + rows + "x" + cols;
+    }
+}
@@ -0,0 +1,581 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.SummationMode;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Row and column reductions of double, int and long matrices.  Int values are reduced as long values, hence int sums
+ * cannot overflow.
+ * <p>
+ * Row reductions are parallelized by rows.  Column reductions let every chunk of rows reduce into its own partial
+ * result of one value per column;  partial results are then combined in chunk order.  Rows are always read in
+ * row-major order, directly from the backing array of dense double and long matrices and through a row buffer
+ * otherwise;  rows of dense int matrices are copied from the backing array into the buffer, widening every value to
+ * long.  Methods taking a nullable pool run serially if no pool is provided.
+ */
+final class Reduce {
+
+    static final int SUM = 0;
+    static final int MIN = 1;
+    static final int MAX = 2;
+    static final int CUSTOM = 3;
+
+    @FunctionalInterface
+    private interface DoubleRows {
+        /** Returns an array with the row values, either the backing array or the buffer */
+        double[] row(int row, double[] buffer);
+    }
+
+    @FunctionalInterface
+    private interface LongRows {
+        /** Returns an array with the row values, either the backing array or the buffer */
+        long[] row(int row, long[] buffer);
+    }
+
+    static double[] reduce(final DoubleMatrix matrix, final Axis axis, final int operation,
+                           final DoubleBinaryOperator operator, final double identity, final ForkJoinPool pool) {
+        Objects.requireNonNull(axis);
+        final int rows = matrix.nRows();
+        final int cols = matrix.nColumns();
+        if (operation == SUM && matrix instanceof SparseDoubleMatrix) {
+            final double[] result = new double[axis.resultLength(rows, cols)];
+            matrix.forEachNonZero((row, column, value) -> result[axis == Axis.ROWS ? row : column] += value);
+            return result;
+        }
+        final boolean dense = matrix instanceof DenseDoubleMatrix;
+        final DoubleRows rowValues = rowValues(matrix);
+        final int chunkSize = rowChunkSize(pool, rows, cols, Double.BYTES);
+        if (axis == Axis.ROWS) {
+            final double[] result = new double[rows];
+            forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+                final double[] buffer = dense ? null : new double[cols];
+                for (int r = from; r < to; r++) {
+                    final double[] values = rowValues.row(r, buffer);
+                    result[r] = reduce(values, dense ? r * cols : 0, cols, operation, operator, identity);
+                }
+            });
+            return result;
+        }
+        final double[][] partials = new double[Parallel.chunkCount(rows, chunkSize)][];
+        forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+            final double[] buffer = dense ? null : new double[cols];
+            final double[] partial = new double[cols];
+            Arrays.fill(partial, identity);
+            for (int r = from; r < to; r++) {
+                final double[] values = rowValues.row(r, buffer);
+                accumulate(partial, values, dense ? r * cols : 0, operation, operator);
+            }
+            partials[chunk] = partial;
+        });
+        final double[] result = new double[cols];
+        Arrays.fill(result, identity);
+        for (final double[] partial : partials) {
+            accumulate(result, partial, 0, operation, operator);
+        }
+        return result;
+    }
+
+    /**
+     * Sums up rows or columns with the given summation algorithm.  Column sums of every chunk of rows are computed
+     * with one sum and one compensation term per column;  the partial results of all chunks are then combined per
+     * column by the summation mode.
+     */
+    static double[] sum(final DoubleMatrix matrix, final Axis axis, final SummationMode mode,
+                        final ForkJoinPool pool) {
+        if (Objects.requireNonNull(mode) == SummationMode.NAIVE) {
+            return reduce(matrix, axis, SUM, null, 0d, pool);
+        }
+        Objects.requireNonNull(axis);
+        final int rows = matrix.nRows();
+        final int cols = matrix.nColumns();
+        final boolean dense = matrix instanceof DenseDoubleMatrix;
+        final DoubleRows rowValues = rowValues(matrix);
+        final int chunkSize = rowChunkSize(pool, rows, cols, Double.BYTES);
+        if (axis == Axis.ROWS) {
+            final double[] result = new double[rows];
+            forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+                final double[] buffer = dense ? null : new double[cols];
+                for (int r = from; r < to; r++) {
+                    final double[] values = rowValues.row(r, buffer);
+                    final int offset = dense ? r * cols : 0;
+                    result[r] = mode.sum(values, offset, offset + cols);
+                }
+            });
+            return result;
+        }
+        final int chunks = Parallel.chunkCount(rows, chunkSize);
+        final double[][] sums = new double[chunks][];
+        final double[][] compensations = new double[chunks][];
+        forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+            final double[] buffer = dense ? null : new double[cols];
+            if (mode == SummationMode.KAHAN) {
+                final double[] sum = new double[cols];
+                final double[] compensation = new double[cols];
+                for (int r = from; r < to; r++) {
+                    final double[] values = rowValues.row(r, buffer);
+                    final int offset = dense ? r * cols : 0;
+                    for (int c = 0; c < cols; c++) {
+                        final double value = values[offset + c];
+                        final double t = sum[c] + value;
+                        compensation[c] += Math.abs(sum[c]) >= Math.abs(value) ?
+                                (sum[c] - t) + value : (value - t) + sum[c];
+                        sum[c] = t;
+                    }
+                }
+                sums[chunk] = sum;
+                compensations[chunk] = compensation;
+            } else {
+                sums[chunk] = pairwiseColumnSums(rowValues, dense, cols, from, to, buffer);
+                compensations[chunk] = new double[cols];
+            }
+        });
+        final double[] result = new double[cols];
+        final double[] partials = new double[2 * chunks];
+        for (int c = 0; c < cols; c++) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                partials[2 * chunk] = sums[chunk][c];
+                partials[2 * chunk + 1] = compensations[chunk][c];
+            }
+            result[c] = mode.combine(partials, chunks);
+        }
+        return result;
+    }
+
+    /**
+     * Sums up the rows {@code [from, to)} by recursively splitting them into halves, and blocks of up to
+     * {@link SummationMode#PAIRWISE_BLOCK} rows with a plain loop.
+     */
+    private static double[] pairwiseColumnSums(final DoubleRows rowValues, final boolean dense, final int cols,
+                                               final int from, final int to, final double[] buffer) {
+        if (to - from <= SummationMode.PAIRWISE_BLOCK) {
+            final double[] sum = new double[cols];
+            for (int r = from; r < to; r++) {
+                accumulate(sum, rowValues.row(r, buffer), dense ? r * cols : 0, SUM, null);
+            }
+            return sum;
+        }
+        final int mid = (from + to) >>> 1;
+        final double[] sum = pairwiseColumnSums(rowValues, dense, cols, from, mid, buffer);
+        accumulate(sum, pairwiseColumnSums(rowValues, dense, cols, mid, to, buffer), 0, SUM, null);
+        return sum;
+    }
+
+    static int[] arg(final DoubleMatrix matrix, final Axis axis, final boolean max, final ForkJoinPool pool) {
+        Objects.requireNonNull(axis);
+        final int rows = matrix.nRows();
+        final int cols = matrix.nColumns();
+        final boolean dense = matrix instanceof DenseDoubleMatrix;
+        final DoubleRows rowValues = rowValues(matrix);
+        final int chunkSize = rowChunkSize(pool, rows, cols, Double.BYTES);
+        if (axis == Axis.ROWS) {
+            final int[] result = new int[rows];
+            forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+                final double[] buffer = dense ? null : new double[cols];
+                for (int r = from; r < to; r++) {
+                    final double[] values = rowValues.row(r, buffer);
+                    final int offset = dense ? r * cols : 0;
+                    int best = -1;
+                    for (int c = 0; c < cols; c++) {
+                        if (best < 0 || isBetter(values[offset + c], values[offset + best], max)) {
+                            best = c;
+                        }
+                    }
+                    result[r] = best;
+                }
+            });
+            return result;
+        }
+        final int chunks = Parallel.chunkCount(rows, chunkSize);
+        final double[][] bestValues = new double[chunks][];
+        final int[][] bestIndices = new int[chunks][];
+        forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+            final double[] buffer = dense ? null : new double[cols];
+            final double[] best = new double[cols];
+            final int[] index = new int[cols];
+            Arrays.fill(index, -1);
+            for (int r = from; r < to; r++) {
+                final double[] values = rowValues.row(r, buffer);
+                final int offset = dense ? r * cols : 0;
+                for (int c = 0; c < cols; c++) {
+                    if (index[c] < 0 || isBetter(values[offset + c], best[c], max)) {
+                        best[c] = values[offset + c];
+                        index[c] = r;
+                    }
+                }
+            }
+            bestValues[chunk] = best;
+            bestIndices[chunk] = index;
+        });
+        final double[] best = new double[cols];
+        final int[] result = new int[cols];
+        Arrays.fill(result, -1);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            for (int c = 0; c < cols; c++) {
+                if (result[c] < 0 || isBetter(bestValues[chunk][c], best[c], max)) {
+                    best[c] = bestValues[chunk][c];
+                    result[c] = bestIndices[chunk][c];
+                }
+            }
+        }
+        return result;
+    }
+
+    static long[] reduce(final IntMatrix matrix, final Axis axis, final int operation,
+                         final LongBinaryOperator operator, final long identity, final ForkJoinPool pool) {
+        if (operation == SUM && matrix instanceof SparseIntMatrix) {
+            final long[] result = new long[axis.resultLength(matrix.nRows(), matrix.nColumns())];
+            matrix.forEachNonZero((row, column, value) -> result[axis == Axis.ROWS ? row : column] += value);
+            return result;
+        }
+        return reduce(matrix.nRows(), matrix.nColumns(), rowValues(matrix), false, axis, operation, operator,
+                identity, pool);
+    }
+
+    static long[] reduce(final LongMatrix matrix, final Axis axis, final int operation,
+                         final LongBinaryOperator operator, final long identity, final ForkJoinPool pool) {
+        return reduce(matrix.nRows(), matrix.nColumns(), rowValues(matrix), matrix instanceof DenseLongMatrix, axis,
+                operation, operator, identity, pool);
+    }
+
+    static int[] arg(final IntMatrix matrix, final Axis axis, final boolean max, final ForkJoinPool pool) {
+        return arg(matrix.nRows(), matrix.nColumns(), rowValues(matrix), false, axis, max, pool);
+    }
+
+    static int[] arg(final LongMatrix matrix, final Axis axis, final boolean max, final ForkJoinPool pool) {
+        return arg(matrix.nRows(), matrix.nColumns(), rowValues(matrix), matrix instanceof DenseLongMatrix, axis,
+                max, pool);
+    }
+
+    private static long[] reduce(final int rows, final int cols, final LongRows rowValues, final boolean dense,
+                                 final Axis axis, final int operation, final LongBinaryOperator operator,
+                                 final long identity, final ForkJoinPool pool) {
+        Objects.requireNonNull(axis);
+        final int chunkSize = rowChunkSize(pool, rows, cols, Long.BYTES);
+        if (axis == Axis.ROWS) {
+            final long[] result = new long[rows];
+            forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+                final long[] buffer = dense ? null : new long[cols];
+                for (int r = from; r < to; r++) {
+                    final long[] values = rowValues.row(r, buffer);
+                    result[r] = reduce(values, dense ? r * cols : 0, cols, operation, operator, identity);
+                }
+            });
+            return result;
+        }
+        final long[][] partials = new long[Parallel.chunkCount(rows, chunkSize)][];
+        forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+            final long[] buffer = dense ? null : new long[cols];
+            final long[] partial = new long[cols];
+            Arrays.fill(partial, identity);
+            for (int r = from; r < to; r++) {
+                final long[] values = rowValues.row(r, buffer);
+                accumulate(partial, values, dense ? r * cols : 0, operation, operator);
+            }
+            partials[chunk] = partial;
+        });
+        final long[] result = new long[cols];
+        Arrays.fill(result, identity);
+        for (final long[] partial : partials) {
+            accumulate(result, partial, 0, operation, operator);
+        }
+        return result;
+    }
+
+    private static int[] arg(final int rows, final int cols, final LongRows rowValues, final boolean dense,
+                             final Axis axis, final boolean max, final ForkJoinPool pool) {
+        Objects.requireNonNull(axis);
+        final int chunkSize = rowChunkSize(pool, rows, cols, Long.BYTES);
+        if (axis == Axis.ROWS) {
+            final int[] result = new int[rows];
+            forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+                final long[] buffer = dense ? null : new long[cols];
+                for (int r = from; r < to; r++) {
+                    final long[] values = rowValues.row(r, buffer);
+                    final int offset = dense ? r * cols : 0;
+                    int best = -1;
+                    for (int c = 0; c < cols; c++) {
+                        if (best < 0 || (max ? values[offset + c] > values[offset + best] :
+                                values[offset + c] < values[offset + best])) {
+                            best = c;
+                        }
+                    }
+                    result[r] = best;
+                }
+            });
+            return result;
+        }
+        final int chunks = Parallel.chunkCount(rows, chunkSize);
+        final long[][] bestValues = new long[chunks][];
+        final int[][] bestIndices = new int[chunks][];
+        forEachChunk(pool, rows, chunkSize, (chunk, from, to) -> {
+            final long[] buffer = dense ? null : new long[cols];
+            final long[] best = new long[cols];
+            final int[] index = new int[cols];
+            Arrays.fill(index, -1);
+            for (int r = from; r < to; r++) {
+                final long[] values = rowValues.row(r, buffer);
+                final int offset = dense ? r * cols : 0;
+                for (int c = 0; c < cols; c++) {
+                    final long value = values[offset + c];
+                    if (index[c] < 0 || (max ? value > best[c] : value < best[c])) {
+                        best[c] = value;
+                        index[c] = r;
+                    }
+                }
+            }
+            bestValues[chunk] = best;
+            bestIndices[chunk] = index;
+        });
+        final long[] best = new long[cols];
+        final int[] result = new int[cols];
+        Arrays.fill(result, -1);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            for (int c = 0; c < cols; c++) {
+                final long value = bestValues[chunk][c];
+                if (result[c] < 0 || (max ? value > best[c] : value < best[c])) {
+                    best[c] = value;
+                    result[c] = bestIndices[chunk][c];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if value is better than best;  the first NaN value is better than all other values, consistent
+     * with NaN propagation of {@link Math#min(double, double)} and {@link Math#max(double, double)}.
+     */
+    private static boolean isBetter(final double value, final double best, final boolean max) {
+        if (Double.isNaN(best)) {
+            return false;
+        }
+        return Double.isNaN(value) || (max ? value > best : value < best);
+    }
+
+    private static double reduce(final double[] values, final int offset, final int length, final int operation,
+                                 final DoubleBinaryOperator operator, final double identity) {
+        double result = identity;
+        final int end = offset + length;
+        switch (operation) {
+            case SUM:
+                for (int i = offset; i < end; i++) {
+                    result += values[i];
+                }
+                return result;
+            case MIN:
+                for (int i = offset; i < end; i++) {
+                    result = Math.min(result, values[i]);
+                }
+                return result;
+            case MAX:
+                for (int i = offset; i < end; i++) {
+                    result = Math.max(result, values[i]);
+                }
+                return result;
+            default:
+                for (int i = offset; i < end; i++) {
+                    result = operator.applyAsDouble(result, values[i]);
+                }
+                return result;
+        }
+    }
+
+    private static void accumulate(final double[] result, final double[] values, final int offset,
+                                   final int operation, final DoubleBinaryOperator operator) {
+        switch (operation) {
+            case SUM:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] += values[offset + i];
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = Math.min(result[i], values[offset + i]);
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = Math.max(result[i], values[offset + i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = operator.applyAsDouble(result[i], values[offset + i]);
+                }
+                break;
+        }
+    }
+
+    private static long reduce(final long[] values, final int offset, final int length, final int operation,
+                               final LongBinaryOperator operator, final long identity) {
+        long result = identity;
+        final int end = offset + length;
+        switch (operation) {
+            case SUM:
+                for (int i = offset; i < end; i++) {
+                    result += values[i];
+                }
+                return result;
+            case MIN:
+                for (int i = offset; i < end; i++) {
+                    result = Math.min(result, values[i]);
+                }
+                return result;
+            case MAX:
+                for (int i = offset; i < end; i++) {
+                    result = Math.max(result, values[i]);
+                }
+                return result;
+            default:
+                for (int i = offset; i < end; i++) {
+                    result = operator.applyAsLong(result, values[i]);
+                }
+                return result;
+        }
+    }
+
+    private static void accumulate(final long[] result, final long[] values, final int offset,
+                                   final int operation, final LongBinaryOperator operator) {
+        switch (operation) {
+            case SUM:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] += values[offset + i];
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = Math.min(result[i], values[offset + i]);
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = Math.max(result[i], values[offset + i]);
+                }
+                break;
+            default:
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = operator.applyAsLong(result[i], values[offset + i]);
+                }
+                break;
+        }
+    }
+
+    private static DoubleRows rowValues(final DoubleMatrix matrix) {
+        if (matrix instanceof DenseDoubleMatrix) {
+            final double[] values = ((DenseDoubleMatrix)matrix).values;
+            return (row, buffer) -> values;
+        }
+        return (row, buffer) -> {
+            for (int c = 0; c < buffer.length; c++) {
+                buffer[c] = matrix.valueAsDouble(row, c);
+            }
+            return buffer;
+        };
+    }
+
+    private static LongRows rowValues(final IntMatrix matrix) {
+        if (matrix instanceof DenseIntMatrix) {
+            final int[] values = ((DenseIntMatrix)matrix).values;
+            return (row, buffer) -> {
+                final int offset = row * buffer.length;
+                for (int c = 0; c < buffer.length; c++) {
+                    buffer[c] = values[offset + c];
+                }
+                return buffer;
+            };
+        }
+        return (row, buffer) -> {
+            for (int c = 0; c < buffer.length; c++) {
+                buffer[c] = matrix.valueAsInt(row, c);
+            }
+            return buffer;
+        };
+    }
+
+    private static LongRows rowValues(final LongMatrix matrix) {
+        if (matrix instanceof DenseLongMatrix) {
+            final long[] values = ((DenseLongMatrix)matrix).values;
+            return (row, buffer) -> values;
+        }
+        return (row, buffer) -> {
+            for (int c = 0; c < buffer.length; c++) {
+                buffer[c] = matrix.valueAsLong(row, c);
+            }
+            return buffer;
+        };
+    }
+
+    private static int rowChunkSize(final ForkJoinPool pool, final int rows, final int cols, final int elementBytes) {
+        return pool == null ? Math.max(1, rows) : Parallel.rowChunkSize(pool, rows, cols, elementBytes);
+    }
+
+    private static void forEachChunk(final ForkJoinPool pool, final int length, final int chunkSize,
+                                     final Parallel.ChunkAction action) {
+        if (pool == null) {
+            if (length > 0) {
+                action.apply(0, 0, length);
+            }
+            return;
+        }
+        Parallel.forEachChunk(pool, length, chunkSize, action);
+    }
+
+    static DoubleVector mean(final DoubleVector sums, final int count) {
+        final double[] means = new double[sums.nElements()];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = sums.valueAsDouble(i) / count;
+        }
+        return DoubleVector.create(means);
+    }
+
+    static DoubleVector mean(final LongVector sums, final int count) {
+        final double[] means = new double[sums.nElements()];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = (double)sums.valueAsLong(i) / count;
+        }
+        return DoubleVector.create(means);
+    }
+
+    static int[] toInt(final long[] values) {
+        final int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (int)values[i];
+        }
+        return result;
+    }
+
+    private Reduce() {
+        throw new RuntimeException("No Reduce for you!");
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.EntryConsumer;
+import org.tools4j.matmax.indexed.Bool2D;
+import org.tools4j.matmax.vector.BoolVector;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sparse boolean matrix in compressed sparse row (CSR) or compressed sparse column (CSC) storage, depending on the
+ * {@link #layout() layout}.  Only the positions of {@code true} values are stored;  the stored minor indices of every
+ * major row or column are sorted, hence single values are looked up with a binary search.
+ * <p>
+ * Instances are created from coordinates via {@link #builder(int, int)} or
+ * {@link #create(int, int, Layout, int[], int[])}, or by {@link #copyOf(BoolMatrix, Layout) copying} any boolean
+ * matrix.
+ */
+public final class SparseBoolMatrix implements BoolMatrix {
+
+    private final int rows;
+    private final int cols;
+    private final Layout layout;
+    final int[] pointers;
+    final int[] indices;
+
+    SparseBoolMatrix(final int rows, final int cols, final Layout layout, final int[] pointers, final int[] indices) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.pointers = pointers;
+        this.indices = indices;
+    }
+
+    public static SparseBoolMatrix create(final int rows, final int cols, final Layout layout,
+                                          final int[] rowIndices, final int[] colIndices) {
+        return create(rows, cols, layout, rowIndices, colIndices, rowIndices.length);
+    }
+
+    /**
+     * Creates a sparse matrix with {@code true} values at the first {@code count} coordinates given by the two index
+     * arrays.  Duplicate coordinates are ignored.
+     *
+     * @param rows          the number of rows
+     * @param cols          the number of columns
+     * @param layout        the storage layout, CSR for row major and CSC for column major
+     * @param rowIndices    the row index of every true value
+     * @param colIndices    the column index of every true value
+     * @param count         the number of coordinates
+     * @return a new sparse matrix
+     * @throws IndexOutOfBoundsException if a coordinate is outside of the matrix
+     */
+    public static SparseBoolMatrix create(final int rows, final int cols, final Layout layout,
+                                          final int[] rowIndices, final int[] colIndices, final int count) {
+        SparseStructure.checkShape(rows, cols);
+        Objects.requireNonNull(layout);
+        SparseStructure.checkTriplets(rows, cols, rowIndices, colIndices, count, count);
+        final int nMajor = layout.nMajor(rows, cols);
+        final int[] majorIndices = layout == Layout.ROW_MAJOR ? rowIndices : colIndices;
+        final int[] minorIndices = layout == Layout.ROW_MAJOR ? colIndices : rowIndices;
+        final int[] order = SparseStructure.order(nMajor, layout.nMinor(rows, cols), majorIndices, minorIndices, count);
+        final int[] pointers = new int[nMajor + 1];
+        final int[] indices = new int[count];
+        int nnz = 0;
+        for (int position = 0; position < count; ) {
+            final int triplet = order[position];
+            pointers[majorIndices[triplet] + 1]++;
+            indices[nnz++] = minorIndices[triplet];
+            position = SparseStructure.endOfDuplicates(order, position, count, majorIndices, minorIndices);
+        }
+        SparseStructure.accumulate(pointers);
+        return new SparseBoolMatrix(rows, cols, layout, pointers, Arrays.copyOf(indices, nnz));
+    }
+
+    public static SparseBoolMatrix copyOf(final BoolMatrix matrix) {
+        return copyOf(matrix, Layout.ROW_MAJOR);
+    }
+
+    public static SparseBoolMatrix copyOf(final BoolMatrix matrix, final Layout layout) {
+        if (matrix instanceof SparseBoolMatrix) {
+            return ((SparseBoolMatrix)matrix).toLayout(layout);
+        }
+        final Builder builder = builder(matrix.nRows(), matrix.nColumns());
+        matrix.forEachTrue(builder::add);
+        return builder.build(layout);
+    }
+
+    public static Builder builder(final int rows, final int cols) {
+        return new Builder(rows, cols);
+    }
+
+    /**
+     * Collects the coordinates of the true values of a sparse matrix.
+     */
+    public static final class Builder {
+        private final int rows;
+        private final int cols;
+        private int[] rowIndices = new int[16];
+        private int[] colIndices = new int[16];
+        private int count;
+
+        private Builder(final int rows, final int cols) {
+            SparseStructure.checkShape(rows, cols);
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        public Builder add(final int row, final int column) {
+            if (row < 0 | row >= rows | column < 0 | column >= cols) {
+                throw new IndexOutOfBoundsException("Triplet (" + row + ", " + column + ") is outside of " + rows +
+                        "x" + cols + " matrix");
+            }
+            rowIndices = SparseStructure.grow(rowIndices, count + 1);
+            colIndices = SparseStructure.grow(colIndices, count + 1);
+            rowIndices[count] = row;
+            colIndices[count] = column;
+            count++;
+            return this;
+        }
+
+        public SparseBoolMatrix build() {
+            return build(Layout.ROW_MAJOR);
+        }
+
+        public SparseBoolMatrix build(final Layout layout) {
+            return create(rows, cols, layout, rowIndices, colIndices, count);
+        }
+    }
+
+    @Override
+    public Layout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of stored true values.
+     */
+    public int nNonZeros() {
+        return indices.length;
+    }
+
+    /**
+     * Returns this matrix if it has the given layout, otherwise a copy of this matrix in the given layout.
+     */
+    public SparseBoolMatrix toLayout(final Layout layout) {
+        if (this.layout == Objects.requireNonNull(layout)) {
+            return this;
+        }
+        final int[] majorIndices = SparseStructure.expand(pointers);
+        return this.layout == Layout.ROW_MAJOR ?
+                create(rows, cols, layout, majorIndices, indices) :
+                create(rows, cols, layout, indices, majorIndices);
+    }
+
+    /**
+     * Returns the transpose of this matrix sharing the storage of this matrix, that is, a CSR matrix is transposed
+     * into a CSC matrix and vice versa.
+     */
+    @Override
+    public SparseBoolMatrix transpose() {
+        return new SparseBoolMatrix(cols, rows, layout.transpose(), pointers, indices);
+    }
+
+    /**
+     * Returns a sparse matrix in the same layout with the given rows of this matrix, or empty rows for negative
+     * indices.  Rows of a CSC matrix are gathered in CSR layout, hence with two layout conversions.
+     */
+    SparseBoolMatrix gatherRows(final int[] rowIndices) {
+        if (layout == Layout.ROW_MAJOR) {
+            return gatherMajor(rowIndices.length, cols, rowIndices);
+        }
+        return toLayout(Layout.ROW_MAJOR).gatherRows(rowIndices).toLayout(Layout.COLUMN_MAJOR);
+    }
+
+    /**
+     * Returns a sparse matrix in the same layout with the given columns of this matrix.  Columns of a CSR matrix are
+     * gathered in CSC layout, hence with two layout conversions.
+     */
+    SparseBoolMatrix gatherColumns(final int[] colIndices) {
+        if (layout == Layout.COLUMN_MAJOR) {
+            return gatherMajor(rows, colIndices.length, colIndices);
+        }
+        return toLayout(Layout.COLUMN_MAJOR).gatherColumns(colIndices).toLayout(Layout.ROW_MAJOR);
+    }
+
+    private SparseBoolMatrix gatherMajor(final int newRows, final int newCols, final int[] majors) {
+        final int[] newPointers = Gather.pointers(pointers, majors);
+        final int nnz = newPointers[majors.length];
+        return new SparseBoolMatrix(newRows, newCols, layout, newPointers,
+                Gather.entries(indices, new int[nnz], pointers, majors, newPointers));
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public boolean valueAsBoolean(final int row, final int column) {
+        if (row < 0 | row >= rows | column < 0 | column >= cols) {
+            return false;
+        }
+        return layout == Layout.ROW_MAJOR ?
+                SparseStructure.find(pointers, indices, row, column) >= 0 :
+                SparseStructure.find(pointers, indices, column, row) >= 0;
+    }
+
+    @Override
+    public BoolVector row(final int row) {
+        return layout == Layout.ROW_MAJOR ? major(row, cols) : BoolMatrix.super.row(row);
+    }
+
+    @Override
+    public BoolVector column(final int col) {
+        return layout == Layout.COLUMN_MAJOR ? major(col, rows) : BoolVector.create(rows, row -> valueAsBoolean(row, col));
+    }
+
+    private BoolVector major(final int major, final int length) {
+        if (major < 0 | major >= pointers.length - 1) {
+            return BoolVector.create(length, index -> false);
+        }
+        final int from = pointers[major];
+        final int to = pointers[major + 1];
+        return BoolVector.create(length, index -> Arrays.binarySearch(indices, from, to, index) >= 0);
+    }
+
+    /**
+     * Performs the given action for every true value in storage order, that is, row by row for CSR and column by
+     * column for CSC matrices.
+     */
+    @Override
+    public void forEachTrue(final EntryConsumer action) {
+        final boolean rowMajor = layout == Layout.ROW_MAJOR;
+        for (int major = 0; major < pointers.length - 1; major++) {
+            for (int i = pointers[major]; i < pointers[major + 1]; i++) {
+                if (rowMajor) {
+                    action.accept(major, indices[i]);
+                } else {
+                    action.accept(indices[i], major);
+                }
+            }
+        }
+    }
+
+    @Override
+    public SparseBoolMatrix and(final Bool2D other) {
+        return filter(other, true);
+    }
+
+    @Override
+    public SparseBoolMatrix andNot(final Bool2D other) {
+        return filter(other, false);
+    }
+
+    private SparseBoolMatrix filter(final Bool2D other, final boolean keep) {
+        Objects.requireNonNull(other);
+        final boolean rowMajor = layout == Layout.ROW_MAJOR;
+        final int[] newPointers = new int[pointers.length];
+        final int[] newIndices = new int[indices.length];
+        int nnz = 0;
+        for (int major = 0; major < pointers.length - 1; major++) {
+            for (int i = pointers[major]; i < pointers[major + 1]; i++) {
+                final boolean value = rowMajor ?
+                        other.valueAsBoolean(major, indices[i]) : other.valueAsBoolean(indices[i], major);
+                if (value == keep) {
+                    newIndices[nnz++] = indices[i];
+                }
+            }
+            newPointers[major + 1] = nnz;
+        }
+        return new SparseBoolMatrix(rows, cols, layout, newPointers, Arrays.copyOf(newIndices, nnz));
+    }
+
+    @Override
+    public boolean[] toArray() {
+        final boolean[] array = new boolean[Math.multiplyExact(rows, cols)];
+        forEachTrue((row, column) -> array[row * cols + column] = true);
+        return array;
+    }
+
+    @Override
+    public boolean[] toArrayParallel(final ForkJoinPool pool) {
+        return toArray();
+    }
+
+    /**
+     * Returns this matrix as sparse matrices are immutable.  Use {@link BoolMatrix#create(int, int, boolean...)}
+     * with {@link #toArray()} to convert this matrix into a dense matrix.
+     */
+    @Override
+    public SparseBoolMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public SparseBoolMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof BoolMatrix) {
+            return Matrix.equals(this, (BoolMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "BoolMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -0,0 +1,380 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.function.DoubleEntryConsumer;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Sparse double matrix in compressed sparse row (CSR) or compressed sparse column (CSC) storage, depending on the
+ * {@link #layout() layout}.  Only non-zero values are stored;  the stored minor indices of every major row or column
+ * are sorted, hence single values are looked up with a binary search.
+ * <p>
+ * Instances are created from coordinate triplets via {@link #builder(int, int)} or
+ * {@link #create(int, int, Layout, int[], int[], double[])}, or by {@link #copyOf(DoubleMatrix, Layout) copying} any
+ * double matrix.
+ */
+public final class SparseDoubleMatrix implements DoubleMatrix {
+
+    private final int rows;
+    private final int cols;
+    private final Layout layout;
+    final int[] pointers;
+    final int[] indices;
+    final double[] values;
+
+    SparseDoubleMatrix(final int rows, final int cols, final Layout layout,
+                       final int[] pointers, final int[] indices, final double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    public static SparseDoubleMatrix create(final int rows, final int cols, final Layout layout,
+                                            final int[] rowIndices, final int[] colIndices, final double[] values) {
+        return create(rows, cols, layout, rowIndices, colIndices, values, values.length);
+    }
+
+    /**
+     * Creates a sparse matrix from the first {@code count} coordinate triplets given by the three arrays.  Values of
+     * duplicate triplets are summed up and zero values are not stored.
+     *
+     * @param rows          the number of rows
+     * @param cols          the number of columns
+     * @param layout        the storage layout, CSR for row major and CSC for column major
+     * @param rowIndices    the row index of every triplet
+     * @param colIndices    the column index of every triplet
+     * @param values        the value of every triplet
+     * @param count         the number of triplets
+     * @return a new sparse matrix
+     * @throws IndexOutOfBoundsException if a triplet is outside of the matrix
+     */
+    public static SparseDoubleMatrix create(final int rows, final int cols, final Layout layout,
+                                            final int[] rowIndices, final int[] colIndices, final double[] values,
+                                            final int count) {
+        SparseStructure.checkShape(rows, cols);
+        Objects.requireNonNull(layout);
+        Objects.requireNonNull(values);
+        SparseStructure.checkTriplets(rows, cols, rowIndices, colIndices, values.length, count);
+        final int nMajor = layout.nMajor(rows, cols);
+        final int[] majorIndices = layout == Layout.ROW_MAJOR ? rowIndices : colIndices;
+        final int[] minorIndices = layout == Layout.ROW_MAJOR ? colIndices : rowIndices;
+        final int[] order = SparseStructure.order(nMajor, layout.nMinor(rows, cols), majorIndices, minorIndices, count);
+        final int[] pointers = new int[nMajor + 1];
+        final int[] indices = new int[count];
+        final double[] nonZeros = new double[count];
+        int nnz = 0;
+        for (int position = 0; position < count; ) {
+            final int end = SparseStructure.endOfDuplicates(order, position, count, majorIndices, minorIndices);
+            final int triplet = order[position];
+            double value = 0;
+            for (int i = position; i < end; i++) {
+                value += values[order[i]];
+            }
+            if (value != 0d) {
+                pointers[majorIndices[triplet] + 1]++;
+                indices[nnz] = minorIndices[triplet];
+                nonZeros[nnz] = value;
+                nnz++;
+            }
+            position = end;
+        }
+        SparseStructure.accumulate(pointers);
+        return new SparseDoubleMatrix(rows, cols, layout, pointers,
+                Arrays.copyOf(indices, nnz), Arrays.copyOf(nonZeros, nnz));
+    }
+
+    public static SparseDoubleMatrix copyOf(final DoubleMatrix matrix) {
+        return copyOf(matrix, Layout.ROW_MAJOR);
+    }
+
+    public static SparseDoubleMatrix copyOf(final DoubleMatrix matrix, final Layout layout) {
+        if (matrix instanceof SparseDoubleMatrix) {
+            return ((SparseDoubleMatrix)matrix).toLayout(layout);
+        }
+        final Builder builder = builder(matrix.nRows(), matrix.nColumns());
+        matrix.forEachNonZero(builder::add);
+        return builder.build(layout);
+    }
+
+    public static Builder builder(final int rows, final int cols) {
+        return new Builder(rows, cols);
+    }
+
+    /**
+     * Collects coordinate triplets for a sparse matrix.
+     */
+    public static final class Builder {
+        private final int rows;
+        private final int cols;
+        private int[] rowIndices = new int[16];
+        private int[] colIndices = new int[16];
+        private double[] values = new double[16];
+        private int count;
+
+        private Builder(final int rows, final int cols) {
+            SparseStructure.checkShape(rows, cols);
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        /**
+         * Adds a triplet;  values added more than once for the same row and column are summed up.
+         */
+        public Builder add(final int row, final int column, final double value) {
+            if (row < 0 | row >= rows | column < 0 | column >= cols) {
+                throw new IndexOutOfBoundsException("Triplet (" + row + ", " + column + ") is outside of " + rows +
+                        "x" + cols + " matrix");
+            }
+            if (count == values.length) {
+                rowIndices = SparseStructure.grow(rowIndices, count + 1);
+                colIndices = SparseStructure.grow(colIndices, count + 1);
+                values = Arrays.copyOf(values, rowIndices.length);
+            }
+            rowIndices[count] = row;
+            colIndices[count] = column;
+            values[count] = value;
+            count++;
+            return this;
+        }
+
+        public SparseDoubleMatrix build() {
+            return build(Layout.ROW_MAJOR);
+        }
+
+        public SparseDoubleMatrix build(final Layout layout) {
+            return create(rows, cols, layout, rowIndices, colIndices, values, count);
+        }
+    }
+
+    @Override
+    public Layout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of stored entries.
+     */
+    public int nNonZeros() {
+        return values.length;
+    }
+
+    /**
+     * Returns this matrix if it has the given layout, otherwise a copy of this matrix in the given layout.
+     */
+    public SparseDoubleMatrix toLayout(final Layout layout) {
+        if (this.layout == Objects.requireNonNull(layout)) {
+            return this;
+        }
+        final int[] majorIndices = SparseStructure.expand(pointers);
+        return this.layout == Layout.ROW_MAJOR ?
+                create(rows, cols, layout, majorIndices, indices, values) :
+                create(rows, cols, layout, indices, majorIndices, values);
+    }
+
+    /**
+     * Returns the transpose of this matrix sharing the storage of this matrix, that is, a CSR matrix is transposed
+     * into a CSC matrix and vice versa.
+     */
+    @Override
+    public SparseDoubleMatrix transpose() {
+        return new SparseDoubleMatrix(cols, rows, layout.transpose(), pointers, indices, values);
+    }
+
+    /**
+     * Returns a sparse matrix in the same layout with the given rows of this matrix, or empty rows for negative
+     * indices.  Rows of a CSC matrix are gathered in CSR layout, hence with two layout conversions.
+     */
+    SparseDoubleMatrix gatherRows(final int[] rowIndices) {
+        if (layout == Layout.ROW_MAJOR) {
+            return gatherMajor(rowIndices.length, cols, rowIndices);
+        }
+        return toLayout(Layout.ROW_MAJOR).gatherRows(rowIndices).toLayout(Layout.COLUMN_MAJOR);
+    }
+
+    /**
+     * Returns a sparse matrix in the same layout with the given columns of this matrix.  Columns of a CSR matrix are
+     * gathered in CSC layout, hence with two layout conversions.
+     */
+    SparseDoubleMatrix gatherColumns(final int[] colIndices) {
+        if (layout == Layout.COLUMN_MAJOR) {
+            return gatherMajor(rows, colIndices.length, colIndices);
+        }
+        return toLayout(Layout.COLUMN_MAJOR).gatherColumns(colIndices).toLayout(Layout.ROW_MAJOR);
+    }
+
+    private SparseDoubleMatrix gatherMajor(final int newRows, final int newCols, final int[] majors) {
+        final int[] newPointers = Gather.pointers(pointers, majors);
+        final int nnz = newPointers[majors.length];
+        return new SparseDoubleMatrix(newRows, newCols, layout, newPointers,
+                Gather.entries(indices, new int[nnz], pointers, majors, newPointers),
+                Gather.entries(values, new double[nnz], pointers, majors, newPointers));
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public double valueAsDouble(final int row, final int column) {
+        if (row < 0 | row >= rows | column < 0 | column >= cols) {
+            return Double.NaN;
+        }
+        final int index = layout == Layout.ROW_MAJOR ?
+                SparseStructure.find(pointers, indices, row, column) :
+                SparseStructure.find(pointers, indices, column, row);
+        return index >= 0 ? values[index] : 0d;
+    }
+
+    @Override
+    public DoubleVector row(final int row) {
+        return layout == Layout.ROW_MAJOR ? major(row, cols) : DoubleMatrix.super.row(row);
+    }
+
+    @Override
+    public DoubleVector column(final int col) {
+        return layout == Layout.COLUMN_MAJOR ? major(col, rows) : DoubleVector.create(rows, row -> valueAsDouble(row, col));
+    }
+
+    private DoubleVector major(final int major, final int length) {
+        if (major < 0 | major >= pointers.length - 1) {
+            return DoubleVector.create(length, index -> Double.NaN);
+        }
+        final int from = pointers[major];
+        final int to = pointers[major + 1];
+        return DoubleVector.create(length, index -> {
+            if (index < 0 | index >= length) {
+                return Double.NaN;
+            }
+            final int position = Arrays.binarySearch(indices, from, to, index);
+            return position >= 0 ? values[position] : 0d;
+        });
+    }
+
+    /**
+     * Performs the given action for every stored entry in storage order, that is, row by row for CSR and column by
+     * column for CSC matrices.
+     */
+    @Override
+    public void forEachNonZero(final DoubleEntryConsumer action) {
+        final boolean rowMajor = layout == Layout.ROW_MAJOR;
+        for (int major = 0; major < pointers.length - 1; major++) {
+            for (int i = pointers[major]; i < pointers[major + 1]; i++) {
+                if (rowMajor) {
+                    action.accept(major, indices[i], values[i]);
+                } else {
+                    action.accept(indices[i], major, values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a sparse matrix with the same layout if {@code operator} maps zero to zero, and the lazy default
+     * otherwise.
+     */
+    @Override
+    public DoubleMatrix applyToEach(final DoubleUnaryOperator operator) {
+        if (operator.applyAsDouble(0d) != 0d) {
+            return DoubleMatrix.super.applyToEach(operator);
+        }
+        final int[] newPointers = new int[pointers.length];
+        final int[] newIndices = new int[indices.length];
+        final double[] newValues = new double[values.length];
+        int nnz = 0;
+        for (int major = 0; major < pointers.length - 1; major++) {
+            for (int i = pointers[major]; i < pointers[major + 1]; i++) {
+                final double value = operator.applyAsDouble(values[i]);
+                if (value != 0d) {
+                    newIndices[nnz] = indices[i];
+                    newValues[nnz] = value;
+                    nnz++;
+                }
+            }
+            newPointers[major + 1] = nnz;
+        }
+        return new SparseDoubleMatrix(rows, cols, layout, newPointers,
+                Arrays.copyOf(newIndices, nnz), Arrays.copyOf(newValues, nnz));
+    }
+
+    @Override
+    public double[] toArray() {
+        final double[] array = new double[Math.multiplyExact(rows, cols)];
+        forEachNonZero((row, column, value) -> array[row * cols + column] = value);
+        return array;
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return toArray();
+    }
+
+    /**
+     * Returns this matrix as sparse matrices are immutable.  Use {@link DoubleMatrix#create(int, int, double...)}
+     * with {@link #toArray()} to convert this matrix into a dense matrix.
+     */
+    @Override
+    public SparseDoubleMatrix materialize() {
+        return this;
+    }
+
+    @Override
+    public SparseDoubleMatrix materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof DoubleMatrix) {
+            return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Matrix-vector and matrix-matrix product kernels with one sparse operand.  All kernels run in time proportional to
+ * the number of stored entries of the sparse operand times the number of dense columns involved.
+ * <p>
+ * CSR kernels partition the stored entries into chunks of equal size and let every chunk compute the rows that start
+ * within the chunk.  The work is hence balanced by non-zero count and not by row count, and no two tasks write to the
+ * same result row.
+ */
+final class SparseMultiply {
+
+    /**
+     * Computes {@code y = a * x} for a CSR matrix {@code a}.
+     */
+    static void csrTimesVector(final SparseDoubleMatrix a, final double[] x, final double[] y,
+                               final ForkJoinPool pool) {
+        final int[] pointers = a.pointers;
+        final int[] indices = a.indices;
+        final double[] values = a.values;
+        forEachRowChunk(pool, pointers, 1, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                double sum = 0;
+                for (int i = pointers[row]; i < pointers[row + 1]; i++) {
+                    sum += values[i] * x[indices[i]];
+                }
+                y[row] = sum;
+            }
+        });
+    }
+
+    /**
+     * Computes {@code y = a * x} for a CSC matrix {@code a} by scattering the scaled columns into {@code y}.
+     */
+    static void cscTimesVector(final SparseDoubleMatrix a, final double[] x, final double[] y) {
+        final int[] pointers = a.pointers;
+        final int[] indices = a.indices;
+        final double[] values = a.values;
+        Arrays.fill(y, 0d);
+        for (int col = 0; col < pointers.length - 1; col++) {
+            final double xj = x[col];
+            for (int i = pointers[col]; i < pointers[col + 1]; i++) {
+                y[indices[i]] += values[i] * xj;
+            }
+        }
+    }
+
+    /**
+     * Computes {@code c = a * b} for a CSR matrix {@code a} and a row-major {@code k x n} matrix {@code b}.
+     */
+    static void csrTimesDense(final SparseDoubleMatrix a, final int n, final double[] b, final double[] c,
+                              final ForkJoinPool pool) {
+        final int[] pointers = a.pointers;
+        final int[] indices = a.indices;
+        final double[] values = a.values;
+        forEachRowChunk(pool, pointers, n, (from, to) -> {
+            Arrays.fill(c, from * n, to * n, 0d);
+            for (int row = from; row < to; row++) {
+                final int cRow = row * n;
+                for (int i = pointers[row]; i < pointers[row + 1]; i++) {
+                    final double aip = values[i];
+                    final int bRow = indices[i] * n;
+                    for (int j = 0; j < n; j++) {
+                        c[cRow + j] += aip * b[bRow + j];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes {@code c = a * b} for a row-major {@code m x k} matrix {@code a} and a CSC matrix {@code b}.  Every
+     * result value is the dot product of a dense row and a sparse column;  rows of {@code c} are computed in parallel.
+     */
+    static void denseTimesCsc(final int m, final int k, final double[] a, final SparseDoubleMatrix b, final double[] c,
+                              final ForkJoinPool pool) {
+        final int[] pointers = b.pointers;
+        final int[] indices = b.indices;
+        final double[] values = b.values;
+        final int n = pointers.length - 1;
+        final int minRows = Math.max(1, Parallel.MIN_CHUNK_SIZE / Math.max(1, b.nNonZeros()));
+        Parallel.forEachChunk(pool, m, Parallel.chunkSize(pool, m, Double.BYTES, minRows), (chunk, from, to) -> {
+            for (int row = from; row < to; row++) {
+                final int aRow = row * k;
+                final int cRow = row * n;
+                for (int col = 0; col < n; col++) {
+                    double sum = 0;
+                    for (int i = pointers[col]; i < pointers[col + 1]; i++) {
+                        sum += a[aRow + indices[i]] * values[i];
+                    }
+                    c[cRow + col] = sum;
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowRangeAction {
+        void apply(int fromRow, int toRow);
+    }
+
+    /**
+     * Splits the stored entries of a CSR matrix into chunks and invokes the action with the rows starting in each
+     * chunk.  Rows after the last stored entry belong to the last chunk.
+     *
+     * @param weight the work per stored entry, used to determine the minimum chunk size
+     */
+    private static void forEachRowChunk(final ForkJoinPool pool, final int[] pointers, final int weight,
+                                        final RowRangeAction action) {
+        final int rows = pointers.length - 1;
+        final int nnz = pointers[rows];
+        if (nnz == 0) {
+            action.apply(0, rows);
+            return;
+        }
+        final int minChunkSize = Math.max(1, Parallel.MIN_CHUNK_SIZE / Math.max(1, weight));
+        Parallel.forEachChunk(pool, nnz, Parallel.chunkSize(pool, nnz, Double.BYTES, minChunkSize), (chunk, from, to) -> {
+            final int fromRow = from == 0 ? 0 : firstRowStartingAt(pointers, from);
+            final int toRow = to == nnz ? rows : firstRowStartingAt(pointers, to);
+            if (fromRow < toRow) {
+                action.apply(fromRow, toRow);
+            }
+        });
+    }
+
+    /**
+     * Returns the first row whose first stored entry is at or after the given position.
+     */
+    private static int firstRowStartingAt(final int[] pointers, final int position) {
+        int low = 0;
+        int high = pointers.length - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (pointers[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private SparseMultiply() {
+        throw new RuntimeException("No SparseMultiply for you!");
+    }
+}
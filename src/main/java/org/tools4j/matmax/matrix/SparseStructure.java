@@ -0,0 +1,132 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Helper to compress coordinate (COO) triplets into compressed sparse row or column storage.
+ */
+final class SparseStructure {
+
+    static void checkShape(final int rows, final int cols) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+    }
+
+    static void checkTriplets(final int rows, final int cols, final int[] rowIndices, final int[] colIndices,
+                              final int valueCount, final int count) {
+        Objects.requireNonNull(rowIndices);
+        Objects.requireNonNull(colIndices);
+        if (count < 0 | count > rowIndices.length | count > colIndices.length | count > valueCount) {
+            throw new IllegalArgumentException("Invalid triplet count " + count + " for " + rowIndices.length +
+                    " row indices, " + colIndices.length + " column indices and " + valueCount + " values");
+        }
+        for (int i = 0; i < count; i++) {
+            if (rowIndices[i] < 0 | rowIndices[i] >= rows | colIndices[i] < 0 | colIndices[i] >= cols) {
+                throw new IndexOutOfBoundsException("Triplet (" + rowIndices[i] + ", " + colIndices[i] +
+                        ") is outside of " + rows + "x" + cols + " matrix");
+            }
+        }
+    }
+
+    /**
+     * Returns the permutation of the first {@code count} triplets that orders them by major and then by minor index.
+     * Both passes are stable counting sorts, hence the complexity is {@code O(count + nMajor + nMinor)} and duplicate
+     * entries keep their original order.
+     */
+    static int[] order(final int nMajor, final int nMinor, final int[] majorIndices, final int[] minorIndices,
+                       final int count) {
+        final int[] byMinor = countingSort(nMinor, minorIndices, null, count);
+        return countingSort(nMajor, majorIndices, byMinor, count);
+    }
+
+    private static int[] countingSort(final int buckets, final int[] keys, final int[] input, final int count) {
+        final int[] next = new int[buckets + 1];
+        for (int i = 0; i < count; i++) {
+            next[keys[i] + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            next[b + 1] += next[b];
+        }
+        final int[] output = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int triplet = input == null ? i : input[i];
+            output[next[keys[triplet]]++] = triplet;
+        }
+        return output;
+    }
+
+    /**
+     * Returns the index of the first triplet in {@code order} after {@code position} with a different major or minor
+     * index than the triplet at {@code position}.
+     */
+    static int endOfDuplicates(final int[] order, final int position, final int count,
+                               final int[] majorIndices, final int[] minorIndices) {
+        final int triplet = order[position];
+        int end = position + 1;
+        while (end < count && majorIndices[order[end]] == majorIndices[triplet] &&
+                minorIndices[order[end]] == minorIndices[triplet]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Turns per-major entry counts stored at {@code pointers[major + 1]} into start pointers.
+     */
+    static void accumulate(final int[] pointers) {
+        for (int i = 1; i < pointers.length; i++) {
+            pointers[i] += pointers[i - 1];
+        }
+    }
+
+    /**
+     * Returns the position of {@code minor} in the given major slice of {@code indices}, or a negative value if the
+     * entry is not stored.
+     */
+    static int find(final int[] pointers, final int[] indices, final int major, final int minor) {
+        return Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+    }
+
+    /**
+     * Expands compressed pointers into one major index per stored entry.
+     */
+    static int[] expand(final int[] pointers) {
+        final int[] majorIndices = new int[pointers[pointers.length - 1]];
+        for (int major = 0; major < pointers.length - 1; major++) {
+            Arrays.fill(majorIndices, pointers[major], pointers[major + 1], major);
+        }
+        return majorIndices;
+    }
+
+    static int[] grow(final int[] array, final int minLength) {
+        return array.length >= minLength ? array : Arrays.copyOf(array, Math.max(minLength, 2 * array.length));
+    }
+
+    private SparseStructure() {
+        throw new RuntimeException("No SparseStructure for you!");
+    }
+}
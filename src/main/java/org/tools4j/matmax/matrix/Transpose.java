@@ -0,0 +1,721 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.tools4j.matmax.parallel.Parallel;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helper for transposed views and their materialization.  Dense and other row-major sources are transposed with a
+ * cache-oblivious traversal which recursively halves the larger dimension until a block fits into the L1 cache,
+ * hence source and target are both accessed in cache friendly blocks without tuning the block size to the matrix.
+ * Column-major sources are copied in storage order.  Methods taking a nullable pool run serially if no pool is
+ * provided.
+ */
+final class Transpose {
+
+    /** Maximum number of values in a block transposed with simple loops */
+    private static final int BLOCK_ELEMENTS = 1024;
+
+    private static void forEachChunk(final ForkJoinPool pool, final int rows, final int cols, final int elementBytes,
+                                     final Parallel.ChunkAction action) {
+        if (pool == null) {
+            if (rows > 0) {
+                action.apply(0, 0, rows);
+            }
+            return;
+        }
+        Parallel.forEachChunk(pool, rows, Parallel.rowChunkSize(pool, rows, cols, elementBytes), action);
+    }
+
+    static DoubleMatrix view(final DoubleMatrix source) {
+        return new DoubleMatrix() {
+            @Override
+            public int nRows() {
+                return source.nColumns();
+            }
+
+            @Override
+            public int nColumns() {
+                return source.nRows();
+            }
+
+            @Override
+            public double valueAsDouble(final int row, final int column) {
+                return source.valueAsDouble(column, row);
+            }
+
+            @Override
+            public Layout layout() {
+                return source.layout().transpose();
+            }
+
+            @Override
+            public DoubleVector row(final int row) {
+                return source.column(row);
+            }
+
+            @Override
+            public DoubleVector column(final int col) {
+                return source.row(col);
+            }
+
+            @Override
+            public DoubleMatrix transpose() {
+                return source;
+            }
+
+            @Override
+            public double[] toArray() {
+                return copy(source, null).values;
+            }
+
+            @Override
+            public double[] toArrayParallel(final ForkJoinPool pool) {
+                return copy(source, pool).values;
+            }
+
+            @Override
+            public DoubleMatrix materialize() {
+                return copy(source, null);
+            }
+
+            @Override
+            public DoubleMatrix materializeParallel(final ForkJoinPool pool) {
+                return copy(source, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof DoubleMatrix) {
+                    return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "DoubleMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns a new dense matrix with the transposed values of source.
+     */
+    static DenseDoubleMatrix copy(final DoubleMatrix source, final ForkJoinPool pool) {
+        final int rows = source.nRows();
+        final int cols = source.nColumns();
+        final double[] values = source instanceof DenseDoubleMatrix ? ((DenseDoubleMatrix)source).values : null;
+        final boolean columnMajor = values == null && source.layout() == Layout.COLUMN_MAJOR;
+        final double[] target = new double[Math.multiplyExact(rows, cols)];
+        forEachChunk(pool, cols, rows, Double.BYTES, (chunk, from, to) -> {
+            if (columnMajor) {
+                for (int c = from; c < to; c++) {
+                    final int offset = c * rows;
+                    for (int r = 0; r < rows; r++) {
+                        target[offset + r] = source.valueAsDouble(r, c);
+                    }
+                }
+            } else {
+                transpose(source, values, rows, cols, target, 0, rows, from, to);
+            }
+        });
+        return new DenseDoubleMatrix(cols, rows, target);
+    }
+
+    private static void transpose(final DoubleMatrix source, final double[] values, final int rows,
+                                  final int cols, final double[] target, final int rowFrom, final int rowTo,
+                                  final int colFrom, final int colTo) {
+        final int nRows = rowTo - rowFrom;
+        final int nCols = colTo - colFrom;
+        if (nRows * (long)nCols <= BLOCK_ELEMENTS) {
+            for (int c = colFrom; c < colTo; c++) {
+                final int offset = c * rows;
+                if (values != null) {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = values[r * cols + c];
+                    }
+                } else {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = source.valueAsDouble(r, c);
+                    }
+                }
+            }
+        } else if (nRows >= nCols) {
+            final int mid = (rowFrom + rowTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, mid, colFrom, colTo);
+            transpose(source, values, rows, cols, target, mid, rowTo, colFrom, colTo);
+        } else {
+            final int mid = (colFrom + colTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, colFrom, mid);
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, mid, colTo);
+        }
+    }
+
+    static LongMatrix view(final LongMatrix source) {
+        return new LongMatrix() {
+            @Override
+            public int nRows() {
+                return source.nColumns();
+            }
+
+            @Override
+            public int nColumns() {
+                return source.nRows();
+            }
+
+            @Override
+            public long valueAsLong(final int row, final int column) {
+                return source.valueAsLong(column, row);
+            }
+
+            @Override
+            public Layout layout() {
+                return source.layout().transpose();
+            }
+
+            @Override
+            public LongVector row(final int row) {
+                return source.column(row);
+            }
+
+            @Override
+            public LongVector column(final int col) {
+                return source.row(col);
+            }
+
+            @Override
+            public LongMatrix transpose() {
+                return source;
+            }
+
+            @Override
+            public long[] toArray() {
+                return copy(source, null).values;
+            }
+
+            @Override
+            public long[] toArrayParallel(final ForkJoinPool pool) {
+                return copy(source, pool).values;
+            }
+
+            @Override
+            public LongMatrix materialize() {
+                return copy(source, null);
+            }
+
+            @Override
+            public LongMatrix materializeParallel(final ForkJoinPool pool) {
+                return copy(source, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof LongMatrix) {
+                    return Matrix.equals(this, (LongMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "LongMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns a new dense matrix with the transposed values of source.
+     */
+    static DenseLongMatrix copy(final LongMatrix source, final ForkJoinPool pool) {
+        final int rows = source.nRows();
+        final int cols = source.nColumns();
+        final long[] values = source instanceof DenseLongMatrix ? ((DenseLongMatrix)source).values : null;
+        final boolean columnMajor = values == null && source.layout() == Layout.COLUMN_MAJOR;
+        final long[] target = new long[Math.multiplyExact(rows, cols)];
+        forEachChunk(pool, cols, rows, Long.BYTES, (chunk, from, to) -> {
+            if (columnMajor) {
+                for (int c = from; c < to; c++) {
+                    final int offset = c * rows;
+                    for (int r = 0; r < rows; r++) {
+                        target[offset + r] = source.valueAsLong(r, c);
+                    }
+                }
+            } else {
+                transpose(source, values, rows, cols, target, 0, rows, from, to);
+            }
+        });
+        return new DenseLongMatrix(cols, rows, target);
+    }
+
+    private static void transpose(final LongMatrix source, final long[] values, final int rows,
+                                  final int cols, final long[] target, final int rowFrom, final int rowTo,
+                                  final int colFrom, final int colTo) {
+        final int nRows = rowTo - rowFrom;
+        final int nCols = colTo - colFrom;
+        if (nRows * (long)nCols <= BLOCK_ELEMENTS) {
+            for (int c = colFrom; c < colTo; c++) {
+                final int offset = c * rows;
+                if (values != null) {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = values[r * cols + c];
+                    }
+                } else {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = source.valueAsLong(r, c);
+                    }
+                }
+            }
+        } else if (nRows >= nCols) {
+            final int mid = (rowFrom + rowTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, mid, colFrom, colTo);
+            transpose(source, values, rows, cols, target, mid, rowTo, colFrom, colTo);
+        } else {
+            final int mid = (colFrom + colTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, colFrom, mid);
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, mid, colTo);
+        }
+    }
+
+    static IntMatrix view(final IntMatrix source) {
+        return new IntMatrix() {
+            @Override
+            public int nRows() {
+                return source.nColumns();
+            }
+
+            @Override
+            public int nColumns() {
+                return source.nRows();
+            }
+
+            @Override
+            public int valueAsInt(final int row, final int column) {
+                return source.valueAsInt(column, row);
+            }
+
+            @Override
+            public Layout layout() {
+                return source.layout().transpose();
+            }
+
+            @Override
+            public IntVector row(final int row) {
+                return source.column(row);
+            }
+
+            @Override
+            public IntVector column(final int col) {
+                return source.row(col);
+            }
+
+            @Override
+            public IntMatrix transpose() {
+                return source;
+            }
+
+            @Override
+            public int[] toArray() {
+                return copy(source, null).values;
+            }
+
+            @Override
+            public int[] toArrayParallel(final ForkJoinPool pool) {
+                return copy(source, pool).values;
+            }
+
+            @Override
+            public IntMatrix materialize() {
+                return copy(source, null);
+            }
+
+            @Override
+            public IntMatrix materializeParallel(final ForkJoinPool pool) {
+                return copy(source, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof IntMatrix) {
+                    return Matrix.equals(this, (IntMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "IntMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns a new dense matrix with the transposed values of source.
+     */
+    static DenseIntMatrix copy(final IntMatrix source, final ForkJoinPool pool) {
+        final int rows = source.nRows();
+        final int cols = source.nColumns();
+        final int[] values = source instanceof DenseIntMatrix ? ((DenseIntMatrix)source).values : null;
+        final boolean columnMajor = values == null && source.layout() == Layout.COLUMN_MAJOR;
+        final int[] target = new int[Math.multiplyExact(rows, cols)];
+        forEachChunk(pool, cols, rows, Integer.BYTES, (chunk, from, to) -> {
+            if (columnMajor) {
+                for (int c = from; c < to; c++) {
+                    final int offset = c * rows;
+                    for (int r = 0; r < rows; r++) {
+                        target[offset + r] = source.valueAsInt(r, c);
+                    }
+                }
+            } else {
+                transpose(source, values, rows, cols, target, 0, rows, from, to);
+            }
+        });
+        return new DenseIntMatrix(cols, rows, target);
+    }
+
+    private static void transpose(final IntMatrix source, final int[] values, final int rows,
+                                  final int cols, final int[] target, final int rowFrom, final int rowTo,
+                                  final int colFrom, final int colTo) {
+        final int nRows = rowTo - rowFrom;
+        final int nCols = colTo - colFrom;
+        if (nRows * (long)nCols <= BLOCK_ELEMENTS) {
+            for (int c = colFrom; c < colTo; c++) {
+                final int offset = c * rows;
+                if (values != null) {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = values[r * cols + c];
+                    }
+                } else {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = source.valueAsInt(r, c);
+                    }
+                }
+            }
+        } else if (nRows >= nCols) {
+            final int mid = (rowFrom + rowTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, mid, colFrom, colTo);
+            transpose(source, values, rows, cols, target, mid, rowTo, colFrom, colTo);
+        } else {
+            final int mid = (colFrom + colTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, colFrom, mid);
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, mid, colTo);
+        }
+    }
+
+    static BoolMatrix view(final BoolMatrix source) {
+        return new BoolMatrix() {
+            @Override
+            public int nRows() {
+                return source.nColumns();
+            }
+
+            @Override
+            public int nColumns() {
+                return source.nRows();
+            }
+
+            @Override
+            public boolean valueAsBoolean(final int row, final int column) {
+                return source.valueAsBoolean(column, row);
+            }
+
+            @Override
+            public Layout layout() {
+                return source.layout().transpose();
+            }
+
+            @Override
+            public BoolVector row(final int row) {
+                return source.column(row);
+            }
+
+            @Override
+            public BoolVector column(final int col) {
+                return source.row(col);
+            }
+
+            @Override
+            public BoolMatrix transpose() {
+                return source;
+            }
+
+            @Override
+            public boolean[] toArray() {
+                return copy(source, null).values;
+            }
+
+            @Override
+            public boolean[] toArrayParallel(final ForkJoinPool pool) {
+                return copy(source, pool).values;
+            }
+
+            @Override
+            public BoolMatrix materialize() {
+                return copy(source, null);
+            }
+
+            @Override
+            public BoolMatrix materializeParallel(final ForkJoinPool pool) {
+                return copy(source, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof BoolMatrix) {
+                    return Matrix.equals(this, (BoolMatrix)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "BoolMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns a new dense matrix with the transposed values of source.
+     */
+    static DenseBoolMatrix copy(final BoolMatrix source, final ForkJoinPool pool) {
+        final int rows = source.nRows();
+        final int cols = source.nColumns();
+        final boolean[] values = source instanceof DenseBoolMatrix ? ((DenseBoolMatrix)source).values : null;
+        final boolean columnMajor = values == null && source.layout() == Layout.COLUMN_MAJOR;
+        final boolean[] target = new boolean[Math.multiplyExact(rows, cols)];
+        forEachChunk(pool, cols, rows, 1, (chunk, from, to) -> {
+            if (columnMajor) {
+                for (int c = from; c < to; c++) {
+                    final int offset = c * rows;
+                    for (int r = 0; r < rows; r++) {
+                        target[offset + r] = source.valueAsBoolean(r, c);
+                    }
+                }
+            } else {
+                transpose(source, values, rows, cols, target, 0, rows, from, to);
+            }
+        });
+        return new DenseBoolMatrix(cols, rows, target);
+    }
+
+    private static void transpose(final BoolMatrix source, final boolean[] values, final int rows,
+                                  final int cols, final boolean[] target, final int rowFrom, final int rowTo,
+                                  final int colFrom, final int colTo) {
+        final int nRows = rowTo - rowFrom;
+        final int nCols = colTo - colFrom;
+        if (nRows * (long)nCols <= BLOCK_ELEMENTS) {
+            for (int c = colFrom; c < colTo; c++) {
+                final int offset = c * rows;
+                if (values != null) {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = values[r * cols + c];
+                    }
+                } else {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = source.valueAsBoolean(r, c);
+                    }
+                }
+            }
+        } else if (nRows >= nCols) {
+            final int mid = (rowFrom + rowTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, mid, colFrom, colTo);
+            transpose(source, values, rows, cols, target, mid, rowTo, colFrom, colTo);
+        } else {
+            final int mid = (colFrom + colTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, colFrom, mid);
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, mid, colTo);
+        }
+    }
+
+    static <V> ObjMatrix<V> view(final ObjMatrix<V> source) {
+        return new ObjMatrix<V>() {
+            @Override
+            public int nRows() {
+                return source.nColumns();
+            }
+
+            @Override
+            public int nColumns() {
+                return source.nRows();
+            }
+
+            @Override
+            public V value(final int row, final int column) {
+                return source.value(column, row);
+            }
+
+            @Override
+            public Layout layout() {
+                return source.layout().transpose();
+            }
+
+            @Override
+            public ObjVector<V> row(final int row) {
+                return source.column(row);
+            }
+
+            @Override
+            public ObjVector<V> column(final int col) {
+                return source.row(col);
+            }
+
+            @Override
+            public ObjMatrix<V> transpose() {
+                return source;
+            }
+
+            @Override
+            public Object[] toArray() {
+                return copy(source, null).values;
+            }
+
+            @Override
+            public Object[] toArrayParallel(final ForkJoinPool pool) {
+                return copy(source, pool).values;
+            }
+
+            @Override
+            public ObjMatrix<V> materialize() {
+                return copy(source, null);
+            }
+
+            @Override
+            public ObjMatrix<V> materializeParallel(final ForkJoinPool pool) {
+                return copy(source, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Matrix.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                if (this == obj) return true;
+                if (obj == null) return false;
+                if (obj instanceof ObjMatrix) {
+                    return Matrix.equals(this, (ObjMatrix<?>)obj, VALUE_EQUALITY);
+                }
+                return false;
+            }
+
+            @Override
+            public String toString() {
+                return "ObjMatrix:" + nRows() + "x" + nColumns();
+            }
+        };
+    }
+
+    /**
+     * Returns a new dense matrix with the transposed values of source.
+     */
+    static <V> DenseObjMatrix<V> copy(final ObjMatrix<V> source, final ForkJoinPool pool) {
+        final int rows = source.nRows();
+        final int cols = source.nColumns();
+        final Object[] values = source instanceof DenseObjMatrix ? ((DenseObjMatrix<?>)source).values : null;
+        final boolean columnMajor = values == null && source.layout() == Layout.COLUMN_MAJOR;
+        final Object[] target = new Object[Math.multiplyExact(rows, cols)];
+        forEachChunk(pool, cols, rows, Integer.BYTES, (chunk, from, to) -> {
+            if (columnMajor) {
+                for (int c = from; c < to; c++) {
+                    final int offset = c * rows;
+                    for (int r = 0; r < rows; r++) {
+                        target[offset + r] = source.value(r, c);
+                    }
+                }
+            } else {
+                transpose(source, values, rows, cols, target, 0, rows, from, to);
+            }
+        });
+        return new DenseObjMatrix<>(cols, rows, target);
+    }
+
+    private static <V> void transpose(final ObjMatrix<V> source, final Object[] values, final int rows,
+                                      final int cols, final Object[] target, final int rowFrom, final int rowTo,
+                                      final int colFrom, final int colTo) {
+        final int nRows = rowTo - rowFrom;
+        final int nCols = colTo - colFrom;
+        if (nRows * (long)nCols <= BLOCK_ELEMENTS) {
+            for (int c = colFrom; c < colTo; c++) {
+                final int offset = c * rows;
+                if (values != null) {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = values[r * cols + c];
+                    }
+                } else {
+                    for (int r = rowFrom; r < rowTo; r++) {
+                        target[offset + r] = source.value(r, c);
+                    }
+                }
+            }
+        } else if (nRows >= nCols) {
+            final int mid = (rowFrom + rowTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, mid, colFrom, colTo);
+            transpose(source, values, rows, cols, target, mid, rowTo, colFrom, colTo);
+        } else {
+            final int mid = (colFrom + colTo) >>> 1;
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, colFrom, mid);
+            transpose(source, values, rows, cols, target, rowFrom, rowTo, mid, colTo);
+        }
+    }
+
+    private Transpose() {
+        throw new RuntimeException("No Transpose for you!");
+    }
+}
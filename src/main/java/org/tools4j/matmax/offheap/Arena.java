@@ -0,0 +1,255 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.indexed.Int1D;
+import org.tools4j.matmax.indexed.Int2D;
+import org.tools4j.matmax.indexed.Long1D;
+import org.tools4j.matmax.indexed.Long2D;
+import org.tools4j.matmax.matrix.DoubleMatrix;
+import org.tools4j.matmax.matrix.IntMatrix;
+import org.tools4j.matmax.matrix.LongMatrix;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Allocates vectors and matrices in direct memory outside of the Java heap, where they are not scanned by the garbage
+ * collector.  Small allocations are sliced from shared direct buffers of the arena's chunk size;  large allocations
+ * get dedicated buffers of up to 1GB each, so a matrix may hold more than {@link Integer#MAX_VALUE} values.
+ * <p>
+ * All memory is released when the arena is {@link #close() closed}, after which any access to vectors and matrices of
+ * the arena fails with an {@link IllegalStateException}.  Closing an arena while its vectors or matrices are accessed
+ * concurrently by other threads is not safe.  Allocation is thread safe and values are immutable once allocated.
+ */
+public final class Arena implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 24;
+
+    static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private final int chunkBytes;
+    private final int segmentShift;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer chunk;
+    private long allocatedBytes;
+    private final Resource resource = new Resource("Arena");
+
+    private Arena(final int chunkBytes, final int segmentShift) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+        }
+        if (segmentShift < 3 || segmentShift > Memory.MAX_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("segmentShift must be in [3, " + Memory.MAX_SEGMENT_SHIFT + "]: " +
+                    segmentShift);
+        }
+        this.chunkBytes = chunkBytes;
+        this.segmentShift = segmentShift;
+    }
+
+    public static Arena create() {
+        return new Arena(DEFAULT_CHUNK_BYTES, Memory.MAX_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Creates an arena slicing allocations of up to half the given chunk size from shared direct buffers.
+     *
+     * @param chunkBytes the size of shared direct buffers in bytes, positive
+     * @return a new arena
+     */
+    public static Arena create(final int chunkBytes) {
+        return new Arena(chunkBytes, Memory.MAX_SEGMENT_SHIFT);
+    }
+
+    static Arena create(final int chunkBytes, final int segmentShift) {
+        return new Arena(chunkBytes, segmentShift);
+    }
+
+    public DoubleVector doubleVector(final int n, final Double1D data) {
+        if (n < 0) throw new IllegalArgumentException("Negative vector length: " + n);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate(n, 8);
+        for (int i = 0; i < n; i++) {
+            memory.putDouble(i, data.valueAsDouble(i));
+        }
+        return new OffHeapDoubleVector(n, memory);
+    }
+
+    public LongVector longVector(final int n, final Long1D data) {
+        if (n < 0) throw new IllegalArgumentException("Negative vector length: " + n);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate(n, 8);
+        for (int i = 0; i < n; i++) {
+            memory.putLong(i, data.valueAsLong(i));
+        }
+        return new OffHeapLongVector(n, memory);
+    }
+
+    public IntVector intVector(final int n, final Int1D data) {
+        if (n < 0) throw new IllegalArgumentException("Negative vector length: " + n);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate(n, 4);
+        for (int i = 0; i < n; i++) {
+            memory.putInt(i, data.valueAsInt(i));
+        }
+        return new OffHeapIntVector(n, memory);
+    }
+
+    public DoubleMatrix doubleMatrix(final int rows, final int cols, final Double2D data) {
+        checkDimensions(rows, cols);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate((long)rows * cols, 8);
+        long index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                memory.putDouble(index++, data.valueAsDouble(r, c));
+            }
+        }
+        return new OffHeapDoubleMatrix(rows, cols, memory);
+    }
+
+    public LongMatrix longMatrix(final int rows, final int cols, final Long2D data) {
+        checkDimensions(rows, cols);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate((long)rows * cols, 8);
+        long index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                memory.putLong(index++, data.valueAsLong(r, c));
+            }
+        }
+        return new OffHeapLongMatrix(rows, cols, memory);
+    }
+
+    public IntMatrix intMatrix(final int rows, final int cols, final Int2D data) {
+        checkDimensions(rows, cols);
+        Objects.requireNonNull(data);
+        final Memory memory = allocate((long)rows * cols, 4);
+        long index = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                memory.putInt(index++, data.valueAsInt(r, c));
+            }
+        }
+        return new OffHeapIntMatrix(rows, cols, memory);
+    }
+
+    public DoubleVector copyOf(final DoubleVector vector) {
+        return doubleVector(vector.nElements(), vector::valueAsDouble);
+    }
+
+    public LongVector copyOf(final LongVector vector) {
+        return longVector(vector.nElements(), vector::valueAsLong);
+    }
+
+    public IntVector copyOf(final IntVector vector) {
+        return intVector(vector.nElements(), vector::valueAsInt);
+    }
+
+    public DoubleMatrix copyOf(final DoubleMatrix matrix) {
+        return doubleMatrix(matrix.nRows(), matrix.nColumns(), matrix);
+    }
+
+    public LongMatrix copyOf(final LongMatrix matrix) {
+        return longMatrix(matrix.nRows(), matrix.nColumns(), matrix);
+    }
+
+    public IntMatrix copyOf(final IntMatrix matrix) {
+        return intMatrix(matrix.nRows(), matrix.nColumns(), matrix);
+    }
+
+    /**
+     * Returns the number of bytes of direct memory reserved by this arena, including unused parts of shared chunks.
+     */
+    public synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean isClosed() {
+        return resource.isClosed();
+    }
+
+    /**
+     * Closes this arena and releases all direct memory allocated by it.  Vectors and matrices of this arena must not be
+     * used after closing the arena.  Calling this method more than once has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (!resource.close()) {
+            return;
+        }
+        for (final ByteBuffer buffer : buffers) {
+            DirectMemory.free(buffer);
+        }
+        buffers.clear();
+        chunk = null;
+        allocatedBytes = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Arena:allocatedBytes=" + allocatedBytes() + (isClosed() ? ",closed" : "");
+    }
+
+    private synchronized Memory allocate(final long length, final int elementBytes) {
+        resource.checkOpen();
+        final long bytes = length * elementBytes;
+        if (bytes <= chunkBytes / 2) {
+            final int aligned = (int)((bytes + 7) & ~7L);
+            if (chunk == null || chunk.remaining() < aligned) {
+                chunk = newBuffer(chunkBytes);
+            }
+            final ByteBuffer slice = chunk.slice().order(ORDER);
+            slice.limit((int)bytes);
+            chunk.position(Math.min(chunk.limit(), chunk.position() + aligned));
+            return new Memory(resource, new ByteBuffer[] {slice}, Memory.MAX_SEGMENT_SHIFT, bytes);
+        }
+        final long segmentBytes = 1L << segmentShift;
+        final ByteBuffer[] segments = new ByteBuffer[(int)((bytes + segmentBytes - 1) >>> segmentShift)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = newBuffer((int)Math.min(segmentBytes, bytes - i * segmentBytes));
+        }
+        return new Memory(resource, segments, segmentShift, bytes);
+    }
+
+    private ByteBuffer newBuffer(final int bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ORDER);
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        return buffer;
+    }
+
+    private static void checkDimensions(final int rows, final int cols) {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases direct buffers eagerly if the running JVM allows it, otherwise the memory is released when the buffer is
+ * garbage collected.
+ */
+final class DirectMemory {
+
+    private static final Releaser RELEASER = releaser();
+
+    private DirectMemory() {
+        throw new RuntimeException("No DirectMemory for you!");
+    }
+
+    static void free(final ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            try {
+                RELEASER.release(buffer);
+            } catch (final Exception e) {
+                //ignore, released by the garbage collector
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Releaser {
+        void release(ByteBuffer buffer) throws Exception;
+    }
+
+    private static Releaser releaser() {
+        try {
+            //java 9 and later
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (final Exception | LinkageError e) {
+            //fall through
+        }
+        try {
+            //java 8
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (final Exception | LinkageError e) {
+            return buffer -> {};
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.tools4j.matmax.matrix.DoubleMatrix;
+import org.tools4j.matmax.matrix.Layout;
+import org.tools4j.matmax.matrix.Matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Double matrix backed by a memory-mapped file.  Values are paged in by the operating system on access, so matrices
+ * larger than the available memory can be read without loading them.  The file is mapped in segments of up to 1GB
+ * each, hence the number of values is not limited to {@link Integer#MAX_VALUE}.
+ * <p>
+ * The file starts with a header of {@link #HEADER_BYTES} bytes followed by the raw values in little-endian byte order.
+ * All header fields are little-endian:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic number 0x584d4d4d ("MMMX")
+ *      4     2  format version, currently 1
+ *      6     1  value type, 1 for double
+ *      7     1  layout, 0 for row-major and 1 for column-major
+ *      8     4  number of rows
+ *     12     4  number of columns
+ *     16    16  reserved, zero
+ * </pre>
+ * Matrices opened in {@link MapMode#READ_WRITE} mode can be modified via {@link #setValue(int, int, double)}.  The
+ * matrix must be {@link #close() closed} to release the mapping, after which any access fails with an
+ * {@link IllegalStateException}.  Closing a matrix while it is accessed concurrently by other threads is not safe.
+ */
+public final class MappedDoubleMatrix implements DoubleMatrix, AutoCloseable {
+
+    public static final int HEADER_BYTES = 32;
+    public static final int MAGIC = 0x584d4d4d;
+    public static final short VERSION = 1;
+    public static final byte TYPE_DOUBLE = 1;
+
+    private final Path file;
+    private final MapMode mode;
+    private final int rows;
+    private final int cols;
+    private final Layout layout;
+    private final ByteBuffer[] segments;
+    private final Memory memory;
+    private final Resource resource;
+
+    private MappedDoubleMatrix(final Path file, final MapMode mode, final int rows, final int cols, final Layout layout,
+                               final ByteBuffer[] segments, final Resource resource) {
+        this.file = file;
+        this.mode = mode;
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.segments = segments;
+        this.resource = resource;
+        this.memory = new Memory(resource, segments, Memory.MAX_SEGMENT_SHIFT, (long)rows * cols * 8);
+    }
+
+    /**
+     * Maps an existing matrix file read-only.
+     *
+     * @param file the matrix file
+     * @return the mapped matrix
+     * @throws IOException if the file cannot be read or is not a valid matrix file
+     */
+    public static MappedDoubleMatrix open(final Path file) throws IOException {
+        return open(file, MapMode.READ_ONLY);
+    }
+
+    /**
+     * Maps an existing matrix file.  With {@link MapMode#READ_WRITE} modifications are written to the file, with
+     * {@link MapMode#PRIVATE} they are visible only through the returned matrix.
+     *
+     * @param file the matrix file
+     * @param mode the map mode
+     * @return the mapped matrix
+     * @throws IOException if the file cannot be read or is not a valid matrix file
+     */
+    public static MappedDoubleMatrix open(final Path file, final MapMode mode) throws IOException {
+        Objects.requireNonNull(mode);
+        try (final FileChannel channel = mode != MapMode.READ_ONLY ?
+                FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Matrix file header is truncated: " + file);
+                }
+            }
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a matrix file: " + file);
+            }
+            if (header.getShort(4) != VERSION) {
+                throw new IOException("Unsupported matrix file version " + header.getShort(4) + ": " + file);
+            }
+            if (header.get(6) != TYPE_DOUBLE) {
+                throw new IOException("Unsupported matrix value type " + header.get(6) + ": " + file);
+            }
+            final byte layout = header.get(7);
+            if (layout < 0 || layout >= Layout.values().length) {
+                throw new IOException("Invalid matrix layout " + layout + ": " + file);
+            }
+            final int rows = header.getInt(8);
+            final int cols = header.getInt(12);
+            if (rows < 0 || cols < 0) {
+                throw new IOException("Invalid matrix dimensions " + rows + "x" + cols + ": " + file);
+            }
+            final long bytes = (long)rows * cols * 8;
+            if (channel.size() < HEADER_BYTES + bytes) {
+                throw new IOException("Matrix file is truncated, expected " + (HEADER_BYTES + bytes) +
+                        " bytes but found " + channel.size() + ": " + file);
+            }
+            return new MappedDoubleMatrix(file, mode, rows, cols, Layout.values()[layout],
+                    map(channel, mode, bytes), new Resource("MappedDoubleMatrix"));
+        }
+    }
+
+    /**
+     * Creates or replaces a matrix file with all values zero and maps it in {@link MapMode#READ_WRITE} mode.
+     *
+     * @param file   the matrix file
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param layout the storage order of the values
+     * @return the mapped matrix
+     * @throws IOException if the file cannot be written
+     */
+    public static MappedDoubleMatrix create(final Path file, final int rows, final int cols, final Layout layout)
+            throws IOException {
+        if (rows < 0) throw new IllegalArgumentException("rows must not be negative: " + rows);
+        if (cols < 0) throw new IllegalArgumentException("cols must not be negative: " + cols);
+        Objects.requireNonNull(layout);
+        final long bytes = (long)rows * cols * 8;
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).put(TYPE_DOUBLE).put((byte)layout.ordinal())
+                    .putInt(rows).putInt(cols);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            if (bytes > 0) {
+                //extend the file, the gap reads as zeros
+                channel.write(ByteBuffer.allocate(1), HEADER_BYTES + bytes - 1);
+            }
+            return new MappedDoubleMatrix(file, MapMode.READ_WRITE, rows, cols, layout,
+                    map(channel, MapMode.READ_WRITE, bytes), new Resource("MappedDoubleMatrix"));
+        }
+    }
+
+    /**
+     * Writes the given matrix to a new matrix file and returns the mapped result in {@link MapMode#READ_WRITE} mode.
+     *
+     * @param file   the matrix file, replaced if it exists
+     * @param matrix the matrix to write
+     * @param layout the storage order of the values
+     * @return the mapped matrix
+     * @throws IOException if the file cannot be written
+     */
+    public static MappedDoubleMatrix write(final Path file, final DoubleMatrix matrix, final Layout layout)
+            throws IOException {
+        final int rows = matrix.nRows();
+        final int cols = matrix.nColumns();
+        final MappedDoubleMatrix mapped = create(file, rows, cols, layout);
+        long index = 0;
+        if (layout == Layout.ROW_MAJOR) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    mapped.memory.putDouble(index++, matrix.valueAsDouble(r, c));
+                }
+            }
+        } else {
+            for (int c = 0; c < cols; c++) {
+                for (int r = 0; r < rows; r++) {
+                    mapped.memory.putDouble(index++, matrix.valueAsDouble(r, c));
+                }
+            }
+        }
+        return mapped;
+    }
+
+    private static ByteBuffer[] map(final FileChannel channel, final MapMode mode, final long bytes)
+            throws IOException {
+        final long segmentBytes = 1L << Memory.MAX_SEGMENT_SHIFT;
+        final ByteBuffer[] segments = new ByteBuffer[(int)((bytes + segmentBytes - 1) >>> Memory.MAX_SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            final long offset = i * segmentBytes;
+            segments[i] = channel.map(mode, HEADER_BYTES + offset, Math.min(segmentBytes, bytes - offset))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public MapMode mode() {
+        return mode;
+    }
+
+    @Override
+    public Layout layout() {
+        return layout;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public double valueAsDouble(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ? memory.getDouble(index(row, column)) : Double.NaN;
+    }
+
+    /**
+     * Sets the value of a cell;  only supported if the matrix was mapped in read-write or private mode.
+     *
+     * @param row    the row index
+     * @param column the column index
+     * @param value  the new value
+     * @throws IndexOutOfBoundsException if row or column are out of bounds
+     * @throws java.nio.ReadOnlyBufferException if the matrix was mapped read-only
+     */
+    public void setValue(final int row, final int column, final double value) {
+        if (row < 0 | row >= rows | column < 0 | column >= cols) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + column + ") is out of bounds for matrix " +
+                    rows + "x" + cols);
+        }
+        resource.checkOpen();
+        memory.putDouble(index(row, column), value);
+    }
+
+    private long index(final int row, final int column) {
+        return layout == Layout.ROW_MAJOR ? (long)row * cols + column : (long)column * rows + row;
+    }
+
+    /**
+     * Writes modifications to the storage device, see {@link MappedByteBuffer#force()}.
+     */
+    public void force() {
+        resource.checkOpen();
+        if (mode == MapMode.READ_WRITE) {
+            for (final ByteBuffer segment : segments) {
+                ((MappedByteBuffer)segment).force();
+            }
+        }
+    }
+
+    @Override
+    public double[] toArray() {
+        final long length = (long)rows * cols;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Matrix " + rows + "x" + cols + " is too large for an array");
+        }
+        if (layout == Layout.ROW_MAJOR) {
+            final double[] values = new double[(int)length];
+            memory.getDoubles(0, values, 0, values.length);
+            return values;
+        }
+        return DoubleMatrix.super.toArray();
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return layout == Layout.ROW_MAJOR ? toArray() : DoubleMatrix.super.toArrayParallel(pool);
+    }
+
+    public boolean isClosed() {
+        return resource.isClosed();
+    }
+
+    /**
+     * Unmaps the file.  Modifications in read-write mode are not forced to the storage device, but the operating
+     * system writes them eventually.  Calling this method more than once has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (resource.close()) {
+            for (final ByteBuffer segment : segments) {
+                DirectMemory.free(segment);
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof DoubleMatrix) {
+            return Matrix.equals(this, (DoubleMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block of direct or mapped memory owned by an {@link Arena} or a {@link MappedDoubleMatrix}, made up of one or
+ * several byte buffer segments of equal power-of-two size (except for the last).  Elements are addressed by a long
+ * index and the element size.
+ */
+final class Memory {
+
+    static final int MAX_SEGMENT_SHIFT = 30;
+
+    private final Resource resource;
+    private final ByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long bytes;
+
+    Memory(final Resource resource, final ByteBuffer[] segments, final int segmentShift, final long bytes) {
+        this.resource = resource;
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.bytes = bytes;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    void checkOpen() {
+        resource.checkOpen();
+    }
+
+    double getDouble(final long index) {
+        resource.checkOpen();
+        final long offset = index << 3;
+        return segments[(int)(offset >>> segmentShift)].getDouble((int)(offset & segmentMask));
+    }
+
+    long getLong(final long index) {
+        resource.checkOpen();
+        final long offset = index << 3;
+        return segments[(int)(offset >>> segmentShift)].getLong((int)(offset & segmentMask));
+    }
+
+    int getInt(final long index) {
+        resource.checkOpen();
+        final long offset = index << 2;
+        return segments[(int)(offset >>> segmentShift)].getInt((int)(offset & segmentMask));
+    }
+
+    void putDouble(final long index, final double value) {
+        final long offset = index << 3;
+        segments[(int)(offset >>> segmentShift)].putDouble((int)(offset & segmentMask), value);
+    }
+
+    void putLong(final long index, final long value) {
+        final long offset = index << 3;
+        segments[(int)(offset >>> segmentShift)].putLong((int)(offset & segmentMask), value);
+    }
+
+    void putInt(final long index, final int value) {
+        final long offset = index << 2;
+        segments[(int)(offset >>> segmentShift)].putInt((int)(offset & segmentMask), value);
+    }
+
+    /** Bulk copy of length doubles starting at element index into target array */
+    void getDoubles(final long index, final double[] target, final int offset, final int length) {
+        resource.checkOpen();
+        int copied = 0;
+        while (copied < length) {
+            final long byteOffset = (index + copied) << 3;
+            final ByteBuffer source = segments[(int)(byteOffset >>> segmentShift)];
+            final ByteBuffer segment = source.duplicate().order(source.order());
+            segment.position((int)(byteOffset & segmentMask));
+            final int n = Math.min(length - copied, segment.remaining() >>> 3);
+            segment.asDoubleBuffer().get(target, offset + copied, n);
+            copied += n;
+        }
+    }
+
+    /** Bulk copy of length longs starting at element index into target array */
+    void getLongs(final long index, final long[] target, final int offset, final int length) {
+        resource.checkOpen();
+        int copied = 0;
+        while (copied < length) {
+            final long byteOffset = (index + copied) << 3;
+            final ByteBuffer source = segments[(int)(byteOffset >>> segmentShift)];
+            final ByteBuffer segment = source.duplicate().order(source.order());
+            segment.position((int)(byteOffset & segmentMask));
+            final int n = Math.min(length - copied, segment.remaining() >>> 3);
+            segment.asLongBuffer().get(target, offset + copied, n);
+            copied += n;
+        }
+    }
+
+    /** Bulk copy of length ints starting at element index into target array */
+    void getInts(final long index, final int[] target, final int offset, final int length) {
+        resource.checkOpen();
+        int copied = 0;
+        while (copied < length) {
+            final long byteOffset = (index + copied) << 2;
+            final ByteBuffer source = segments[(int)(byteOffset >>> segmentShift)];
+            final ByteBuffer segment = source.duplicate().order(source.order());
+            segment.position((int)(byteOffset & segmentMask));
+            final int n = Math.min(length - copied, segment.remaining() >>> 2);
+            segment.asIntBuffer().get(target, offset + copied, n);
+            copied += n;
+        }
+    }
+}
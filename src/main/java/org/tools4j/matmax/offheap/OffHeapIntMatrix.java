@@ -0,0 +1,109 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.tools4j.matmax.matrix.IntMatrix;
+import org.tools4j.matmax.matrix.Matrix;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Int matrix with values stored in row-major order in direct memory allocated by an {@link Arena}.  The number of
+ * values is not limited to {@link Integer#MAX_VALUE}, but {@link #toArray()} fails for larger matrices.
+ */
+final class OffHeapIntMatrix implements IntMatrix {
+
+    private final int rows;
+    private final int cols;
+    private final Memory memory;
+
+    OffHeapIntMatrix(final int rows, final int cols, final Memory memory) {
+        this.rows = rows;
+        this.cols = cols;
+        this.memory = memory;
+    }
+
+    @Override
+    public int nRows() {
+        return rows;
+    }
+
+    @Override
+    public int nColumns() {
+        return cols;
+    }
+
+    @Override
+    public int valueAsInt(final int row, final int column) {
+        return row >= 0 & row < rows & column >= 0 & column < cols ?
+                memory.getInt((long)row * cols + column) : 0;
+    }
+
+    @Override
+    public int[] toArray() {
+        final long length = (long)rows * cols;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Matrix " + rows + "x" + cols + " is too large for an array");
+        }
+        final int[] values = new int[(int)length];
+        memory.getInts(0, values, 0, values.length);
+        return values;
+    }
+
+    @Override
+    public int[] toArrayParallel(final ForkJoinPool pool) {
+        return toArray();
+    }
+
+    @Override
+    public IntMatrix materialize() {
+        memory.checkOpen();
+        return this;
+    }
+
+    @Override
+    public IntMatrix materializeParallel(final ForkJoinPool pool) {
+        return materialize();
+    }
+
+    @Override
+    public int hashCode() {
+        return Matrix.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null) return false;
+        if (obj instanceof IntMatrix) {
+            return Matrix.equals(this, (IntMatrix)obj, VALUE_EQUALITY);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "IntMatrix:" + nRows() + "x" + nColumns();
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.Vector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Long vector with values stored in direct memory allocated by an {@link Arena}.
+ */
+final class OffHeapLongVector implements LongVector {
+
+    private final int n;
+    private final Memory memory;
+
+    OffHeapLongVector(final int n, final Memory memory) {
+        this.n = n;
+        this.memory = memory;
+    }
+
+    @Override
+    public int nElements() {
+        return n;
+    }
+
+    @Override
+    public long valueAsLong(final int index) {
+        return index >= 0 & index < n ? memory.getLong(index) : 0;
+    }
+
+    @Override
+    public long[] toArray() {
+        final long[] values = new long[n];
+        memory.getLongs(0, values, 0, n);
+        return values;
+    }
+
+    @Override
+    public long[] toArrayParallel(final ForkJoinPool pool) {
+        return toArray();
+    }
+
+    @Override
+    public LongVector materialize() {
+        memory.checkOpen();
+        return this;
+    }
+
+    @Override
+    public LongVector materializeParallel(final ForkJoinPool pool) {
+        return materialize();
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Vector.equals(this, obj, LongVector.class, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "LongVector:" + nElements();
+    }
+}
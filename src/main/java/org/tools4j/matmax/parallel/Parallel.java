@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.parallel;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join helpers to process an index range {@code [0, length)} in parallel.  The range is cut into consecutive
+ * chunks of a fixed size and every chunk is processed by exactly one task.  Chunk sizes are multiples of a cache line
+ * worth of elements, hence tasks writing to one shared target array touch disjoint cache lines except for at most one
+ * line at every chunk boundary.
+ * <p>
+ * Chunks are numbered from zero and are independent of the number of threads, which makes per-chunk results
+ * deterministic: combining them in chunk order yields the same result for every run and every pool size.
+ */
+public final class Parallel {
+
+    /** Assumed cache line size in bytes */
+    public static final int CACHE_LINE_BYTES = 64;
+
+    /** Minimum number of elements per chunk, smaller ranges are processed by the calling thread */
+    public static final int MIN_CHUNK_SIZE = 4096;
+
+    /** Number of chunks per thread for load balancing */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Action performed for a chunk.
+     */
+    @FunctionalInterface
+    public interface ChunkAction {
+        /**
+         * Processes the given chunk.
+         *
+         * @param chunk the chunk index, zero for the first chunk
+         * @param from  the first index of the chunk, inclusive
+         * @param to    the last index of the chunk, exclusive
+         */
+        void apply(int chunk, int from, int to);
+    }
+
+    /**
+     * Returns the chunk size to process {@code length} elements of {@code elementBytes} each with the given pool.
+     *
+     * @param pool         the pool used to run the chunk tasks
+     * @param length       the total number of elements
+     * @param elementBytes the size of an element in bytes, used for cache line alignment
+     * @return the chunk size, a multiple of a cache line worth of elements and at least {@link #MIN_CHUNK_SIZE}
+     */
+    public static int chunkSize(final ForkJoinPool pool, final int length, final int elementBytes) {
+        return chunkSize(pool, length, elementBytes, MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the chunk size to process {@code length} elements of {@code elementBytes} each with the given pool.
+     *
+     * @param pool         the pool used to run the chunk tasks
+     * @param length       the total number of elements
+     * @param elementBytes the size of an element in bytes, used for cache line alignment
+     * @param minChunkSize the minimum chunk size, useful if processing a single element is expensive
+     * @return the chunk size, a multiple of a cache line worth of elements and at least {@code minChunkSize}
+     */
+    public static int chunkSize(final ForkJoinPool pool, final int length, final int elementBytes, final int minChunkSize) {
+        final int lineElements = Math.max(1, CACHE_LINE_BYTES / Math.max(1, elementBytes));
+        final long tasks = (long)pool.getParallelism() * CHUNKS_PER_THREAD;
+        final long size = Math.max(Math.max(1, minChunkSize), (length + tasks - 1) / tasks);
+        final long aligned = ((size + lineElements - 1) / lineElements) * lineElements;
+        return (int)Math.min(aligned, Integer.MAX_VALUE - CACHE_LINE_BYTES);
+    }
+
+    /**
+     * Returns the number of rows per chunk to process a row-major matrix with the given pool.  Every chunk covers at
+     * least {@link #MIN_CHUNK_SIZE} elements and, for narrow matrices, a multiple of a cache line worth of rows.
+     *
+     * @param pool         the pool used to run the chunk tasks
+     * @param rows         the number of matrix rows
+     * @param cols         the number of matrix columns
+     * @param elementBytes the size of an element in bytes, used for cache line alignment
+     * @return the number of rows per chunk
+     */
+    public static int rowChunkSize(final ForkJoinPool pool, final int rows, final int cols, final int elementBytes) {
+        final int minRows = cols == 0 ? MIN_CHUNK_SIZE : Math.max(1, (MIN_CHUNK_SIZE + cols - 1) / cols);
+        final int rowBytes = (int)Math.min(Integer.MAX_VALUE, Math.max(1L, (long)cols * elementBytes));
+        return chunkSize(pool, rows, rowBytes, minRows);
+    }
+
+    /**
+     * Returns the number of chunks needed to process {@code length} elements.
+     *
+     * @param length    the total number of elements
+     * @param chunkSize the chunk size
+     * @return the number of chunks
+     */
+    public static int chunkCount(final int length, final int chunkSize) {
+        return (int)((length + (long)chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Invokes the action for every chunk of the range {@code [0, length)} and waits until all chunks are processed.
+     * A single chunk is processed directly by the calling thread.
+     *
+     * @param pool      the pool used to run the chunk tasks
+     * @param length    the total number of elements
+     * @param chunkSize the chunk size, for instance obtained via {@link #chunkSize(ForkJoinPool, int, int)}
+     * @param action    the action invoked for every chunk
+     */
+    public static void forEachChunk(final ForkJoinPool pool, final int length, final int chunkSize,
+                                    final ChunkAction action) {
+        Objects.requireNonNull(pool);
+        Objects.requireNonNull(action);
+        if (length < 0) throw new IllegalArgumentException("length must not be negative: " + length);
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        final int chunks = chunkCount(length, chunkSize);
+        if (chunks <= 1) {
+            if (length > 0) {
+                action.apply(0, 0, length);
+            }
+            return;
+        }
+        final ChunkTask task = new ChunkTask(length, chunkSize, action, 0, chunks);
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int length;
+        private final int chunkSize;
+        private final ChunkAction action;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ChunkTask(final int length, final int chunkSize, final ChunkAction action, final int fromChunk, final int toChunk) {
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.action = action;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                final int from = fromChunk * chunkSize;
+                action.apply(fromChunk, from, (int)Math.min(length, (long)from + chunkSize));
+                return;
+            }
+            final int mid = (fromChunk + toChunk) >>> 1;
+            invokeAll(
+                    new ChunkTask(length, chunkSize, action, fromChunk, mid),
+                    new ChunkTask(length, chunkSize, action, mid, toChunk)
+            );
+        }
+    }
+
+    private Parallel() {
+        throw new RuntimeException("No Parallel for you!");
+    }
+}
@@ -25,8 +25,10 @@ package org.tools4j.matmax.vector;
 
 import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.matrix.BoolMatrix;
+import org.tools4j.matmax.parallel.Parallel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -37,6 +39,31 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
     ValueEquality<BoolVector> VALUE_EQUALITY = (vec1, vec2, ind) -> Boolean.compare(
             vec1.valueAsBoolean(ind), vec2.valueAsBoolean(ind)) == 0;
 
+    @Override
+    default BoolVector negate() {
+        return create(this, Bool1D.super.negate());
+    }
+
+    @Override
+    default BoolVector or(final Bool1D other) {
+        return create(this, Bool1D.super.or(other));
+    }
+
+    @Override
+    default BoolVector and(final Bool1D other) {
+        return create(this, Bool1D.super.and(other));
+    }
+
+    @Override
+    default BoolVector xor(final Bool1D other) {
+        return create(this, Bool1D.super.xor(other));
+    }
+
+    @Override
+    default BoolVector andNot(final Bool1D other) {
+        return create(this, Bool1D.super.andNot(other));
+    }
+
     @Override
     default BoolVector apply(final Function<? super Bool1D, ? extends Bool1D> operator) {
         return create(this, Bool1D.super.apply(operator));
@@ -81,7 +108,7 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
 
     @Override
     default Spliterator<Boolean> spliterator() {
-        return Spliterators.spliterator(iterator(), nElements(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        return new IndexRangeSpliterator.ObjRange<>(this, 0, nElements(), IndexRangeSpliterator.PRIMITIVE_CHARACTERISTICS);
     }
 
     @Override
@@ -107,9 +134,84 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
         return array;
     }
 
+    /**
+     * Returns the number of true values in this vector.
+     */
+    default int cardinality() {
+        final int n = nElements();
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (valueAsBoolean(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first true value at or after {@code fromIndex}, or -1 if there is no such value.
+     * Iterate over all true values as follows:
+     * <pre>
+     * for (int i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+     *     // operate on index i here
+     * }</pre>
+     */
+    default int nextSetBit(final int fromIndex) {
+        final int n = nElements();
+        for (int i = Math.max(0, fromIndex); i < n; i++) {
+            if (valueAsBoolean(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    default BoolVector materialize() {
+        return PackedBoolVector.pack(nElements(), this, null);
+    }
+
+    /**
+     * Returns the indices of all true values in ascending order.
+     */
+    default int[] trueIndices() {
+        return PackedBoolVector.pack(nElements(), this, null).trueIndices();
+    }
+
+    /**
+     * Returns the indices of all true values in ascending order, evaluating this vector and collecting the indices
+     * in parallel.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the indices of all true values
+     */
+    default int[] trueIndices(final ForkJoinPool pool) {
+        return PackedBoolVector.pack(nElements(), this, Objects.requireNonNull(pool)).trueIndices(pool);
+    }
+
+    default boolean[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default boolean[] toArrayParallel(final ForkJoinPool pool) {
+        final int n = nElements();
+        final boolean[] array = new boolean[n];
+        Parallel.forEachChunk(pool, n, Parallel.chunkSize(pool, n, 1), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = valueAsBoolean(i);
+            }
+        });
+        return array;
+    }
+
     @Override
-    default Bool1D materialize() {
-        return create(nElements(), toBitSet());
+    default BoolVector materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default BoolVector materializeParallel(final ForkJoinPool pool) {
+        return PackedBoolVector.pack(nElements(), this, Objects.requireNonNull(pool));
     }
 
     @Override
@@ -142,6 +244,16 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
         return ObjVector.create(nElements(), Bool1D.super.toStr1D());
     }
 
+    /** Returns a dense vector with the elements whose mask value is true, in their original order. */
+    default BoolVector select(final Bool1D mask) {
+        return Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(), null);
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, selected in parallel. */
+    default BoolVector select(final Bool1D mask, final ForkJoinPool pool) {
+        return Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(pool), pool);
+    }
+
     static BoolVector create(final int n, final BitSet values) {
         if (n < 0) throw new IllegalArgumentException("Negative vector length: " + n);
         Objects.requireNonNull(values);
@@ -167,7 +279,12 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
             }
 
             @Override
-            public Bool1D materialize() {
+            public BoolVector materialize() {
+                return this;
+            }
+
+            @Override
+            public BoolVector materializeParallel(final ForkJoinPool pool) {
                 return this;
             }
 
@@ -183,6 +300,15 @@ public interface BoolVector extends Vector<Boolean, Bool1D>, Bool1D {
         };
     }
 
+    /**
+     * Returns the given mask as boolean vector of length {@code n}, or the mask itself if it is already a boolean
+     * vector of that length.
+     */
+    static BoolVector mask(final int n, final Bool1D mask) {
+        Objects.requireNonNull(mask);
+        return mask instanceof BoolVector && ((BoolVector)mask).nElements() == n ? (BoolVector)mask : create(n, mask);
+    }
+
     static BoolVector create(final boolean... values) {
         final int len = values.length;
         return create(len, index -> index >= 0 && index < len && values[index]);
@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.function.Retention;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Double vector materializing its source on first access and reading all values from the materialized vector
+ * thereafter.  The materialized vector is referenced according to the retention;  if it has been reclaimed, the
+ * source is materialized again on the next access.
+ */
+final class CachedDoubleVector implements DoubleVector {
+
+    private final DoubleVector source;
+    private final Retention retention;
+    private volatile Supplier<DoubleVector> reference;
+
+    CachedDoubleVector(final DoubleVector source, final Retention retention) {
+        this.source = Objects.requireNonNull(source);
+        this.retention = Objects.requireNonNull(retention);
+    }
+
+    Retention retention() {
+        return retention;
+    }
+
+    private DoubleVector values() {
+        final Supplier<DoubleVector> current = reference;
+        final DoubleVector values = current == null ? null : current.get();
+        return values != null ? values : materializeSource();
+    }
+
+    private synchronized DoubleVector materializeSource() {
+        final Supplier<DoubleVector> current = reference;
+        DoubleVector values = current == null ? null : current.get();
+        if (values == null) {
+            values = source.materialize();
+            reference = retention.reference(values);
+        }
+        return values;
+    }
+
+    @Override
+    public int nElements() {
+        return source.nElements();
+    }
+
+    @Override
+    public double valueAsDouble(final int index) {
+        return values().valueAsDouble(index);
+    }
+
+    @Override
+    public double sum(final SummationMode mode) {
+        return values().sum(mode);
+    }
+
+    @Override
+    public double sum(final SummationMode mode, final ForkJoinPool pool) {
+        return values().sum(mode, pool);
+    }
+
+    @Override
+    public double[] toArray() {
+        return values().toArray();
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return values().toArrayParallel(pool);
+    }
+
+    /**
+     * Returns the materialized vector, which is strongly referenced by the caller from then on.
+     */
+    @Override
+    public DoubleVector materialize() {
+        return values();
+    }
+
+    @Override
+    public DoubleVector materializeParallel(final ForkJoinPool pool) {
+        return values();
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Vector.equals(this, obj, DoubleVector.class, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleVector:" + nElements();
+    }
+}
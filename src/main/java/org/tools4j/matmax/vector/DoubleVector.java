@@ -24,10 +24,14 @@
 package org.tools4j.matmax.vector;
 
 import org.tools4j.matmax.function.DoubleBiPredicate;
+import org.tools4j.matmax.function.Retention;
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Double1D;
 import org.tools4j.matmax.matrix.DoubleMatrix;
+import org.tools4j.matmax.parallel.Parallel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.stream.DoubleStream;
 import java.util.stream.StreamSupport;
@@ -86,6 +90,24 @@ public interface DoubleVector extends Vector<Double, Double1D>, Double1D {
         return -1;
     }
 
+    @Override
+    default int lastIndexOf(final Double value) {
+        return lastIndexOf(value.doubleValue());
+    }
+
+    default int lastIndexOf(final double value) {
+        for (int i = nElements() - 1; i >= 0; i--) {
+            if (Double.compare(value, valueAsDouble(i)) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    default boolean contains(final double value) {
+        return indexOf(value) >= 0;
+    }
+
     default int indexMatching(final DoublePredicate predicate) {
         final int n = nElements();
         for (int i = 0; i < n; i++) {
@@ -101,6 +123,31 @@ public interface DoubleVector extends Vector<Double, Double1D>, Double1D {
         return DoubleVector.create(toArray());
     }
 
+    default double[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default double[] toArrayParallel(final ForkJoinPool pool) {
+        final int n = nElements();
+        final double[] array = new double[n];
+        Parallel.forEachChunk(pool, n, Parallel.chunkSize(pool, n, Double.BYTES), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = valueAsDouble(i);
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default DoubleVector materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default DoubleVector materializeParallel(final ForkJoinPool pool) {
+        return DoubleVector.create(toArrayParallel(pool));
+    }
+
     @Override
     default PrimitiveIterator.OfDouble iterator() {
         return new PrimitiveIterator.OfDouble() {
@@ -125,7 +172,7 @@ public interface DoubleVector extends Vector<Double, Double1D>, Double1D {
 
     @Override
     default Spliterator.OfDouble spliterator() {
-        return Spliterators.spliterator(iterator(), nElements(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        return new IndexRangeSpliterator.DoubleRange(this, 0, nElements());
     }
 
     @Override
@@ -172,6 +219,111 @@ public interface DoubleVector extends Vector<Double, Double1D>, Double1D {
         return ObjVector.create(nElements(), Double1D.super.toStr1D());
     }
 
+    /**
+     * Returns a vector sharing one materialized copy of this vector, strongly referenced.
+     */
+    default DoubleVector cached() {
+        return cached(Retention.STRONG);
+    }
+
+    /**
+     * Returns a vector materializing this vector on first access and reading all values from the materialized copy.
+     * With soft or weak retention, the copy can be reclaimed by the garbage collector and is recomputed on demand.
+     *
+     * @param retention defines how long the materialized copy is retained
+     * @return a caching vector with the values of this vector
+     */
+    default DoubleVector cached(final Retention retention) {
+        if (this instanceof CachedDoubleVector && ((CachedDoubleVector)this).retention() == retention) {
+            return this;
+        }
+        return new CachedDoubleVector(this, retention);
+    }
+
+    /**
+     * Returns the sum of all elements using the given summation algorithm.
+     *
+     * @param mode the summation algorithm
+     * @return the sum of all elements, zero for an empty vector
+     */
+    default double sum(final SummationMode mode) {
+        return mode.sum(this, 0, nElements());
+    }
+
+    /**
+     * Returns the sum of all elements computed in parallel using the given summation algorithm.  Partial results of
+     * all chunks including their compensation terms are combined in chunk order, hence the result is deterministic.
+     *
+     * @param mode the summation algorithm
+     * @param pool the pool used to parallelize the computation
+     * @return the sum of all elements, zero for an empty vector
+     */
+    default double sum(final SummationMode mode, final ForkJoinPool pool) {
+        return mode.sum(this, 0, nElements(), pool);
+    }
+
+    /**
+     * Returns a sorted copy of this vector with all values in ascending order as defined by
+     * {@link Double#compare(double, double)}, hence NaN values come last.
+     */
+    default SortedDoubleVector sort() {
+        return Sorting.sorted(Sorting.sort(toArray(), null));
+    }
+
+    /**
+     * Returns a sorted copy of this vector, sorting chunks of the values in parallel and merging the sorted chunks
+     * pairwise in parallel rounds.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return a sorted vector with the values of this vector
+     */
+    default SortedDoubleVector sort(final ForkJoinPool pool) {
+        return Sorting.sorted(Sorting.sort(toArrayParallel(pool), Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the permutation sorting this vector, that is, the index of the smallest value first and the index of
+     * the largest value last.  The sort is stable, hence indices of equal values remain in ascending order.
+     */
+    default IntVector argsort() {
+        final double[] values = toArray();
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Double.compare(values[i], values[j]), null));
+    }
+
+    /**
+     * Returns the permutation sorting this vector computed in parallel with a stable merge sort.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the indices of the values of this vector in sorted order
+     */
+    default IntVector argsort(final ForkJoinPool pool) {
+        final double[] values = toArrayParallel(pool);
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Double.compare(values[i], values[j]),
+                Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns a vector with the materialized values of this vector and a hash index mapping every distinct value to
+     * the indices where it occurs.  The index is built once in linear time and answers {@link #indexOf(double, int)},
+     * {@link #lastIndexOf(double)} and {@link #contains(double)} in constant expected time.  Later changes to the
+     * values of this vector, if any, are not reflected by the returned vector.
+     *
+     * @return an indexed copy of this vector, or this vector if it is already indexed
+     */
+    default DoubleVector indexed() {
+        return new IndexedDoubleVector(toArray());
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, in their original order. */
+    default DoubleVector select(final Bool1D mask) {
+        return DoubleVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(), null));
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, selected in parallel. */
+    default DoubleVector select(final Bool1D mask, final ForkJoinPool pool) {
+        return DoubleVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(pool), pool));
+    }
+
     static DoubleVector create(final double... values) {
         Objects.requireNonNull(values);
         return new DoubleVector() {
@@ -205,6 +357,26 @@ public interface DoubleVector extends Vector<Double, Double1D>, Double1D {
                 return this;
             }
 
+            @Override
+            public double[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public DoubleVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
+            @Override
+            public double sum(final SummationMode mode) {
+                return mode.sum(values, 0, values.length);
+            }
+
+            @Override
+            public double sum(final SummationMode mode, final ForkJoinPool pool) {
+                return mode.sum(values, 0, values.length, pool);
+            }
+
             @Override
             public String toString() {
                 return "DoubleVector:" + nElements();
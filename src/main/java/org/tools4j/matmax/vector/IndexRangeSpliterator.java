@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.indexed.Indexed1D;
+import org.tools4j.matmax.indexed.Int1D;
+import org.tools4j.matmax.indexed.Long1D;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterators over an index range {@code [index, fence)} of a random access vector.  Splitting halves the range in
+ * constant time and values are read directly by index, hence the spliterators are {@link Spliterator#SIZED SIZED}
+ * and {@link Spliterator#SUBSIZED SUBSIZED} and scale well for parallel streams.
+ */
+abstract class IndexRangeSpliterator {
+
+    static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.SIZED | Spliterator.SUBSIZED;
+    static final int PRIMITIVE_CHARACTERISTICS = CHARACTERISTICS | Spliterator.NONNULL;
+
+    int index;
+    final int fence;
+
+    IndexRangeSpliterator(final int index, final int fence) {
+        this.index = index;
+        this.fence = fence;
+    }
+
+    int splitIndex() {
+        final int lo = index;
+        final int mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            return -1;
+        }
+        index = mid;
+        return lo;
+    }
+
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    static final class DoubleRange extends IndexRangeSpliterator implements Spliterator.OfDouble {
+        private final Double1D data;
+
+        DoubleRange(final Double1D data, final int index, final int fence) {
+            super(index, fence);
+            this.data = Objects.requireNonNull(data);
+        }
+
+        @Override
+        public DoubleRange trySplit() {
+            final int lo = splitIndex();
+            return lo < 0 ? null : new DoubleRange(data, lo, index);
+        }
+
+        @Override
+        public boolean tryAdvance(final DoubleConsumer action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(data.valueAsDouble(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final DoubleConsumer action) {
+            Objects.requireNonNull(action);
+            final int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(data.valueAsDouble(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public int characteristics() {
+            return PRIMITIVE_CHARACTERISTICS;
+        }
+    }
+
+    static final class IntRange extends IndexRangeSpliterator implements Spliterator.OfInt {
+        private final Int1D data;
+
+        IntRange(final Int1D data, final int index, final int fence) {
+            super(index, fence);
+            this.data = Objects.requireNonNull(data);
+        }
+
+        @Override
+        public IntRange trySplit() {
+            final int lo = splitIndex();
+            return lo < 0 ? null : new IntRange(data, lo, index);
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(data.valueAsInt(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            Objects.requireNonNull(action);
+            final int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(data.valueAsInt(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public int characteristics() {
+            return PRIMITIVE_CHARACTERISTICS;
+        }
+    }
+
+    static final class LongRange extends IndexRangeSpliterator implements Spliterator.OfLong {
+        private final Long1D data;
+
+        LongRange(final Long1D data, final int index, final int fence) {
+            super(index, fence);
+            this.data = Objects.requireNonNull(data);
+        }
+
+        @Override
+        public LongRange trySplit() {
+            final int lo = splitIndex();
+            return lo < 0 ? null : new LongRange(data, lo, index);
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(data.valueAsLong(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            Objects.requireNonNull(action);
+            final int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(data.valueAsLong(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public int characteristics() {
+            return PRIMITIVE_CHARACTERISTICS;
+        }
+    }
+
+    static final class ObjRange<V> extends IndexRangeSpliterator implements Spliterator<V> {
+        private final Indexed1D<? extends V, ?> data;
+        private final int characteristics;
+
+        ObjRange(final Indexed1D<? extends V, ?> data, final int index, final int fence, final int characteristics) {
+            super(index, fence);
+            this.data = Objects.requireNonNull(data);
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public ObjRange<V> trySplit() {
+            final int lo = splitIndex();
+            return lo < 0 ? null : new ObjRange<>(data, lo, index, characteristics);
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(data.value(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super V> action) {
+            Objects.requireNonNull(action);
+            final int end = fence;
+            for (int i = index; i < end; i++) {
+                action.accept(data.value(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+}
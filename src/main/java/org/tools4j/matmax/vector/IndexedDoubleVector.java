@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Double vector over materialized values with a hash index answering value lookups in constant expected time.
+ * Values are matched as with {@link Double#compare(double, double)}, that is, NaN matches NaN but 0.0 and -0.0
+ * are different values.
+ */
+final class IndexedDoubleVector implements DoubleVector {
+
+    private final double[] values;
+    private final ValueIndex.Longs index;
+
+    IndexedDoubleVector(final double[] values) {
+        this.values = values;
+        this.index = new ValueIndex.Longs(values.length, i -> Double.doubleToLongBits(values[i]));
+    }
+
+    @Override
+    public int nElements() {
+        return values.length;
+    }
+
+    @Override
+    public double valueAsDouble(final int index) {
+        return index >= 0 & index < values.length ? values[index] : Double.NaN;
+    }
+
+    @Override
+    public int indexOf(final double value, final int start) {
+        return index.indexOf(index.slot(Double.doubleToLongBits(value)), start);
+    }
+
+    @Override
+    public int lastIndexOf(final double value) {
+        return index.lastIndexOf(index.slot(Double.doubleToLongBits(value)));
+    }
+
+    @Override
+    public boolean contains(final double value) {
+        return index.slot(Double.doubleToLongBits(value)) >= 0;
+    }
+
+    @Override
+    public DoubleVector indexed() {
+        return this;
+    }
+
+    @Override
+    public double sum(final SummationMode mode) {
+        return mode.sum(values, 0, values.length);
+    }
+
+    @Override
+    public double sum(final SummationMode mode, final ForkJoinPool pool) {
+        return mode.sum(values, 0, values.length, pool);
+    }
+
+    @Override
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public double[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public DoubleVector materialize() {
+        return this;
+    }
+
+    @Override
+    public DoubleVector materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Vector.equals(this, obj, DoubleVector.class, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleVector:" + nElements();
+    }
+}
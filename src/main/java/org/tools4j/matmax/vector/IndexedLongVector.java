@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Long vector over materialized values with a hash index answering value lookups in constant expected time.
+ */
+final class IndexedLongVector implements LongVector {
+
+    private final long[] values;
+    private final ValueIndex.Longs index;
+
+    IndexedLongVector(final long[] values) {
+        this.values = values;
+        this.index = new ValueIndex.Longs(values.length, i -> values[i]);
+    }
+
+    @Override
+    public int nElements() {
+        return values.length;
+    }
+
+    @Override
+    public long valueAsLong(final int index) {
+        return index >= 0 & index < values.length ? values[index] : 0L;
+    }
+
+    @Override
+    public int indexOf(final long value, final int start) {
+        return index.indexOf(index.slot(value), start);
+    }
+
+    @Override
+    public int lastIndexOf(final long value) {
+        return index.lastIndexOf(index.slot(value));
+    }
+
+    @Override
+    public boolean contains(final long value) {
+        return index.slot(value) >= 0;
+    }
+
+    @Override
+    public LongVector indexed() {
+        return this;
+    }
+
+    @Override
+    public long[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public long[] toArrayParallel(final ForkJoinPool pool) {
+        return values.clone();
+    }
+
+    @Override
+    public LongVector materialize() {
+        return this;
+    }
+
+    @Override
+    public LongVector materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Vector.equals(this, obj, LongVector.class, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "LongVector:" + nElements();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Object vector over materialized values with a hash index answering value lookups in constant expected time.
+ * Values are matched with {@link Object#equals(Object)} and must not be modified while the vector is in use.
+ */
+final class IndexedObjVector<V> implements ObjVector<V> {
+
+    private final Object[] values;
+    private final ValueIndex.Objs index;
+
+    IndexedObjVector(final Object[] values) {
+        this.values = values;
+        this.index = new ValueIndex.Objs(values);
+    }
+
+    @Override
+    public int nElements() {
+        return values.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V value(final int index) {
+        return index >= 0 & index < values.length ? (V)values[index] : null;
+    }
+
+    @Override
+    public int indexOf(final V value, final int start) {
+        return index.indexOf(index.slot(value), start);
+    }
+
+    @Override
+    public int lastIndexOf(final V value) {
+        return index.lastIndexOf(index.slot(value));
+    }
+
+    @Override
+    public boolean contains(final V value) {
+        return index.slot(value) >= 0;
+    }
+
+    @Override
+    public ObjVector<V> indexed() {
+        return this;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public V[] toArray(final IntFunction<V[]> arrayFactory) {
+        final V[] array = arrayFactory.apply(values.length);
+        System.arraycopy(values, 0, array, 0, values.length);
+        return array;
+    }
+
+    @Override
+    public ObjVector<V> materialize() {
+        return this;
+    }
+
+    @Override
+    public ObjVector<V> materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        @SuppressWarnings("unchecked")
+        final Class<ObjVector<V>> clazz = (Class<ObjVector<V>>)(Object)ObjVector.class;
+        return Vector.equals(this, obj, clazz, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjVector:" + nElements();
+    }
+}
@@ -24,11 +24,14 @@
 package org.tools4j.matmax.vector;
 
 import org.tools4j.matmax.function.IntBiPredicate;
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Double1D;
 import org.tools4j.matmax.indexed.Int1D;
 import org.tools4j.matmax.matrix.IntMatrix;
+import org.tools4j.matmax.parallel.Parallel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -69,6 +72,10 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
         return indexOf(value.intValue(), start);
     }
 
+    default int indexOf(final int value) {
+        return indexOf(value, 0);
+    }
+
     default int indexOf(final int value, final int start) {
         return indexOf(value, start, (i1,i2) -> i1 == i2);
     }
@@ -83,6 +90,24 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
         return -1;
     }
 
+    @Override
+    default int lastIndexOf(final Integer value) {
+        return lastIndexOf(value.intValue());
+    }
+
+    default int lastIndexOf(final int value) {
+        for (int i = nElements() - 1; i >= 0; i--) {
+            if (value == valueAsInt(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    default boolean contains(final int value) {
+        return indexOf(value) >= 0;
+    }
+
     default int indexMatching(final IntPredicate predicate) {
         final int n = nElements();
         for (int i = 0; i < n; i++) {
@@ -117,7 +142,7 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
 
     @Override
     default Spliterator.OfInt spliterator() {
-        return Spliterators.spliterator(iterator(), nElements(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        return new IndexRangeSpliterator.IntRange(this, 0, nElements());
     }
 
     @Override
@@ -139,6 +164,31 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
         return IntVector.create(toArray());
     }
 
+    default int[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default int[] toArrayParallel(final ForkJoinPool pool) {
+        final int n = nElements();
+        final int[] array = new int[n];
+        Parallel.forEachChunk(pool, n, Parallel.chunkSize(pool, n, Integer.BYTES), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = valueAsInt(i);
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default IntVector materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default IntVector materializeParallel(final ForkJoinPool pool) {
+        return IntVector.create(toArrayParallel(pool));
+    }
+
     @Override
     default BoolVector toBool1D(final IntPredicate function) {
         return BoolVector.create(nElements(), Int1D.super.toBool1D(function));
@@ -174,6 +224,67 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
         return ObjVector.create(nElements(), Int1D.super.toStr1D());
     }
 
+    /**
+     * Returns a sorted copy of this vector with all values in ascending order.
+     */
+    default SortedIntVector sort() {
+        return Sorting.sorted(Sorting.sort(toArray(), null));
+    }
+
+    /**
+     * Returns a sorted copy of this vector, sorting chunks of the values in parallel and merging the sorted chunks
+     * pairwise in parallel rounds.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return a sorted vector with the values of this vector
+     */
+    default SortedIntVector sort(final ForkJoinPool pool) {
+        return Sorting.sorted(Sorting.sort(toArrayParallel(pool), Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the permutation sorting this vector, that is, the index of the smallest value first and the index of
+     * the largest value last.  The sort is stable, hence indices of equal values remain in ascending order.
+     */
+    default IntVector argsort() {
+        final int[] values = toArray();
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Integer.compare(values[i], values[j]), null));
+    }
+
+    /**
+     * Returns the permutation sorting this vector computed in parallel with a stable merge sort.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the indices of the values of this vector in sorted order
+     */
+    default IntVector argsort(final ForkJoinPool pool) {
+        final int[] values = toArrayParallel(pool);
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Integer.compare(values[i], values[j]),
+                Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns a vector with the materialized values of this vector and a hash index mapping every distinct value to
+     * the indices where it occurs.  The index is built once in linear time and answers {@link #indexOf(int, int)},
+     * {@link #lastIndexOf(int)} and {@link #contains(int)} in constant expected time.  Later changes to the
+     * values of this vector, if any, are not reflected by the returned vector.
+     *
+     * @return an indexed copy of this vector, or this vector if it is already indexed
+     */
+    default IntVector indexed() {
+        return new IndexedIntVector(toArray());
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, in their original order. */
+    default IntVector select(final Bool1D mask) {
+        return IntVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(), null));
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, selected in parallel. */
+    default IntVector select(final Bool1D mask, final ForkJoinPool pool) {
+        return IntVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(pool), pool));
+    }
+
     static IntVector create(final int... values) {
         Objects.requireNonNull(values);
         return new IntVector() {
@@ -197,6 +308,16 @@ public interface IntVector extends Vector<Integer, Int1D>, Int1D {
                 return this;
             }
 
+            @Override
+            public int[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public IntVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
             @Override
             public int hashCode() {
                 return Vector.hashCode(this, HASH_FUNCTION);
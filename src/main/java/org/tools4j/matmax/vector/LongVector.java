@@ -24,11 +24,14 @@
 package org.tools4j.matmax.vector;
 
 import org.tools4j.matmax.function.LongBiPredicate;
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Double1D;
 import org.tools4j.matmax.indexed.Long1D;
 import org.tools4j.matmax.matrix.LongMatrix;
+import org.tools4j.matmax.parallel.Parallel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.stream.LongStream;
 import java.util.stream.StreamSupport;
@@ -69,8 +72,12 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
         return indexOf(value.longValue(), start);
     }
 
+    default int indexOf(final long value) {
+        return indexOf(value, 0);
+    }
+
     default int indexOf(final long value, final int start) {
-        return indexOf(value, start, (d1, d2) -> Double.compare(d1, d2) == 0);
+        return indexOf(value, start, (l1, l2) -> l1 == l2);
     }
 
     default int indexOf(final long value, final int start, final LongBiPredicate matcher) {
@@ -83,6 +90,24 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
         return -1;
     }
 
+    @Override
+    default int lastIndexOf(final Long value) {
+        return lastIndexOf(value.longValue());
+    }
+
+    default int lastIndexOf(final long value) {
+        for (int i = nElements() - 1; i >= 0; i--) {
+            if (value == valueAsLong(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    default boolean contains(final long value) {
+        return indexOf(value) >= 0;
+    }
+
     default int indexMatching(final LongPredicate predicate) {
         final int n = nElements();
         for (int i = 0; i < n; i++) {
@@ -117,7 +142,7 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
 
     @Override
     default Spliterator.OfLong spliterator() {
-        return Spliterators.spliterator(iterator(), nElements(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        return new IndexRangeSpliterator.LongRange(this, 0, nElements());
     }
 
     @Override
@@ -139,6 +164,31 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
         return LongVector.create(toArray());
     }
 
+    default long[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default long[] toArrayParallel(final ForkJoinPool pool) {
+        final int n = nElements();
+        final long[] array = new long[n];
+        Parallel.forEachChunk(pool, n, Parallel.chunkSize(pool, n, Long.BYTES), (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                array[i] = valueAsLong(i);
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default LongVector materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default LongVector materializeParallel(final ForkJoinPool pool) {
+        return LongVector.create(toArrayParallel(pool));
+    }
+
     @Override
     default BoolVector toBool1D(final LongPredicate function) {
         return BoolVector.create(nElements(), Long1D.super.toBool1D(function));
@@ -169,6 +219,67 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
         return ObjVector.create(nElements(), Long1D.super.toStr1D());
     }
 
+    /**
+     * Returns a sorted copy of this vector with all values in ascending order.
+     */
+    default SortedLongVector sort() {
+        return Sorting.sorted(Sorting.sort(toArray(), null));
+    }
+
+    /**
+     * Returns a sorted copy of this vector, sorting chunks of the values in parallel and merging the sorted chunks
+     * pairwise in parallel rounds.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return a sorted vector with the values of this vector
+     */
+    default SortedLongVector sort(final ForkJoinPool pool) {
+        return Sorting.sorted(Sorting.sort(toArrayParallel(pool), Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns the permutation sorting this vector, that is, the index of the smallest value first and the index of
+     * the largest value last.  The sort is stable, hence indices of equal values remain in ascending order.
+     */
+    default IntVector argsort() {
+        final long[] values = toArray();
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Long.compare(values[i], values[j]), null));
+    }
+
+    /**
+     * Returns the permutation sorting this vector computed in parallel with a stable merge sort.
+     *
+     * @param pool the pool used to parallelize the computation
+     * @return the indices of the values of this vector in sorted order
+     */
+    default IntVector argsort(final ForkJoinPool pool) {
+        final long[] values = toArrayParallel(pool);
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> Long.compare(values[i], values[j]),
+                Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns a vector with the materialized values of this vector and a hash index mapping every distinct value to
+     * the indices where it occurs.  The index is built once in linear time and answers {@link #indexOf(long, int)},
+     * {@link #lastIndexOf(long)} and {@link #contains(long)} in constant expected time.  Later changes to the
+     * values of this vector, if any, are not reflected by the returned vector.
+     *
+     * @return an indexed copy of this vector, or this vector if it is already indexed
+     */
+    default LongVector indexed() {
+        return new IndexedLongVector(toArray());
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, in their original order. */
+    default LongVector select(final Bool1D mask) {
+        return LongVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(), null));
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, selected in parallel. */
+    default LongVector select(final Bool1D mask, final ForkJoinPool pool) {
+        return LongVector.create(Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(pool), pool));
+    }
+
     static LongVector create(final long... values) {
         Objects.requireNonNull(values);
         return new LongVector() {
@@ -192,6 +303,16 @@ public interface LongVector extends Vector<Long, Long1D>, Long1D {
                 return this;
             }
 
+            @Override
+            public long[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public LongVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
             @Override
             public int hashCode() {
                 return Vector.hashCode(this, HASH_FUNCTION);
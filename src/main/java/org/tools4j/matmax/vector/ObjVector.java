@@ -23,10 +23,13 @@
  */
 package org.tools4j.matmax.vector;
 
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Obj1D;
 import org.tools4j.matmax.matrix.ObjMatrix;
+import org.tools4j.matmax.parallel.Parallel;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -100,7 +103,7 @@ public interface ObjVector<V> extends Vector<V, Obj1D<V>>, Obj1D<V> {
 
     @Override
     default Spliterator<V> spliterator() {
-        return Spliterators.spliterator(iterator(), nElements(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        return new IndexRangeSpliterator.ObjRange<>(this, 0, nElements(), IndexRangeSpliterator.CHARACTERISTICS);
     }
 
     @Override
@@ -133,6 +136,33 @@ public interface ObjVector<V> extends Vector<V, Obj1D<V>>, Obj1D<V> {
         return ObjVector.create(array);
     }
 
+    default Object[] toArrayParallel() {
+        return toArrayParallel(ForkJoinPool.commonPool());
+    }
+
+    default Object[] toArrayParallel(final ForkJoinPool pool) {
+        final int n = nElements();
+        final Object[] array = new Object[n];
+        Parallel.forEachChunk(pool, n, Parallel.chunkSize(pool, n, Integer.BYTES), (chunk, from, to) -> {//NOTE: assumes compressed references
+            for (int i = from; i < to; i++) {
+                array[i] = value(i);
+            }
+        });
+        return array;
+    }
+
+    @Override
+    default ObjVector<V> materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    default ObjVector<V> materializeParallel(final ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        final V[] array = (V[])toArrayParallel(pool);
+        return ObjVector.create(array);
+    }
+
     @Override
     default BoolVector toBool1D(final Predicate<? super V> function) {
         return BoolVector.create(nElements(), Obj1D.super.toBool1D(function));
@@ -163,6 +193,82 @@ public interface ObjVector<V> extends Vector<V, Obj1D<V>>, Obj1D<V> {
         return ObjVector.create(nElements(), Obj1D.super.toStr1D(nullDefault));
     }
 
+    /**
+     * Returns a sorted copy of this vector with all values in ascending order as defined by the given comparator.
+     * The sort is stable, hence equal values remain in their original order.
+     */
+    default SortedObjVector<V> sort(final Comparator<? super V> comparator) {
+        Objects.requireNonNull(comparator);
+        return Sorting.sorted(Sorting.sort(toArray(), comparator, null), comparator);
+    }
+
+    /**
+     * Returns a sorted copy of this vector, sorting chunks of the values in parallel and merging the sorted chunks
+     * pairwise in parallel rounds.
+     *
+     * @param comparator the comparator defining the order of the values
+     * @param pool the pool used to parallelize the computation
+     * @return a sorted vector with the values of this vector
+     */
+    default SortedObjVector<V> sort(final Comparator<? super V> comparator, final ForkJoinPool pool) {
+        Objects.requireNonNull(comparator);
+        return Sorting.sorted(Sorting.sort(toArrayParallel(pool), comparator, Objects.requireNonNull(pool)),
+                comparator);
+    }
+
+    /**
+     * Returns the permutation sorting this vector by the given comparator, that is, the index of the smallest value
+     * first and the index of the largest value last.  The sort is stable, hence indices of equal values remain in
+     * ascending order.
+     */
+    default IntVector argsort(final Comparator<? super V> comparator) {
+        @SuppressWarnings("unchecked")
+        final V[] values = (V[])toArray();
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> comparator.compare(values[i], values[j]),
+                null));
+    }
+
+    /**
+     * Returns the permutation sorting this vector by the given comparator computed in parallel with a stable merge
+     * sort.
+     *
+     * @param comparator the comparator defining the order of the values
+     * @param pool the pool used to parallelize the computation
+     * @return the indices of the values of this vector in sorted order
+     */
+    default IntVector argsort(final Comparator<? super V> comparator, final ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        final V[] values = (V[])toArrayParallel(pool);
+        return IntVector.create(Sorting.argsort(values.length, (i, j) -> comparator.compare(values[i], values[j]),
+                Objects.requireNonNull(pool)));
+    }
+
+    /**
+     * Returns a vector with the materialized values of this vector and a hash index mapping every distinct value to
+     * the indices where it occurs.  The index is built once in linear time using the hash codes of the values and
+     * answers {@link #indexOf(Object, int)}, {@link #lastIndexOf(Object)} and {@link #contains(Object)} in constant
+     * expected time.  Later changes to the values of this vector, if any, are not reflected by the returned vector.
+     *
+     * @return an indexed copy of this vector, or this vector if it is already indexed
+     */
+    default ObjVector<V> indexed() {
+        return new IndexedObjVector<>(toArray());
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, in their original order. */
+    default ObjVector<V> select(final Bool1D mask) {
+        @SuppressWarnings("unchecked")
+        final V[] values = (V[])Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(), null);
+        return ObjVector.create(values);
+    }
+
+    /** Returns a dense vector with the elements whose mask value is true, selected in parallel. */
+    default ObjVector<V> select(final Bool1D mask, final ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        final V[] values = (V[])Selection.gather(this, BoolVector.mask(nElements(), mask).trueIndices(pool), pool);
+        return ObjVector.create(values);
+    }
+
     @SafeVarargs
     static <V> ObjVector<V> create(final V... values) {
         Objects.requireNonNull(values);
@@ -181,6 +287,11 @@ public interface ObjVector<V> extends Vector<V, Obj1D<V>>, Obj1D<V> {
                 return this;
             }
 
+            @Override
+            public ObjVector<V> materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
             @Override
             public Object[] toArray() {
                 final Object[] array = new Object[values.length];
@@ -0,0 +1,244 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.indexed.Bool1D;
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Boolean vector with values packed into the bits of a {@code long[]} array, 64 values per word.  Logical operations
+ * with another packed vector are performed a word at a time.  Instances are created by
+ * {@link BoolVector#materialize() materializing} any boolean vector.
+ */
+public final class PackedBoolVector implements BoolVector {
+
+    private static final int OR = 0;
+    private static final int AND = 1;
+    private static final int XOR = 2;
+    private static final int AND_NOT = 3;
+
+    private final int n;
+    final long[] words;
+
+    PackedBoolVector(final int n, final long[] words) {
+        if (n < 0) throw new IllegalArgumentException("Negative vector length: " + n);
+        Objects.requireNonNull(words);
+        if (words.length != wordCount(n)) {
+            throw new IllegalArgumentException("words length must be " + wordCount(n) + " but was " + words.length);
+        }
+        this.n = n;
+        this.words = words;
+    }
+
+    static int wordCount(final int n) {
+        return (n + Long.SIZE - 1) >>> 6;
+    }
+
+    /** Returns a mask for the valid bits of the last word given the number of bits */
+    static long lastWordMask(final int n) {
+        return -1L >>> -n;
+    }
+
+    /**
+     * Packs the first {@code n} values of the given data, in parallel if a pool is provided.
+     */
+    static PackedBoolVector pack(final int n, final Bool1D data, final ForkJoinPool pool) {
+        if (data instanceof PackedBoolVector && ((PackedBoolVector)data).n == n) {
+            return (PackedBoolVector)data;
+        }
+        final long[] words = new long[wordCount(n)];
+        final int minWords = Parallel.MIN_CHUNK_SIZE / Long.SIZE;
+        Selection.forEachChunk(pool, words.length, Long.BYTES, minWords, (chunk, from, to) -> {
+            for (int w = from; w < to; w++) {
+                final int start = w << 6;
+                final int end = Math.min(n, start + Long.SIZE);
+                long word = 0;
+                for (int i = start; i < end; i++) {
+                    if (data.valueAsBoolean(i)) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+        return new PackedBoolVector(n, words);
+    }
+
+    @Override
+    public int nElements() {
+        return n;
+    }
+
+    @Override
+    public boolean valueAsBoolean(final int index) {
+        return index >= 0 & index < n && (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+        int count = 0;
+        for (final long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public int nextSetBit(final int fromIndex) {
+        final int from = Math.max(0, fromIndex);
+        if (from >= n) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    public int[] trueIndices() {
+        return Selection.trueIndices(words, null);
+    }
+
+    @Override
+    public int[] trueIndices(final ForkJoinPool pool) {
+        return Selection.trueIndices(words, Objects.requireNonNull(pool));
+    }
+
+    @Override
+    public BoolVector negate() {
+        final long[] result = new long[words.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ~words[i];
+        }
+        if (result.length > 0) {
+            result[result.length - 1] &= lastWordMask(n);
+        }
+        return new PackedBoolVector(n, result);
+    }
+
+    @Override
+    public BoolVector or(final Bool1D other) {
+        return other instanceof PackedBoolVector ? combine((PackedBoolVector)other, OR) :
+                BoolVector.super.or(other);
+    }
+
+    @Override
+    public BoolVector and(final Bool1D other) {
+        return other instanceof PackedBoolVector ? combine((PackedBoolVector)other, AND) :
+                BoolVector.super.and(other);
+    }
+
+    @Override
+    public BoolVector xor(final Bool1D other) {
+        return other instanceof PackedBoolVector ? combine((PackedBoolVector)other, XOR) :
+                BoolVector.super.xor(other);
+    }
+
+    @Override
+    public BoolVector andNot(final Bool1D other) {
+        return other instanceof PackedBoolVector ? combine((PackedBoolVector)other, AND_NOT) :
+                BoolVector.super.andNot(other);
+    }
+
+    /**
+     * Combines the words of the two vectors;  missing words of a shorter operand are zero, that is, the other vector
+     * is false beyond its length.  Every operation has its own loop so that the JIT can unroll and vectorize it.
+     */
+    private PackedBoolVector combine(final PackedBoolVector other, final int operation) {
+        final long[] result = new long[words.length];
+        final long[] otherWords = other.words;
+        final int common = Math.min(result.length, otherWords.length);
+        switch (operation) {
+            case OR:
+                for (int i = 0; i < common; i++) {
+                    result[i] = words[i] | otherWords[i];
+                }
+                break;
+            case AND:
+                for (int i = 0; i < common; i++) {
+                    result[i] = words[i] & otherWords[i];
+                }
+                break;
+            case XOR:
+                for (int i = 0; i < common; i++) {
+                    result[i] = words[i] ^ otherWords[i];
+                }
+                break;
+            case AND_NOT:
+                for (int i = 0; i < common; i++) {
+                    result[i] = words[i] & ~otherWords[i];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid operation: " + operation);
+        }
+        if (operation != AND) {
+            System.arraycopy(words, common, result, common, result.length - common);
+        }
+        if (result.length > 0) {
+            result[result.length - 1] &= lastWordMask(n);
+        }
+        return new PackedBoolVector(n, result);
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        return BitSet.valueOf(words);
+    }
+
+    @Override
+    public PackedBoolVector materialize() {
+        return this;
+    }
+
+    @Override
+    public PackedBoolVector materializeParallel(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        return Vector.hashCode(this, HASH_FUNCTION);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Vector.equals(this, obj, BoolVector.class, VALUE_EQUALITY);
+    }
+
+    @Override
+    public String toString() {
+        return "BoolVector:" + nElements();
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helper for mask based selection.  Methods taking a nullable pool run serially if no pool is provided.
+ * <p>
+ * Selected indices are determined in two passes:  selected elements are counted per chunk first, then every chunk
+ * writes its indices at the prefix sum of the counts of all previous chunks.  Selected values are then gathered in
+ * parallel chunks of the result.
+ */
+final class Selection {
+
+    /**
+     * Invokes the action for every chunk of the range {@code [0, length)} using the given pool, or for a single chunk
+     * covering the whole range if pool is null.
+     */
+    static void forEachChunk(final ForkJoinPool pool, final int length, final int elementBytes, final int minChunkSize,
+                             final Parallel.ChunkAction action) {
+        final int chunkSize = pool == null ? Math.max(1, length) :
+                Parallel.chunkSize(pool, length, elementBytes, minChunkSize);
+        forEachChunkOfSize(pool, length, chunkSize, action);
+    }
+
+    /**
+     * Returns the indices of all set bits in ascending order, counting and writing them in two passes over chunks.
+     */
+    static int[] trueIndices(final long[] words, final ForkJoinPool pool) {
+        final int chunkSize = pool == null ? Math.max(1, words.length) :
+                Parallel.chunkSize(pool, words.length, Long.BYTES, Parallel.MIN_CHUNK_SIZE / Long.SIZE);
+        final int chunks = Parallel.chunkCount(words.length, chunkSize);
+        final int[] offsets = new int[chunks + 1];
+        forEachChunkOfSize(pool, words.length, chunkSize, (chunk, from, to) -> {
+            int count = 0;
+            for (int w = from; w < to; w++) {
+                count += Long.bitCount(words[w]);
+            }
+            offsets[chunk + 1] = count;
+        });
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            offsets[chunk + 1] += offsets[chunk];
+        }
+        final int[] indices = new int[offsets[chunks]];
+        forEachChunkOfSize(pool, words.length, chunkSize, (chunk, from, to) -> {
+            int index = offsets[chunk];
+            for (int w = from; w < to; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    indices[index++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        });
+        return indices;
+    }
+
+    static double[] gather(final DoubleVector vector, final int[] indices, final ForkJoinPool pool) {
+        final double[] values = new double[indices.length];
+        forEachChunk(pool, indices.length, Double.BYTES, Parallel.MIN_CHUNK_SIZE, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = vector.valueAsDouble(indices[i]);
+            }
+        });
+        return values;
+    }
+
+    static int[] gather(final IntVector vector, final int[] indices, final ForkJoinPool pool) {
+        final int[] values = new int[indices.length];
+        forEachChunk(pool, indices.length, Integer.BYTES, Parallel.MIN_CHUNK_SIZE, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = vector.valueAsInt(indices[i]);
+            }
+        });
+        return values;
+    }
+
+    static long[] gather(final LongVector vector, final int[] indices, final ForkJoinPool pool) {
+        final long[] values = new long[indices.length];
+        forEachChunk(pool, indices.length, Long.BYTES, Parallel.MIN_CHUNK_SIZE, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = vector.valueAsLong(indices[i]);
+            }
+        });
+        return values;
+    }
+
+    static PackedBoolVector gather(final BoolVector vector, final int[] indices, final ForkJoinPool pool) {
+        return PackedBoolVector.pack(indices.length, index -> vector.valueAsBoolean(indices[index]), pool);
+    }
+
+    static Object[] gather(final ObjVector<?> vector, final int[] indices, final ForkJoinPool pool) {
+        final Object[] values = new Object[indices.length];
+        forEachChunk(pool, indices.length, Integer.BYTES, Parallel.MIN_CHUNK_SIZE, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                values[i] = vector.value(indices[i]);
+            }
+        });
+        return values;
+    }
+
+    static void forEachChunkOfSize(final ForkJoinPool pool, final int length, final int chunkSize,
+                                   final Parallel.ChunkAction action) {
+        if (pool == null) {
+            if (length > 0) {
+                action.apply(0, 0, length);
+            }
+            return;
+        }
+        Parallel.forEachChunk(pool, length, chunkSize, action);
+    }
+
+    private Selection() {
+        throw new RuntimeException("No Selection for you!");
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Double vector with values in ascending order as defined by {@link Double#compare(double, double)}, hence NaN
+ * values come last.  Value lookups use binary search and run in
+ * {@code O(log n)}, and two sorted vectors are merged in linear time.
+ */
+public interface SortedDoubleVector extends DoubleVector {
+
+    /**
+     * Returns the first index whose value is not less than the given value, or {@link #nElements()} if all values are
+     * less.  This is the leftmost position where the value can be inserted preserving the order.
+     */
+    default int lowerBound(final double value) {
+        int low = 0;
+        int high = nElements();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Double.compare(valueAsDouble(mid), value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first index whose value is greater than the given value, or {@link #nElements()} if no value is
+     * greater.  This is the rightmost position where the value can be inserted preserving the order.
+     */
+    default int upperBound(final double value) {
+        int low = 0;
+        int high = nElements();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Double.compare(valueAsDouble(mid), value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    default int indexOf(final double value, final int start) {
+        final int index = Math.max(start, lowerBound(value));
+        return index < nElements() && Double.compare(valueAsDouble(index), value) == 0 ? index : -1;
+    }
+
+    @Override
+    default int lastIndexOf(final double value) {
+        final int index = upperBound(value) - 1;
+        return index >= 0 && Double.compare(valueAsDouble(index), value) == 0 ? index : -1;
+    }
+
+    /**
+     * Returns the {@link #lowerBound(double) lower bound} of every given value.
+     *
+     * @param values the values to look up
+     * @return a dense vector with the insertion index for every value
+     */
+    default IntVector searchSorted(final DoubleVector values) {
+        final int n = values.nElements();
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = lowerBound(values.valueAsDouble(i));
+        }
+        return IntVector.create(indices);
+    }
+
+    /**
+     * Returns a view of all values in the range {@code [fromInclusive, toExclusive)}.
+     *
+     * @param fromInclusive the lowest value of the range
+     * @param toExclusive the value above the range
+     * @return a sorted view of the values in range, empty if toExclusive is not greater than fromInclusive
+     */
+    default SortedDoubleVector range(final double fromInclusive, final double toExclusive) {
+        final int from = lowerBound(fromInclusive);
+        return Sorting.slice(this, from, Math.max(from, lowerBound(toExclusive)));
+    }
+
+    /**
+     * Returns a sorted vector with the values of this and the other vector, merged in linear time.  Equal values of
+     * this vector come before those of the other vector.
+     *
+     * @param other the other sorted vector
+     * @return a new sorted vector with all values of both vectors
+     */
+    default SortedDoubleVector merge(final SortedDoubleVector other) {
+        final int n1 = nElements();
+        final int n2 = other.nElements();
+        final double[] values = new double[Math.addExact(n1, n2)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < n1 & j < n2) {
+            final double value1 = valueAsDouble(i);
+            final double value2 = other.valueAsDouble(j);
+            if (Double.compare(value2, value1) < 0) {
+                values[k++] = value2;
+                j++;
+            } else {
+                values[k++] = value1;
+                i++;
+            }
+        }
+        while (i < n1) {
+            values[k++] = valueAsDouble(i++);
+        }
+        while (j < n2) {
+            values[k++] = other.valueAsDouble(j++);
+        }
+        return Sorting.sorted(values);
+    }
+
+    @Override
+    default SortedDoubleVector sort() {
+        return this;
+    }
+
+    @Override
+    default SortedDoubleVector sort(final ForkJoinPool pool) {
+        return this;
+    }
+
+    @Override
+    default IntVector argsort() {
+        final int n = nElements();
+        return IntVector.create(n, index -> index >= 0 & index < n ? index : 0);
+    }
+
+    @Override
+    default IntVector argsort(final ForkJoinPool pool) {
+        return argsort();
+    }
+
+    @Override
+    default SortedDoubleVector materialize() {
+        return Sorting.sorted(toArray());
+    }
+
+    @Override
+    default SortedDoubleVector materializeParallel(final ForkJoinPool pool) {
+        return Sorting.sorted(toArrayParallel(pool));
+    }
+
+    static SortedDoubleVector create(final double... values) {
+        return Sorting.sorted(Sorting.sort(values.clone(), null));
+    }
+}
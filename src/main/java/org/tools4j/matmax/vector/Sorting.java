@@ -0,0 +1,571 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+/**
+ * Helper for sorting and sorted vectors.  Methods taking a nullable pool run serially if no pool is provided;  with
+ * a pool, chunks are sorted in parallel and then merged pairwise in parallel rounds, hence the last round is a
+ * single linear merge.
+ */
+final class Sorting {
+
+    /** Run length below which index ranges are sorted with insertion sort */
+    private static final int INSERTION_SORT_LENGTH = 32;
+
+    @FunctionalInterface
+    interface IndexComparator {
+        int compare(int index1, int index2);
+    }
+
+    @FunctionalInterface
+    private interface RunSorter<A> {
+        void sort(A values, A scratch, int from, int to);
+    }
+
+    @FunctionalInterface
+    private interface RunMerger<A> {
+        void merge(A source, A target, int from, int mid, int to);
+    }
+
+    static double[] sort(final double[] values, final ForkJoinPool pool) {
+        if (pool == null) {
+            Arrays.sort(values);
+            return values;
+        }
+        return sortRuns(values, new double[values.length], values.length, Double.BYTES, pool,
+                (array, scratch, from, to) -> Arrays.sort(array, from, to), Sorting::merge);
+    }
+
+    static long[] sort(final long[] values, final ForkJoinPool pool) {
+        if (pool == null) {
+            Arrays.sort(values);
+            return values;
+        }
+        return sortRuns(values, new long[values.length], values.length, Long.BYTES, pool,
+                (array, scratch, from, to) -> Arrays.sort(array, from, to), Sorting::merge);
+    }
+
+    static int[] sort(final int[] values, final ForkJoinPool pool) {
+        if (pool == null) {
+            Arrays.sort(values);
+            return values;
+        }
+        return sortRuns(values, new int[values.length], values.length, Integer.BYTES, pool,
+                (array, scratch, from, to) -> Arrays.sort(array, from, to), Sorting::merge);
+    }
+
+    static <V> Object[] sort(final Object[] values, final Comparator<? super V> comparator, final ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        final Comparator<Object> cmp = (Comparator<Object>)comparator;
+        if (pool == null) {
+            Arrays.sort(values, cmp);
+            return values;
+        }
+        return sortRuns(values, new Object[values.length], values.length, Integer.BYTES, pool,
+                (array, scratch, from, to) -> Arrays.sort(array, from, to, cmp),
+                (source, target, from, mid, to) -> merge(source, target, from, mid, to, cmp));
+    }
+
+    /**
+     * Returns the permutation of the indices {@code [0, n)} sorting the indexed values in ascending order.  The sort
+     * is a stable merge sort, hence indices of equal values remain in ascending order.
+     */
+    static int[] argsort(final int n, final IndexComparator comparator, final ForkJoinPool pool) {
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return sortRuns(indices, new int[n], n, Integer.BYTES, pool,
+                (array, scratch, from, to) -> mergeSort(array, scratch, from, to, comparator),
+                (source, target, from, mid, to) -> merge(source, target, from, mid, to, comparator));
+    }
+
+    /**
+     * Sorts the chunks of values and merges them pairwise until a single run is left, alternating between the values
+     * and the scratch array.  Returns the array with the sorted values, either values or scratch.
+     */
+    private static <A> A sortRuns(final A values, final A scratch, final int n, final int elementBytes,
+                                  final ForkJoinPool pool, final RunSorter<A> sorter, final RunMerger<A> merger) {
+        final int runLength = pool == null ? Math.max(1, n) : Parallel.chunkSize(pool, n, elementBytes);
+        Selection.forEachChunkOfSize(pool, n, runLength,
+                (chunk, from, to) -> sorter.sort(values, scratch, from, to));
+        A source = values;
+        A target = scratch;
+        for (long width = runLength; width < n; width <<= 1) {
+            final long mergeLength = width << 1;
+            final int merges = (int)((n + mergeLength - 1) / mergeLength);
+            final int half = (int)width;
+            final A from = source;
+            final A to = target;
+            Selection.forEachChunkOfSize(pool, merges, 1, (chunk, first, last) -> {
+                for (int merge = first; merge < last; merge++) {
+                    final long start = merge * mergeLength;
+                    merger.merge(from, to, (int)start, (int)Math.min(n, start + half),
+                            (int)Math.min(n, start + mergeLength));
+                }
+            });
+            source = to;
+            target = from;
+        }
+        return source;
+    }
+
+    private static void mergeSort(final int[] indices, final int[] scratch, final int from, final int to,
+                                  final IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_LENGTH) {
+            for (int i = from + 1; i < to; i++) {
+                final int index = indices[i];
+                int j = i;
+                while (j > from && comparator.compare(indices[j - 1], index) > 0) {
+                    indices[j] = indices[j - 1];
+                    j--;
+                }
+                indices[j] = index;
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        mergeSort(indices, scratch, from, mid, comparator);
+        mergeSort(indices, scratch, mid, to, comparator);
+        if (comparator.compare(indices[mid - 1], indices[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(indices, from, scratch, from, to - from);
+        merge(scratch, indices, from, mid, to, comparator);
+    }
+
+    private static void merge(final int[] source, final int[] target, final int from, final int mid, final int to,
+                              final IndexComparator comparator) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid & j < to) {
+            target[k++] = comparator.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    private static void merge(final Object[] source, final Object[] target, final int from, final int mid,
+                              final int to, final Comparator<Object> comparator) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid & j < to) {
+            target[k++] = comparator.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    private static void merge(final double[] source, final double[] target, final int from, final int mid,
+                              final int to) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid & j < to) {
+            target[k++] = Double.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    private static void merge(final long[] source, final long[] target, final int from, final int mid,
+                              final int to) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid & j < to) {
+            target[k++] = Long.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    private static void merge(final int[] source, final int[] target, final int from, final int mid,
+                              final int to) {
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid & j < to) {
+            target[k++] = Integer.compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+        }
+        System.arraycopy(source, i, target, k, mid - i);
+        System.arraycopy(source, j, target, k + mid - i, to - j);
+    }
+
+    static SortedDoubleVector sorted(final double[] values) {
+        return new SortedDoubleVector() {
+            @Override
+            public int nElements() {
+                return values.length;
+            }
+
+            @Override
+            public double valueAsDouble(final int index) {
+                return index >= 0 & index < values.length ? values[index] : Double.NaN;
+            }
+
+            @Override
+            public double[] toArray() {
+                return values.clone();
+            }
+
+            @Override
+            public SortedDoubleVector materialize() {
+                return this;
+            }
+
+            @Override
+            public double[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public SortedDoubleVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
+            @Override
+            public double sum(final SummationMode mode) {
+                return mode.sum(values, 0, values.length);
+            }
+
+            @Override
+            public double sum(final SummationMode mode, final ForkJoinPool pool) {
+                return mode.sum(values, 0, values.length, pool);
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, DoubleVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "DoubleVector:" + nElements();
+            }
+        };
+    }
+
+    static SortedDoubleVector slice(final SortedDoubleVector vector, final int from, final int to) {
+        final int n = to - from;
+        return new SortedDoubleVector() {
+            @Override
+            public int nElements() {
+                return n;
+            }
+
+            @Override
+            public double valueAsDouble(final int index) {
+                return index >= 0 & index < n ? vector.valueAsDouble(from + index) : Double.NaN;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, DoubleVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "DoubleVector:" + nElements();
+            }
+        };
+    }
+
+    static SortedLongVector sorted(final long[] values) {
+        return new SortedLongVector() {
+            @Override
+            public int nElements() {
+                return values.length;
+            }
+
+            @Override
+            public long valueAsLong(final int index) {
+                return index >= 0 & index < values.length ? values[index] : 0L;
+            }
+
+            @Override
+            public long[] toArray() {
+                return values.clone();
+            }
+
+            @Override
+            public SortedLongVector materialize() {
+                return this;
+            }
+
+            @Override
+            public long[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public SortedLongVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, LongVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "LongVector:" + nElements();
+            }
+        };
+    }
+
+    static SortedLongVector slice(final SortedLongVector vector, final int from, final int to) {
+        final int n = to - from;
+        return new SortedLongVector() {
+            @Override
+            public int nElements() {
+                return n;
+            }
+
+            @Override
+            public long valueAsLong(final int index) {
+                return index >= 0 & index < n ? vector.valueAsLong(from + index) : 0L;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, LongVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "LongVector:" + nElements();
+            }
+        };
+    }
+
+    static SortedIntVector sorted(final int[] values) {
+        return new SortedIntVector() {
+            @Override
+            public int nElements() {
+                return values.length;
+            }
+
+            @Override
+            public int valueAsInt(final int index) {
+                return index >= 0 & index < values.length ? values[index] : 0;
+            }
+
+            @Override
+            public int[] toArray() {
+                return values.clone();
+            }
+
+            @Override
+            public SortedIntVector materialize() {
+                return this;
+            }
+
+            @Override
+            public int[] toArrayParallel(final ForkJoinPool pool) {
+                return values.clone();
+            }
+
+            @Override
+            public SortedIntVector materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, IntVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "IntVector:" + nElements();
+            }
+        };
+    }
+
+    static SortedIntVector slice(final SortedIntVector vector, final int from, final int to) {
+        final int n = to - from;
+        return new SortedIntVector() {
+            @Override
+            public int nElements() {
+                return n;
+            }
+
+            @Override
+            public int valueAsInt(final int index) {
+                return index >= 0 & index < n ? vector.valueAsInt(from + index) : 0;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return Vector.equals(this, obj, IntVector.class, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "IntVector:" + nElements();
+            }
+        };
+    }
+
+    static <V> SortedObjVector<V> sorted(final Object[] values, final Comparator<? super V> comparator) {
+        return new SortedObjVector<V>() {
+            @Override
+            public Comparator<? super V> comparator() {
+                return comparator;
+            }
+
+            @Override
+            public int nElements() {
+                return values.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V value(final int index) {
+                return index >= 0 & index < values.length ? (V)values[index] : null;
+            }
+
+            @Override
+            public Object[] toArray() {
+                return values.clone();
+            }
+
+            @Override
+            public V[] toArray(final IntFunction<V[]> arrayFactory) {
+                final V[] array = arrayFactory.apply(values.length);
+                System.arraycopy(values, 0, array, 0, values.length);
+                return array;
+            }
+
+            @Override
+            public SortedObjVector<V> materialize() {
+                return this;
+            }
+
+            @Override
+            public SortedObjVector<V> materializeParallel(final ForkJoinPool pool) {
+                return this;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                @SuppressWarnings("unchecked")
+                final Class<ObjVector<V>> clazz = (Class<ObjVector<V>>)(Object)ObjVector.class;
+                return Vector.equals(this, obj, clazz, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "ObjVector:" + nElements();
+            }
+        };
+    }
+
+    static <V> SortedObjVector<V> slice(final SortedObjVector<V> vector, final int from, final int to) {
+        final int n = to - from;
+        return new SortedObjVector<V>() {
+            @Override
+            public Comparator<? super V> comparator() {
+                return vector.comparator();
+            }
+
+            @Override
+            public int nElements() {
+                return n;
+            }
+
+            @Override
+            public V value(final int index) {
+                return index >= 0 & index < n ? vector.value(from + index) : null;
+            }
+
+            @Override
+            public int hashCode() {
+                return Vector.hashCode(this, HASH_FUNCTION);
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                @SuppressWarnings("unchecked")
+                final Class<ObjVector<V>> clazz = (Class<ObjVector<V>>)(Object)ObjVector.class;
+                return Vector.equals(this, obj, clazz, VALUE_EQUALITY);
+            }
+
+            @Override
+            public String toString() {
+                return "ObjVector:" + nElements();
+            }
+        };
+    }
+
+    private Sorting() {
+        throw new RuntimeException("No Sorting for you!");
+    }
+}
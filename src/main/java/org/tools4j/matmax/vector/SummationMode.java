@@ -0,0 +1,258 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.tools4j.matmax.indexed.Double1D;
+import org.tools4j.matmax.parallel.Parallel;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Summation algorithm for double values, trading throughput for accuracy.
+ * <p>
+ * Parallel sums compute a partial result for every chunk of {@value #CHUNK_SIZE} values and combine the partial
+ * results in chunk order.  A partial result consists of a sum and a compensation term;  compensation terms are carried
+ * through the combination, hence a parallel compensated sum is as accurate as a serial one.  The chunk size does not
+ * depend on the pool, hence parallel results are the same for every pool size.
+ */
+public enum SummationMode {
+    /**
+     * Plain left-to-right summation with an error bound growing linearly with the number of values.
+     */
+    NAIVE {
+        @Override
+        void partialSum(final double[] values, final int from, final int to, final double[] partials, final int index) {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values[i];
+            }
+            partials[2 * index] = sum;
+            partials[2 * index + 1] = 0;
+        }
+
+        @Override
+        void partialSum(final Double1D values, final int from, final int to, final double[] partials, final int index) {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values.valueAsDouble(i);
+            }
+            partials[2 * index] = sum;
+            partials[2 * index + 1] = 0;
+        }
+
+        @Override
+        public double combine(final double[] partials, final int count) {
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += partials[2 * i] + partials[2 * i + 1];
+            }
+            return sum;
+        }
+    },
+    /**
+     * Compensated summation in Neumaier's variant of the Kahan algorithm.  The error bound is independent of the
+     * number of values, and unlike the original Kahan algorithm, the compensation is also correct if a value is
+     * larger in magnitude than the running sum.
+     */
+    KAHAN {
+        @Override
+        void partialSum(final double[] values, final int from, final int to, final double[] partials, final int index) {
+            double sum = 0;
+            double compensation = 0;
+            for (int i = from; i < to; i++) {
+                final double value = values[i];
+                final double t = sum + value;
+                compensation += Math.abs(sum) >= Math.abs(value) ? (sum - t) + value : (value - t) + sum;
+                sum = t;
+            }
+            partials[2 * index] = sum;
+            partials[2 * index + 1] = compensation;
+        }
+
+        @Override
+        void partialSum(final Double1D values, final int from, final int to, final double[] partials, final int index) {
+            double sum = 0;
+            double compensation = 0;
+            for (int i = from; i < to; i++) {
+                final double value = values.valueAsDouble(i);
+                final double t = sum + value;
+                compensation += Math.abs(sum) >= Math.abs(value) ? (sum - t) + value : (value - t) + sum;
+                sum = t;
+            }
+            partials[2 * index] = sum;
+            partials[2 * index + 1] = compensation;
+        }
+
+        @Override
+        public double combine(final double[] partials, final int count) {
+            double sum = 0;
+            double compensation = 0;
+            for (int i = 0; i < count; i++) {
+                final double value = partials[2 * i];
+                final double t = sum + value;
+                compensation += Math.abs(sum) >= Math.abs(value) ? (sum - t) + value : (value - t) + sum;
+                compensation += partials[2 * i + 1];
+                sum = t;
+            }
+            return compensated(sum, compensation);
+        }
+    },
+    /**
+     * Pairwise (cascade) summation:  the values are split recursively into halves and blocks of up to
+     * {@value #PAIRWISE_BLOCK} values are summed with a plain loop.  The error bound grows logarithmically with the
+     * number of values, at almost the throughput of naive summation.
+     */
+    PAIRWISE {
+        @Override
+        void partialSum(final double[] values, final int from, final int to, final double[] partials, final int index) {
+            partials[2 * index] = pairwise(values, from, to);
+            partials[2 * index + 1] = 0;
+        }
+
+        @Override
+        void partialSum(final Double1D values, final int from, final int to, final double[] partials, final int index) {
+            partials[2 * index] = pairwise(values, from, to);
+            partials[2 * index + 1] = 0;
+        }
+
+        @Override
+        public double combine(final double[] partials, final int count) {
+            return count == 0 ? 0 : combinePairwise(partials, 0, count);
+        }
+    };
+
+    /** Number of values per chunk of a parallel sum */
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    /** Number of values summed with a plain loop by pairwise summation */
+    public static final int PAIRWISE_BLOCK = 128;
+
+    /**
+     * Computes the partial sum of the values in {@code [from, to)} and stores the sum and the compensation term at
+     * index {@code 2*index} and {@code 2*index+1} of the partials array.
+     */
+    abstract void partialSum(double[] values, int from, int to, double[] partials, int index);
+
+    /**
+     * Same as {@link #partialSum(double[], int, int, double[], int)} for values accessed through a {@link Double1D}.
+     */
+    abstract void partialSum(Double1D values, int from, int to, double[] partials, int index);
+
+    /**
+     * Combines partial results in the given order.  Partial result {@code i} consists of the sum at index {@code 2*i}
+     * and the compensation term at index {@code 2*i+1} of the partials array.
+     *
+     * @param partials  sum and compensation term of every partial result
+     * @param count     the number of partial results
+     * @return the combined sum
+     */
+    public abstract double combine(double[] partials, int count);
+
+    /**
+     * Returns the sum of the values in {@code [from, to)}.
+     */
+    public double sum(final double[] values, final int from, final int to) {
+        final double[] partials = new double[2];
+        partialSum(values, from, to, partials, 0);
+        return combine(partials, 1);
+    }
+
+    /**
+     * Returns the sum of the values in {@code [from, to)}.
+     */
+    public double sum(final Double1D values, final int from, final int to) {
+        final double[] partials = new double[2];
+        partialSum(values, from, to, partials, 0);
+        return combine(partials, 1);
+    }
+
+    /**
+     * Returns the sum of the values in {@code [from, to)} computed in parallel.
+     */
+    public double sum(final double[] values, final int from, final int to, final ForkJoinPool pool) {
+        Objects.requireNonNull(values);
+        final int length = to - from;
+        final double[] partials = new double[2 * Parallel.chunkCount(length, CHUNK_SIZE)];
+        Parallel.forEachChunk(pool, length, CHUNK_SIZE, (chunk, start, end) ->
+                partialSum(values, from + start, from + end, partials, chunk));
+        return combine(partials, partials.length / 2);
+    }
+
+    /**
+     * Returns the sum of the values in {@code [from, to)} computed in parallel.
+     */
+    public double sum(final Double1D values, final int from, final int to, final ForkJoinPool pool) {
+        Objects.requireNonNull(values);
+        final int length = to - from;
+        final double[] partials = new double[2 * Parallel.chunkCount(length, CHUNK_SIZE)];
+        Parallel.forEachChunk(pool, length, CHUNK_SIZE, (chunk, start, end) ->
+                partialSum(values, from + start, from + end, partials, chunk));
+        return combine(partials, partials.length / 2);
+    }
+
+    /** Returns sum plus compensation, or just the sum if it is infinite or NaN and the compensation meaningless */
+    private static double compensated(final double sum, final double compensation) {
+        return Double.isInfinite(sum) || Double.isNaN(sum) ? sum : sum + compensation;
+    }
+
+    private static double pairwise(final double[] values, final int from, final int to) {
+        if (to - from <= PAIRWISE_BLOCK) {
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                s0 += values[i];
+                s1 += values[i + 1];
+                s2 += values[i + 2];
+                s3 += values[i + 3];
+            }
+            for (; i < to; i++) {
+                s0 += values[i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+        final int mid = (from + to) >>> 1;
+        return pairwise(values, from, mid) + pairwise(values, mid, to);
+    }
+
+    private static double pairwise(final Double1D values, final int from, final int to) {
+        if (to - from <= PAIRWISE_BLOCK) {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += values.valueAsDouble(i);
+            }
+            return sum;
+        }
+        final int mid = (from + to) >>> 1;
+        return pairwise(values, from, mid) + pairwise(values, mid, to);
+    }
+
+    private static double combinePairwise(final double[] partials, final int from, final int to) {
+        if (to - from == 1) {
+            return partials[2 * from] + partials[2 * from + 1];
+        }
+        final int mid = (from + to) >>> 1;
+        return combinePairwise(partials, from, mid) + combinePairwise(partials, mid, to);
+    }
+}
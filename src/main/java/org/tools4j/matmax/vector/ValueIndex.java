@@ -0,0 +1,148 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import java.util.Objects;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Hash index from vector values to the indices where they occur, built once in linear time.  Distinct values are
+ * stored in an open addressing table with linear probing;  each slot holds the first and last index of its value,
+ * and all occurrences of a value are chained in ascending order through a primitive next-index array.
+ */
+abstract class ValueIndex {
+
+    final int[] slotFirst;//first index + 1, or 0 for an empty slot
+    final int[] slotLast;
+    final int[] next;
+    final int mask;
+
+    ValueIndex(final int n) {
+        int capacity = 2;
+        while (capacity < 2L * n) {
+            capacity *= 2;
+        }
+        this.slotFirst = new int[capacity];
+        this.slotLast = new int[capacity];
+        this.next = new int[n];
+        this.mask = capacity - 1;
+    }
+
+    /** Adds index to the slot which is either empty or holds the same value */
+    final void add(final int slot, final int index) {
+        next[index] = -1;
+        if (slotFirst[slot] == 0) {
+            slotFirst[slot] = index + 1;
+        } else {
+            next[slotLast[slot] - 1] = index;
+        }
+        slotLast[slot] = index + 1;
+    }
+
+    final int indexOf(final int slot, final int start) {
+        if (slot < 0) {
+            return -1;
+        }
+        int index = slotFirst[slot] - 1;
+        while (index >= 0 && index < start) {
+            index = next[index];
+        }
+        return index;
+    }
+
+    final int lastIndexOf(final int slot) {
+        return slot < 0 ? -1 : slotLast[slot] - 1;
+    }
+
+    static int hash(final long key) {
+        final long h = key * 0x9e3779b97f4a7c15L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Index of primitive values mapped to long keys, such as the raw bits of doubles.
+     */
+    static final class Longs extends ValueIndex {
+        private final long[] slotKeys;
+
+        Longs(final int n, final IntToLongFunction keys) {
+            super(n);
+            this.slotKeys = new long[slotFirst.length];
+            for (int i = 0; i < n; i++) {
+                final long key = keys.applyAsLong(i);
+                int slot = hash(key) & mask;
+                while (slotFirst[slot] != 0 && slotKeys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                slotKeys[slot] = key;
+                add(slot, i);
+            }
+        }
+
+        /** Returns the slot of the key, or -1 if the key does not occur */
+        int slot(final long key) {
+            for (int slot = hash(key) & mask; slotFirst[slot] != 0; slot = (slot + 1) & mask) {
+                if (slotKeys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Index of object values compared with {@link Object#equals(Object)}.
+     */
+    static final class Objs extends ValueIndex {
+        private final Object[] values;
+        private final int[] slotHashes;
+
+        Objs(final Object[] values) {
+            super(values.length);
+            this.values = values;
+            this.slotHashes = new int[slotFirst.length];
+            for (int i = 0; i < values.length; i++) {
+                final int hash = hash(Objects.hashCode(values[i]));
+                int slot = hash & mask;
+                while (slotFirst[slot] != 0 &&
+                        (slotHashes[slot] != hash || !Objects.equals(values[slotFirst[slot] - 1], values[i]))) {
+                    slot = (slot + 1) & mask;
+                }
+                slotHashes[slot] = hash;
+                add(slot, i);
+            }
+        }
+
+        /** Returns the slot of the value, or -1 if the value does not occur */
+        int slot(final Object value) {
+            final int hash = hash(Objects.hashCode(value));
+            for (int slot = hash & mask; slotFirst[slot] != 0; slot = (slot + 1) & mask) {
+                if (slotHashes[slot] == hash && Objects.equals(values[slotFirst[slot] - 1], value)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+    }
+}
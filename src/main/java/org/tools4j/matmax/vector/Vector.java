@@ -23,6 +23,7 @@
  */
 package org.tools4j.matmax.vector;
 
+import org.tools4j.matmax.indexed.Bool1D;
 import org.tools4j.matmax.indexed.Indexed1D;
 import org.tools4j.matmax.indexed.Indexed2D;
 import org.tools4j.matmax.matrix.Matrix;
@@ -30,6 +31,7 @@ import org.tools4j.matmax.matrix.Matrix;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.BaseStream;
 
 public interface Vector<V, T extends Indexed1D<V, T>> extends Indexed1D<V, T>, Iterable<V> {
@@ -49,6 +51,29 @@ public interface Vector<V, T extends Indexed1D<V, T>> extends Indexed1D<V, T>, I
         return -1;
     }
 
+    default int lastIndexOf(final V value) {
+        for (int i = nElements() - 1; i >= 0; i--) {
+            if (Objects.equals(value, value(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    default boolean contains(final V value) {
+        return indexOf(value) >= 0;
+    }
+
+    /** Returns the indices of the elements whose mask value is true, in ascending order. */
+    default IntVector selectIndices(final Bool1D mask) {
+        return IntVector.create(BoolVector.mask(nElements(), mask).trueIndices());
+    }
+
+    /** Returns the indices of the elements whose mask value is true, collected in parallel. */
+    default IntVector selectIndices(final Bool1D mask, final ForkJoinPool pool) {
+        return IntVector.create(BoolVector.mask(nElements(), mask).trueIndices(pool));
+    }
+
     ObjVector<String> toStr1D();
 
     Matrix<V, ? extends Indexed2D<V, ?>> toRow();
@@ -57,6 +82,12 @@ public interface Vector<V, T extends Indexed1D<V, T>> extends Indexed1D<V, T>, I
 
     T materialize();
 
+    default T materializeParallel() {
+        return materializeParallel(ForkJoinPool.commonPool());
+    }
+
+    T materializeParallel(ForkJoinPool pool);
+
     Iterator<V> iterator();
 
     BaseStream<V,?> stream();
@@ -0,0 +1,157 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColumnFrameTest {
+
+    private static final int ROWS = 1000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static ColumnFrame frame() {
+        final Header header = new DefaultHeader(
+                new Object[] {"price", "volume", "count", "active", "sector"},
+                ObjVector.create(ROWS, i -> "row" + i).toArray());
+        return ColumnFrame.create(header,
+                DoubleVector.create(ROWS, i -> i * 0.5 - 3),
+                LongVector.create(ROWS, i -> (long)i << 33),
+                IntVector.create(ROWS, i -> -i),
+                BoolVector.create(ROWS, i -> i % 3 == 0),
+                ObjVector.create(ROWS, i -> i % 7 == 0 ? null : "sector" + (i % 5) + "\u00e9"));
+    }
+
+    @Test
+    public void typedColumns() {
+        final ColumnFrame frame = frame();
+        assertEquals(ROWS, frame.nRows());
+        assertEquals(5, frame.nColumns());
+        assertEquals(ColumnType.BOOL, frame.columnType(3));
+        assertEquals(-2.5, frame.doubleColumn(0).valueAsDouble(1), 0);
+        assertEquals(-2.5, frame.value(1, 0));
+        assertEquals(true, frame.value(3, 3));
+        assertEquals("sector1\u00e9", frame.stringColumn(4).value(1));
+        assertEquals("volume", frame.columnCaptions().value(1));
+        assertEquals("row9", frame.rowCaptions().value(9));
+        try {
+            frame.intColumn(0);
+            fail("expected type mismatch");
+        } catch (final IllegalArgumentException e) {
+            //expected
+        }
+        try {
+            ColumnFrame.create(frame.header(), DoubleVector.create(1, 2, 3));
+            fail("expected column count mismatch");
+        } catch (final IllegalArgumentException e) {
+            //expected
+        }
+        try {
+            ColumnFrame.create(new DefaultHeader(new Object[] {"x"}, new Object[] {"a", "b"}), ObjVector.create(1, 2));
+            fail("expected non-string values");
+        } catch (final IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        final ColumnFrame frame = frame();
+        final Path file = folder.newFile("frame.mmxf").toPath();
+        frame.write(file);
+        final ColumnFrame read = ColumnFrame.read(file);
+        assertEquals(frame, read);
+        assertEquals(frame.header(), read.header());
+        for (int c = 0; c < frame.nColumns(); c++) {
+            assertEquals(frame.columnType(c), read.columnType(c));
+        }
+        assertArrayEquals(frame.doubleColumn(0).toArray(), read.doubleColumn(0).toArray(), 0);
+        assertArrayEquals(frame.longColumn(1).toArray(), read.longColumn(1).toArray());
+        assertArrayEquals(frame.intColumn(2).toArray(), read.intColumn(2).toArray());
+        assertEquals(frame.boolColumn(3), read.boolColumn(3));
+        assertEquals(frame.stringColumn(4), read.stringColumn(4));
+        assertNull(read.stringColumn(4).value(7));
+        assertTrue("out of range", Double.isNaN(read.doubleColumn(0).valueAsDouble(ROWS)));
+        assertEquals(frame, read.materialize());
+    }
+
+    @Test
+    public void emptyFrame() throws IOException {
+        final Path file = folder.newFile("empty.mmxf").toPath();
+        final ColumnFrame empty = ColumnFrame.create(new DefaultHeader(new Object[0], new Object[0]));
+        empty.write(file);
+        assertEquals(empty, ColumnFrame.read(file));
+        final ColumnFrame noRows = ColumnFrame.create(new DefaultHeader(new Object[] {"a", null}, new Object[0]),
+                DoubleVector.create(), BoolVector.create());
+        noRows.write(file);
+        final ColumnFrame read = ColumnFrame.read(file);
+        assertEquals(noRows, read);
+        assertNull(read.header().columnLabel(0, 1));
+    }
+
+    @Test
+    public void invalidFile() throws IOException {
+        final Path file = folder.newFile("invalid.mmxf").toPath();
+        Files.write(file, new byte[100]);
+        try {
+            ColumnFrame.read(file);
+            fail("expected exception for invalid file");
+        } catch (final IOException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void reshapeToMatchesLabels() {
+        final ColumnFrame frame = frame();
+        final ColumnFrame reshaped = frame.reshapeTo(new DefaultHeader(
+                new Object[] {"active", "missing", "price"}, new Object[] {"row3", "row1", "none"}));
+        assertEquals(3, reshaped.nRows());
+        assertEquals(3, reshaped.nColumns());
+        assertEquals(true, reshaped.value(0, 0));
+        assertFalse(reshaped.boolColumn(0).valueAsBoolean(1));
+        assertNull(reshaped.value(0, 1));
+        assertEquals(-2.5, reshaped.value(1, 2));
+        assertTrue(Double.isNaN(reshaped.doubleColumn(2).valueAsDouble(2)));
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CsvReaderTest {
+
+    private static final String CSV = "id,price,qty,name,flag\r\n" +
+            "a,1.5,10,\"x, \"\"quoted\"\"\",true\r\n" +
+            "b,-2e-3,-7,plain,false\r\n" +
+            "\r\n" +
+            "c,,9223372036854775807,,1\r\n" +
+            "d,0.1234567890123456789,0\r\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inferTypes() throws IOException {
+        final ColumnFrame frame = CsvReader.create().read(channel(CSV));
+        assertEquals(4, frame.nRows());
+        assertEquals(5, frame.nColumns());
+        assertEquals(ColumnType.STRING, frame.columnType(0));
+        assertEquals(ColumnType.DOUBLE, frame.columnType(1));
+        assertEquals(ColumnType.LONG, frame.columnType(2));
+        assertEquals(ColumnType.STRING, frame.columnType(3));
+        assertEquals(ColumnType.STRING, frame.columnType(4));
+        assertArrayEquals(new double[] {1.5, -2e-3, Double.NaN, 0.1234567890123456789},
+                frame.doubleColumn(1).toArray(), 0);
+        assertArrayEquals(new long[] {10, -7, Long.MAX_VALUE, 0}, frame.longColumn(2).toArray());
+        assertEquals("x, \"quoted\"", frame.stringColumn(3).value(0));
+        assertNull(frame.stringColumn(3).value(2));
+        assertNull(frame.stringColumn(4).value(3));
+        assertEquals("price", frame.columnCaptions().value(1));
+        assertEquals("2", frame.rowCaptions().value(2));
+    }
+
+    @Test
+    public void explicitTypesAndRowLabels() throws IOException {
+        final ColumnFrame frame = CsvReader.create()
+                .rowLabelField(0)
+                .columnTypes(ColumnType.DOUBLE, ColumnType.LONG, ColumnType.STRING, ColumnType.BOOL)
+                .read(channel(CSV));
+        assertEquals(4, frame.nColumns());
+        assertEquals("c", frame.rowCaptions().value(2));
+        assertEquals("id", frame.header().rowColumnLabel(0, 0));
+        assertEquals("qty", frame.columnCaptions().value(1));
+        assertEquals(-7, frame.longColumn(1).valueAsLong(1));
+        assertTrue(frame.boolColumn(3).valueAsBoolean(0));
+        assertFalse(frame.boolColumn(3).valueAsBoolean(1));
+        assertTrue(frame.boolColumn(3).valueAsBoolean(2));
+        assertFalse("missing", frame.boolColumn(3).valueAsBoolean(3));
+        try {
+            CsvReader.create().columnTypes(ColumnType.STRING, ColumnType.DOUBLE, ColumnType.LONG, ColumnType.STRING,
+                    ColumnType.LONG).read(channel(CSV));
+            fail("expected parse error");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'true' as LONG"));
+        }
+    }
+
+    @Test
+    public void numbers() throws IOException {
+        final String[] values = {"0", "-0", "1e10", "1E-5", "123456789.123456789", "+3.25", "1e308", "4.9e-324",
+                "NaN", "-Infinity", ".5", "5.", "0.1", "7e22", "7e23", "-1.7976931348623157E308"};
+        final StringBuilder csv = new StringBuilder("v\n");
+        for (final String value : values) {
+            csv.append(value).append('\n');
+        }
+        final ColumnFrame frame = CsvReader.create().read(channel(csv.toString()));
+        assertEquals(ColumnType.DOUBLE, frame.columnType(0));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], Double.parseDouble(values[i]), frame.doubleColumn(0).valueAsDouble(i), 0);
+        }
+        for (final String invalid : new String[] {"1d", "0x10", "1e", "-", ".", "1..2", " 1"}) {
+            assertEquals(invalid, ColumnType.STRING,
+                    CsvReader.create().read(channel("v\n" + invalid + "\n")).columnType(0));
+        }
+        assertEquals(ColumnType.DOUBLE, CsvReader.create().read(channel("v\n9223372036854775808\n")).columnType(0));
+    }
+
+    @Test
+    public void emptyQuotedFields() throws IOException {
+        final String csv = "\"a\",\"b\",\"c\",\"d\"\n\"1\",\"\",\"x\",\"true\"\n\"2\",\"2.5\",\"\",\"\"\n3,4,,\n";
+        final ColumnFrame inferred = CsvReader.create().read(channel(csv));
+        assertEquals(ColumnType.LONG, inferred.columnType(0));
+        assertEquals(ColumnType.DOUBLE, inferred.columnType(1));
+        assertEquals(Double.NaN, inferred.doubleColumn(1).valueAsDouble(0), 0);
+        assertEquals(2.5, inferred.doubleColumn(1).valueAsDouble(1), 0);
+        assertEquals("", inferred.stringColumn(2).value(1));
+        assertNull(inferred.stringColumn(2).value(2));
+        final ColumnFrame typed = CsvReader.create()
+                .columnTypes(ColumnType.INT, ColumnType.DOUBLE, ColumnType.STRING, ColumnType.BOOL)
+                .read(channel(csv));
+        assertEquals(Double.NaN, typed.doubleColumn(1).valueAsDouble(0), 0);
+        assertEquals("", typed.stringColumn(2).value(1));
+        assertTrue(typed.boolColumn(3).valueAsBoolean(0));
+        assertFalse(typed.boolColumn(3).valueAsBoolean(1));
+    }
+
+    @Test
+    public void widenLongColumnAfterSample() throws IOException {
+        final StringBuilder csv = new StringBuilder("a;b\n");
+        for (int i = 0; i < 3000; i++) {
+            csv.append(i).append(';').append(i == 2500 ? "2.5" : String.valueOf(i)).append('\n');
+        }
+        final ColumnFrame frame = CsvReader.create().delimiter(';').chunkBytes(1000).read(channel(csv.toString()));
+        assertEquals(3000, frame.nRows());
+        assertEquals(ColumnType.LONG, frame.columnType(0));
+        assertEquals(ColumnType.DOUBLE, frame.columnType(1));
+        assertEquals(2.5, frame.doubleColumn(1).valueAsDouble(2500), 0);
+        assertEquals(2999, frame.doubleColumn(1).valueAsDouble(2999), 0);
+    }
+
+    @Test
+    public void widenLongColumnWithMissingValues() throws IOException {
+        final StringBuilder csv = new StringBuilder("a,b\n");
+        for (int i = 0; i < 1200; i++) {
+            csv.append(i).append(',').append(i).append('\n');
+        }
+        csv.append("1200,\n1201,1.5\n1202,\n");
+        final ColumnFrame frame = CsvReader.create().read(channel(csv.toString()));
+        assertEquals(ColumnType.DOUBLE, frame.columnType(1));
+        assertEquals(1199, frame.doubleColumn(1).valueAsDouble(1199), 0);
+        assertEquals("missing before widening", Double.NaN, frame.doubleColumn(1).valueAsDouble(1200), 0);
+        assertEquals(1.5, frame.doubleColumn(1).valueAsDouble(1201), 0);
+        assertEquals("missing after widening", Double.NaN, frame.doubleColumn(1).valueAsDouble(1202), 0);
+    }
+
+    @Test
+    public void widenLongColumnWithMissingValuesAcrossChunks() throws IOException {
+        final StringBuilder csv = new StringBuilder("a,b\n");
+        for (int i = 0; i < 3000; i++) {
+            csv.append(i).append(',').append(i == 1500 | i == 2800 ? "" : i == 2500 ? "2.5" : String.valueOf(i))
+                    .append('\n');
+        }
+        final Path file = folder.newFile("missing.csv").toPath();
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+        final CsvReader reader = CsvReader.create().chunkBytes(1000);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final ColumnFrame frame : new ColumnFrame[] {
+                    reader.read(file), reader.read(file, pool), reader.read(channel(csv.toString()))}) {
+                assertEquals(ColumnType.DOUBLE, frame.columnType(1));
+                final DoubleVector b = frame.doubleColumn(1);
+                for (int i = 0; i < 3000; i++) {
+                    final double expected = i == 1500 | i == 2800 ? Double.NaN : i == 2500 ? 2.5 : i;
+                    assertEquals("row " + i, expected, b.valueAsDouble(i), 0);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fileSerialAndParallel() throws IOException {
+        final StringBuilder csv = new StringBuilder("\ufeffkey,x,y,label\n");
+        for (int i = 0; i < 20000; i++) {
+            csv.append("k").append(i).append(',').append(i * 0.25).append(',').append(-i)
+                    .append(',').append(i % 3 == 0 ? "" : "\"l" + i + "\"").append('\n');
+        }
+        final Path file = folder.newFile("data.csv").toPath();
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+        final CsvReader reader = CsvReader.create().rowLabelField(0).chunkBytes(4096);
+        final ColumnFrame serial = reader.read(file);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final ColumnFrame parallel;
+        try {
+            parallel = reader.read(file, pool);
+        } finally {
+            pool.shutdown();
+        }
+        final ColumnFrame streamed = reader.read(channel(csv.toString()));
+        assertEquals(20000, serial.nRows());
+        assertEquals("key", serial.header().rowColumnLabel(0, 0));
+        assertEquals("k19999", serial.rowCaptions().value(19999));
+        assertEquals(4999.75, serial.doubleColumn(0).valueAsDouble(19999), 0);
+        assertEquals(-19999, serial.longColumn(1).valueAsLong(19999));
+        assertNull(serial.stringColumn(2).value(3));
+        assertEquals("l4", serial.stringColumn(2).value(4));
+        assertEquals(serial, parallel);
+        assertEquals(serial.header(), parallel.header());
+        assertEquals(serial, streamed);
+        assertEquals(serial.header(), streamed.header());
+    }
+
+    @Test
+    public void quotedLineBreaksAcrossChunks() throws IOException {
+        final StringBuilder csv = new StringBuilder("id,text\n");
+        for (int i = 0; i < 50; i++) {
+            csv.append(i).append(",\"line one\nline \"\"two\"\"\n\"\n");
+        }
+        final Path file = folder.newFile("quoted.csv").toPath();
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkBytes = 1; chunkBytes <= 200; chunkBytes++) {
+                final CsvReader reader = CsvReader.create().columnTypes(ColumnType.LONG, ColumnType.STRING)
+                        .chunkBytes(chunkBytes);
+                for (final ColumnFrame frame : new ColumnFrame[] {
+                        reader.read(file), reader.read(file, pool), reader.read(channel(csv.toString()))}) {
+                    assertEquals("chunkBytes=" + chunkBytes, 50, frame.nRows());
+                    assertEquals(49, frame.longColumn(0).valueAsLong(49));
+                    assertEquals("line one\nline \"two\"\n", frame.stringColumn(1).value(49));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void malformedFileWithSmallChunks() throws IOException {
+        final Path file = folder.newFile("malformed.csv").toPath();
+        Files.write(file, "a,b\n1,\"x\"y\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            CsvReader.create().chunkBytes(16).read(file);
+            fail("expected IOException");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("byte offset"));
+        }
+    }
+
+    @Test
+    public void noHeaderAndEmptyInput() throws IOException {
+        final ColumnFrame frame = CsvReader.create().header(false).read(channel("1,2\n3,4"));
+        assertEquals(2, frame.nRows());
+        assertEquals(1, frame.header().columnLabel(0, 1));
+        assertEquals(4L, frame.value(1, 1));
+        final ColumnFrame ints = CsvReader.create().header(false).columnTypes(ColumnType.INT, ColumnType.INT)
+                .read(channel("1,2\n3,\n"));
+        assertArrayEquals(new int[] {2, 0}, ints.intColumn(1).toArray());
+        final ColumnFrame empty = CsvReader.create().read(channel(""));
+        assertEquals(0, empty.nRows());
+        assertEquals(0, empty.nColumns());
+        final ColumnFrame headerOnly = CsvReader.create().read(channel("a,b\n"));
+        assertEquals(0, headerOnly.nRows());
+        assertEquals(2, headerOnly.nColumns());
+    }
+
+    @Test
+    public void malformedInput() {
+        for (final String csv : new String[] {"a\n\"open\n", "a\n\"x\"y\n", "a,b\n1,2,3\n"}) {
+            try {
+                CsvReader.create().read(channel(csv));
+                fail("expected exception for: " + csv);
+            } catch (final IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("byte offset"));
+            }
+        }
+    }
+
+    private static ReadableByteChannel channel(final String csv) {
+        return Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CsvWriterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static String write(final CsvWriter writer, final DataFrame<?, ?> frame, final ForkJoinPool pool)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(frame, Channels.newChannel(bytes), pool);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void formatCells() throws IOException {
+        final ColumnFrame frame = ColumnFrame.create(
+                new DefaultHeader(new Object[] {"d", "l", "i", "b", "s"}, new Object[] {"r0", "r,1", null}),
+                DoubleVector.create(0.1, -12, Double.NaN),
+                LongVector.create(Long.MIN_VALUE, 0, Long.MAX_VALUE),
+                IntVector.create(-5, 42, Integer.MIN_VALUE),
+                BoolVector.create(true, false, true),
+                ObjVector.create("plain", "with \"quote\"", "caf\u00e9;x"));
+        assertEquals(",d,l,i,b,s\n" +
+                "r0,0.1,-9223372036854775808,-5,true,plain\n" +
+                "\"r,1\",-12.0,0,42,false,\"with \"\"quote\"\"\"\n" +
+                ",,9223372036854775807,-2147483648,true,caf\u00e9;x\n", write(CsvWriter.create(), frame, null));
+        assertEquals("0.1\t-9223372036854775808\t-5\ttrue\tplain\n" +
+                        "-12.0\t0\t42\tfalse\t\"with \"\"quote\"\"\"\n" +
+                        "\t9223372036854775807\t-2147483648\ttrue\tcaf\u00e9;x\n",
+                write(CsvWriter.create().delimiter('\t').header(false), frame, null));
+    }
+
+    @Test
+    public void formatDoubles() throws IOException {
+        final double[] values = {0.0, -0.0, 1.5, -2e-3, 1e-10, 123456789.125, 1e15, 1e300, 4.9e-324,
+                Double.POSITIVE_INFINITY, 0.30000000000000004, 1.0 / 3, 100, 99.99};
+        final String[] expected = {"0.0", "-0.0", "1.5", "-0.002", "1.0E-10", "123456789.125", "1.0E15", "1.0E300",
+                "4.9E-324", "Infinity", "0.30000000000000004", "0.3333333333333333", "100.0", "99.99"};
+        final ColumnFrame frame = ColumnFrame.create(
+                new DefaultHeader(new Object[] {"v"}, ObjVector.create(values.length, i -> i).toArray()),
+                DoubleVector.create(values));
+        final String[] lines = write(CsvWriter.create().header(false), frame, null).split("\n");
+        assertArrayEquals(expected, lines);
+    }
+
+    @Test
+    public void roundTripParallel() throws IOException {
+        final int rows = 50000;
+        final Random random = new Random(7);
+        final double[] doubles = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            doubles[i] = i % 10 == 0 ? random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) :
+                    Math.round(random.nextGaussian() * 1e6) / 100.0;
+        }
+        final ColumnFrame frame = ColumnFrame.create(
+                new DefaultHeader(new Object[] {"x", "n", "s"}, ObjVector.create(rows, i -> "r" + i).toArray()),
+                DoubleVector.create(doubles),
+                LongVector.create(rows, i -> i * 0x9e3779b97f4a7c15L),
+                ObjVector.create(rows, i -> i % 4 == 0 ? null : "s" + (i % 13)));
+        final CsvWriter writer = CsvWriter.create().partitionRows(1000);
+        final String serial = write(writer, frame, null);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(serial, write(writer, frame, pool));
+            final Path file = folder.newFile("frame.csv").toPath();
+            writer.write(frame, file, pool);
+            final ColumnFrame read = CsvReader.create().rowLabelField(0).read(file, pool);
+            assertEquals(frame.header(), read.header());
+            assertArrayEquals(doubles, read.doubleColumn(0).toArray(), 0);
+            assertEquals(frame, read);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void integerRowLabels() throws IOException {
+        final Header header = new DefaultHeader(new Object[] {"a", "b"}, new Object[] {1, 2});
+        final ColumnFrame frame = ColumnFrame.create(header, ObjVector.create("x", null),
+                IntVector.create(3, 4));
+        assertEquals(",a,b\n1,x,3\n2,,4\n", write(CsvWriter.create(), frame, null));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.dataframe;
+
+import org.junit.Test;
+import org.tools4j.matmax.dataframe.LabelSet.ObjLabelSet;
+import org.tools4j.matmax.dataframe.LabelSet.StringLabelSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class LabelSetTest {
+
+    @Test
+    public void stringLabelsReturnOriginalIndex() {
+        final StringLabelSet labels = StringLabelSet.create("USD", "EUR", "CHF", null, "AUD", "EUR");
+        assertEquals(6, labels.size());
+        assertEquals(0, labels.indexOf("USD"));
+        assertEquals(1, labels.indexOf("EUR"));
+        assertEquals(2, labels.indexOf("CHF"));
+        assertEquals(3, labels.indexOf(null));
+        assertEquals(4, labels.indexOfObj("AUD"));
+        assertEquals(-1, labels.indexOf("JPY"));
+        assertEquals("AUD", labels.label(4));
+        assertEquals("CHF", labels.labelAsObj(2));
+        try {
+            labels.label(6);
+            fail("expected index out of bounds");
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void objLabels() {
+        final ObjLabelSet<Integer> labels = ObjLabelSet.create(30, 10, 20, null);
+        assertEquals(4, labels.size());
+        assertEquals(1, labels.indexOfObj(10));
+        assertEquals(3, labels.indexOfObj(null));
+        assertEquals(-1, labels.indexOfObj(10L));
+        assertEquals(2, labels.indexOf("20"));
+        assertEquals(-1, labels.indexOf("40"));
+        assertEquals(Integer.valueOf(30), labels.labelAsObj(0));
+        assertNull(labels.label(3));
+    }
+
+    @Test
+    public void manyLabels() {
+        final int n = 100000;
+        final String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = "L" + (i * 7919L % n);
+        }
+        final StringLabelSet labels = StringLabelSet.create(values);
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, labels.indexOf(values[i]));
+        }
+        assertEquals(-1, labels.indexOf("L" + n));
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.function;
+
+import org.junit.Test;
+import org.tools4j.matmax.indexed.Double2D;
+import org.tools4j.matmax.matrix.DoubleMatrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DoubleExpressionTest {
+
+    private static final int ROWS = 300;
+    private static final int COLS = 70;
+
+    @Test
+    public void fusedChainMatchesClosures() {
+        final DoubleMatrix a = DoubleMatrix.create(ROWS, COLS, (r, c) -> r - c * 0.5).materialize();
+        final DoubleMatrix b = DoubleMatrix.create(ROWS, COLS, (r, c) -> 1 + r * c);
+        final Double2D product = a
+                .applyToEach(DoubleFunctions.ABS)
+                .applyToEach(DoubleFunctions.add(2))
+                .with(b).apply((x, y) -> (r, c) -> x.valueAsDouble(r, c) * y.valueAsDouble(r, c));
+        final DoubleMatrix expected = DoubleMatrix.create(ROWS, COLS, product)
+                .applyToEach(DoubleFunctions.SQRT)
+                .applyToEach(d -> d * d - 1)
+                .materialize();
+        final DoubleExpression expression = a.expression()
+                .applyToEach(DoubleFunctions.ABS)
+                .add(2)
+                .multiply(b)
+                .applyToEach(DoubleFunctions.SQRT)
+                .applyToEach(d -> d * d - 1);
+        assertArrayEquals("serial", expected.toArray(), expression.evaluate(ROWS, COLS), 1e-9);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals("parallel", expected.toArray(),
+                    DoubleMatrix.evaluate(ROWS, COLS, expression, pool).toArray(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("cell", expected.valueAsDouble(17, 23), expression.valueAsDouble(17, 23), 1e-9);
+    }
+
+    @Test
+    public void withAndBinaryOperators() {
+        final DoubleExpression x = DoubleExpression.of((r, c) -> r);
+        final Double2D y = (r, c) -> c + 1;
+        final Double2D sum = x.with(y).apply(DoubleExpression.ADD);
+        assertEquals("with add", 5, sum.valueAsDouble(2, 2), 0);
+        final DoubleExpression expression = DoubleExpression.of(sum)
+                .max(DoubleExpression.constant(4))
+                .combine(y, (a, b) -> a - 2 * b)
+                .divide(2);
+        assertArrayEquals(new double[] {1, 0, -1, 1, 0, -1}, expression.evaluate(2, 3), 0);
+        assertArrayEquals(new double[] {1, 0, -1, 1, 0, -1},
+                DoubleMatrix.create(2, 3, expression).toArray(), 0);
+    }
+
+    @Test
+    public void compiledKernelMatchesInterpreter() {
+        final DoubleExpression x = DoubleExpression.of(40, 30, DoubleMatrix.create(40, 30, (r, c) -> r - c).toArray());
+        final DoubleExpression expression = x
+                .applyToEach(DoubleFunctions.ABS).add(1).applyToEach(DoubleFunctions.SQRT).pow(3)
+                .applyToEach(DoubleFunctions.INVERT).multiply(7).subtract(0.5).divide(3)
+                .applyToEach(DoubleFunctions.SIGNUM).negate()
+                .add(x).subtract((r, c) -> c).multiply(DoubleExpression.constant(2)).divide(x.add(100))
+                .min(x).max(DoubleExpression.constant(-20))
+                .applyToEach(d -> d * 3).combine(x, (a, b) -> a + b * b);
+        final double[] interpreted = new double[40 * 30];
+        expression.program().evaluate(30, interpreted, 0, interpreted.length);
+        assertArrayEquals(interpreted, expression.evaluate(40, 30), 0);
+        assertArrayEquals("other shape", DoubleMatrix.create(50, 20, expression).toArray(),
+                expression.evaluate(50, 20), 0);
+    }
+
+    @Test
+    public void kernelsAreCachedByShape() {
+        final DoubleExpression x = DoubleExpression.of(3, 3, new double[9]);
+        x.add(1).multiply(2).evaluate(3, 3);
+        final int count = KernelCompiler.kernelCount();
+        assertEquals(-2.5, x.add(-5).multiply(0.5).evaluate(3, 3)[8], 0);
+        assertEquals("same shape", count, KernelCompiler.kernelCount());
+        assertEquals(-2.5, x.applyToEach(DoubleFunctions.add(-5)).applyToEach(DoubleFunctions.multiply(0.5))
+                .evaluate(3, 3)[8], 0);
+        assertEquals("lowered functions", count, KernelCompiler.kernelCount());
+        x.multiply(2).add(1).evaluate(3, 3);
+        assertEquals("new shape", count + 1, KernelCompiler.kernelCount());
+    }
+
+    @Test
+    public void arraySourceWithDifferentShape() {
+        final DoubleExpression source = DoubleExpression.of(2, 2, new double[] {1, 2, 3, 4});
+        assertArrayEquals(new double[] {2, 3, Double.NaN, 4, 5, Double.NaN},
+                source.add(1).evaluate(2, 3), 0);
+        assertEquals(0, source.negate().evaluate(0, 5).length);
+    }
+
+    @Test
+    public void sharedSubexpressionsAreEvaluatedOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Double2D source = (r, c) -> {
+            calls.incrementAndGet();
+            return r * 10 + c;
+        };
+        final DoubleExpression x = DoubleExpression.of(source);
+        final DoubleExpression expression = x.add(1).multiply(x.add(1)).subtract(x.add(1).divide(2));
+        final double[] result = expression.evaluate(4, 5);
+        assertEquals("source calls", 20, calls.get());
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 5; c++) {
+                final double v = r * 10 + c + 1;
+                assertEquals(v * v - v / 2, result[r * 5 + c], 0);
+            }
+        }
+        calls.set(0);
+        final double[] interpreted = new double[20];
+        expression.program().evaluate(5, interpreted, 0, interpreted.length);
+        assertEquals("interpreted source calls", 20, calls.get());
+        assertArrayEquals(result, interpreted, 0);
+    }
+
+    @Test
+    public void cachedMatrixIsMaterializedOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final DoubleMatrix matrix = DoubleMatrix.create(3, 4, (r, c) -> {
+            calls.incrementAndGet();
+            return r - c;
+        });
+        for (final Retention retention : Retention.values()) {
+            calls.set(0);
+            final DoubleMatrix cached = matrix.cached(retention);
+            assertEquals(retention + " lazy", 0, calls.get());
+            assertEquals(retention + " value", -3, cached.valueAsDouble(0, 3), 0);
+            assertArrayEquals(retention.name(), matrix.toArray(), cached.toArray(), 0);
+            if (retention == Retention.STRONG) {
+                assertEquals(retention + " calls", 12 + 12, calls.get());
+            }
+            assertEquals(retention + " equals", matrix, cached);
+            assertSame(retention + " idempotent", cached, cached.cached(retention));
+        }
+        calls.set(0);
+        final DoubleMatrix cached = matrix.cached();
+        assertArrayEquals(new double[] {0, -1, 1, 0}, DoubleMatrix.evaluate(2, 2, cached.expression()
+                .multiply(cached.expression().multiply(cached))).toArray(), 0);
+        assertEquals("single materialization", 12, calls.get());
+    }
+}
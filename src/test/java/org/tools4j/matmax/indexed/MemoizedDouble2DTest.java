@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.indexed;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemoizedDouble2DTest {
+
+    @Test
+    public void remembersCells() {
+        final AtomicInteger calls = new AtomicInteger();
+        final MemoizedDouble2D memoized = ((Double2D)(r, c) -> {
+            calls.incrementAndGet();
+            return r * 1000.0 + c;
+        }).memoized(100);
+        for (int i = 0; i < 3; i++) {
+            for (int r = -2; r < 5; r++) {
+                for (int c = 0; c < 10; c++) {
+                    assertEquals(r * 1000.0 + c, memoized.valueAsDouble(r, c), 0);
+                }
+            }
+        }
+        assertEquals("calls", 70, calls.get());
+        assertEquals("misses", 70, memoized.missCount());
+        assertEquals("hits", 140, memoized.hitCount());
+        assertEquals("size", 70, memoized.size());
+        assertEquals("evictions", 0, memoized.evictionCount());
+        assertEquals("row view", 4003, memoized.row(4).valueAsDouble(3), 0);
+        assertEquals("column view", -991, memoized.column(9).valueAsDouble(-1), 0);
+        assertEquals("view calls", 70, calls.get());
+        memoized.clear();
+        assertEquals("cleared", 0, memoized.size());
+        assertEquals(0, memoized.valueAsDouble(0, 0), 0);
+        assertEquals("calls after clear", 71, calls.get());
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        final MemoizedDouble2D memoized = ((Double2D)(r, c) -> r - c).memoized(500);
+        for (int r = 0; r < 100; r++) {
+            for (int c = 0; c < 100; c++) {
+                assertEquals(r - c, memoized.valueAsDouble(r, c), 0);
+                //keep the first row hot
+                assertEquals(-(c % 10), memoized.valueAsDouble(0, c % 10), 0);
+            }
+        }
+        assertEquals("size", 500, memoized.size());
+        assertEquals("evictions", memoized.missCount() - 500, memoized.evictionCount());
+        final long misses = memoized.missCount();
+        for (int c = 0; c < 10; c++) {
+            assertEquals(-c, memoized.valueAsDouble(0, c), 0);
+        }
+        assertEquals("hot cells retained", misses, memoized.missCount());
+        for (int r = 0; r < 100; r++) {
+            for (int c = 0; c < 100; c++) {
+                assertEquals(r - c, memoized.valueAsDouble(r, c), 0);
+            }
+        }
+    }
+
+    @Test
+    public void concurrentAccess() throws InterruptedException {
+        final MemoizedDouble2D memoized = ((Double2D)(r, c) -> Math.sqrt(r * 31.0 + c)).memoized(100);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            pool.execute(() -> {
+                for (int i = 0; i < 50000; i++) {
+                    final int r = (i * 7 + seed) % 60;
+                    final int c = (i * 13) % 40;
+                    if (memoized.valueAsDouble(r, c) != Math.sqrt(r * 31.0 + c)) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue("terminated", pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals("errors", 0, errors.get());
+        assertEquals("accesses", 8 * 50000, memoized.hitCount() + memoized.missCount());
+        assertEquals("size", 100, memoized.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxEntriesMustBePositive() {
+        Double2D.ZERO.memoized(0);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.junit.Test;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DecompositionTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void luSolveAndInverse() {
+        final int n = 150;//more than two panels
+        final DoubleMatrix a = random(new Random(42), n, n);
+        final DoubleVector b = DoubleVector.create(n, i -> i % 5 - 2);
+        final LuDecomposition lu = a.lu();
+        assertFalse("singular", lu.isSingular());
+        assertArrayEquals("A x = b", b.toArray(), a.multiply(lu.solve(b)).toArray(), EPSILON);
+        assertIdentity(a.multiply(lu.inverse()));
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final LuDecomposition parallel = a.lu(pool);
+            assertEquals("determinant", lu.determinant(), parallel.determinant(), Math.abs(lu.determinant()) * EPSILON);
+            final DoubleMatrix rhs = random(new Random(7), n, 300);
+            assertArrayEquals("A X = B", rhs.toArray(), a.multiply(parallel.solve(rhs)).toArray(), EPSILON);
+            assertArrayEquals("serial", lu.solve(rhs).toArray(), parallel.solve(rhs).toArray(), EPSILON);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("det", -2, DoubleMatrix.create(2, 2, 1, 2, 3, 4).lu().determinant(), EPSILON);
+        assertEquals("permuted det", -6, DoubleMatrix.create(3, 3, 0, 0, 3, 0, 2, 0, 1, 0, 0).lu().determinant(),
+                EPSILON);
+    }
+
+    @Test
+    public void luSingular() {
+        final LuDecomposition lu = DoubleMatrix.create(2, 2, 1, 2, 2, 4).lu();
+        assertTrue("singular", lu.isSingular());
+        assertEquals("det", 0, lu.determinant(), 0);
+        try {
+            lu.solve(DoubleVector.create(1, 2));
+            fail("expected ArithmeticException");
+        } catch (final ArithmeticException e) {
+            //expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void luNotSquare() {
+        DoubleMatrix.create(2, 3, 1, 2, 3, 4, 5, 6).lu();
+    }
+
+    @Test
+    public void qrLeastSquares() {
+        final int m = 200;
+        final DoubleMatrix design = DoubleMatrix.create(m, 3, (r, c) -> c == 0 ? 1 : c == 1 ? r * 0.1 : Math.sin(r));
+        final DoubleVector y = DoubleVector.create(m, i -> 2 + 3 * i * 0.1 - 0.5 * Math.sin(i) + (i % 2 == 0 ? 1 : -1));
+        final QrDecomposition qr = design.qr();
+        assertTrue("full rank", qr.isFullRank());
+        final double[] beta = qr.solve(y).toArray();
+        assertEquals("intercept", 2, beta[0], 0.2);
+        assertEquals("slope", 3, beta[1], 0.01);
+        assertEquals("sine", -0.5, beta[2], 0.2);
+        final DoubleVector residuals = DoubleVector.create(m, i -> y.valueAsDouble(i) -
+                design.multiply(DoubleVector.create(beta)).valueAsDouble(i));
+        assertArrayEquals("normal equations", new double[3],
+                design.transpose().multiply(residuals.materialize()).toArray(), 1e-8);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final DoubleMatrix ys = DoubleMatrix.create(m, 2, (r, c) -> c == 0 ? y.valueAsDouble(r) : r);
+            final DoubleMatrix betas = design.qr(pool).solve(ys);
+            assertArrayEquals("first column", beta, betas.column(0).toArray(), EPSILON);
+            assertArrayEquals("exact fit", new double[] {0, 10, 0}, betas.column(1).toArray(), 1e-8);
+        } finally {
+            pool.shutdown();
+        }
+        final DoubleMatrix square = random(new Random(11), 40, 40);
+        assertEquals("determinant", square.lu().determinant(), square.qr().determinant(),
+                Math.abs(square.lu().determinant()) * 1e-8);
+        assertIdentity(square.multiply(square.qr().inverse()));
+        assertFalse("rank deficient", DoubleMatrix.create(3, 2, 1, 2, 2, 4, 3, 6).qr().isFullRank());
+    }
+
+    @Test
+    public void choleskySolve() {
+        final int n = 120;
+        final DoubleMatrix b = random(new Random(5), n, n);
+        final DoubleMatrix a = b.transpose().multiply(b).materialize();
+        final CholeskyDecomposition cholesky = a.cholesky();
+        final DoubleMatrix lower = cholesky.lower();
+        assertArrayEquals("L L'", a.toArray(), lower.multiply(lower.transpose()).toArray(), EPSILON);
+        assertEquals("upper", 0, lower.valueAsDouble(0, 1), 0);
+        final DoubleVector rhs = DoubleVector.create(n, i -> i);
+        assertArrayEquals("A x = b", rhs.toArray(), a.multiply(cholesky.solve(rhs)).toArray(), 1e-7);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final CholeskyDecomposition parallel = a.cholesky(pool);
+            assertArrayEquals("parallel", cholesky.inverse().toArray(), parallel.inverse().toArray(), EPSILON);
+            assertIdentity(a.multiply(parallel.inverse()));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("det", 8, DoubleMatrix.create(2, 2, 4, 2, 2, 3).cholesky().determinant(), EPSILON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void choleskyNotPositiveDefinite() {
+        DoubleMatrix.create(2, 2, 1, 2, 2, 1).cholesky();
+    }
+
+    private static void assertIdentity(final DoubleMatrix matrix) {
+        assertArrayEquals("identity", DoubleMatrix.identity(matrix.nRows()).toArray(), matrix.toArray(), 1e-8);
+    }
+
+    private static DoubleMatrix random(final Random random, final int rows, final int cols) {
+        final double[] values = new double[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() - 0.5;
+        }
+        return DoubleMatrix.create(rows, cols, values);
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.junit.Test;
+import org.tools4j.matmax.indexed.Bool1D;
+import org.tools4j.matmax.indexed.Obj2D;
+import org.tools4j.matmax.vector.BoolVector;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+import org.tools4j.matmax.vector.ObjVector;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DenseMatrixTest {
+
+    @Test
+    public void materializeDouble() {
+        final AtomicInteger evaluations = new AtomicInteger();
+        final DoubleMatrix lazy = DoubleMatrix.create(3, 4, (r, c) -> {
+            evaluations.incrementAndGet();
+            return 10 * r + c;
+        });
+        final DoubleMatrix dense = lazy.materialize();
+        assertTrue("should be dense", dense instanceof DenseDoubleMatrix);
+        assertEquals("evaluations", 12, evaluations.get());
+        assertArrayEquals(new double[] {0, 1, 2, 3, 10, 11, 12, 13, 20, 21, 22, 23}, dense.toArray(), 0);
+        assertEquals("value(2,1)", 21, dense.valueAsDouble(2, 1), 0);
+        assertEquals("row(1)", 12, dense.row(1).valueAsDouble(2), 0);
+        assertEquals("column(3)", 23, dense.column(3).valueAsDouble(2), 0);
+        assertTrue("out of bounds should be NaN", Double.isNaN(dense.valueAsDouble(3, 0)));
+        assertEquals("evaluations after reads", 12, evaluations.get());
+        assertSame("materialize should return itself", dense, dense.materialize());
+        assertEquals("should equal lazy", lazy, dense);
+        assertEquals("hash codes should be equal", lazy.hashCode(), dense.hashCode());
+    }
+
+    @Test
+    public void materializeOtherTypes() {
+        final IntMatrix ints = IntMatrix.create(2, 3, (r, c) -> r * c).materialize();
+        assertTrue("should be dense", ints instanceof DenseIntMatrix);
+        assertArrayEquals(new int[] {0, 0, 0, 0, 1, 2}, ints.toArray());
+
+        final LongMatrix longs = LongMatrix.create(2, 2, (r, c) -> r - c).materialize();
+        assertTrue("should be dense", longs instanceof DenseLongMatrix);
+        assertArrayEquals(new long[] {0, -1, 1, 0}, longs.toArray());
+
+        final BoolMatrix bools = BoolMatrix.identity(2).materialize();
+        assertTrue("bool(1,1)", bools.valueAsBoolean(1, 1));
+        assertEquals("bools", BoolMatrix.identity(2), bools);
+
+        final ObjMatrix<String> strings = ObjMatrix.create(1, 2, (r, c) -> "c" + c).materialize();
+        assertTrue("should be dense", strings instanceof DenseObjMatrix);
+        assertArrayEquals(new Object[] {"c0", "c1"}, strings.toArray());
+    }
+
+    @Test
+    public void packedBoolMatrix() {
+        final BoolMatrix lazy = BoolMatrix.create(77, 13, (r, c) -> (r + c) % 3 == 0);
+        final BoolMatrix packed = lazy.materialize();
+        assertTrue("should be packed", packed instanceof PackedBoolMatrix);
+        assertEquals("packed", lazy, packed);
+        assertEquals("parallel", packed, lazy.materializeParallel());
+        assertEquals("cardinality", (77 * 13 + 2) / 3, packed.cardinality());
+        final BoolMatrix other = BoolMatrix.create(77, 13, (r, c) -> r % 2 == 0).materialize();
+        assertEquals("and", BoolMatrix.create(77, 13, (r, c) -> (r + c) % 3 == 0 && r % 2 == 0), packed.and(other));
+        assertEquals("xor", BoolMatrix.create(77, 13, (r, c) -> (r + c) % 3 == 0 ^ r % 2 == 0), packed.xor(other));
+        assertEquals("negate", BoolMatrix.create(77, 13, (r, c) -> (r + c) % 3 != 0), packed.negate());
+        final int[] visited = {0};
+        packed.forEachTrue((r, c) -> {
+            assertEquals("true value", 0, (r + c) % 3);
+            visited[0]++;
+        });
+        assertEquals("visited", packed.cardinality(), visited[0]);
+    }
+
+    @Test
+    public void selectRowsAndColumns() {
+        final DoubleMatrix matrix = DoubleMatrix.create(3, 4, (r, c) -> r * 10 + c);
+        final DoubleMatrix rows = matrix.selectRows(BoolVector.create(true, false, true));
+        assertArrayEquals(new double[] {0, 1, 2, 3, 20, 21, 22, 23}, rows.toArray(), 0);
+        final DoubleMatrix cols = matrix.selectColumns(c -> c % 2 == 1, ForkJoinPool.commonPool());
+        assertArrayEquals(new double[] {1, 3, 11, 13, 21, 23}, cols.toArray(), 0);
+        final ObjMatrix<String> strings = ObjMatrix.create(2, 2, "a", "b", "c", "d");
+        assertArrayEquals(new Object[] {"c", "d"}, strings.selectRows(r -> r == 1).toArray());
+        assertEquals("none", 0, matrix.selectRows(Bool1D.FALSE).nRows());
+    }
+
+    @Test
+    public void materializeParallel() {
+        final DoubleMatrix lazy = DoubleMatrix.create(501, 333, (r, c) -> r * 1000 + c).applyToEach(d -> d / 2);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            final DoubleMatrix dense = lazy.materializeParallel(pool);
+            assertTrue("should be dense", dense instanceof DenseDoubleMatrix);
+            assertArrayEquals(lazy.toArray(), dense.toArray(), 0);
+            assertArrayEquals(lazy.toArray(), lazy.toArrayParallel(pool), 0);
+            assertSame("materializeParallel should return itself", dense, dense.materializeParallel(pool));
+        } finally {
+            pool.shutdown();
+        }
+        final IntMatrix ints = IntMatrix.create(1000, 7, (r, c) -> r ^ c);
+        assertArrayEquals(ints.toArray(), ints.materializeParallel().toArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createWithWrongLength() {
+        DoubleMatrix.create(2, 2, 1d, 2d, 3d);
+    }
+
+    @Test
+    public void gatherAndScatterRows() {
+        final DoubleMatrix matrix = DoubleMatrix.create(3, 2, 1, 2, 3, 4, 5, 6);
+        final IntVector order = IntVector.create(2, 0, 2);
+        final DoubleMatrix gathered = matrix.gatherRows(order);
+        final DoubleMatrix expected = DoubleMatrix.create(3, 2, 5, 6, 1, 2, 5, 6);
+        assertEquals("view", expected, gathered);
+        assertTrue("dense copy", gathered.materialize() instanceof DenseDoubleMatrix);
+        assertArrayEquals("copy", expected.toArray(), gathered.materialize().toArray(), 0);
+        assertTrue("out of range", Double.isNaN(gathered.valueAsDouble(3, 0)));
+        assertEquals("columns", DoubleMatrix.create(3, 3, 2, 1, 1, 4, 3, 3, 6, 5, 5),
+                matrix.gatherColumns(IntVector.create(1, 0, 0)).materialize());
+        final DoubleMatrix scattered = matrix.scatterRows(IntVector.create(3, 0, 1), 4);
+        assertEquals("scatter", DoubleMatrix.create(4, 2, 3, 4, 5, 6, 0, 0, 1, 2), scattered.materialize());
+        assertEquals("inverse", matrix, matrix.gatherRows(IntVector.create(1, 2, 0))
+                .scatterRows(IntVector.create(1, 2, 0), 3).materialize());
+        assertEquals("lazy", matrix.scatterRows(IntVector.create(3, 0, 1), 4), scattered.materialize());
+        assertEquals("long", LongMatrix.create(1, 2, 4L, 3L),
+                LongMatrix.create(2, 2, 1L, 2L, 3L, 4L).gatherRows(IntVector.create(1)).gatherColumns(
+                        IntVector.create(1, 0)).materialize());
+        assertEquals("bool", BoolMatrix.create(2, 2, false, true, true, false),
+                BoolMatrix.create(2, 2, true, false, false, true).gatherColumns(IntVector.create(1, 0)).materialize());
+        assertEquals("obj", ObjMatrix.create(2, 1, null, "a"),
+                ObjMatrix.create(1, 1, "a").scatterRows(IntVector.create(1), 2).materialize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gatherRowOutOfRange() {
+        DoubleMatrix.create(2, 1, 1, 2).gatherRows(IntVector.create(0, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scatterWrongLength() {
+        DoubleMatrix.create(2, 1, 1, 2).scatterRows(IntVector.create(0), 2);
+    }
+
+    @Test
+    public void transpose() {
+        final int rows = 203;
+        final int cols = 117;
+        final DoubleMatrix matrix = DoubleMatrix.create(rows, cols, (r, c) -> r * 1000 + c).materialize();
+        final DoubleMatrix view = matrix.transpose();
+        assertEquals("rows", cols, view.nRows());
+        assertEquals("layout", Layout.COLUMN_MAJOR, view.layout());
+        assertEquals("value", 5 * 1000 + 7, view.valueAsDouble(7, 5), 0);
+        assertSame("transpose of transpose", matrix, view.transpose());
+        final DoubleMatrix expected = DoubleMatrix.create(cols, rows, (r, c) -> c * 1000 + r);
+        final DoubleMatrix transposed = view.materialize();
+        assertTrue("dense", transposed instanceof DenseDoubleMatrix);
+        assertEquals("materialized", Layout.ROW_MAJOR, transposed.layout());
+        assertEquals("transposed", expected, transposed);
+        assertEquals("lazy source", expected, DoubleMatrix.create(rows, cols, (r, c) -> r * 1000 + c).transpose()
+                .materialize());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals("parallel", transposed.toArray(), view.toArrayParallel(pool), 0);
+            assertEquals("ints", IntMatrix.create(cols, rows, (r, c) -> c - r), IntMatrix.create(rows, cols,
+                    (r, c) -> r - c).materialize().transpose().materializeParallel(pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals("longs", LongMatrix.create(2, 1, 1L, 2L),
+                LongMatrix.create(1, 2, 1L, 2L).transpose().materialize());
+        assertEquals("bools", BoolMatrix.create(2, 1, true, false),
+                BoolMatrix.create(1, 2, true, false).transpose().materialize());
+        assertEquals("objs", ObjMatrix.create(3, 1, "a", "b", "c"),
+                ObjMatrix.create(1, 3, "a", "b", "c").transpose().materialize());
+        assertEquals("row of view", matrix.column(3), view.row(3));
+    }
+
+    @Test
+    public void transposeNonSquareLazy() {
+        final DoubleMatrix doubles = DoubleMatrix.create(2, 3, (r, c) -> r * 10 + c).transpose();
+        assertEquals("double row", DoubleVector.create(1, 11), doubles.row(1));
+        assertEquals("double rows", 2, doubles.rows().value(2).nElements());
+        assertEquals("double column", DoubleVector.create(10, 11, 12), doubles.column(1));
+        final LongMatrix longs = LongMatrix.create(2, 3, (r, c) -> r * 10 + c).transpose();
+        assertEquals("long row", LongVector.create(2, 12), longs.row(2));
+        assertEquals("long column", 3, longs.column(0).nElements());
+        final IntMatrix ints = IntMatrix.create(2, 3, (r, c) -> r * 10 + c).transpose();
+        assertEquals("int row", IntVector.create(0, 10), ints.row(0));
+        assertEquals("int column", 3, ints.column(1).nElements());
+        final BoolMatrix bools = BoolMatrix.create(2, 3, (r, c) -> r > c).transpose();
+        assertEquals("bool row", BoolVector.create(false, true), bools.row(0));
+        assertEquals("bool column", 3, bools.column(1).nElements());
+        final ObjMatrix<String> objs = ObjMatrix.create(2, 3, (Obj2D<String>)(r, c) -> r + ":" + c).transpose();
+        assertEquals("obj row", ObjVector.create("0:1", "1:1"), objs.row(1));
+        assertEquals("obj column", 3, objs.column(0).nElements());
+    }
+}
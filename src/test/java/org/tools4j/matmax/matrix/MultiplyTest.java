@@ -0,0 +1,145 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.junit.Test;
+import org.tools4j.matmax.vector.DoubleVector;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MultiplyTest {
+
+    @Test
+    public void multiplySmall() {
+        final DoubleMatrix a = DoubleMatrix.create(new double[][] {
+                {1, 2, 3},
+                {4, 5, 6}
+        });
+        final DoubleMatrix b = DoubleMatrix.create(new double[][] {
+                {7, 8},
+                {9, 10},
+                {11, 12}
+        });
+        assertArrayEquals(new double[] {58, 64, 139, 154}, a.multiply(b).toArray(), 0);
+    }
+
+    @Test
+    public void multiplyBlocked() {
+        final Random random = new Random(123);
+        final int[][] shapes = {{1, 300, 1}, {97, 263, 131}, {130, 257, 5}, {257, 64, 259}, {3, 513, 2049}};
+        for (final int[] shape : shapes) {
+            final DoubleMatrix a = random(random, shape[0], shape[1]);
+            final DoubleMatrix b = random(random, shape[1], shape[2]);
+            final double[] expected = naive(a, b);
+            final DoubleMatrix product = a.multiply(b);
+            assertEquals("rows", shape[0], product.nRows());
+            assertEquals("columns", shape[2], product.nColumns());
+            assertArrayEquals("product " + shape[0] + "x" + shape[1] + "x" + shape[2], expected, product.toArray(), 1e-9);
+        }
+    }
+
+    @Test
+    public void multiplyIntoTarget() {
+        final DoubleMatrix a = DoubleMatrix.create(64, 64, (r, c) -> r == c ? 2 : 0);
+        final DoubleMatrix b = DoubleMatrix.create(64, 64, (r, c) -> r + c);
+        final double[] target = new double[64 * 64];
+        final DoubleMatrix product = a.multiply(b, target);
+        assertSame("should be backed by target", target, ((DenseDoubleMatrix)product).values);
+        assertEquals("value", 2 * (3 + 5), product.valueAsDouble(3, 5), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multiplyIncompatible() {
+        DoubleMatrix.constant(2, 3, 1).multiply(DoubleMatrix.constant(2, 3, 1));
+    }
+
+    @Test
+    public void multiplySparse() {
+        final Random random = new Random(42);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SparseDoubleMatrix.Builder builder = SparseDoubleMatrix.builder(500, 300);
+            for (int i = 0; i < 20_000; i++) {
+                //skewed rows to test partitioning by non-zero count
+                final int row = random.nextInt(4) == 0 ? random.nextInt(5) : random.nextInt(500);
+                builder.add(row, random.nextInt(300), random.nextDouble() - 0.5);
+            }
+            final SparseDoubleMatrix csr = builder.build();
+            final SparseDoubleMatrix csc = csr.toLayout(Layout.COLUMN_MAJOR);
+            final DoubleMatrix dense = DoubleMatrix.create(500, 300, csr.toArray());
+            final DoubleMatrix right = random(random, 300, 7);
+            final DoubleMatrix left = random(random, 9, 500);
+            final double[] expected = naive(dense, right);
+            assertArrayEquals("csr x dense", expected, csr.multiply(right, pool).toArray(), 1e-9);
+            assertArrayEquals("csc x dense", expected, csc.multiply(right, pool).toArray(), 1e-9);
+            assertArrayEquals("dense x csc", naive(left, dense), left.multiply(csc, pool).toArray(), 1e-9);
+            assertArrayEquals("dense x csr", naive(left, dense), left.multiply(csr, pool).toArray(), 1e-9);
+            final DoubleVector x = right.column(0);
+            final double[] y = dense.multiply(x, pool).toArray();
+            assertArrayEquals("csr x vector", y, csr.multiply(x, pool).toArray(), 1e-9);
+            assertArrayEquals("csc x vector", y, csc.multiply(x, pool).toArray(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void multiplyVector() {
+        final DoubleMatrix a = DoubleMatrix.create(2, 3, 1, 2, 3, 4, 5, 6);
+        assertArrayEquals(new double[] {14, 32}, a.multiply(DoubleVector.create(1, 2, 3)).toArray(), 0);
+        assertArrayEquals(new double[] {6, 15}, a.multiply(i -> 1).toArray(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multiplyVectorIncompatible() {
+        DoubleMatrix.constant(2, 3, 1).multiply(DoubleVector.create(1, 2));
+    }
+
+    private static DoubleMatrix random(final Random random, final int rows, final int cols) {
+        final double[] values = new double[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() - 0.5;
+        }
+        return DoubleMatrix.create(rows, cols, values);
+    }
+
+    private static double[] naive(final DoubleMatrix a, final DoubleMatrix b) {
+        final double[] result = new double[a.nRows() * b.nColumns()];
+        for (int i = 0; i < a.nRows(); i++) {
+            for (int j = 0; j < b.nColumns(); j++) {
+                double sum = 0;
+                for (int p = 0; p < a.nColumns(); p++) {
+                    sum += a.valueAsDouble(i, p) * b.valueAsDouble(p, j);
+                }
+                result[i * b.nColumns() + j] = sum;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.junit.Test;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.SummationMode;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ReduceTest {
+
+    private static final DoubleMatrix MATRIX = DoubleMatrix.create(new double[][] {
+            {1, 5, 3},
+            {4, 2, 6}
+    });
+
+    @Test
+    public void reduceDouble() {
+        assertArrayEquals(new double[] {9, 12}, MATRIX.rowSums().toArray(), 0);
+        assertArrayEquals(new double[] {5, 7, 9}, MATRIX.columnSums().toArray(), 0);
+        assertArrayEquals(new double[] {3, 4}, MATRIX.rowMeans().toArray(), 0);
+        assertArrayEquals(new double[] {2.5, 3.5, 4.5}, MATRIX.columnMeans().toArray(), 0);
+        assertArrayEquals(new double[] {1, 2}, MATRIX.min(Axis.ROWS).toArray(), 0);
+        assertArrayEquals(new double[] {4, 5, 6}, MATRIX.max(Axis.COLUMNS).toArray(), 0);
+        assertArrayEquals(new int[] {0, 1}, MATRIX.argMin(Axis.ROWS).toArray());
+        assertArrayEquals(new int[] {1, 0, 1}, MATRIX.argMax(Axis.COLUMNS).toArray());
+        assertArrayEquals(new double[] {15, 48}, MATRIX.reduce((a, b) -> a * b, 1, Axis.ROWS).toArray(), 0);
+    }
+
+    @Test
+    public void reduceLazyAndSparse() {
+        final DoubleMatrix lazy = DoubleMatrix.create(2, 3, MATRIX::valueAsDouble);
+        final DoubleMatrix sparse = SparseDoubleMatrix.copyOf(MATRIX, Layout.COLUMN_MAJOR);
+        for (final DoubleMatrix matrix : new DoubleMatrix[] {lazy, sparse}) {
+            for (final Axis axis : Axis.values()) {
+                assertArrayEquals(axis.name(), MATRIX.sum(axis).toArray(), matrix.sum(axis).toArray(), 0);
+                assertArrayEquals(axis.name(), MATRIX.max(axis).toArray(), matrix.max(axis).toArray(), 0);
+                assertArrayEquals(axis.name(), MATRIX.argMin(axis).toArray(), matrix.argMin(axis).toArray());
+            }
+        }
+    }
+
+    @Test
+    public void reduceIntAndLong() {
+        final IntMatrix ints = IntMatrix.create(2, 2, (r, c) -> Integer.MAX_VALUE - r - 2 * c);
+        assertArrayEquals(new long[] {2L * Integer.MAX_VALUE - 2, 2L * Integer.MAX_VALUE - 4},
+                ints.rowSums().toArray());
+        assertArrayEquals(new int[] {Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 3}, ints.min(Axis.ROWS).toArray());
+        assertArrayEquals(new int[] {0, 0}, ints.argMax(Axis.COLUMNS).toArray());
+        assertArrayEquals(new int[] {1, 1}, ints.reduce((a, b) -> a ^ b, 0, Axis.COLUMNS).toArray());
+
+        final LongMatrix longs = LongMatrix.create(2, 3, (r, c) -> (long)(r + 1) * (c - 1));
+        assertArrayEquals(new long[] {0, 0}, longs.rowSums().toArray());
+        assertArrayEquals(new long[] {-3, 0, 3}, longs.columnSums().toArray());
+        assertArrayEquals(new double[] {-1.5, 0, 1.5}, longs.columnMeans().toArray(), 0);
+        assertArrayEquals(new int[] {0, 0, 1}, longs.argMax(Axis.COLUMNS).toArray());
+    }
+
+    @Test
+    public void reduceEmpty() {
+        final DoubleMatrix empty = DoubleMatrix.create(3, 0, (r, c) -> 1);
+        assertArrayEquals(new double[] {0, 0, 0}, empty.rowSums().toArray(), 0);
+        assertArrayEquals(new double[] {Double.NaN, Double.NaN, Double.NaN}, empty.rowMeans().toArray(), 0);
+        assertArrayEquals(new int[] {-1, -1, -1}, empty.argMax(Axis.ROWS).toArray());
+        assertEquals(0, empty.columnSums().nElements());
+    }
+
+    @Test
+    public void sumWithSummationMode() {
+        final DoubleMatrix matrix = DoubleMatrix.create(2000, 3, (r, c) -> r == 0 ? 1 : c * 0.5e-16).materialize();
+        final double expected = 1 + 1999 * 1e-16;
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final SummationMode mode : new SummationMode[] {SummationMode.KAHAN, SummationMode.PAIRWISE}) {
+                for (final DoubleVector sums : new DoubleVector[] {
+                        matrix.sum(Axis.COLUMNS, mode), matrix.sum(Axis.COLUMNS, mode, pool),
+                        DoubleMatrix.create(2000, 3, matrix::valueAsDouble).sum(Axis.COLUMNS, mode, pool)}) {
+                    assertEquals(mode + " column 0", 1, sums.valueAsDouble(0), 0);
+                    assertEquals(mode + " column 2", expected, sums.valueAsDouble(2), 1e-13);
+                }
+                assertArrayEquals(mode.name(), matrix.sum(Axis.ROWS).toArray(),
+                        matrix.sum(Axis.ROWS, mode, pool).toArray(), 1e-15);
+            }
+            assertEquals("naive", 1, matrix.sum(Axis.COLUMNS, SummationMode.NAIVE).valueAsDouble(2), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reduceParallel() {
+        final Random random = new Random(42);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final DoubleMatrix dense = DoubleMatrix.create(3000, 70, (r, c) -> random.nextInt(1000));
+            final DoubleMatrix materialized = dense.materialize();
+            for (final Axis axis : Axis.values()) {
+                assertArrayEquals(axis.name(), materialized.sum(axis).toArray(),
+                        materialized.sum(axis, pool).toArray(), 0);
+                assertArrayEquals(axis.name(), materialized.min(axis).toArray(),
+                        materialized.min(axis, pool).toArray(), 0);
+                assertArrayEquals(axis.name(), materialized.argMax(axis).toArray(),
+                        materialized.argMax(axis, pool).toArray());
+            }
+            final LongMatrix longs = LongMatrix.create(3000, 70, (r, c) -> r * 70L + c).materialize();
+            assertArrayEquals(longs.columnSums().toArray(), longs.sum(Axis.COLUMNS, pool).toArray());
+            assertArrayEquals(longs.argMin(Axis.COLUMNS).toArray(), longs.argMin(Axis.COLUMNS, pool).toArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.matrix;
+
+import org.junit.Test;
+import org.tools4j.matmax.vector.IntVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SparseMatrixTest {
+
+    private static final double[] DENSE = {
+            0, 1, 0, 0,
+            2, 0, 0, 3,
+            0, 0, 0, 0
+    };
+
+    @Test
+    public void createFromTriplets() {
+        for (final Layout layout : Layout.values()) {
+            final SparseDoubleMatrix sparse = SparseDoubleMatrix.create(3, 4, layout,
+                    new int[] {1, 0, 1, 1, 2, 1},
+                    new int[] {3, 1, 0, 3, 2, 3},
+                    new double[] {1, 1, 2, 2, 0, 0});
+            assertEquals("layout", layout, sparse.layout());
+            assertEquals("nnz", 3, sparse.nNonZeros());
+            assertArrayEquals("values", DENSE, sparse.toArray(), 0);
+            assertEquals("equals dense", DoubleMatrix.create(3, 4, DENSE), sparse);
+            assertEquals("zero", 0, sparse.valueAsDouble(2, 2), 0);
+            assertTrue("out of range", Double.isNaN(sparse.valueAsDouble(3, 0)));
+            assertArrayEquals("row", new double[] {2, 0, 0, 3}, sparse.row(1).toArray(), 0);
+            assertArrayEquals("column", new double[] {0, 3, 0}, sparse.column(3).toArray(), 0);
+        }
+    }
+
+    @Test
+    public void copyOfAndLayout() {
+        final SparseDoubleMatrix csr = SparseDoubleMatrix.copyOf(DoubleMatrix.create(3, 4, DENSE));
+        final SparseDoubleMatrix csc = csr.toLayout(Layout.COLUMN_MAJOR);
+        assertSame("same layout", csr, csr.toLayout(Layout.ROW_MAJOR));
+        assertEquals("csc", csr, csc);
+        final List<String> visited = new ArrayList<>();
+        csc.forEachNonZero((r, c, v) -> visited.add(r + "," + c + "=" + v));
+        assertEquals("column order", Arrays.asList("1,0=2.0", "0,1=1.0", "1,3=3.0"), visited);
+    }
+
+    @Test
+    public void applyToEachPreservesSparsity() {
+        final SparseDoubleMatrix sparse = SparseDoubleMatrix.copyOf(DoubleMatrix.create(3, 4, DENSE));
+        final DoubleMatrix scaled = sparse.applyToEach(v -> v == 1 ? 0 : 2 * v);
+        assertTrue("sparse", scaled instanceof SparseDoubleMatrix);
+        assertEquals("nnz", 2, ((SparseDoubleMatrix)scaled).nNonZeros());
+        assertEquals("value", 6, scaled.valueAsDouble(1, 3), 0);
+        final DoubleMatrix shifted = sparse.applyToEach(v -> v + 1);
+        assertFalse("dense", shifted instanceof SparseDoubleMatrix);
+        assertEquals("shifted", 1, shifted.valueAsDouble(2, 2), 0);
+    }
+
+    @Test
+    public void intMatrix() {
+        final SparseIntMatrix sparse = SparseIntMatrix.builder(2, 3)
+                .add(1, 2, 5).add(0, 0, 1).add(1, 2, -5).add(0, 1, 7)
+                .build(Layout.COLUMN_MAJOR);
+        assertEquals("nnz", 2, sparse.nNonZeros());
+        assertArrayEquals("values", new int[] {1, 7, 0, 0, 0, 0}, sparse.toArray());
+        assertEquals("negated", IntMatrix.create(2, 3, -1, -7, 0, 0, 0, 0), sparse.applyToEach(v -> -v));
+    }
+
+    @Test
+    public void boolMatrix() {
+        final BoolMatrix dense = BoolMatrix.create(2, 3, true, false, true, false, true, true);
+        final SparseBoolMatrix sparse = SparseBoolMatrix.copyOf(dense);
+        assertEquals("nnz", 4, sparse.nNonZeros());
+        assertEquals("equals", dense, sparse);
+        final SparseBoolMatrix and = sparse.and(BoolMatrix.create(2, 3, true, true, false, false, false, true));
+        assertEquals("and", BoolMatrix.create(2, 3, true, false, false, false, false, true), and);
+        assertEquals("and nnz", 2, and.nNonZeros());
+        assertArrayEquals("column", new boolean[] {true, true}, sparse.toLayout(Layout.COLUMN_MAJOR).column(2).toArray());
+    }
+
+    @Test
+    public void gatherPreservesSparsity() {
+        final DoubleMatrix dense = DoubleMatrix.create(3, 4, DENSE);
+        final IntVector rows = IntVector.create(1, 1, 0);
+        final IntVector columns = IntVector.create(3, 0);
+        for (final Layout layout : Layout.values()) {
+            final SparseDoubleMatrix sparse = SparseDoubleMatrix.copyOf(dense, layout);
+            final DoubleMatrix gatheredRows = sparse.gatherRows(rows).materialize();
+            assertTrue("sparse rows", gatheredRows instanceof SparseDoubleMatrix);
+            assertEquals("rows layout", layout, ((SparseDoubleMatrix)gatheredRows).layout());
+            assertEquals("rows", dense.gatherRows(rows).materialize(), gatheredRows);
+            assertEquals("rows nnz", 5, ((SparseDoubleMatrix)gatheredRows).nNonZeros());
+            final DoubleMatrix gatheredColumns = sparse.gatherColumns(columns).materialize();
+            assertEquals("columns layout", layout, ((SparseDoubleMatrix)gatheredColumns).layout());
+            assertArrayEquals("columns", new double[] {0, 0, 3, 2, 0, 0}, gatheredColumns.toArray(), 0);
+            final DoubleMatrix scattered = sparse.scatterRows(IntVector.create(4, 0, 2), 5).materialize();
+            assertEquals("scattered nnz", 3, ((SparseDoubleMatrix)scattered).nNonZeros());
+            assertArrayEquals("scattered", new double[] {2, 0, 0, 3}, scattered.row(0).toArray(), 0);
+            assertArrayEquals("empty row", new double[4], scattered.row(1).toArray(), 0);
+        }
+        final SparseIntMatrix ints = SparseIntMatrix.copyOf(IntMatrix.create(2, 2, 0, 1, 2, 0));
+        assertEquals("ints", IntMatrix.create(2, 2, 2, 0, 0, 1), ints.gatherRows(IntVector.create(1, 0)).materialize());
+        final SparseBoolMatrix bools = SparseBoolMatrix.copyOf(BoolMatrix.create(1, 3, true, false, true));
+        final BoolMatrix gatheredBools = bools.gatherColumns(IntVector.create(1, 2)).materialize();
+        assertTrue("sparse bools", gatheredBools instanceof SparseBoolMatrix);
+        assertEquals("bools", BoolMatrix.create(1, 2, false, true), gatheredBools);
+    }
+
+    @Test
+    public void transposeSharesStorage() {
+        final SparseDoubleMatrix csr = SparseDoubleMatrix.copyOf(DoubleMatrix.create(3, 4, DENSE));
+        final SparseDoubleMatrix transposed = csr.transpose();
+        assertEquals("layout", Layout.COLUMN_MAJOR, transposed.layout());
+        assertEquals("values", DoubleMatrix.create(3, 4, DENSE).transpose().materialize(), transposed);
+        assertEquals("transpose of transpose", csr, transposed.transpose());
+        assertEquals("bools", BoolMatrix.create(2, 1, true, false),
+                SparseBoolMatrix.copyOf(BoolMatrix.create(1, 2, true, false)).transpose());
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.junit.Test;
+import org.tools4j.matmax.matrix.DoubleMatrix;
+import org.tools4j.matmax.matrix.IntMatrix;
+import org.tools4j.matmax.matrix.LongMatrix;
+import org.tools4j.matmax.vector.DoubleVector;
+import org.tools4j.matmax.vector.IntVector;
+import org.tools4j.matmax.vector.LongVector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArenaTest {
+
+    @Test
+    public void vectors() {
+        try (final Arena arena = Arena.create(1024)) {
+            final DoubleVector doubles = arena.doubleVector(100, i -> i * 0.25);
+            final LongVector longs = arena.longVector(3, i -> Long.MAX_VALUE - i);
+            final IntVector ints = arena.intVector(1000, i -> -i);
+            assertEquals(24.75, doubles.valueAsDouble(99), 0);
+            assertTrue("out of range", Double.isNaN(doubles.valueAsDouble(100)));
+            assertEquals(Long.MAX_VALUE - 2, longs.valueAsLong(2));
+            assertEquals(0, longs.valueAsLong(-1));
+            assertEquals(-999, ints.valueAsInt(999));
+            assertEquals(DoubleVector.create(100, i -> i * 0.25), doubles);
+            assertEquals(doubles, DoubleVector.create(doubles.toArray()));
+            assertEquals(IntVector.create(1000, i -> -i), arena.copyOf(ints));
+            assertArrayEquals(new long[] {Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE - 2}, longs.toArray());
+            assertEquals(0, arena.doubleVector(0, i -> 1).toArray().length);
+            assertTrue("chunks and dedicated buffers", arena.allocatedBytes() >= 1024 + 4000);
+        }
+    }
+
+    @Test
+    public void matrices() {
+        final Arena arena = Arena.create();
+        final DoubleMatrix doubles = arena.doubleMatrix(30, 40, (r, c) -> r * 100.0 + c);
+        final LongMatrix longs = arena.copyOf(LongMatrix.create(2, 2, 1L << 40, 2, 3, -(1L << 40)));
+        final IntMatrix ints = arena.intMatrix(5, 7, (r, c) -> r * c);
+        assertEquals(2939, doubles.valueAsDouble(29, 39), 0);
+        assertTrue("out of range", Double.isNaN(doubles.valueAsDouble(30, 0)));
+        assertEquals(DoubleMatrix.create(30, 40, (r, c) -> r * 100.0 + c), doubles);
+        assertArrayEquals(DoubleMatrix.create(30, 40, (r, c) -> r * 100.0 + c).toArray(), doubles.toArray(), 0);
+        assertEquals(-(1L << 40), longs.valueAsLong(1, 1));
+        assertEquals(24, ints.valueAsInt(4, 6));
+        assertEquals(0, ints.valueAsInt(4, 7));
+        arena.close();
+        assertTrue("closed", arena.isClosed());
+        try {
+            doubles.valueAsDouble(0, 0);
+            fail("expected exception after close");
+        } catch (final IllegalStateException e) {
+            //expected
+        }
+        try {
+            arena.intVector(1, i -> i);
+            fail("expected exception after close");
+        } catch (final IllegalStateException e) {
+            //expected
+        }
+        arena.close();
+    }
+
+    @Test
+    public void allocationsSpanningSegments() {
+        try (final Arena arena = Arena.create(64, 6)) {
+            final DoubleVector doubles = arena.doubleVector(1001, i -> i);
+            final IntVector ints = arena.intVector(99, i -> i * i);
+            final LongMatrix longs = arena.longMatrix(13, 17, (r, c) -> r * 17L + c);
+            assertEquals(DoubleVector.create(1001, i -> i), doubles);
+            assertArrayEquals(DoubleVector.create(1001, i -> i).toArray(), doubles.toArray(), 0);
+            assertArrayEquals(IntVector.create(99, i -> i * i).toArray(), ints.toArray());
+            assertEquals(LongMatrix.create(13, 17, (r, c) -> r * 17L + c), longs);
+            assertArrayEquals(LongVector.create(13 * 17, i -> i).toArray(), longs.toArray());
+            assertEquals("segments", 8008 + 396 + 13 * 17 * 8, arena.allocatedBytes());
+        }
+    }
+}
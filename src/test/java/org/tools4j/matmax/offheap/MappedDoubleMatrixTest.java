@@ -0,0 +1,138 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.offheap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tools4j.matmax.matrix.DoubleMatrix;
+import org.tools4j.matmax.matrix.Layout;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedDoubleMatrixTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static final DoubleMatrix MATRIX = DoubleMatrix.create(50, 30, (r, c) -> r * 0.5 - c);
+
+    @Test
+    public void writeAndOpen() throws IOException {
+        for (final Layout layout : Layout.values()) {
+            final Path file = folder.newFile(layout + ".mmx").toPath();
+            try (final MappedDoubleMatrix written = MappedDoubleMatrix.write(file, MATRIX, layout)) {
+                assertEquals(layout + " written", MATRIX, written);
+            }
+            assertEquals(layout + " file size", MappedDoubleMatrix.HEADER_BYTES + 50 * 30 * 8, Files.size(file));
+            try (final MappedDoubleMatrix mapped = MappedDoubleMatrix.open(file)) {
+                assertEquals(layout, mapped.layout());
+                assertEquals(50, mapped.nRows());
+                assertEquals(30, mapped.nColumns());
+                assertEquals(-4.5, mapped.valueAsDouble(1, 5), 0);
+                assertTrue("out of range", Double.isNaN(mapped.valueAsDouble(50, 0)));
+                assertArrayEquals(layout.name(), MATRIX.toArray(), mapped.toArray(), 0);
+                assertArrayEquals(layout.name(), MATRIX.applyToEach(Math::abs).toBool2D(d -> d > 3).row(4).toArray(),
+                        DoubleMatrix.create(50, 30, mapped.applyToEach(Math::abs)).toBool2D(d -> d > 3)
+                                .row(4).toArray());
+                try {
+                    mapped.setValue(0, 0, 1);
+                    fail("expected read-only");
+                } catch (final ReadOnlyBufferException e) {
+                    //expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readWriteAndPrivateModes() throws IOException {
+        final Path file = folder.newFile("rw.mmx").toPath();
+        try (final MappedDoubleMatrix created = MappedDoubleMatrix.create(file, 3, 4, Layout.COLUMN_MAJOR)) {
+            assertEquals(DoubleMatrix.create(3, 4, (r, c) -> 0), created);
+            created.setValue(2, 3, 42);
+            created.force();
+        }
+        try (final MappedDoubleMatrix mapped = MappedDoubleMatrix.open(file, MapMode.PRIVATE)) {
+            assertEquals(42, mapped.valueAsDouble(2, 3), 0);
+            mapped.setValue(0, 0, -1);
+            assertEquals(-1, mapped.valueAsDouble(0, 0), 0);
+        }
+        try (final MappedDoubleMatrix mapped = MappedDoubleMatrix.open(file, MapMode.READ_WRITE)) {
+            assertEquals("private change not written", 0, mapped.valueAsDouble(0, 0), 0);
+            mapped.setValue(1, 1, 7);
+            assertEquals("transposed", Layout.ROW_MAJOR, mapped.transpose().layout());
+            final DoubleMatrix expected = DoubleMatrix.create(4, 3,
+                    (r, c) -> r == 1 & c == 1 ? 7 : r == 3 & c == 2 ? 42 : 0);
+            assertEquals("transpose", expected, mapped.transpose().materialize());
+            try {
+                mapped.setValue(3, 0, 1);
+                fail("expected out of bounds");
+            } catch (final IndexOutOfBoundsException e) {
+                //expected
+            }
+        }
+        final MappedDoubleMatrix mapped = MappedDoubleMatrix.open(file);
+        assertEquals(7, mapped.valueAsDouble(1, 1), 0);
+        mapped.close();
+        try {
+            mapped.valueAsDouble(1, 1);
+            fail("expected exception after close");
+        } catch (final IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void invalidFiles() throws IOException {
+        final Path file = folder.newFile("invalid.mmx").toPath();
+        Files.write(file, new byte[10]);
+        assertOpenFails(file);
+        Files.write(file, new byte[MappedDoubleMatrix.HEADER_BYTES]);
+        assertOpenFails(file);
+        MappedDoubleMatrix.write(file, MATRIX, Layout.ROW_MAJOR).close();
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertOpenFails(file);
+    }
+
+    private static void assertOpenFails(final Path file) {
+        try {
+            MappedDoubleMatrix.open(file).close();
+            fail("expected exception for invalid file");
+        } catch (final IOException e) {
+            //expected
+        }
+    }
+}
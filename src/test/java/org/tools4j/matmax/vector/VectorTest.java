@@ -0,0 +1,290 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 matmax (tools4j.org) Marco Terzer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.tools4j.matmax.vector;
+
+import org.junit.Test;
+import org.tools4j.matmax.function.Retention;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VectorTest {
+
+    private static final int N = 100_000;
+
+    @Test
+    public void parallelStreams() {
+        final long expected = (long)N * (N - 1) / 2;
+        assertEquals("double sum", expected, DoubleVector.create(N, i -> i).stream().parallel().sum(), 0);
+        assertEquals("int sum", expected, IntVector.create(N, i -> i).stream().parallel().asLongStream().sum());
+        assertEquals("long sum", expected, LongVector.create(N, i -> i).stream().parallel().sum());
+        assertEquals("bool count", N / 2, BoolVector.create(N, i -> i % 2 == 0).stream().parallel().filter(b -> b).count());
+        assertEquals("obj joined", "0,1,2,3,4", ObjVector.create(5, i -> String.valueOf(i)).stream().parallel()
+                .collect(Collectors.joining(",")));
+    }
+
+    @Test
+    public void materializeParallel() {
+        final DoubleVector lazy = DoubleVector.create(N, i -> i * 0.5);
+        assertArrayEquals(lazy.toArray(), lazy.toArrayParallel(), 0);
+        assertEquals("materialized", lazy, lazy.materializeParallel());
+        final LongVector longs = LongVector.create(N, i -> -i);
+        assertArrayEquals(longs.toArray(), longs.materializeParallel().toArray());
+        final ObjVector<String> strings = ObjVector.create(N, String::valueOf);
+        assertArrayEquals(strings.toArray(), strings.toArrayParallel());
+    }
+
+    @Test
+    public void packedBoolVector() {
+        final BoolVector even = BoolVector.create(N, i -> i % 2 == 0).materialize();
+        final BoolVector third = BoolVector.create(N + 7, i -> i % 3 == 0).materializeParallel();
+        assertTrue("should be packed", even instanceof PackedBoolVector && third instanceof PackedBoolVector);
+        assertEquals("cardinality", N / 2, even.cardinality());
+        assertEquals("and", BoolVector.create(N, i -> i % 6 == 0), even.and(third));
+        assertEquals("or", BoolVector.create(N, i -> i % 2 == 0 || i % 3 == 0), even.or(third));
+        assertEquals("xor", BoolVector.create(N, i -> i % 2 == 0 ^ i % 3 == 0), even.xor(third));
+        assertEquals("andNot", BoolVector.create(N, i -> i % 2 == 0 && i % 3 != 0), even.andNot(third));
+        assertEquals("negate", BoolVector.create(N, i -> i % 2 != 0), even.negate());
+        assertEquals("negate cardinality", N / 2, even.negate().cardinality());
+        assertEquals("lazy and", BoolVector.create(N, i -> i % 4 == 0), even.and(i -> i % 4 == 0));
+        int count = 0;
+        for (int i = third.nextSetBit(0); i >= 0; i = third.nextSetBit(i + 1)) {
+            assertEquals("next set bit", 0, i % 3);
+            count++;
+        }
+        assertEquals("set bits", third.cardinality(), count);
+        assertEquals("beyond end", -1, even.nextSetBit(N - 1));
+        assertEquals("negative from", 0, even.nextSetBit(-5));
+        final BoolVector empty = BoolVector.create(0, i -> true).materialize();
+        assertTrue("empty should be packed", empty instanceof PackedBoolVector);
+        assertEquals("empty negative from", -1, empty.nextSetBit(-1));
+    }
+
+    @Test
+    public void selectByMask() {
+        final DoubleVector values = DoubleVector.create(N, i -> i * 0.5);
+        final BoolVector mask = BoolVector.create(N, i -> i % 7 == 3);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final int[] expected = IntStream.range(0, N).filter(i -> i % 7 == 3).toArray();
+            assertArrayEquals("indices", expected, values.selectIndices(mask).toArray());
+            assertArrayEquals("parallel indices", expected, values.selectIndices(mask.materialize(), pool).toArray());
+            final double[] selected = values.select(mask, pool).toArray();
+            assertEquals("selected", expected.length, selected.length);
+            assertEquals("last", expected[expected.length - 1] * 0.5, selected[selected.length - 1], 0);
+            assertArrayEquals("serial", selected, values.select(mask).toArray(), 0);
+            assertArrayEquals("ints", new int[] {1, 3}, IntVector.create(0, 1, 2, 3).select(i -> i % 2 == 1).toArray());
+            assertArrayEquals("strings", new Object[] {"a", "c"},
+                    ObjVector.create("a", "b", "c").select(BoolVector.create(true, false, true, true), pool).toArray());
+            assertEquals("bools", BoolVector.create(true, false),
+                    BoolVector.create(true, true, false).select(BoolVector.create(true, false, true)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void summationModes() {
+        final double[] values = new double[N];
+        values[0] = 1;
+        for (int i = 1; i < N; i++) {
+            values[i] = 1e-16;
+        }
+        final double expected = 1 + (N - 1) * 1e-16;
+        final DoubleVector dense = DoubleVector.create(values);
+        final DoubleVector lazy = DoubleVector.create(N, i -> i == 0 ? 1 : 1e-16);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final DoubleVector vector : new DoubleVector[] {dense, lazy}) {
+                assertEquals("naive", 1, vector.sum(SummationMode.NAIVE), 0);
+                assertEquals("kahan", expected, vector.sum(SummationMode.KAHAN), 1e-16);
+                assertEquals("pairwise", expected, vector.sum(SummationMode.PAIRWISE), 1e-14);
+                assertEquals("parallel kahan", expected, vector.sum(SummationMode.KAHAN, pool), 1e-16);
+                assertEquals("parallel pairwise", expected, vector.sum(SummationMode.PAIRWISE, pool), 1e-13);
+            }
+            final ForkJoinPool smallPool = new ForkJoinPool(2);
+            try {
+                for (final SummationMode mode : SummationMode.values()) {
+                    assertEquals("deterministic " + mode, dense.sum(mode, pool), dense.sum(mode, smallPool), 0);
+                }
+            } finally {
+                smallPool.shutdown();
+            }
+            assertEquals("empty", 0, DoubleVector.create().sum(SummationMode.KAHAN, pool), 0);
+            assertEquals("infinity", Double.POSITIVE_INFINITY,
+                    DoubleVector.create(1, Double.POSITIVE_INFINITY, 1).sum(SummationMode.KAHAN), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void spliteratorSplitsInHalf() {
+        final Spliterator.OfDouble spliterator = DoubleVector.create(N, i -> i).spliterator();
+        assertTrue("should be sized", spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        final Spliterator.OfDouble prefix = spliterator.trySplit();
+        assertNotNull("should split", prefix);
+        assertEquals("prefix size", N / 2, prefix.getExactSizeIfKnown());
+        assertEquals("suffix size", N / 2, spliterator.getExactSizeIfKnown());
+        assertTrue("prefix first", prefix.tryAdvance((double d) -> assertEquals(0, d, 0)));
+        assertTrue("suffix first", spliterator.tryAdvance((double d) -> assertEquals(N / 2, d, 0)));
+    }
+
+    @Test
+    public void cachedVector() {
+        final AtomicInteger calls = new AtomicInteger();
+        final DoubleVector vector = DoubleVector.create(1000, i -> {
+            calls.incrementAndGet();
+            return i * 0.5;
+        });
+        final DoubleVector cached = vector.cached();
+        assertEquals("lazy", 0, calls.get());
+        assertEquals("sum", 249750, cached.sum(SummationMode.KAHAN), 0);
+        assertEquals("value", 10, cached.valueAsDouble(20), 0);
+        assertArrayEquals(vector.cached(Retention.WEAK).toArray(), cached.toArray(), 0);
+        assertEquals("calls", 2000, calls.get());
+        assertSame("idempotent", cached, cached.cached());
+    }
+
+    @Test
+    public void indexedLookups() {
+        final DoubleVector doubles = DoubleVector.create(N, i -> i % 7 == 3 ? Double.NaN : i % 100).indexed();
+        final IntVector ints = IntVector.create(N, i -> i % 100).indexed();
+        final LongVector longs = LongVector.create(N, i -> (i % 100) + Long.MAX_VALUE - 100).indexed();
+        final ObjVector<String> strings = ObjVector.create(N, i -> i % 11 == 0 ? null : "s" + (i % 100)).indexed();
+        final DoubleVector linearDoubles = DoubleVector.create(doubles.toArray());
+        final IntVector linearInts = IntVector.create(ints.toArray());
+        final LongVector linearLongs = LongVector.create(longs.toArray());
+        final ObjVector<String> linearStrings = ObjVector.create(strings.toArray(String[]::new));
+        for (int value = -1; value <= 100; value++) {
+            for (final int start : new int[] {0, 1, 150, N - 100, N}) {
+                assertEquals("double " + value + "@" + start, linearDoubles.indexOf(value, start),
+                        doubles.indexOf(value, start));
+                assertEquals("int " + value + "@" + start, linearInts.indexOf(value, start),
+                        ints.indexOf(value, start));
+                final long key = value + Long.MAX_VALUE - 100;
+                assertEquals("long " + value + "@" + start, linearLongs.indexOf(key, start), longs.indexOf(key, start));
+                assertEquals("string " + value + "@" + start, linearStrings.indexOf("s" + value, start),
+                        strings.indexOf("s" + value, start));
+            }
+            assertEquals("double last " + value, linearDoubles.lastIndexOf(value), doubles.lastIndexOf(value));
+            assertEquals("int last " + value, linearInts.lastIndexOf(value), ints.lastIndexOf(value));
+            assertEquals("string last " + value, linearStrings.lastIndexOf("s" + value),
+                    strings.lastIndexOf("s" + value));
+            assertEquals("int contains " + value, value >= 0 & value < 100, ints.contains(value));
+        }
+        assertEquals("NaN", 3, doubles.indexOf(Double.NaN));
+        assertEquals("NaN last", linearDoubles.lastIndexOf(Double.NaN), doubles.lastIndexOf(Double.NaN));
+        assertEquals("null", 0, strings.indexOf((String)null));
+        assertEquals("null last", linearStrings.lastIndexOf((String)null), strings.lastIndexOf((String)null));
+        assertFalse("-0.0", doubles.contains(-0d));
+        assertTrue("max long", longs.contains(Long.MAX_VALUE - 1));
+        assertFalse("long precision", longs.contains(Long.MAX_VALUE));
+        assertSame("idempotent", doubles, doubles.indexed());
+        assertEquals("equals", linearDoubles, doubles);
+        assertEquals("hashCode", linearStrings.hashCode(), strings.hashCode());
+    }
+
+    @Test
+    public void sortAndArgsort() {
+        final DoubleVector values = DoubleVector.create(N, i -> i % 13 == 5 ? Double.NaN : ((i * 7919L) % 1000) * 0.5);
+        final double[] expected = values.toArray();
+        Arrays.sort(expected);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals("sort", expected, values.sort().toArray(), 0);
+            assertArrayEquals("parallel sort", expected, values.sort(pool).toArray(), 0);
+            final IntVector permutation = values.argsort();
+            assertArrayEquals("parallel argsort", permutation.toArray(), values.argsort(pool).toArray());
+            for (int i = 1; i < N; i++) {
+                final int prev = permutation.valueAsInt(i - 1);
+                final int next = permutation.valueAsInt(i);
+                assertEquals("sorted " + i, expected[i], values.valueAsDouble(next), 0);
+                assertTrue("stable " + i, Double.compare(values.valueAsDouble(prev), values.valueAsDouble(next)) < 0
+                        || prev < next);
+            }
+            final long[] longs = LongVector.create(N, i -> (i * 7919L) % 1000 - 500).toArray();
+            final long[] sortedLongs = longs.clone();
+            Arrays.sort(sortedLongs);
+            assertArrayEquals("longs", sortedLongs, LongVector.create(longs).sort(pool).toArray());
+            assertArrayEquals("ints", new int[] {-3, 1, 2, 2}, IntVector.create(2, -3, 2, 1).sort().toArray());
+            assertArrayEquals("int argsort", new int[] {1, 3, 0, 2}, IntVector.create(2, -3, 2, 1).argsort().toArray());
+            final ObjVector<String> strings = ObjVector.create("bb", "a", "ccc", "d", "ee");
+            final Comparator<String> byLength = Comparator.comparingInt(String::length);
+            assertArrayEquals("strings", new Object[] {"a", "d", "bb", "ee", "ccc"},
+                    strings.sort(byLength, pool).toArray());
+            assertArrayEquals("string argsort", new int[] {1, 3, 0, 4, 2}, strings.argsort(byLength).toArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sortedLookups() {
+        final SortedDoubleVector edges = SortedDoubleVector.create(30, 0, 10, 10, 20);
+        assertEquals("lower", 1, edges.lowerBound(10));
+        assertEquals("upper", 3, edges.upperBound(10));
+        assertEquals("indexOf", 1, edges.indexOf(10));
+        assertEquals("indexOf from", 2, edges.indexOf(10, 2));
+        assertEquals("indexOf beyond", -1, edges.indexOf(10, 3));
+        assertEquals("lastIndexOf", 2, edges.lastIndexOf(10));
+        assertFalse("contains", edges.contains(15));
+        assertEquals("below", 0, edges.lowerBound(-1));
+        assertEquals("above", 5, edges.upperBound(31));
+        assertArrayEquals("searchSorted", new int[] {0, 1, 3, 5}, edges.searchSorted(DoubleVector.create(-1, 5, 15, 99))
+                .toArray());
+        assertArrayEquals("range", new double[] {10, 10, 20}, edges.range(10, 30).toArray(), 0);
+        assertEquals("empty range", 0, edges.range(20, 10).nElements());
+        assertArrayEquals("merge", new double[] {0, 5, 10, 10, 20, 30, 40},
+                edges.merge(DoubleVector.create(40, 5).sort()).toArray(), 0);
+        assertSame("sorted", edges, edges.sort());
+        assertEquals("equals", DoubleVector.create(0, 10, 10, 20, 30), edges);
+
+        final SortedLongVector times = LongVector.create(N, i -> i * 10L).sort();
+        assertEquals("bin", 12, times.upperBound(125) - 1);
+        assertEquals("long indexOf", 12, times.indexOf(120L));
+        assertEquals("long range", 5, times.range(100, 150).nElements());
+        assertEquals("int merge", IntVector.create(1, 2, 3, 4), SortedIntVector.create(3, 1).merge(
+                SortedIntVector.create(4, 2)));
+
+        final SortedObjVector<String> names = SortedObjVector.create(String.CASE_INSENSITIVE_ORDER, "b", "C", "a");
+        assertArrayEquals("names", new Object[] {"a", "b", "C"}, names.toArray());
+        assertEquals("case insensitive", 2, names.indexOf("c"));
+        assertArrayEquals("names range", new Object[] {"b", "C"}, names.range("B", "d").toArray());
+        assertArrayEquals("names merge", new Object[] {"a", "A", "b", "C"},
+                names.merge(ObjVector.create("A").sort(String.CASE_INSENSITIVE_ORDER)).toArray());
+    }
+}